@@ -0,0 +1,63 @@
+package com.excilys.computer_database.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compare two runs of the benchmarks, written by JMH with "-rf json" : for each benchmark of both runs, the scores
+ * and the change from the first run to the second.
+ */
+public final class BenchmarkComparison {
+    private BenchmarkComparison() {
+    }
+
+    /**
+     * Read the scores of a run.
+     * @param file The JSON results
+     * @return The score and its unit, by benchmark and parameters
+     */
+    static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> scores = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder name = new StringBuilder(result.get("benchmark").asText()
+                    .replace(BenchmarkComparison.class.getPackage().getName() + ".", ""));
+            JsonNode params = result.get("params");
+            if (params != null) {
+                for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext();) {
+                    Map.Entry<String, JsonNode> param = it.next();
+                    name.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+                }
+            }
+            scores.put(name.toString(), result.get("primaryMetric"));
+        }
+        return scores;
+    }
+
+    /**
+     * @param args The results of the former run, then of the new one
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage : BenchmarkComparison <former results.json> <new results.json>");
+            System.exit(1);
+        }
+        Map<String, JsonNode> before = read(new File(args[0])), after = read(new File(args[1]));
+
+        System.out.printf("%-80s %14s %14s %8s%n", "Benchmark", "Before", "After", "Change");
+        for (Map.Entry<String, JsonNode> e : after.entrySet()) {
+            JsonNode former = before.get(e.getKey());
+            if (former == null) {
+                continue;
+            }
+            double from = former.get("score").asDouble(), to = e.getValue().get("score").asDouble();
+            System.out.printf("%-80s %14.3f %14.3f %+7.1f%% %s%n", e.getKey(), from, to, (to - from) * 100 / from,
+                    e.getValue().get("scoreUnit").asText());
+        }
+    }
+}
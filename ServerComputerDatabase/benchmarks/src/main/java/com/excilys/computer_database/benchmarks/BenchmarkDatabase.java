@@ -0,0 +1,148 @@
+package com.excilys.computer_database.benchmarks;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * The persistence layer of the application on an in-memory H2 database, created from the entities.
+ */
+@Configuration
+@EnableJpaRepositories("com.excilys.computer_database.persistence.dao")
+@EnableTransactionManagement
+public class BenchmarkDatabase {
+    private static final String ENTITY_PACKAGE = "com.excilys.computer_database.core.entity";
+    /** The entities of the benchmarks, as IdentityComputer. */
+    private static final String BENCHMARK_ENTITY_PACKAGE = "com.excilys.computer_database.benchmarks";
+    private static final String SAMPLE_DATA = "3-ENTRIES.sql";
+
+    /**
+     * A pool of connections to a new in-memory database, as the application has a pool.
+     * @return The DataSource
+     */
+    @Bean(destroyMethod = "close")
+    public DataSource dataSource() {
+        HikariConfig config = new HikariConfig();
+        config.setDriverClassName("org.h2.Driver");
+        config.setJdbcUrl("jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        return new HikariDataSource(config);
+    }
+
+    @Bean
+    public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
+        LocalContainerEntityManagerFactoryBean entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactoryBean.setDataSource(dataSource());
+        entityManagerFactoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactoryBean.setPackagesToScan(ENTITY_PACKAGE, BENCHMARK_ENTITY_PACKAGE);
+
+        Properties properties = new Properties();
+        properties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("hibernate.hbm2ddl.auto", "create");
+        // The batches of the application (application.properties)
+        properties.put("hibernate.jdbc.batch_size", "50");
+        properties.put("hibernate.order_inserts", "true");
+        properties.put("hibernate.order_updates", "true");
+        properties.put("hibernate.id.optimizer.pooled.preferred", "pooled-lo");
+        entityManagerFactoryBean.setJpaProperties(properties);
+        return entityManagerFactoryBean;
+    }
+
+    @Bean
+    public JpaTransactionManager transactionManager() {
+        JpaTransactionManager transactionManager = new JpaTransactionManager();
+        transactionManager.setEntityManagerFactory(entityManagerFactory().getObject());
+        return transactionManager;
+    }
+
+    /**
+     * Start the services of the application on the database, filled with the sample data of database/3-ENTRIES.sql.
+     * @return The started context : close it at the end of the benchmark
+     */
+    public static AnnotationConfigApplicationContext startServices() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(BenchmarkServices.class);
+        DataSource dataSource = context.getBean(DataSource.class);
+        matchSchema(new JdbcTemplate(dataSource));
+        new ResourceDatabasePopulator(new ClassPathResource(SAMPLE_DATA)).execute(dataSource);
+        // The sample data predates the company names copied in the computers
+        new JdbcTemplate(dataSource).update(
+                "UPDATE computer c SET company_name = (SELECT name FROM company co WHERE co.id = c.company_id)");
+        startIdGenerators(new JdbcTemplate(dataSource));
+        return context;
+    }
+
+    /**
+     * Start the database and fill it.
+     * @param companies The number of companies to insert
+     * @param computers The number of computers to insert, most of them with dates and a company
+     * @return The started context : close it at the end of the benchmark
+     */
+    public static AnnotationConfigApplicationContext start(int companies, int computers) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(BenchmarkDatabase.class);
+        JdbcTemplate jdbc = new JdbcTemplate(context.getBean(DataSource.class));
+        matchSchema(jdbc);
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= companies; i++) {
+            rows.add(new Object[] { (long) i, "Company " + i });
+        }
+        jdbc.batchUpdate("INSERT INTO company (id, name) VALUES (?, ?)", rows);
+
+        rows.clear();
+        long day = 24L * 3600 * 1000;
+        for (int i = 1; i <= computers; i++) {
+            // One computer in ten without dates nor company, as in the sample data
+            boolean complete = i % 10 != 0;
+            Timestamp introduced = complete ? new Timestamp(i * day) : null;
+            Timestamp discontinued = complete ? new Timestamp((i + 1000) * day) : null;
+            Long company = complete ? (long) (i % companies + 1) : null;
+            rows.add(new Object[] { (long) i, "Computer " + i, introduced, discontinued, company,
+                (company == null) ? null : "Company " + company });
+        }
+        jdbc.batchUpdate("INSERT INTO computer (id, name, introduced, discontinued, company_id, company_name)"
+                + " VALUES (?, ?, ?, ?, ?, ?)", rows);
+        startIdGenerators(jdbc);
+        return context;
+    }
+
+    /**
+     * Give the tables created from the entities the columns of database/1-SCHEMA.sql, where the entities differ.
+     */
+    private static void matchSchema(JdbcTemplate jdbc) {
+        jdbc.execute("ALTER TABLE company ALTER COLUMN name VARCHAR(255)");
+        // The dates are primitive epoch days in the entities, NULL in the database when unknown
+        for (String table : new String[] { "computer", "identity_computer" }) {
+            jdbc.execute("ALTER TABLE " + table + " ALTER COLUMN introduced SET NULL");
+            jdbc.execute("ALTER TABLE " + table + " ALTER COLUMN discontinued SET NULL");
+        }
+        jdbc.execute("ALTER TABLE computer ALTER COLUMN version SET DEFAULT 0");
+    }
+
+    /**
+     * Start the generated ids after the rows inserted with their ids, as the migration V5__id_generator.sql does.
+     */
+    private static void startIdGenerators(JdbcTemplate jdbc) {
+        for (String table : new String[] { "computer", "company" }) {
+            jdbc.update("INSERT INTO id_generator (name, next_val) SELECT ?, COALESCE(MAX(id), 0) + 1 FROM " + table,
+                    table);
+        }
+    }
+}
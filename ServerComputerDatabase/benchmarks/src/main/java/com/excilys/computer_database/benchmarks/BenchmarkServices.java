@@ -0,0 +1,23 @@
+package com.excilys.computer_database.benchmarks;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * The services of the application, with their caches and search index, on the embedded database.
+ */
+@Configuration
+@Import(BenchmarkDatabase.class)
+@ComponentScan({ "com.excilys.computer_database.service", "com.excilys.computer_database.binding",
+    "com.excilys.computer_database.persistence.dao" })
+public class BenchmarkServices {
+
+    @Bean
+    public MetricRegistry metricRegistry() {
+        return new MetricRegistry();
+    }
+}
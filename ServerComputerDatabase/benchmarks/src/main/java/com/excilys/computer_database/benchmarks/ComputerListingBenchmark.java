@@ -0,0 +1,105 @@
+package com.excilys.computer_database.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.excilys.computer_database.binding.ComputerDTOMapper;
+import com.excilys.computer_database.core.dto.ComputerDTO;
+import com.excilys.computer_database.core.entity.Computer;
+import com.excilys.computer_database.core.page.PageCursor;
+import com.excilys.computer_database.persistence.dao.ComputerDAO;
+
+/**
+ * A page of the dashboard : the computer entities mapped to DTOs, against the DTOs projected by the query.
+ *
+ * Run the main method : the GC profiler reports the bytes allocated by operation (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComputerListingBenchmark {
+    private static final int COMPANIES = 50, COMPUTERS = 10000;
+
+    @Param({ "10", "100" })
+    private int pageSize;
+
+    private AnnotationConfigApplicationContext context;
+    private ComputerDAO computerDAO;
+    private ComputerDTOMapper mapper = new ComputerDTOMapper();
+    private TransactionTemplate transaction;
+    private long lastId;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkDatabase.start(COMPANIES, COMPUTERS);
+        computerDAO = context.getBean(ComputerDAO.class);
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transaction.setReadOnly(true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Walk through the pages by id, to not read the same rows each time. The seek reads the primary key index only, so
+     * the time left is the one of building the rows.
+     */
+    private PageCursor nextPage() {
+        lastId = (lastId + pageSize) % (COMPUTERS - pageSize);
+        return new PageCursor(null, true, false, null, lastId);
+    }
+
+    /** The former listing : managed entities, with their companies, then copied to DTOs. */
+    @Benchmark
+    public List<ComputerDTO> entitiesThenMapper() {
+        final PageCursor cursor = nextPage();
+        return transaction.execute(status -> {
+            List<Computer> computers = computerDAO.findByKeyset(null, true, cursor, pageSize);
+            List<ComputerDTO> dtos = new ArrayList<>(computers.size());
+            for (Computer computer : computers) {
+                dtos.add(mapper.unmap(computer));
+            }
+            return dtos;
+        });
+    }
+
+    /** The DTOs built by the query, nothing managed by the persistence context. */
+    @Benchmark
+    public List<ComputerDTO> projection() {
+        final PageCursor cursor = nextPage();
+        return transaction.execute(status -> computerDAO.findDTOByKeyset(null, true, cursor, pageSize));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(ComputerListingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+}
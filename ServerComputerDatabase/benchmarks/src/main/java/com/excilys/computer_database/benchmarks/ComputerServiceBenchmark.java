@@ -0,0 +1,72 @@
+package com.excilys.computer_database.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.domain.Sort.Direction;
+
+import com.excilys.computer_database.core.entity.Computer;
+import com.excilys.computer_database.core.page.CountStrategy;
+import com.excilys.computer_database.core.page.SimplePage;
+import com.excilys.computer_database.service.ComputerService;
+import com.excilys.computer_database.service.ComputerService.COLUMN;
+
+/**
+ * ComputerService.listComputers on the sample data, through the services as the webapp runs them : transactions,
+ * count cache and search index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComputerServiceBenchmark {
+    private static final int PAGE_SIZE = 10;
+
+    @Param({ "COMPUTER_NAME", "COMPANY_NAME" })
+    private COLUMN column;
+    @Param({ "EXACT", "CACHED" })
+    private CountStrategy countStrategy;
+
+    private AnnotationConfigApplicationContext context;
+    private ComputerService computerService;
+    private int pages, page;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkDatabase.startServices();
+        computerService = context.getBean(ComputerService.class);
+        pages = computerService.listComputers(null, Direction.ASC, null, 0, PAGE_SIZE).getPageTotalCount();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    /** Walk through the pages, to not read the same rows each time. */
+    @Benchmark
+    public SimplePage<Computer> list() {
+        page = (page + 1) % pages;
+        return computerService.listComputers(column, Direction.ASC, null, page, PAGE_SIZE, countStrategy);
+    }
+
+    /** The first page of a search. */
+    @Benchmark
+    public SimplePage<Computer> search() {
+        return computerService.listComputers(column, Direction.ASC, "mac", 0, PAGE_SIZE, countStrategy);
+    }
+}
@@ -0,0 +1,75 @@
+package com.excilys.computer_database.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.excilys.computer_database.core.dto.ComputerDTO;
+import com.excilys.computer_database.core.page.SimplePage;
+import com.excilys.computer_database.service.ComputerService;
+import com.excilys.computer_database.webapp.controller.DashboardController;
+
+/**
+ * The parameter parsing of the dashboard : the service behind it answers at once, with an empty page.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DashboardControllerBenchmark {
+    private static final int SELECTION_SIZE = 100;
+
+    private final DashboardController controller = new DashboardController();
+    private String selection;
+
+    @Setup
+    public void setUp() {
+        final SimplePage<ComputerDTO> empty = new SimplePage<>(Collections.<ComputerDTO> emptyList(), 0, 10, 0, 0);
+        ComputerService service = (ComputerService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ComputerService.class }, (proxy, method, args) -> {
+                    return (method.getReturnType() == int.class) ? 0 : empty;
+                });
+        ReflectionTestUtils.setField(controller, "computerService", service);
+
+        StringBuilder ids = new StringBuilder();
+        for (int i = 1; i <= SELECTION_SIZE; i++) {
+            ids.append(i).append(i < SELECTION_SIZE ? "," : "");
+        }
+        selection = ids.toString();
+    }
+
+    /** A page of the listing, sorted and filtered. */
+    @Benchmark
+    public String list() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/dashboard");
+        request.setParameter("pageSize", "50");
+        request.setParameter("page", "3");
+        request.setParameter("column", "companyName");
+        request.setParameter("order", "DESC");
+        request.setParameter("search", "apple");
+        return controller.dashboardGet(request);
+    }
+
+    /** The deletion of a selection of computers, then the listing. */
+    @Benchmark
+    public String deleteSelection() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/dashboard");
+        request.setParameter("selection", selection);
+        return controller.dashboardPost(request);
+    }
+}
@@ -0,0 +1,73 @@
+package com.excilys.computer_database.benchmarks;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.excilys.computer_database.core.DateHelper;
+import com.excilys.computer_database.core.date.EpochDays;
+
+/**
+ * The date conversions of DateHelper, and the epoch day codec they delegate to : run for each date of each listed
+ * computer and each submitted form.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateHelperBenchmark {
+    private final LocalDate localDate = LocalDate.of(2006, 1, 10);
+    private final Timestamp timestamp = DateHelper.localDateToTimestamp(localDate);
+    private final long epochDay = localDate.toEpochDay();
+    private final String iso = "2006-01-10";
+    private final char[] buffer = new char[EpochDays.ISO_LENGTH];
+
+    @Benchmark
+    public LocalDate timestampToLocalDate() {
+        return DateHelper.timestampToLocalDate(timestamp);
+    }
+
+
+    @Benchmark
+    public Timestamp localDateToTimestamp() {
+        return DateHelper.localDateToTimestamp(localDate);
+    }
+
+    @Benchmark
+    public LocalDate isoStringToLocalDate() {
+        return DateHelper.isoStringToLocalDate(iso);
+    }
+
+    @Benchmark
+    public long fromMillis() {
+        return EpochDays.fromMillis(timestamp.getTime());
+    }
+
+    @Benchmark
+    public long toMillis() {
+        return EpochDays.toMillis(epochDay);
+    }
+
+    @Benchmark
+    public long parseIso() {
+        return EpochDays.parseIso(iso);
+    }
+
+    @Benchmark
+    public char[] formatIso() {
+        EpochDays.formatIso(epochDay, buffer, 0);
+        return buffer;
+    }
+}
@@ -0,0 +1,58 @@
+package com.excilys.computer_database.benchmarks;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+import com.excilys.computer_database.core.date.EpochDayConverter;
+import com.excilys.computer_database.core.entity.Company;
+
+/**
+ * The columns of a computer, with the auto_increment ids the computers had before the id_generator table : Hibernate
+ * inserts each one when it is persisted, to read its id, so the inserts are never batched.
+ */
+@Entity
+@Table(name = "identity_computer")
+public class IdentityComputer {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String name;
+    @Convert(converter = EpochDayConverter.class)
+    private long introduced, discontinued;
+
+    @ManyToOne
+    @JoinColumn(name = "company_id")
+    private Company company;
+    @Column(name = "company_name")
+    private String companyName;
+
+    /** Constructor. */
+    public IdentityComputer() {
+    }
+
+    /**
+     * Constructor.
+     * @param name The name
+     * @param introduced The introduction, in epoch days
+     * @param discontinued The discontinuation, in epoch days
+     * @param company The company
+     */
+    public IdentityComputer(String name, long introduced, long discontinued, Company company) {
+        this.name = name;
+        this.introduced = introduced;
+        this.discontinued = discontinued;
+        this.company = company;
+        this.companyName = company.getName();
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,104 @@
+package com.excilys.computer_database.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.excilys.computer_database.core.entity.Company;
+import com.excilys.computer_database.core.entity.Computer;
+import com.excilys.computer_database.core.entity.Computer.ComputerBuilder;
+
+/**
+ * The computers persisted by a transaction, by Hibernate : with the ids of the id_generator table, inserted by JDBC
+ * batches at the commit, against the auto_increment ids (IdentityComputer), inserted one by one when persisted.
+ *
+ * The score is the time per computer. H2 runs in the process : the batches save the round trips to MySQL too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(InsertBatchBenchmark.COMPUTERS)
+public class InsertBatchBenchmark {
+    /** The computers persisted by a transaction. */
+    static final int COMPUTERS = 100;
+    private static final int COMPANIES = 50;
+
+    @Param({ "TABLE", "IDENTITY" })
+    private String generation;
+
+    private AnnotationConfigApplicationContext context;
+    private EntityManagerFactory entityManagerFactory;
+    private TransactionTemplate transaction;
+    private JdbcTemplate jdbc;
+    private final Company[] companies = new Company[COMPANIES];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkDatabase.start(COMPANIES, 0);
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        jdbc = new JdbcTemplate(context.getBean(DataSource.class));
+        for (int i = 0; i < COMPANIES; i++) {
+            companies[i] = new Company(i + 1, "Company " + (i + 1));
+        }
+    }
+
+    /** Keep the tables at the same size from an iteration to the other. */
+    @TearDown(Level.Iteration)
+    public void deleteComputers() {
+        jdbc.update("DELETE FROM computer");
+        jdbc.update("DELETE FROM identity_computer");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int persist() {
+        return transaction.execute(status -> {
+            EntityManager em = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+            for (int i = 0; i < COMPUTERS; i++) {
+                Company company = companies[next % COMPANIES];
+                long introduced = next % 10000;
+                if ("TABLE".equals(generation)) {
+                    Computer computer = new ComputerBuilder("Computer " + next).introduced(introduced)
+                            .discontinued(introduced + 1000).company(company).build();
+                    computer.setCompanyName(company.getName());
+                    em.persist(computer);
+                } else {
+                    em.persist(new IdentityComputer("Computer " + next, introduced, introduced + 1000, company));
+                }
+                next++;
+            }
+            return COMPUTERS;
+        });
+    }
+}
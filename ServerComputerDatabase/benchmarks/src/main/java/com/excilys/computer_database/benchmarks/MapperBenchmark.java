@@ -0,0 +1,47 @@
+package com.excilys.computer_database.benchmarks;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.excilys.computer_database.binding.ComputerDTOMapper;
+import com.excilys.computer_database.core.dto.ComputerDTO;
+import com.excilys.computer_database.core.entity.Company;
+import com.excilys.computer_database.core.entity.Computer;
+import com.excilys.computer_database.core.entity.Computer.ComputerBuilder;
+
+/**
+ * ComputerDTOMapper, for a computer with its dates and company.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+    private final ComputerDTOMapper mapper = new ComputerDTOMapper();
+    private final Computer computer = new ComputerBuilder("MacBook Pro 15.4 inch").id(6L)
+            .introduced(LocalDate.of(2006, 1, 10)).discontinued(LocalDate.of(2012, 6, 11))
+            .company(new Company(1L, "Apple Inc.")).build();
+    private final ComputerDTO dto = new ComputerDTO(computer);
+
+    @Benchmark
+    public ComputerDTO unmap() {
+        return mapper.unmap(computer);
+    }
+
+    @Benchmark
+    public Computer map() {
+        return mapper.map(dto);
+    }
+}
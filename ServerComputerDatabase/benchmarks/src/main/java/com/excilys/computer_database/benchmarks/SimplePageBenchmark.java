@@ -0,0 +1,100 @@
+package com.excilys.computer_database.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.excilys.computer_database.core.entity.Company;
+import com.excilys.computer_database.core.entity.Computer;
+import com.excilys.computer_database.core.page.CountStrategy;
+import com.excilys.computer_database.core.page.SimplePage;
+import com.excilys.computer_database.webapp.json.ComputerJsonModule;
+import com.excilys.computer_database.webapp.json.ComputerSerializer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * A page of the REST listing : built from the listed computers, then written in JSON by the mapper of Spring MVC.
+ *
+ * The streaming serializers of ComputerJsonModule are compared with the reflection on the pages and companies they
+ * replace (same output), and with the gzip compression of the output as done by GzipFilter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimplePageBenchmark {
+    @Param({ "10", "100" })
+    private int pageSize;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .modulesToInstall(ComputerJsonModule.class).build();
+    /** Only the computers written by hand, the pages and the companies by reflection. */
+    private final ObjectMapper reflectionMapper = Jackson2ObjectMapperBuilder.json()
+            .modulesToInstall(new SimpleModule().addSerializer(Computer.class, new ComputerSerializer())).build();
+    private final ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    private List<Computer> computers;
+    private SimplePage<Computer> page;
+
+    @Setup
+    public void setUp() {
+        Company apple = new Company(1L, "Apple Inc.");
+        computers = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            // One computer in ten without dates nor company, as in the sample data
+            boolean complete = i % 10 != 0;
+            computers.add(new Computer.ComputerBuilder("Computer " + i).id(i)
+                    .introduced(complete ? LocalDate.of(2006, 1, 10) : null)
+                    .discontinued(complete ? LocalDate.of(2012, 6, 11) : null).company(complete ? apple : null)
+                    .build());
+        }
+        page = construct();
+    }
+
+    @Benchmark
+    public SimplePage<Computer> construct() {
+        SimplePage<Computer> built = new SimplePage<>(computers, 1, pageSize, 574, 574 / pageSize + 1);
+        built.setCountStrategy(CountStrategy.EXACT);
+        built.setHasNext(true);
+        return built;
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] serializeReflection() throws JsonProcessingException {
+        return reflectionMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public int serializeGzip() throws IOException {
+        gzipped.reset();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped, 8192, true)) {
+            objectMapper.writeValue(out, page);
+        }
+        return gzipped.size();
+    }
+}
@@ -13,9 +13,10 @@ public class ComputerDTOMapper{
         return new ComputerDTO(c);
     }
     public Computer map(ComputerDTO dto) {
-        Computer c = new Computer.ComputerBuilder(dto.getName()).introduced(dto.getIntroduced())
+        Computer c = new Computer.ComputerBuilder(dto.getName()).introduced(dto.getIntroducedDay())
                 .id(dto.getId())
-                .discontinued(dto.getDiscontinued())
+                .discontinued(dto.getDiscontinuedDay())
+                .version(dto.getVersion())
                 .company(new Company())
                 .build();
         c.getCompany().setId(dto.getCompanyId());
@@ -0,0 +1,28 @@
+package com.excilys.computer_database.client;
+
+/**
+ * A request answered with an error status by the server. A 503 means the server is overloaded : retry later. A 504
+ * means the request timed out, a write may still have been done : read the data before retrying it. A 409 means the
+ * computer was updated by someone else since it was read : read it again.
+ */
+public class ClientException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    /**
+     * @param status The HTTP status of the response
+     * @param message The body of the response, or a description of the error
+     */
+    public ClientException(int status, String message) {
+        super(status + " : " + message);
+        this.status = status;
+    }
+
+    /**
+     * @return The HTTP status of the response
+     */
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,611 @@
+package com.excilys.computer_database.client;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.excilys.computer_database.client.json.JsonDecoder;
+import com.excilys.computer_database.client.json.JsonDecoder.ValueReader;
+import com.excilys.computer_database.client.model.Company;
+import com.excilys.computer_database.client.model.Computer;
+import com.excilys.computer_database.client.model.ImportFormat;
+import com.excilys.computer_database.client.model.ImportMode;
+import com.excilys.computer_database.client.model.ImportReport;
+import com.excilys.computer_database.client.model.Page;
+
+/**
+ * Client of the REST API of the webapp. Thread safe : a single instance should be shared, and closed at the end.
+ *
+ * The requests go through a pool of keep-alive connections, accept gzip, and their JSON is decoded as it is received.
+ * Each call has an asynchronous version, run on the threads of the client : several calls in flight use several
+ * connections at once.
+ *
+ * The pages read are kept in a small LRU cache, with their ETag : a page asked again is reused for
+ * {@link ClientBuilder#maxAge}, then revalidated, the server answering 304 if it did not change. When a page is
+ * read, the next one is fetched in the background, so paging forward does not wait for the server. The cache is
+ * cleared by the writes of this client.
+ *
+ * The import is for the administrators : give their credentials to {@link ClientBuilder#credentials}, sent with each
+ * request (HTTP Basic).
+ */
+public class ComputerDatabaseClient implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ComputerDatabaseClient.class);
+
+    private final String baseUrl;
+    private final CloseableHttpClient http;
+    private final ExecutorService executor;
+    private final boolean prefetch;
+    private final long maxAge;
+    private final Map<String, CompletableFuture<CachedPage>> pages;
+
+    /**
+     * Configure a client.
+     */
+    public static class ClientBuilder {
+        private final String baseUrl;
+        private int maxConnections = 10;
+        private int threads = 4;
+        private boolean prefetch = true;
+        private int cacheSize = 16;
+        private long maxAge = 5000;
+        private int timeout = 30000;
+        private String credentials;
+
+        /**
+         * @param baseUrl The URL of the webapp, as http://localhost:8080/webapp
+         */
+        public ClientBuilder(String baseUrl) {
+            this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        }
+
+        /**
+         * @param maxConnections The connections kept open to the server (default 10)
+         * @return The builder
+         */
+        public ClientBuilder maxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * @param threads The threads running the asynchronous calls and the prefetch (default 4)
+         * @return The builder
+         */
+        public ClientBuilder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * @param prefetch True (default) to fetch the next page in the background when a page is read
+         * @return The builder
+         */
+        public ClientBuilder prefetch(boolean prefetch) {
+            this.prefetch = prefetch;
+            return this;
+        }
+
+        /**
+         * @param cacheSize The pages kept in the cache (default 16), 0 for no cache nor prefetch
+         * @return The builder
+         */
+        public ClientBuilder cacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        /**
+         * @param maxAge The milliseconds a cached page is used before being revalidated (default 5000)
+         * @return The builder
+         */
+        public ClientBuilder maxAge(long maxAge) {
+            this.maxAge = maxAge;
+            return this;
+        }
+
+        /**
+         * @param timeout The milliseconds to connect, and to wait for the data of the server (default 30000)
+         * @return The builder
+         */
+        public ClientBuilder timeout(int timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * @param username The user the requests are sent as (default none, anonymous)
+         * @param password Its password
+         * @return The builder
+         */
+        public ClientBuilder credentials(String username, String password) {
+            this.credentials = Base64.getEncoder()
+                    .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+            return this;
+        }
+
+        /**
+         * @return A client, to close at the end
+         */
+        public ComputerDatabaseClient build() {
+            return new ComputerDatabaseClient(this);
+        }
+    }
+
+    private ComputerDatabaseClient(ClientBuilder builder) {
+        baseUrl = builder.baseUrl;
+        prefetch = builder.prefetch && builder.cacheSize > 0;
+        maxAge = builder.maxAge;
+
+        PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager();
+        connections.setMaxTotal(builder.maxConnections);
+        connections.setDefaultMaxPerRoute(builder.maxConnections);
+        // The server may have closed a connection idle for a while
+        connections.setValidateAfterInactivity(2000);
+        RequestConfig config = RequestConfig.custom().setConnectTimeout(builder.timeout)
+                .setSocketTimeout(builder.timeout).setConnectionRequestTimeout(builder.timeout).build();
+        List<Header> headers = (builder.credentials == null) ? Collections.emptyList()
+                : Collections.singletonList(new BasicHeader(HttpHeaders.AUTHORIZATION, "Basic " + builder.credentials));
+        http = HttpClients.custom().setConnectionManager(connections)
+                .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE).setDefaultRequestConfig(config)
+                .setDefaultHeaders(headers).build();
+
+        executor = Executors.newFixedThreadPool(builder.threads, task -> {
+            Thread thread = new Thread(task, "computer-database-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        int cacheSize = builder.cacheSize;
+        pages = new LinkedHashMap<String, CompletableFuture<CachedPage>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<CachedPage>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * @param pageNumber The page, from 0
+     * @param size The size of the page : 10, 20 or 50
+     * @return The page of companies
+     * @throws ClientException If the server answers with an error
+     * @throws UncheckedIOException If the server can't be reached or its answer read
+     */
+    public Page<Company> listCompanies(int pageNumber, int size) {
+        return join(listCompaniesAsync(pageNumber, size));
+    }
+
+    /**
+     * @see #listCompanies(int, int)
+     */
+    public CompletableFuture<Page<Company>> listCompaniesAsync(int pageNumber, int size) {
+        return listPages(url("/rest/listcompany").addParameter("size", Integer.toString(size)), "pageNumber",
+                Integer.toString(pageNumber), Integer.toString(pageNumber + 1), JsonDecoder::readCompany);
+    }
+
+    /**
+     * @param pageNumber The page, from 0
+     * @param size The size of the page : 10, 20 or 50
+     * @return The page of computers
+     * @throws ClientException If the server answers with an error
+     * @throws UncheckedIOException If the server can't be reached or its answer read
+     */
+    public Page<Computer> listComputers(int pageNumber, int size) {
+        return join(listComputersAsync(pageNumber, size));
+    }
+
+    /**
+     * @see #listComputers(int, int)
+     */
+    public CompletableFuture<Page<Computer>> listComputersAsync(int pageNumber, int size) {
+        return listPages(url("/rest/listcomputer").addParameter("size", Integer.toString(size)), "pageNumber",
+                Integer.toString(pageNumber), Integer.toString(pageNumber + 1), JsonDecoder::readComputer);
+    }
+
+    /**
+     * Seek a page of computers from a cursor, without counting them.
+     * @param cursor The nextCursor or prevCursor of a previous page, empty for the first page
+     * @param size The size of the page : 10, 20 or 50
+     * @return The page of computers
+     * @throws ClientException If the server answers with an error
+     * @throws UncheckedIOException If the server can't be reached or its answer read
+     */
+    public Page<Computer> seekComputers(String cursor, int size) {
+        return join(seekComputersAsync(cursor, size));
+    }
+
+    /**
+     * @see #seekComputers(String, int)
+     */
+    public CompletableFuture<Page<Computer>> seekComputersAsync(String cursor, int size) {
+        return listPages(url("/rest/listcomputer").addParameter("size", Integer.toString(size)), "cursor", cursor,
+                null, JsonDecoder::readComputer);
+    }
+
+    /**
+     * @param id The id of the computer
+     * @return The computer, null if there is none with this id
+     * @throws ClientException If the server answers with an error
+     * @throws UncheckedIOException If the server can't be reached or its answer read
+     */
+    public Computer findComputer(long id) {
+        return join(findComputerAsync(id));
+    }
+
+    /**
+     * @see #findComputer(long)
+     */
+    public CompletableFuture<Computer> findComputerAsync(long id) {
+        HttpGet request = new HttpGet(build(url("/rest/findcomputer").addParameter("id", Long.toString(id))));
+        return async(() -> execute(request, JsonDecoder::readComputer));
+    }
+
+    /**
+     * Find several computers at once : the requests are sent together, on as many connections.
+     * @param ids The ids of the computers
+     * @return The computers, in the order of the ids, null for the ids without computer
+     * @throws ClientException If the server answers with an error
+     * @throws UncheckedIOException If the server can't be reached or its answer read
+     */
+    public List<Computer> findComputers(Collection<Long> ids) {
+        List<CompletableFuture<Computer>> futures = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            futures.add(findComputerAsync(id));
+        }
+        List<Computer> computers = new ArrayList<>(ids.size());
+        for (CompletableFuture<Computer> future : futures) {
+            computers.add(join(future));
+        }
+        return computers;
+    }
+
+    /**
+     * @param computer The computer to create, its company with only its id
+     * @return The computer created
+     * @throws ClientException If the server answers with an error
+     * @throws UncheckedIOException If the server can't be reached or its answer read
+     */
+    public Computer createComputer(Computer computer) {
+        return join(createComputerAsync(computer));
+    }
+
+    /**
+     * @see #createComputer(Computer)
+     */
+    public CompletableFuture<Computer> createComputerAsync(Computer computer) {
+        HttpGet request = new HttpGet(build(computerParameters(url("/rest/createcomputer"), computer)));
+        return write(() -> execute(request, JsonDecoder::readComputer));
+    }
+
+    /**
+     * @param computer The computer to update, with its id, its company with only its id, and the version it was read
+     *            at if known
+     * @return The computer updated, with its new version
+     * @throws ClientException If the server answers with an error : a 409 if the computer was updated since its
+     *             version, read it again to retry
+     * @throws UncheckedIOException If the server can't be reached or its answer read
+     */
+    public Computer updateComputer(Computer computer) {
+        return join(updateComputerAsync(computer));
+    }
+
+    /**
+     * @see #updateComputer(Computer)
+     */
+    public CompletableFuture<Computer> updateComputerAsync(Computer computer) {
+        URIBuilder url = url("/rest/updatecomputer").addParameter("id", String.valueOf(computer.getId()));
+        if (computer.getVersion() != null) {
+            url.addParameter("version", computer.getVersion().toString());
+        }
+        HttpGet request = new HttpGet(build(computerParameters(url, computer)));
+        return write(() -> execute(request, JsonDecoder::readComputer));
+    }
+
+    /**
+     * @param id The id of the computer to delete
+     * @throws ClientException If the server answers with an error
+     * @throws UncheckedIOException If the server can't be reached
+     */
+    public void deleteComputer(long id) {
+        join(deleteComputerAsync(id));
+    }
+
+    /**
+     * @see #deleteComputer(long)
+     */
+    public CompletableFuture<Void> deleteComputerAsync(long id) {
+        HttpGet request = new HttpGet(build(url("/rest/deleteComputer").addParameter("id", Long.toString(id))));
+        return write(() -> execute(request, null));
+    }
+
+    /**
+     * Send a file to the import of the server, streamed in the request body.
+     * @param file The file, in UTF-8
+     * @param format Its format
+     * @param mode What to do with the computers already existing
+     * @return The report of the import. Its failure is set if it stopped before the end.
+     * @throws ClientException If the server answers with an error : a 401 or 403 without the credentials of an
+     *             administrator
+     * @throws UncheckedIOException If the server can't be reached or its answer read
+     */
+    public ImportReport importComputers(File file, ImportFormat format, ImportMode mode) {
+        return join(importComputersAsync(file, format, mode));
+    }
+
+    /**
+     * @see #importComputers(File, ImportFormat, ImportMode)
+     */
+    public CompletableFuture<ImportReport> importComputersAsync(File file, ImportFormat format, ImportMode mode) {
+        HttpPost request = new HttpPost(build(url("/rest/import").addParameter("format", format.name())
+                .addParameter("mode", mode.name())));
+        request.setEntity(new FileEntity(file, ContentType.create(format.getContentType(), StandardCharsets.UTF_8)));
+        return write(() -> execute(request, JsonDecoder::readImportReport));
+    }
+
+    /**
+     * Forget the cached pages : the next reads go to the server.
+     */
+    public void clearCache() {
+        synchronized (pages) {
+            pages.clear();
+        }
+    }
+
+    /**
+     * Stop the threads and close the connections. The calls in flight fail.
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        http.close();
+    }
+
+    /**
+     * Read a page through the cache, and prefetch the next one.
+     * @param url The URL of the listing, without the page parameter
+     * @param parameter The parameter selecting the page
+     * @param value Its value for this page
+     * @param nextValue Its value for the next page, null to take the nextCursor of this page
+     * @param elementReader Reads the elements of the page
+     * @return The page
+     */
+    private <T> CompletableFuture<Page<T>> listPages(URIBuilder url, String parameter, String value,
+            String nextValue, ValueReader<T> elementReader) {
+        String pageUrl = build(copy(url).addParameter(parameter, value)).toString();
+        CompletableFuture<Page<T>> page = cachedPage(pageUrl, elementReader);
+        if (!prefetch) {
+            return page;
+        }
+        return page.thenApply(current -> {
+            if (current != null && current.isHasNext()) {
+                String next = (nextValue != null) ? nextValue : current.getNextCursor();
+                if (next != null) {
+                    String nextUrl = build(copy(url).addParameter(parameter, next)).toString();
+                    cachedPage(nextUrl, elementReader).exceptionally(e -> {
+                        LOGGER.debug("Prefetch of " + nextUrl + " failed", e);
+                        return null;
+                    });
+                }
+            }
+            return current;
+        });
+    }
+
+    /**
+     * @return The page in the cache if fresh, or being fetched. Otherwise fetched, revalidating the cached version.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<Page<T>> cachedPage(String url, ValueReader<T> elementReader) {
+        CompletableFuture<CachedPage> future;
+        synchronized (pages) {
+            future = pages.get(url);
+            if (future == null || isStale(future)) {
+                CachedPage previous = (future == null || future.isCompletedExceptionally()) ? null : future.join();
+                future = async(() -> fetchPage(url, elementReader, previous));
+                pages.put(url, future);
+            }
+        }
+        CompletableFuture<CachedPage> fetched = future;
+        fetched.whenComplete((cached, e) -> {
+            if (e != null) {
+                synchronized (pages) {
+                    pages.remove(url, fetched);
+                }
+            }
+        });
+        return fetched.thenApply(cached -> (Page<T>) cached.page);
+    }
+
+    private boolean isStale(CompletableFuture<CachedPage> future) {
+        if (!future.isDone()) {
+            return false;
+        }
+        return future.isCompletedExceptionally()
+                || System.currentTimeMillis() - future.join().validatedAt > maxAge;
+    }
+
+    private <T> CachedPage fetchPage(String url, ValueReader<T> elementReader, CachedPage previous)
+            throws IOException {
+        HttpGet request = new HttpGet(url);
+        if (previous != null && previous.etag != null) {
+            request.setHeader(HttpHeaders.IF_NONE_MATCH, previous.etag);
+        }
+        try (CloseableHttpResponse response = http.execute(request)) {
+            int status = response.getStatusLine().getStatusCode();
+            if (status == HttpStatus.SC_NOT_MODIFIED && previous != null) {
+                EntityUtils.consume(response.getEntity());
+                return new CachedPage(previous.page, previous.etag);
+            }
+            Page<T> page = read(response, parser -> JsonDecoder.readPage(parser, elementReader));
+            Header etag = response.getFirstHeader(HttpHeaders.ETAG);
+            return new CachedPage(page, (etag == null) ? null : etag.getValue());
+        }
+    }
+
+    private <T> T execute(HttpUriRequest request, ValueReader<T> reader) throws IOException {
+        try (CloseableHttpResponse response = http.execute(request)) {
+            return read(response, reader);
+        }
+    }
+
+    /**
+     * Decode the body of a response, as it is received. A null reader ignores it.
+     * @throws ClientException If the status is an error
+     */
+    private static <T> T read(CloseableHttpResponse response, ValueReader<T> reader) throws IOException {
+        int status = response.getStatusLine().getStatusCode();
+        HttpEntity entity = response.getEntity();
+        // The import sends its report with its failure
+        boolean json = entity != null && entity.getContentType() != null
+                && entity.getContentType().getValue().startsWith(ContentType.APPLICATION_JSON.getMimeType());
+        if (status >= 300 && !(status == HttpStatus.SC_INTERNAL_SERVER_ERROR && json)) {
+            String body = (entity == null) ? "" : EntityUtils.toString(entity, StandardCharsets.UTF_8);
+            throw new ClientException(status, body.isEmpty() ? response.getStatusLine().getReasonPhrase() : body);
+        }
+        if (!json || reader == null) {
+            EntityUtils.consume(entity);
+            return null;
+        }
+        try (InputStream in = entity.getContent()) {
+            return JsonDecoder.decode(in, reader);
+        }
+    }
+
+    private URIBuilder url(String path) {
+        try {
+            return new URIBuilder(baseUrl + path);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid base URL : " + baseUrl, e);
+        }
+    }
+
+    private static URIBuilder copy(URIBuilder url) {
+        return new URIBuilder(build(url));
+    }
+
+    private static URI build(URIBuilder url) {
+        try {
+            return url.build();
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static URIBuilder computerParameters(URIBuilder url, Computer computer) {
+        url.addParameter("name", computer.getName());
+        if (computer.getIntroduced() != null) {
+            url.addParameter("introduced", computer.getIntroduced().toString());
+        }
+        if (computer.getDiscontinued() != null) {
+            url.addParameter("discontinued", computer.getDiscontinued().toString());
+        }
+        if (computer.getCompany() != null && computer.getCompany().getId() != null) {
+            url.addParameter("companyId", computer.getCompany().getId().toString());
+        }
+        return url;
+    }
+
+    /**
+     * Run a write, then forget the pages it may have changed.
+     */
+    private <T> CompletableFuture<T> write(IOCall<T> call) {
+        return async(() -> {
+            try {
+                return call.call();
+            } finally {
+                clearCache();
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> async(IOCall<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Wait for a call, throwing its exception as is.
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A request to the server.
+     */
+    @FunctionalInterface
+    private interface IOCall<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * A page, with its tag and the time the server last sent or confirmed it.
+     */
+    private static final class CachedPage {
+        private final Page<?> page;
+        private final String etag;
+        private final long validatedAt = System.currentTimeMillis();
+
+        CachedPage(Page<?> page, String etag) {
+            this.page = page;
+            this.etag = etag;
+        }
+    }
+}
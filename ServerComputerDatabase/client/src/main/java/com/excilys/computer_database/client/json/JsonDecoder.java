@@ -0,0 +1,295 @@
+package com.excilys.computer_database.client.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.excilys.computer_database.client.model.Company;
+import com.excilys.computer_database.client.model.Computer;
+import com.excilys.computer_database.client.model.ImportFormat;
+import com.excilys.computer_database.client.model.ImportMode;
+import com.excilys.computer_database.client.model.ImportReport;
+import com.excilys.computer_database.client.model.Page;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads the JSON of the server token by token, as it arrives in the response stream : no intermediate String nor
+ * tree. The unknown fields are skipped, so a server adding fields does not break the client.
+ */
+public final class JsonDecoder {
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    /**
+     * Reads a value from a parser positioned on its first token.
+     * @param <T> The value read
+     */
+    @FunctionalInterface
+    public interface ValueReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    private JsonDecoder() {
+    }
+
+    /**
+     * Decode a response body.
+     * @param in The body, closed at the end
+     * @param reader Reads the value
+     * @return The value, null if the body is empty or null
+     * @throws IOException If the body can't be read or is not the expected JSON
+     */
+    public static <T> T decode(InputStream in, ValueReader<T> reader) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(in)) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            return reader.read(parser);
+        }
+    }
+
+    /**
+     * @param parser On the start of the company, or null
+     * @return The company, null if null
+     * @throws IOException If it can't be read
+     */
+    public static Company readCompany(JsonParser parser) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+        Company company = new Company();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+            case "id":
+                company.setId(readLong(parser));
+                break;
+            case "name":
+                company.setName(parser.getValueAsString());
+                break;
+            default:
+                parser.skipChildren();
+            }
+        }
+        return company;
+    }
+
+    /**
+     * Read a computer, in the form of the pages (the company inline) or of the export (companyId, companyName).
+     * @param parser On the start of the computer, or null
+     * @return The computer, null if null
+     * @throws IOException If it can't be read
+     */
+    public static Computer readComputer(JsonParser parser) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+        Computer computer = new Computer();
+        Long companyId = null;
+        String companyName = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+            case "id":
+                computer.setId(readLong(parser));
+                break;
+            case "name":
+                computer.setName(parser.getValueAsString());
+                break;
+            case "introduced":
+                computer.setIntroduced(readDate(parser));
+                break;
+            case "discontinued":
+                computer.setDiscontinued(readDate(parser));
+                break;
+            case "company":
+                computer.setCompany(readCompany(parser));
+                break;
+            case "version":
+                computer.setVersion(readLong(parser));
+                break;
+            case "companyId":
+                companyId = readLong(parser);
+                break;
+            case "companyName":
+                companyName = parser.getValueAsString();
+                break;
+            default:
+                parser.skipChildren();
+            }
+        }
+        if (computer.getCompany() == null && companyId != null) {
+            computer.setCompany(new Company(companyId, companyName));
+        }
+        return computer;
+    }
+
+    /**
+     * @param parser On the start of the page, or null
+     * @param elementReader Reads the elements of the list
+     * @return The page, null if null
+     * @throws IOException If it can't be read
+     */
+    public static <T> Page<T> readPage(JsonParser parser, ValueReader<T> elementReader) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+        Page<T> page = new Page<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+            case "list":
+                page.setList(readList(parser, elementReader));
+                break;
+            case "pageNumber":
+                page.setPageNumber(parser.getValueAsInt());
+                break;
+            case "size":
+                page.setSize(parser.getValueAsInt());
+                break;
+            case "elementTotalCount":
+                page.setElementTotalCount(parser.getValueAsInt());
+                break;
+            case "pageTotalCount":
+                page.setPageTotalCount(parser.getValueAsInt());
+                break;
+            case "nextCursor":
+                page.setNextCursor(readString(parser));
+                break;
+            case "prevCursor":
+                page.setPrevCursor(readString(parser));
+                break;
+            case "countStrategy":
+                page.setCountStrategy(readString(parser));
+                break;
+            case "hasNext":
+                page.setHasNext(parser.getValueAsBoolean());
+                break;
+            default:
+                parser.skipChildren();
+            }
+        }
+        return page;
+    }
+
+    /**
+     * @param parser On the start of the report, or null
+     * @return The report, null if null
+     * @throws IOException If it can't be read
+     */
+    public static ImportReport readImportReport(JsonParser parser) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+        ImportReport report = new ImportReport();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+            case "format":
+                String format = readString(parser);
+                report.setFormat((format == null) ? null : ImportFormat.valueOf(format));
+                break;
+            case "mode":
+                String mode = readString(parser);
+                report.setMode((mode == null) ? null : ImportMode.valueOf(mode));
+                break;
+            case "read":
+                report.setRead(parser.getValueAsLong());
+                break;
+            case "inserted":
+                report.setInserted(parser.getValueAsLong());
+                break;
+            case "updated":
+                report.setUpdated(parser.getValueAsLong());
+                break;
+            case "rejected":
+                report.setRejected(parser.getValueAsLong());
+                break;
+            case "millis":
+                report.setMillis(parser.getValueAsLong());
+                break;
+            case "rowsPerSecond":
+                report.setRowsPerSecond(parser.getValueAsDouble());
+                break;
+            case "errors":
+                report.setErrors(readList(parser, JsonDecoder::readString));
+                break;
+            case "failure":
+                report.setFailure(readString(parser));
+                break;
+            default:
+                parser.skipChildren();
+            }
+        }
+        return report;
+    }
+
+    /**
+     * @param parser On the start of an array, or null
+     * @param elementReader Reads each element
+     * @return The elements, null if null
+     * @throws IOException If it can't be read
+     */
+    public static <T> List<T> readList(JsonParser parser, ValueReader<T> elementReader) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "Expected an array");
+        }
+        List<T> list = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            list.add(elementReader.read(parser));
+        }
+        return list;
+    }
+
+    private static boolean startObject(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return false;
+        }
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected an object");
+        }
+        return true;
+    }
+
+    private static String readString(JsonParser parser) throws IOException {
+        return (parser.getCurrentToken() == JsonToken.VALUE_NULL) ? null : parser.getValueAsString();
+    }
+
+    private static Long readLong(JsonParser parser) throws IOException {
+        return (parser.getCurrentToken() == JsonToken.VALUE_NULL) ? null : parser.getValueAsLong();
+    }
+
+    /**
+     * A date of the pages (the epoch milliseconds of its midnight, in the zone of the server, taken as the zone of the
+     * client) or of the export (an ISO date).
+     */
+    private static LocalDate readDate(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return Instant.ofEpochMilli(parser.getLongValue()).atZone(ZoneId.systemDefault()).toLocalDate();
+        }
+        String text = readString(parser);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new JsonParseException(parser, "Invalid date : " + text, e);
+        }
+    }
+}
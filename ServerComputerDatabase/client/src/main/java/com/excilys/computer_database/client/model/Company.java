@@ -0,0 +1,44 @@
+package com.excilys.computer_database.client.model;
+
+/**
+ * A company, as sent by the server.
+ */
+public class Company {
+    private Long id;
+    private String name;
+
+    /** Constructor. */
+    public Company() {
+    }
+
+    /**
+     * Constructor.
+     * @param id The id
+     * @param name The name
+     */
+    public Company(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return "Company [id=" + id + ", name=" + name + "]";
+    }
+}
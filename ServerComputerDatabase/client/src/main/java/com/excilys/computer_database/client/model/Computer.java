@@ -0,0 +1,93 @@
+package com.excilys.computer_database.client.model;
+
+import java.time.LocalDate;
+
+/**
+ * A computer, as sent by the server.
+ */
+public class Computer {
+    private Long id;
+    private String name;
+    private LocalDate introduced, discontinued;
+    private Company company;
+    private Long version;
+
+    /** Constructor. */
+    public Computer() {
+    }
+
+    /**
+     * Constructor.
+     * @param name The name
+     */
+    public Computer(String name) {
+        this.name = name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return The introduction date, null if unknown
+     */
+    public LocalDate getIntroduced() {
+        return introduced;
+    }
+
+    public void setIntroduced(LocalDate introduced) {
+        this.introduced = introduced;
+    }
+
+    /**
+     * @return The discontinuation date, null if unknown
+     */
+    public LocalDate getDiscontinued() {
+        return discontinued;
+    }
+
+    public void setDiscontinued(LocalDate discontinued) {
+        this.discontinued = discontinued;
+    }
+
+    /**
+     * @return The company, null if none. Only its id is set on the computers to send.
+     */
+    public Company getCompany() {
+        return company;
+    }
+
+    public void setCompany(Company company) {
+        this.company = company;
+    }
+
+    /**
+     * @return The version read, sent back by an update so that it fails if the computer was updated since. Null if
+     *         unknown : the update overwrites the computer.
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public String toString() {
+        return "Computer [id=" + id + ", name=" + name + ", introduced=" + introduced + ", discontinued="
+                + discontinued + ", company=" + company + "]";
+    }
+}
@@ -0,0 +1,29 @@
+package com.excilys.computer_database.client.model;
+
+/**
+ * The formats of the import files.
+ */
+public enum ImportFormat {
+    /** CSV with a header, as written by the export. */
+    CSV("text/csv"),
+    /** A JSON object per line. */
+    NDJSON("application/x-ndjson");
+
+    private final String contentType;
+
+    ImportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @param fileName The name of an import file
+     * @return Its format, from its extension : CSV for .csv, NDJSON otherwise
+     */
+    public static ImportFormat fromFileName(String fileName) {
+        return fileName.toLowerCase().endsWith(".csv") ? CSV : NDJSON;
+    }
+}
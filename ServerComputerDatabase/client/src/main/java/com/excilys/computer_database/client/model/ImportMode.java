@@ -0,0 +1,11 @@
+package com.excilys.computer_database.client.model;
+
+/**
+ * What the import does with a computer of the same name and company as an existing one.
+ */
+public enum ImportMode {
+    /** Insert it anyway. */
+    INSERT,
+    /** Update the existing one. */
+    UPSERT
+}
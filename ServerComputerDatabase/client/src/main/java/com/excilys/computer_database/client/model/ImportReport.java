@@ -0,0 +1,116 @@
+package com.excilys.computer_database.client.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What an import did, as sent by the server.
+ */
+public class ImportReport {
+    private ImportFormat format;
+    private ImportMode mode;
+    private long read, inserted, updated, rejected, millis;
+    private double rowsPerSecond;
+    private List<String> errors = new ArrayList<>();
+    private String failure;
+
+    public ImportFormat getFormat() {
+        return format;
+    }
+
+    public void setFormat(ImportFormat format) {
+        this.format = format;
+    }
+
+    public ImportMode getMode() {
+        return mode;
+    }
+
+    public void setMode(ImportMode mode) {
+        this.mode = mode;
+    }
+
+    public long getRead() {
+        return read;
+    }
+
+    public void setRead(long read) {
+        this.read = read;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(long inserted) {
+        this.inserted = inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public void setMillis(long millis) {
+        this.millis = millis;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    /**
+     * @return The first rejected rows, with the reason
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+
+    /**
+     * @return Why the import stopped before the end, null if it did not
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    public void setFailure(String failure) {
+        this.failure = failure;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append(read).append(" rows read, ").append(inserted)
+                .append(" inserted, ").append(updated).append(" updated, ").append(rejected).append(" rejected in ")
+                .append(millis).append(" ms (").append(Math.round(rowsPerSecond)).append(" rows/s)");
+        for (String error : errors) {
+            sb.append("\n  ").append(error);
+        }
+        if (failure != null) {
+            sb.append("\nFailed : ").append(failure);
+        }
+        return sb.toString();
+    }
+}
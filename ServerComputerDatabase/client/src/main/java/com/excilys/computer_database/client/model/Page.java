@@ -0,0 +1,95 @@
+package com.excilys.computer_database.client.model;
+
+import java.util.List;
+
+/**
+ * A page of a listing, as sent by the server.
+ * @param <T> The listed elements
+ */
+public class Page<T> {
+    /** Value of the page number and of the totals when they are not known (keyset pagination). */
+    public static final int UNKNOWN = -1;
+
+    private List<T> list;
+    private int pageNumber, size, elementTotalCount, pageTotalCount;
+    private String nextCursor, prevCursor, countStrategy;
+    private boolean hasNext;
+
+    public List<T> getList() {
+        return list;
+    }
+
+    public void setList(List<T> list) {
+        this.list = list;
+    }
+
+    public int getPageNumber() {
+        return pageNumber;
+    }
+
+    public void setPageNumber(int pageNumber) {
+        this.pageNumber = pageNumber;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public int getElementTotalCount() {
+        return elementTotalCount;
+    }
+
+    public void setElementTotalCount(int elementTotalCount) {
+        this.elementTotalCount = elementTotalCount;
+    }
+
+    public int getPageTotalCount() {
+        return pageTotalCount;
+    }
+
+    public void setPageTotalCount(int pageTotalCount) {
+        this.pageTotalCount = pageTotalCount;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public String getPrevCursor() {
+        return prevCursor;
+    }
+
+    public void setPrevCursor(String prevCursor) {
+        this.prevCursor = prevCursor;
+    }
+
+    /**
+     * @return How the totals were computed : EXACT, CACHED, ESTIMATED or HAS_NEXT
+     */
+    public String getCountStrategy() {
+        return countStrategy;
+    }
+
+    public void setCountStrategy(String countStrategy) {
+        this.countStrategy = countStrategy;
+    }
+
+    /**
+     * @return True if there is a page after this one
+     */
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
@@ -0,0 +1,138 @@
+package com.excilys.computer_database.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.excilys.computer_database.client.ComputerDatabaseClient.ClientBuilder;
+import com.excilys.computer_database.client.model.Computer;
+import com.excilys.computer_database.client.model.Page;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The cache of the pages, against a server answering the listing of the computers with an ETag.
+ */
+public class TestComputerDatabaseClient {
+    private static final int PAGES = 5;
+
+    private HttpServer server;
+    private String baseUrl;
+    /** The requests received : the page and the If-None-Match header. */
+    private final List<String> requests = new ArrayList<>();
+    private volatile String etag = "\"1\"";
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/webapp/rest/listcomputer", this::listComputers);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort() + "/webapp/";
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        try (ComputerDatabaseClient client = new ClientBuilder(baseUrl).prefetch(false).cacheSize(2).maxAge(60000)
+                .build()) {
+            Page<Computer> first = client.listComputers(0, 10);
+            assertEquals("Page 0", first.getList().get(0).getName());
+            assertSame(first, client.listComputers(0, 10));
+            assertEquals(Arrays.asList("0 null"), requests());
+
+            // The least recently used page is forgotten
+            client.listComputers(1, 10);
+            client.listComputers(2, 10);
+            assertNotSame(first, client.listComputers(0, 10));
+            assertEquals(Arrays.asList("0 null", "1 null", "2 null", "0 null"), requests());
+
+            client.clearCache();
+            client.listComputers(0, 10);
+            assertEquals(5, requests().size());
+        }
+    }
+
+    @Test
+    public void testRevalidation() throws Exception {
+        try (ComputerDatabaseClient client = new ClientBuilder(baseUrl).prefetch(false).maxAge(0).build()) {
+            Page<Computer> first = client.listComputers(0, 10);
+            Thread.sleep(5);
+            // Not modified : the cached page is kept
+            assertSame(first, client.listComputers(0, 10));
+            assertEquals(Arrays.asList("0 null", "0 \"1\""), requests());
+
+            etag = "\"2\"";
+            Thread.sleep(5);
+            assertNotSame(first, client.listComputers(0, 10));
+            assertEquals(Arrays.asList("0 null", "0 \"1\"", "0 \"1\""), requests());
+        }
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        try (ComputerDatabaseClient client = new ClientBuilder(baseUrl).maxAge(60000).build()) {
+            client.listComputers(0, 10);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (requests().size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(Arrays.asList("0 null", "1 null"), requests());
+
+            // Read from the cache, the next one prefetched
+            assertEquals("Page 1", client.listComputers(1, 10).getList().get(0).getName());
+            deadline = System.currentTimeMillis() + 5000;
+            while (requests().size() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(Arrays.asList("0 null", "1 null", "2 null"), requests());
+        }
+    }
+
+    private List<String> requests() {
+        synchronized (requests) {
+            return new ArrayList<>(requests);
+        }
+    }
+
+    /** A page of one computer, named after the page, tagged with the current ETag. */
+    private void listComputers(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        int page = Integer.parseInt(query.replaceAll(".*pageNumber=(\\d+).*", "$1"));
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        synchronized (requests) {
+            requests.add(page + " " + ifNoneMatch);
+        }
+
+        String tag = etag;
+        exchange.getResponseHeaders().set("ETag", tag);
+        if (tag.equals(ifNoneMatch)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = ("{\"list\":[{\"id\":" + page + ",\"name\":\"Page " + page + "\"}],\"pageNumber\":" + page
+                + ",\"size\":10,\"elementTotalCount\":" + PAGES + ",\"pageTotalCount\":" + PAGES
+                + ",\"hasNext\":" + (page + 1 < PAGES) + "}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.excilys.computer_database.client.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.excilys.computer_database.client.json.JsonDecoder.ValueReader;
+import com.excilys.computer_database.client.model.Company;
+import com.excilys.computer_database.client.model.Computer;
+import com.excilys.computer_database.client.model.ImportFormat;
+import com.excilys.computer_database.client.model.ImportMode;
+import com.excilys.computer_database.client.model.ImportReport;
+import com.excilys.computer_database.client.model.Page;
+
+/**
+ * The JSON of the REST API, as the webapp writes it (see its testJsonWireFormat), decoded.
+ */
+public class TestJsonDecoder {
+
+    @Test
+    public void testPages() throws IOException {
+        // The dates of the computers in epoch milliseconds, at the start of the day in the server's zone
+        Page<Computer> page = decode("{\"list\":[{\"id\":7,\"name\":\"Mac \u00e9\",\"introduced\":"
+                + millis(LocalDate.of(1980, 5, 1)) + ",\"discontinued\":" + millis(LocalDate.of(1990, 1, 2))
+                + ",\"company\":{\"id\":1,\"name\":\"Apple \\\"Inc.\\\"\"},\"version\":0},"
+                + "{\"id\":null,\"name\":\"Empty\",\"introduced\":null,\"discontinued\":null,\"company\":null,"
+                + "\"version\":0}],\"pageNumber\":1,\"size\":10,\"elementTotalCount\":574,\"pageTotalCount\":58,"
+                + "\"nextCursor\":\"abc\",\"prevCursor\":null,\"countStrategy\":\"ESTIMATED\",\"hasNext\":true}",
+            parser -> JsonDecoder.readPage(parser, JsonDecoder::readComputer));
+        assertEquals(1, page.getPageNumber());
+        assertEquals(10, page.getSize());
+        assertEquals(574, page.getElementTotalCount());
+        assertEquals(58, page.getPageTotalCount());
+        assertEquals("abc", page.getNextCursor());
+        assertNull(page.getPrevCursor());
+        assertEquals("ESTIMATED", page.getCountStrategy());
+        assertTrue(page.isHasNext());
+        assertEquals(2, page.getList().size());
+        Computer mac = page.getList().get(0);
+        assertEquals(Long.valueOf(7), mac.getId());
+        assertEquals("Mac \u00e9", mac.getName());
+        assertEquals(LocalDate.of(1980, 5, 1), mac.getIntroduced());
+        assertEquals(LocalDate.of(1990, 1, 2), mac.getDiscontinued());
+        assertEquals(Long.valueOf(1), mac.getCompany().getId());
+        assertEquals("Apple \"Inc.\"", mac.getCompany().getName());
+        Computer empty = page.getList().get(1);
+        assertNull(empty.getId());
+        assertNull(empty.getIntroduced());
+        assertNull(empty.getCompany());
+
+        // Unknown fields are skipped
+        Page<Company> companies = decode("{\"list\":[{\"id\":1,\"name\":\"Apple\",\"logo\":{\"url\":[1,2]}}],"
+                + "\"pageNumber\":0,\"size\":20,\"elementTotalCount\":42,\"pageTotalCount\":3,\"nextCursor\":null,"
+                + "\"prevCursor\":null,\"countStrategy\":null,\"hasNext\":false}",
+            parser -> JsonDecoder.readPage(parser, JsonDecoder::readCompany));
+        assertEquals(1, companies.getList().size());
+        assertEquals("Apple", companies.getList().get(0).getName());
+        assertNull(companies.getCountStrategy());
+        assertFalse(companies.isHasNext());
+    }
+
+    @Test
+    public void testExportedComputer() throws IOException {
+        // The company flattened, the dates in ISO
+        Computer exported = decode("{\"id\":7,\"name\":\"Mac \u00e9\",\"introduced\":\"1980-05-01\","
+                + "\"discontinued\":\"1990-01-02\",\"companyId\":1,\"companyName\":\"Apple \\\"Inc.\\\"\"}",
+            JsonDecoder::readComputer);
+        assertEquals("Mac \u00e9", exported.getName());
+        assertEquals(LocalDate.of(1980, 5, 1), exported.getIntroduced());
+        assertEquals(LocalDate.of(1990, 1, 2), exported.getDiscontinued());
+        assertEquals(Long.valueOf(1), exported.getCompany().getId());
+        assertEquals("Apple \"Inc.\"", exported.getCompany().getName());
+    }
+
+    @Test
+    public void testImportReport() throws IOException {
+        ImportReport report = decode("{\"format\":\"CSV\",\"mode\":\"UPSERT\",\"read\":3,\"inserted\":1,"
+                + "\"updated\":0,\"rejected\":2,\"millis\":0,\"rowsPerSecond\":0.0,"
+                + "\"errors\":[\"Line 2 : no name\",\"Line 3 : bad date\"],\"failure\":\"Connection lost\"}",
+            JsonDecoder::readImportReport);
+        assertEquals(ImportFormat.CSV, report.getFormat());
+        assertEquals(ImportMode.UPSERT, report.getMode());
+        assertEquals(3, report.getRead());
+        assertEquals(1, report.getInserted());
+        assertEquals(2, report.getRejected());
+        assertEquals(Arrays.asList("Line 2 : no name", "Line 3 : bad date"), report.getErrors());
+        assertEquals("Connection lost", report.getFailure());
+        assertEquals("3 rows read, 1 inserted, 0 updated, 2 rejected in 0 ms (0 rows/s)\n  Line 2 : no name"
+                + "\n  Line 3 : bad date\nFailed : Connection lost", report.toString());
+    }
+
+    @Test
+    public void testEmptyBody() throws IOException {
+        assertNull(JsonDecoder.decode(new ByteArrayInputStream(new byte[0]), JsonDecoder::readComputer));
+    }
+
+    private static <T> T decode(String json, ValueReader<T> reader) throws IOException {
+        return JsonDecoder.decode(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), reader);
+    }
+
+    private static long millis(LocalDate date) {
+        return date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
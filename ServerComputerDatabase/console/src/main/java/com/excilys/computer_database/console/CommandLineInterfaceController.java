@@ -1,52 +1,55 @@
 package com.excilys.computer_database.console;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.Scanner;
 
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
-
-import org.codehaus.jackson.map.ObjectMapper;
-import org.codehaus.jackson.type.TypeReference;
-import org.springframework.http.MediaType;
-import org.springframework.stereotype.Component;
-
-import com.excilys.computer_database.core.DateHelper;
-import com.excilys.computer_database.core.dto.ComputerDTO;
-import com.excilys.computer_database.core.entity.Company;
-import com.excilys.computer_database.core.entity.Computer;
-import com.excilys.computer_database.core.page.SimplePage;
-import com.excilys.computer_database.persistence.DAOException;
+import com.excilys.computer_database.client.ClientException;
+import com.excilys.computer_database.client.ComputerDatabaseClient;
+import com.excilys.computer_database.client.ComputerDatabaseClient.ClientBuilder;
+import com.excilys.computer_database.client.model.Company;
+import com.excilys.computer_database.client.model.Computer;
+import com.excilys.computer_database.client.model.ImportFormat;
+import com.excilys.computer_database.client.model.ImportMode;
+import com.excilys.computer_database.client.model.ImportReport;
+import com.excilys.computer_database.client.model.Page;
+import com.excilys.computer_database.console.load.LoadGenerator;
 
 /**
  * The Command Line Interface's controller, initialize an instance et use
- * start() to launch the Command Line Interface.
+ * start() to launch the Command Line Interface. The server is at
+ * http://localhost:8080/webapp, or at the URL of the computer-database.url
+ * system property. The import needs the credentials of an administrator, in
+ * the computer-database.username and computer-database.password properties.
  */
-@Component
 public class CommandLineInterfaceController {
 	private static enum ComputerOrCompany {
 		COMPUTER, COMPANY
 	};
 
 	private static final int DEFAULT_PAGE_NUMBER = 0, DEFAULT_PAGE_SIZE = 10;
-	private static final String BASE_URL = "http://localhost:8080/webapp/rest";
-	private static final String LIST_COMPANY_URL = BASE_URL + "/listcompany?pageNumber=%d&size=%d",
-			LIST_COMPUTER_URL = BASE_URL + "/listcomputer?pageNumber=%d&size=%d",
-			FIND_COMPUTER_URL = BASE_URL + "/findcomputer?id=%d",
-			CREATE_COMPUTER_URL = BASE_URL + "/createcomputer?name=%s",
-			UPDATE_COMPUTER_URL = BASE_URL + "/updatecomputer?id=%d&name=%s",
-			DELETE_COMPUTER_URL = BASE_URL + "/deletecomputer?id=%d";
+	private static final String BASE_URL = System.getProperty("computer-database.url",
+			"http://localhost:8080/webapp");
+	private static final String USERNAME = System.getProperty("computer-database.username");
+	private static final String PASSWORD = System.getProperty("computer-database.password", "");
 
 	private CommandLineInterfaceView view;
 	private Scanner sc = new Scanner(System.in);
-	Client client = ClientBuilder.newClient();
-	private ObjectMapper mapper = new ObjectMapper();
+	private ComputerDatabaseClient client;
 
-	/** The constructor. */
-	public CommandLineInterfaceController() {
+	/**
+	 * The constructor.
+	 * 
+	 * @param client
+	 *            The client of the server
+	 */
+	public CommandLineInterfaceController(ComputerDatabaseClient client) {
 		this.view = new CommandLineInterfaceView();
+		this.client = client;
 	}
 
 	/** Start the Command Line Interface. */
@@ -76,34 +79,39 @@ public class CommandLineInterfaceController {
 				case 6:
 					deleteComputer();
 					break;
+				case 7:
+					importComputers();
+					break;
 				default:
 					break;
 				}
-			} catch (IOException e) {
-				e.printStackTrace();
+			} catch (ClientException e) {
+				System.out.println("Erreur du serveur : " + e.getMessage());
+			} catch (UncheckedIOException e) {
+				System.out.println("Serveur injoignable : " + e.getCause().getMessage());
 			}
 		}
 	}
 
 	/**
-	 * Launch the listing companies by page process.
+	 * Launch the listing companies by page process. The next page is
+	 * prefetched by the client while the current one is displayed.
 	 * 
 	 * @param entityToList
 	 *            The entity to list.
-	 * @throws IOException
 	 */
-	public void listCompanyOrComputer(ComputerOrCompany entityToList) throws IOException {
+	public void listCompanyOrComputer(ComputerOrCompany entityToList) {
 		int pageNumber = DEFAULT_PAGE_NUMBER;
 		int size = DEFAULT_PAGE_SIZE;
 
 		// Page exploring process
 		PAGE_EXPLORING: while (true) {
-			SimplePage<?> page = sendListRequest(entityToList, pageNumber, size);
+			Page<?> page = sendListRequest(entityToList, pageNumber, size);
 			view.displayPage(page);
 
 			String choice = askString().trim();
 			if (choice.equals("n")) {
-				if (pageNumber < page.getPageTotalCount() - 1) {
+				if (page.isHasNext()) {
 					pageNumber++;
 				}
 			} else if (choice.equals("p")) {
@@ -117,7 +125,7 @@ public class CommandLineInterfaceController {
 	}
 
 	/** Fetch a computer's informations and display them. */
-	public void findComputer() throws IOException {
+	public void findComputer() {
 		// Ask an id to the user
 		System.out.println("Entrez un id :");
 		long id = askLong();
@@ -134,59 +142,35 @@ public class CommandLineInterfaceController {
 	 * @param pageNumber
 	 * @param size
 	 * @return
-	 * @throws IOException
 	 */
-	private SimplePage<Object> sendListRequest(ComputerOrCompany choice, int pageNumber, int size) throws IOException {
-		String requestUrl, serverResponse;
-
+	private Page<?> sendListRequest(ComputerOrCompany choice, int pageNumber, int size) {
 		switch (choice) {
 		default:
 		case COMPANY:
-			requestUrl = String.format(LIST_COMPANY_URL, pageNumber, size);
-			serverResponse = client.target(requestUrl).request(MediaType.APPLICATION_JSON_VALUE).get(String.class);
-			return mapper.readValue(serverResponse, new TypeReference<SimplePage<Company>>() {
-			});
+			return client.listCompanies(pageNumber, size);
 		case COMPUTER:
-			requestUrl = String.format(LIST_COMPUTER_URL, pageNumber, size);
-			serverResponse = client.target(requestUrl).request(MediaType.APPLICATION_JSON_VALUE).get(String.class);
-			return mapper.readValue(serverResponse, new TypeReference<SimplePage<Computer>>() {
-			});
+			return client.listComputers(pageNumber, size);
 		}
 
 	}
 
 	/** Send a find computer request. */
-	private Computer sendFindComputerRequest(Long id) throws IOException {
-		String requestUrl = String.format(FIND_COMPUTER_URL, id);
-		String serverResponse = client.target(requestUrl).request(MediaType.APPLICATION_JSON_VALUE).get(String.class);
-		return mapper.readValue(serverResponse, Computer.class);
+	private Computer sendFindComputerRequest(Long id) {
+		return client.findComputer(id);
 	}
 
 	/** Launch the "create computer" process. */
-	private void createComputer() throws IOException {
-		ComputerDTO c = askComputerInformation();
-
-		String requestUrl = String.format(CREATE_COMPUTER_URL, c.getName());
-
-		if (c.getIntroduced() != null) {
-			requestUrl += "&introduced=" + c.getIntroduced();
-		}
-		if (c.getDiscontinued() != null) {
-			requestUrl += "&discontinued=" + c.getDiscontinued();
-		}
-		if (c.getCompanyId() != null && c.getCompanyId() > 0) {
-			requestUrl += "&companyId=" + c.getCompanyId();
-		}
-		String serverResponse = client.target(requestUrl).request(MediaType.APPLICATION_JSON_VALUE).get(String.class);
+	private void createComputer() {
+		Computer c = askComputerInformation();
 
 		// Show the computer information (to show the new id)
 		System.out.println("Computer : ");
-		Computer computer = mapper.readValue(serverResponse, Computer.class);
+		Computer computer = client.createComputer(c);
 		view.showComputerDetail(computer);
 	}
 
 	/** Launch the "update the computer" process. */
-	private void updateComputer() throws IOException {
+	private void updateComputer() {
 		// Fetch the computer to update
 		System.out.println("Quel computer updater ? Saisir l'id :");
 		Long id = askLong();
@@ -199,29 +183,16 @@ public class CommandLineInterfaceController {
 		System.out.println("Computer à mettre à jour :\n" + c);
 
 		// Ask the new information to the user
-		ComputerDTO newComp = askComputerInformation();
+		Computer newComp = askComputerInformation();
 		newComp.setId(c.getId());
 
-		// Build the update request
-		String requestUrl = String.format(UPDATE_COMPUTER_URL, newComp.getId(), newComp.getName());
-		if (newComp.getIntroduced() != null) {
-			requestUrl += "&introduced=" + newComp.getIntroduced();
-		}
-		if (newComp.getDiscontinued() != null) {
-			requestUrl += "&discontinued=" + newComp.getDiscontinued();
-		}
-		if (newComp.getCompanyId() != null && newComp.getCompanyId() > 0) {
-			requestUrl += "&companyId=" + newComp.getCompanyId();
-		}
-
 		// Send the request and display the responses
-		String serverResponse = client.target(requestUrl).request(MediaType.APPLICATION_JSON_VALUE).get(String.class);
 		System.out.println("Computer mis à jour : ");
-		Computer computer = mapper.readValue(serverResponse, Computer.class);
+		Computer computer = client.updateComputer(newComp);
 		view.showComputerDetail(computer);
 	}
 
-	private ComputerDTO askComputerInformation() {
+	private Computer askComputerInformation() {
 		// Name
 		System.out.println("Nom :");
 		String name = askString();
@@ -234,7 +205,7 @@ public class CommandLineInterfaceController {
 		LocalDate introduced = null;
 		if (!stringIntroduced.isEmpty()) {
 			try {
-				introduced = DateHelper.isoStringToLocalDate(stringIntroduced);
+				introduced = LocalDate.parse(stringIntroduced);
 			} catch (DateTimeParseException e) {
 				System.out.println("Bad entry, introduced date set to null");
 			}
@@ -247,7 +218,7 @@ public class CommandLineInterfaceController {
 		LocalDate discontinued = null;
 		if (!stringDiscontinued.isEmpty()) {
 			try {
-				discontinued = DateHelper.isoStringToLocalDate(stringDiscontinued);
+				discontinued = LocalDate.parse(stringDiscontinued);
 			} catch (DateTimeParseException e) {
 				System.out.println("Bad entry, discontinued date set to null");
 			}
@@ -258,7 +229,13 @@ public class CommandLineInterfaceController {
 		Long companyId = askLong();
 
 		// Création de l'objet correspondant
-		return new ComputerDTO(-1L, name, introduced, discontinued, companyId, null);
+		Computer computer = new Computer(name);
+		computer.setIntroduced(introduced);
+		computer.setDiscontinued(discontinued);
+		if (companyId > 0) {
+			computer.setCompany(new Company(companyId, null));
+		}
+		return computer;
 	}
 
 	/** Launch a "delete a computer" process. */
@@ -266,9 +243,25 @@ public class CommandLineInterfaceController {
 		System.out.println("Quel computer effacer ?");
 		Long id = askLong();
 
-		String requestUrl = String.format(DELETE_COMPUTER_URL, id);
-		String s = client.target(requestUrl).request(MediaType.TEXT_PLAIN_VALUE).get(String.class);
-		System.out.println("Reponse serveur : " + s);
+		client.deleteComputer(id);
+		System.out.println("Computer effacé.");
+	}
+
+	/** Send a CSV or NDJSON file to the import, and display its report. */
+	private void importComputers() {
+		System.out.println("Fichier à importer (.csv ou .ndjson) :");
+		File file = new File(askString().trim());
+		if (!file.isFile()) {
+			System.out.println("Fichier introuvable.");
+			return;
+		}
+		ImportFormat format = ImportFormat.fromFileName(file.getName());
+		System.out.println("Mettre à jour les computers existants (même nom et company) ? (o/n)");
+		ImportMode mode = askString().trim().equalsIgnoreCase("n") ? ImportMode.INSERT : ImportMode.UPSERT;
+
+		// The file is streamed in the request body
+		ImportReport report = client.importComputers(file, format, mode);
+		System.out.println("Import : " + report);
 	}
 
 	/**
@@ -305,13 +298,24 @@ public class CommandLineInterfaceController {
 	}
 
 	/**
-	 * The main launching the CLI.
+	 * The main launching the CLI, or the load generator if the first argument
+	 * is "load" (see {@link LoadGenerator#USAGE}).
 	 * 
 	 * @param arg
 	 *            The arguments
 	 */
-	public static void main(String[] arg) {
-		CommandLineInterfaceController controller = new CommandLineInterfaceController();
-		controller.start();
+	public static void main(String[] arg) throws IOException {
+		if (arg.length > 0 && arg[0].equals("load")) {
+			LoadGenerator.main(Arrays.copyOfRange(arg, 1, arg.length));
+			return;
+		}
+		ClientBuilder builder = new ClientBuilder(BASE_URL);
+		if (USERNAME != null) {
+			builder.credentials(USERNAME, PASSWORD);
+		}
+		try (ComputerDatabaseClient client = builder.build()) {
+			CommandLineInterfaceController controller = new CommandLineInterfaceController(client);
+			controller.start();
+		}
 	}
 }
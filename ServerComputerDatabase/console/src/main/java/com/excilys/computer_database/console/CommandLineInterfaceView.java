@@ -1,6 +1,6 @@
 package com.excilys.computer_database.console;
 
-import com.excilys.computer_database.core.page.SimplePage;
+import com.excilys.computer_database.client.model.Page;
 
 public class CommandLineInterfaceView {
 
@@ -12,17 +12,17 @@ public class CommandLineInterfaceView {
 	public void displayPrompt() {
 		String prompt = "Please select a choice:\n" + "\t1) List companies\n" + "\t2) List computers\n"
 				+ "\t3) Find a computer\n" + "\t4) Create a computer\n" + "\t5) Modify a computer\n"
-				+ "\t6) Delete a computer\n";
+				+ "\t6) Delete a computer\n" + "\t7) Import computers\n";
 		System.out.println(prompt);
 	}
 
 	/**
-	 * Display a SimplePage.
+	 * Display a page.
 	 * 
 	 * @param p
 	 *            The page to display.
 	 */
-	public void displayPage(SimplePage<?> p) {
+	public void displayPage(Page<?> p) {
 		// Construct the String to display
 		StringBuilder sb = new StringBuilder();
 		sb.append("(").append(p.getPageNumber()).append("/").append(p.getPageTotalCount() - 1).append(") :\n");
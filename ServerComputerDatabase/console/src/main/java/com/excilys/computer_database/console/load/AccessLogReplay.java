@@ -0,0 +1,184 @@
+package com.excilys.computer_database.console.load;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The REST requests of an access log in the common or combined format of
+ * Tomcat, Jetty, Apache or nginx, replayed in their order. The log is read as
+ * the run goes.
+ *
+ * They are sent at their recorded times, sped up or slowed down, or at a mean
+ * rate with Poisson arrivals. The times of the log are to the second : the
+ * requests of a second are spread over it.
+ *
+ * Only the GET requests to /rest/ are replayed, from /rest/ : the log can come
+ * from an instance with another context path. The other lines are skipped.
+ */
+public class AccessLogReplay implements RequestSource {
+	/** host ident user [time] "method path protocol" */
+	private static final Pattern LINE = Pattern.compile("^\\S+ \\S+ \\S+ \\[([^\\]]+)\\] \"(\\S+) (\\S+)[^\"]*\"");
+	private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z",
+			Locale.ENGLISH);
+	private static final long NANOS_PER_SECOND = 1000000000L;
+
+	private final BufferedReader log;
+	/** Null to follow the recorded times. */
+	private final PoissonArrivals arrivals;
+	private final double speed;
+	/** The requests of the current second, at their times. */
+	private final Deque<LoadRequest> second = new ArrayDeque<>();
+	/** The first request of the next second, read with the current one. */
+	private Recorded pending;
+	private long firstSecond = Long.MIN_VALUE;
+	private long skipped;
+
+	/**
+	 * Replay at the recorded times.
+	 *
+	 * @param log
+	 *            The access log, closed by the caller
+	 * @param speed
+	 *            How faster than recorded : 2 sends the requests of a minute
+	 *            in 30 seconds
+	 */
+	public AccessLogReplay(BufferedReader log, double speed) {
+		if (speed <= 0) {
+			throw new IllegalArgumentException("The speed must be positive : " + speed);
+		}
+		this.log = log;
+		this.arrivals = null;
+		this.speed = speed;
+	}
+
+	/**
+	 * Replay at a mean rate.
+	 *
+	 * @param log
+	 *            The access log, closed by the caller
+	 * @param rate
+	 *            The mean requests per second
+	 * @param random
+	 *            The random generator of the arrivals
+	 */
+	public AccessLogReplay(BufferedReader log, double rate, Random random) {
+		this.log = log;
+		this.arrivals = new PoissonArrivals(rate, random);
+		this.speed = 1;
+	}
+
+	@Override
+	public LoadRequest next() throws IOException {
+		if (arrivals != null) {
+			Recorded recorded = read();
+			return (recorded == null) ? null
+					: new LoadRequest(recorded.endpoint, recorded.path, arrivals.next());
+		}
+		if (second.isEmpty()) {
+			readSecond();
+		}
+		return second.poll();
+	}
+
+	/**
+	 * @return The lines of the log skipped so far : other methods or paths, or
+	 *         unknown format
+	 */
+	public long getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * Read the requests of the next second of the log, and spread them over
+	 * it.
+	 */
+	private void readSecond() throws IOException {
+		Recorded first = (pending != null) ? pending : read();
+		pending = null;
+		if (first == null) {
+			return;
+		}
+		Deque<Recorded> requests = new ArrayDeque<>();
+		requests.add(first);
+		Recorded next;
+		while ((next = read()) != null && next.epochSecond == first.epochSecond) {
+			requests.add(next);
+		}
+		pending = next;
+
+		if (firstSecond == Long.MIN_VALUE) {
+			firstSecond = first.epochSecond;
+		}
+		double start = (first.epochSecond - firstSecond) * NANOS_PER_SECOND;
+		double gap = (double) NANOS_PER_SECOND / requests.size();
+		int i = 0;
+		for (Recorded recorded : requests) {
+			long offset = (long) ((start + i++ * gap) / speed);
+			second.add(new LoadRequest(recorded.endpoint, recorded.path, offset));
+		}
+	}
+
+	/**
+	 * @return The next REST request of the log, null at its end
+	 */
+	private Recorded read() throws IOException {
+		String line;
+		while ((line = log.readLine()) != null) {
+			Recorded recorded = parse(line);
+			if (recorded != null) {
+				return recorded;
+			}
+			skipped++;
+		}
+		return null;
+	}
+
+	/**
+	 * @param line
+	 *            A line of the log
+	 * @return Its request, null if not a GET to the REST API
+	 */
+	static Recorded parse(String line) {
+		Matcher matcher = LINE.matcher(line);
+		if (!matcher.find() || !"GET".equals(matcher.group(2))) {
+			return null;
+		}
+		String uri = matcher.group(3);
+		int rest = uri.indexOf("/rest/");
+		if (rest < 0) {
+			return null;
+		}
+		String path = uri.substring(rest);
+		int query = path.indexOf('?');
+		String endpoint = path.substring("/rest/".length(), (query < 0) ? path.length() : query).toLowerCase();
+		try {
+			long epochSecond = OffsetDateTime.parse(matcher.group(1), TIME).toEpochSecond();
+			return new Recorded(endpoint, path, epochSecond);
+		} catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * A request of the log.
+	 */
+	static final class Recorded {
+		final String endpoint, path;
+		final long epochSecond;
+
+		Recorded(String endpoint, String path, long epochSecond) {
+			this.endpoint = endpoint;
+			this.path = path;
+			this.epochSecond = epochSecond;
+		}
+	}
+}
@@ -0,0 +1,283 @@
+package com.excilys.computer_database.console.load;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import com.excilys.computer_database.client.ClientException;
+import com.excilys.computer_database.client.ComputerDatabaseClient;
+import com.excilys.computer_database.client.ComputerDatabaseClient.ClientBuilder;
+import com.excilys.computer_database.console.load.SyntheticMix.Catalog;
+
+/**
+ * Load generator of the REST API : sends a synthetic mix of requests or
+ * replays an access log, at a rate independent of the answers of the server
+ * (open model), then reports the latency percentiles, the throughput and the
+ * errors by endpoint.
+ *
+ * Launched with "load" as first argument of the console, followed by the
+ * options of {@link #USAGE}.
+ */
+public class LoadGenerator {
+	public static final String USAGE = "load [options]\n"
+			+ "  --url <url>          The webapp (default http://localhost:8080/webapp)\n"
+			+ "  --rate <n>           Mean requests per second, Poisson arrivals (default 50 ;\n"
+			+ "                       with --replay, the recorded times if not set)\n"
+			+ "  --concurrency <n>    Connections, and threads sending the requests (default 20)\n"
+			+ "  --duration <s>       Seconds of the run, warmup included (default 60)\n"
+			+ "  --warmup <s>         First seconds not measured (default 0)\n"
+			+ "  --mix <weights>      Synthetic mix (default " + SyntheticMix.DEFAULT_MIX + ")\n"
+			+ "  --replay <file>      Replay the GET /rest/ requests of an access log instead\n"
+			+ "  --speed <x>          Speed of the replay at the recorded times (default 1)\n"
+			+ "  --timeout <ms>       Timeout of the requests (default 10000)\n"
+			+ "  --seed <n>           Seed of the random draws, to repeat a run\n"
+			+ "  --hgrm <file>        Write the percentile distribution of the response times there";
+
+	private static final long NANOS_PER_SECOND = 1000000000L, PROGRESS_NANOS = 10 * NANOS_PER_SECOND;
+	/** Requests planned but not sent yet, by connection, before dropping the next ones. */
+	private static final int QUEUED_PER_CONNECTION = 1000;
+
+	private final Map<String, String> options;
+	private final String url;
+	private final int concurrency, timeout;
+	private final long durationNanos, warmupNanos;
+
+	/**
+	 * @param args
+	 *            The options
+	 * @throws IllegalArgumentException
+	 *             If an option is unknown or invalid
+	 */
+	public LoadGenerator(String[] args) {
+		options = parse(args);
+		url = options.getOrDefault("url", "http://localhost:8080/webapp").replaceAll("/$", "");
+		concurrency = intOption("concurrency", 20);
+		timeout = intOption("timeout", 10000);
+		durationNanos = intOption("duration", 60) * NANOS_PER_SECOND;
+		warmupNanos = intOption("warmup", 0) * NANOS_PER_SECOND;
+		if (concurrency <= 0 || durationNanos <= warmupNanos) {
+			throw new IllegalArgumentException(
+					"The concurrency must be positive, and the duration longer than the warmup");
+		}
+	}
+
+	/**
+	 * Run the load, printing the progress and the report.
+	 *
+	 * @param out
+	 *            Where to print
+	 * @return The report
+	 * @throws IOException
+	 *             If the log can't be read, or the histogram written
+	 */
+	public LoadReport run(PrintStream out) throws IOException {
+		Random random = options.containsKey("seed") ? new Random(Long.parseLong(options.get("seed"))) : new Random();
+		LoadReport report = new LoadReport();
+
+		PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager();
+		connections.setMaxTotal(concurrency);
+		connections.setDefaultMaxPerRoute(concurrency);
+		RequestConfig config = RequestConfig.custom().setConnectTimeout(timeout).setSocketTimeout(timeout)
+				.setConnectionRequestTimeout(timeout).build();
+		ThreadPoolExecutor workers = new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(concurrency * QUEUED_PER_CONNECTION), task -> {
+					Thread thread = new Thread(task, "load-generator");
+					thread.setDaemon(true);
+					return thread;
+				});
+
+		String replay = options.get("replay");
+		try (CloseableHttpClient http = HttpClients.custom().setConnectionManager(connections)
+				.setDefaultRequestConfig(config).build();
+				BufferedReader log = (replay == null) ? null
+						: Files.newBufferedReader(Paths.get(replay), StandardCharsets.UTF_8)) {
+			RequestSource source = source(log, random, out);
+			out.println("Sending to " + url + " for " + durationNanos / NANOS_PER_SECOND + " s on " + concurrency
+					+ " connections" + (warmupNanos > 0 ? ", measured after " + warmupNanos / NANOS_PER_SECOND
+							+ " s" : ""));
+
+			long start = System.nanoTime() + NANOS_PER_SECOND / 10;
+			long end = start + durationNanos, measured = start + warmupNanos, progress = start + PROGRESS_NANOS;
+			long sent = 0;
+			LoadRequest next;
+			while ((next = source.next()) != null) {
+				LoadRequest request = next;
+				long planned = start + request.getOffsetNanos();
+				if (planned - end >= 0) {
+					break;
+				}
+				long wait;
+				while ((wait = planned - System.nanoTime()) > 0) {
+					LockSupport.parkNanos(wait);
+				}
+				boolean measure = planned - measured >= 0;
+				try {
+					workers.execute(() -> send(http, request, planned, measure ? report : null));
+					sent++;
+				} catch (RejectedExecutionException e) {
+					if (measure) {
+						report.dropped(request.getEndpoint());
+					}
+				}
+				if (planned - progress >= 0) {
+					out.println((progress - start) / NANOS_PER_SECOND + " s : " + sent + " requests sent, "
+							+ (workers.getQueue().size() + workers.getActiveCount()) + " in flight");
+					progress += PROGRESS_NANOS;
+				}
+			}
+			long stop = Math.min(System.nanoTime(), end);
+			out.printf("Offered %.1f req/s%n", sent * 1e9 / Math.max(stop - start, 1));
+			if (source instanceof AccessLogReplay && ((AccessLogReplay) source).getSkipped() > 0) {
+				out.println(((AccessLogReplay) source).getSkipped() + " lines of the log skipped");
+			}
+
+			// The answers of the last requests
+			workers.shutdown();
+			try {
+				workers.awaitTermination(timeout + 1000, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			workers.shutdownNow();
+
+			// Until the last answer : a slow server answers less than offered
+			out.println();
+			report.print(out, Math.max(System.nanoTime() - measured, 1));
+		}
+
+		if (options.containsKey("hgrm")) {
+			try (PrintStream hgrm = new PrintStream(options.get("hgrm"), "UTF-8")) {
+				// In milliseconds
+				report.totalResponseTime().outputPercentileDistribution(hgrm, 1000.0);
+			}
+		}
+		return report;
+	}
+
+	/**
+	 * @return The requests of the run : the replay of the log, or the mix
+	 */
+	private RequestSource source(BufferedReader log, Random random, PrintStream out) {
+		String rate = options.get("rate");
+		if (log != null) {
+			if (rate != null) {
+				return new AccessLogReplay(log, Double.parseDouble(rate), random);
+			}
+			return new AccessLogReplay(log, Double.parseDouble(options.getOrDefault("speed", "1")));
+		}
+		Catalog catalog = catalog();
+		out.println("Catalog : " + catalog);
+		return new SyntheticMix(options.getOrDefault("mix", SyntheticMix.DEFAULT_MIX),
+				(rate == null) ? 50 : Double.parseDouble(rate), catalog, random);
+	}
+
+	/**
+	 * @return The rows on the server, for the pages and ids of the mix
+	 */
+	private Catalog catalog() {
+		try (ComputerDatabaseClient client = new ClientBuilder(url).prefetch(false).timeout(timeout).build()) {
+			return new Catalog(client.listCompanies(0, 10).getElementTotalCount(),
+					client.listComputers(0, 10).getElementTotalCount());
+		} catch (IOException | UncheckedIOException | ClientException e) {
+			throw new IllegalStateException("Can't read the catalog of " + url + " : " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Send a request and record its times, on a worker thread.
+	 *
+	 * @param report
+	 *            Null during the warmup
+	 */
+	private void send(CloseableHttpClient http, LoadRequest request, long planned, LoadReport report) {
+		long sending = System.nanoTime();
+		int status;
+		try (CloseableHttpResponse response = http.execute(new HttpGet(url + request.getPath()))) {
+			// The whole body, as a client would
+			EntityUtils.consume(response.getEntity());
+			status = response.getStatusLine().getStatusCode();
+		} catch (IOException e) {
+			if (report != null) {
+				long now = System.nanoTime();
+				report.failed(request.getEndpoint(), now - planned, now - sending);
+			}
+			return;
+		}
+		if (report != null) {
+			long now = System.nanoTime();
+			report.record(request.getEndpoint(), status, now - planned, now - sending);
+		}
+	}
+
+	private int intOption(String name, int defaultValue) {
+		String value = options.get(name);
+		try {
+			return (value == null) ? defaultValue : Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("--" + name + " expects a number : " + value);
+		}
+	}
+
+	/**
+	 * @param args
+	 *            --name value pairs
+	 * @return The values by name
+	 */
+	static Map<String, String> parse(String[] args) {
+		Map<String, String> options = new HashMap<>();
+		for (int i = 0; i < args.length; i += 2) {
+			String name = args[i];
+			if (!name.startsWith("--") || i + 1 >= args.length) {
+				throw new IllegalArgumentException("Expected --option value : " + name);
+			}
+			options.put(name.substring(2), args[i + 1]);
+		}
+		for (String name : options.keySet()) {
+			if (!USAGE.contains("--" + name + " ")) {
+				throw new IllegalArgumentException("Unknown option --" + name);
+			}
+		}
+		return options;
+	}
+
+	/**
+	 * Run the load generator.
+	 *
+	 * @param args
+	 *            The options of {@link #USAGE}
+	 * @throws IOException
+	 *             If the log can't be read, or the histogram written
+	 */
+	public static void main(String[] args) throws IOException {
+		LoadGenerator generator;
+		try {
+			generator = new LoadGenerator(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+			return;
+		}
+		generator.run(System.out);
+	}
+}
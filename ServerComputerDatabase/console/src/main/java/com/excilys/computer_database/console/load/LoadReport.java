@@ -0,0 +1,161 @@
+package com.excilys.computer_database.console.load;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * The latencies and the errors of a run, by endpoint, recorded by the threads
+ * sending the requests.
+ *
+ * The response time is counted from the planned time of the request, not from
+ * its sending : a request waiting for a free connection, because the server is
+ * slow to answer the previous ones, counts its wait as a user would
+ * (coordinated omission). The service time, from the sending, is reported
+ * beside.
+ */
+public class LoadReport {
+	/** Longest latency recorded, longer ones are recorded as it. */
+	private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(10);
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9, 99.99 };
+
+	private final Map<String, Stats> endpoints = new ConcurrentHashMap<>();
+
+	/**
+	 * The statistics of an endpoint.
+	 */
+	static final class Stats {
+		private final Histogram responseTime = new ConcurrentHistogram(MAX_MICROS, 3);
+		private final Histogram serviceTime = new ConcurrentHistogram(MAX_MICROS, 3);
+		private final LongAdder errors = new LongAdder(), overloaded = new LongAdder(), dropped = new LongAdder();
+
+		private long count() {
+			return responseTime.getTotalCount() + dropped.sum();
+		}
+	}
+
+	/**
+	 * Record an answered request.
+	 *
+	 * @param endpoint
+	 *            The endpoint
+	 * @param status
+	 *            The status of the response
+	 * @param responseNanos
+	 *            The time from the planned sending to the end of the response
+	 * @param serviceNanos
+	 *            The time from the sending to the end of the response
+	 */
+	public void record(String endpoint, int status, long responseNanos, long serviceNanos) {
+		Stats stats = stats(endpoint);
+		stats.responseTime.recordValue(micros(responseNanos));
+		stats.serviceTime.recordValue(micros(serviceNanos));
+		if (status == 503) {
+			stats.overloaded.increment();
+		} else if (status >= 400) {
+			stats.errors.increment();
+		}
+	}
+
+	/**
+	 * Record a request without response : the connection failed or timed
+	 * out.
+	 *
+	 * @param endpoint
+	 *            The endpoint
+	 * @param responseNanos
+	 *            The time from the planned sending to the failure
+	 * @param serviceNanos
+	 *            The time from the sending to the failure
+	 */
+	public void failed(String endpoint, long responseNanos, long serviceNanos) {
+		record(endpoint, 599, responseNanos, serviceNanos);
+	}
+
+	/**
+	 * Record a request not sent : the generator had too many requests waiting.
+	 *
+	 * @param endpoint
+	 *            The endpoint
+	 */
+	public void dropped(String endpoint) {
+		stats(endpoint).dropped.increment();
+	}
+
+	/**
+	 * @return The response times of all the requests, in microseconds
+	 */
+	public Histogram totalResponseTime() {
+		Histogram total = new Histogram(MAX_MICROS, 3);
+		for (Stats stats : endpoints.values()) {
+			total.add(stats.responseTime);
+		}
+		return total;
+	}
+
+	/**
+	 * Print the report, a line by endpoint and a total, the times in
+	 * milliseconds.
+	 *
+	 * @param out
+	 *            Where to print it
+	 * @param elapsedNanos
+	 *            The measured time, for the throughput
+	 */
+	public void print(PrintStream out, long elapsedNanos) {
+		double seconds = elapsedNanos / 1e9;
+		out.printf("%-16s %8s %9s %7s %7s %7s |", "endpoint", "requests", "req/s", "errors", "503", "dropped");
+		for (double percentile : PERCENTILES) {
+			out.printf(" %8s", "p" + format(percentile));
+		}
+		out.printf(" %8s | %8s %8s%n", "max", "svc p50", "svc p99");
+
+		Stats total = new Stats();
+		for (Map.Entry<String, Stats> entry : new TreeMap<>(endpoints).entrySet()) {
+			Stats stats = entry.getValue();
+			print(out, entry.getKey(), stats, seconds);
+			total.responseTime.add(stats.responseTime);
+			total.serviceTime.add(stats.serviceTime);
+			total.errors.add(stats.errors.sum());
+			total.overloaded.add(stats.overloaded.sum());
+			total.dropped.add(stats.dropped.sum());
+		}
+		print(out, "total", total, seconds);
+
+		long count = total.count();
+		long failed = total.errors.sum() + total.overloaded.sum() + total.dropped.sum();
+		out.printf("%nThroughput %.1f req/s over %.1f s, error rate %.3f %%%n",
+				total.responseTime.getTotalCount() / seconds, seconds, (count == 0) ? 0.0 : 100.0 * failed / count);
+		out.println("Response times from the planned sending (open model), service times from the sending, in ms.");
+	}
+
+	private static void print(PrintStream out, String endpoint, Stats stats, double seconds) {
+		Histogram response = stats.responseTime;
+		out.printf("%-16s %8d %9.1f %7d %7d %7d |", endpoint, stats.count(), response.getTotalCount() / seconds,
+				stats.errors.sum(), stats.overloaded.sum(), stats.dropped.sum());
+		for (double percentile : PERCENTILES) {
+			out.printf(" %8.2f", response.getValueAtPercentile(percentile) / 1000.0);
+		}
+		out.printf(" %8.2f | %8.2f %8.2f%n", response.getMaxValue() / 1000.0,
+				stats.serviceTime.getValueAtPercentile(50) / 1000.0,
+				stats.serviceTime.getValueAtPercentile(99) / 1000.0);
+	}
+
+	private Stats stats(String endpoint) {
+		return endpoints.computeIfAbsent(endpoint, e -> new Stats());
+	}
+
+	private static long micros(long nanos) {
+		return Math.min(Math.max(nanos / 1000, 0), MAX_MICROS);
+	}
+
+	private static String format(double percentile) {
+		return (percentile == Math.rint(percentile)) ? Long.toString((long) percentile) : Double.toString(percentile);
+	}
+}
@@ -0,0 +1,41 @@
+package com.excilys.computer_database.console.load;
+
+/**
+ * A request to send, at a time planned in advance.
+ */
+public class LoadRequest {
+	private final String endpoint, path;
+	private final long offsetNanos;
+
+	/**
+	 * @param endpoint
+	 *            The endpoint, as listcomputer : the requests are reported by
+	 *            endpoint
+	 * @param path
+	 *            The path from the webapp, as /rest/listcomputer?size=10
+	 * @param offsetNanos
+	 *            When to send it, from the start of the run
+	 */
+	public LoadRequest(String endpoint, String path, long offsetNanos) {
+		this.endpoint = endpoint;
+		this.path = path;
+		this.offsetNanos = offsetNanos;
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public long getOffsetNanos() {
+		return offsetNanos;
+	}
+
+	@Override
+	public String toString() {
+		return path + " at " + offsetNanos / 1000000 + " ms";
+	}
+}
@@ -0,0 +1,38 @@
+package com.excilys.computer_database.console.load;
+
+import java.util.Random;
+
+/**
+ * Arrival times of independent clients at a mean rate (open model) : the gaps
+ * between two requests follow an exponential distribution, so the requests
+ * keep arriving when the server slows down, and bursts happen as in
+ * production.
+ */
+public class PoissonArrivals {
+	private final double meanGapNanos;
+	private final Random random;
+	private double offsetNanos;
+
+	/**
+	 * @param rate
+	 *            The mean requests per second
+	 * @param random
+	 *            The random generator, shared with the caller
+	 */
+	public PoissonArrivals(double rate, Random random) {
+		if (rate <= 0) {
+			throw new IllegalArgumentException("The rate must be positive : " + rate);
+		}
+		this.meanGapNanos = 1e9 / rate;
+		this.random = random;
+	}
+
+	/**
+	 * @return The time of the next arrival, from the start of the run
+	 */
+	public long next() {
+		// Inverse of the exponential distribution function, 1 - u in ]0, 1]
+		offsetNanos += -Math.log(1 - random.nextDouble()) * meanGapNanos;
+		return (long) offsetNanos;
+	}
+}
@@ -0,0 +1,16 @@
+package com.excilys.computer_database.console.load;
+
+import java.io.IOException;
+
+/**
+ * The requests of a run, in the order of their planned time.
+ */
+public interface RequestSource {
+
+	/**
+	 * @return The next request, null when there are no more
+	 * @throws IOException
+	 *             If the requests can't be read
+	 */
+	LoadRequest next() throws IOException;
+}
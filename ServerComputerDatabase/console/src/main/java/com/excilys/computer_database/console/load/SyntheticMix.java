@@ -0,0 +1,168 @@
+package com.excilys.computer_database.console.load;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Requests drawn at random among the endpoints of the REST API, with weights,
+ * arriving at a mean rate. The pages and the ids are drawn in the catalog of
+ * the server.
+ */
+public class SyntheticMix implements RequestSource {
+	/** The mix without --mix : the reads of the console. */
+	public static final String DEFAULT_MIX = "listcomputer=50,findcomputer=30,listcompany=15,seekcomputer=5";
+
+	private static final int[] SIZES = { 10, 20, 50 };
+
+	/**
+	 * The endpoints of the mix.
+	 */
+	public enum Endpoint {
+		LISTCOMPANY {
+			@Override
+			String path(Random random, Catalog catalog) {
+				int size = size(random);
+				return "/rest/listcompany?size=" + size + "&pageNumber=" + page(random, catalog.companies, size);
+			}
+		},
+		LISTCOMPUTER {
+			@Override
+			String path(Random random, Catalog catalog) {
+				int size = size(random);
+				return "/rest/listcomputer?size=" + size + "&pageNumber=" + page(random, catalog.computers, size);
+			}
+		},
+		/** The first page by keyset, without count. */
+		SEEKCOMPUTER {
+			@Override
+			String path(Random random, Catalog catalog) {
+				return "/rest/listcomputer?cursor=&size=" + size(random);
+			}
+		},
+		FINDCOMPUTER {
+			@Override
+			String path(Random random, Catalog catalog) {
+				return "/rest/findcomputer?id=" + (1 + random.nextInt(Math.max(1, catalog.computers)));
+			}
+		},
+		/** Built by the server without being saved : no data is changed. */
+		CREATECOMPUTER {
+			@Override
+			String path(Random random, Catalog catalog) {
+				return "/rest/createcomputer?name=load-" + random.nextInt(1000000) + "&introduced=2000-01-01";
+			}
+		};
+
+		abstract String path(Random random, Catalog catalog);
+
+		private static int size(Random random) {
+			return SIZES[random.nextInt(SIZES.length)];
+		}
+
+		private static int page(Random random, int elements, int size) {
+			int pages = Math.max(1, (elements + size - 1) / size);
+			return random.nextInt(pages);
+		}
+	}
+
+	/**
+	 * The number of rows on the server, to draw existing pages and ids.
+	 */
+	public static class Catalog {
+		private final int companies, computers;
+
+		public Catalog(int companies, int computers) {
+			this.companies = companies;
+			this.computers = computers;
+		}
+
+		@Override
+		public String toString() {
+			return companies + " companies, " + computers + " computers";
+		}
+	}
+
+	private final Random random;
+	private final PoissonArrivals arrivals;
+	private final Catalog catalog;
+	private final Endpoint[] endpoints;
+	/** Cumulated weights of the endpoints. */
+	private final int[] thresholds;
+
+	/**
+	 * @param mix
+	 *            The weights, as listcomputer=50,findcomputer=30
+	 * @param rate
+	 *            The mean requests per second
+	 * @param catalog
+	 *            The rows on the server
+	 * @param random
+	 *            The random generator
+	 */
+	public SyntheticMix(String mix, double rate, Catalog catalog, Random random) {
+		Map<Endpoint, Integer> weights = parse(mix);
+		this.random = random;
+		this.arrivals = new PoissonArrivals(rate, random);
+		this.catalog = catalog;
+		this.endpoints = weights.keySet().toArray(new Endpoint[weights.size()]);
+		this.thresholds = new int[endpoints.length];
+		int total = 0;
+		for (int i = 0; i < endpoints.length; i++) {
+			total += weights.get(endpoints[i]);
+			thresholds[i] = total;
+		}
+	}
+
+	@Override
+	public LoadRequest next() {
+		int draw = random.nextInt(thresholds[thresholds.length - 1]);
+		int i = 0;
+		while (draw >= thresholds[i]) {
+			i++;
+		}
+		Endpoint endpoint = endpoints[i];
+		return new LoadRequest(endpoint.name().toLowerCase(), endpoint.path(random, catalog), arrivals.next());
+	}
+
+	/**
+	 * @param mix
+	 *            The weights, as listcomputer=50,findcomputer=30
+	 * @return The endpoints with a positive weight
+	 */
+	static Map<Endpoint, Integer> parse(String mix) {
+		Map<Endpoint, Integer> weights = new LinkedHashMap<>();
+		for (String entry : mix.split(",")) {
+			String[] parts = entry.trim().split("=");
+			if (parts.length != 2) {
+				throw new IllegalArgumentException("Expected endpoint=weight : " + entry);
+			}
+			Endpoint endpoint;
+			int weight;
+			try {
+				endpoint = Endpoint.valueOf(parts[0].trim().toUpperCase());
+				weight = Integer.parseInt(parts[1].trim());
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unknown endpoint or invalid weight : " + entry
+						+ " (endpoints : " + names() + ")");
+			}
+			if (weight > 0) {
+				weights.put(endpoint, weight);
+			}
+		}
+		if (weights.isEmpty()) {
+			throw new IllegalArgumentException("No endpoint in the mix : " + mix);
+		}
+		return weights;
+	}
+
+	private static List<String> names() {
+		List<String> names = new ArrayList<>();
+		for (Endpoint endpoint : Endpoint.values()) {
+			names.add(endpoint.name().toLowerCase());
+		}
+		return names;
+	}
+}
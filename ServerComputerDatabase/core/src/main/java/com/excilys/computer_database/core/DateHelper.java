@@ -2,20 +2,20 @@ package com.excilys.computer_database.core;
 
 import java.sql.Timestamp;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 
+import com.excilys.computer_database.core.date.EpochDays;
+
 public class DateHelper {
     public static LocalDate timestampToLocalDate(Timestamp t) {
-        return t.toLocalDateTime().toLocalDate();
+        return LocalDate.ofEpochDay(EpochDays.fromMillis(t.getTime()));
     }
 
     public static Timestamp localDateToTimestamp(LocalDate d){
-        return Timestamp.valueOf(d.atStartOfDay());
+        return new Timestamp(EpochDays.toMillis(d.toEpochDay()));
     }
 
     public static LocalDate isoStringToLocalDate(String iso) throws DateTimeParseException {
-        DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        return LocalDate.parse(iso, format);
+        return LocalDate.ofEpochDay(EpochDays.parseIso(iso));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,26 @@
+package com.excilys.computer_database.core.date;
+
+import java.sql.Timestamp;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Maps an epoch day attribute (see {@link EpochDays}) to a DATETIME column, at midnight. NONE is NULL.
+ */
+@Converter
+public class EpochDayConverter implements AttributeConverter<Long, Timestamp> {
+
+    @Override
+    public Timestamp convertToDatabaseColumn(Long epochDay) {
+        if (epochDay == null || epochDay == EpochDays.NONE) {
+            return null;
+        }
+        return new Timestamp(EpochDays.toMillis(epochDay));
+    }
+
+    @Override
+    public Long convertToEntityAttribute(Timestamp timestamp) {
+        return (timestamp == null) ? EpochDays.NONE : EpochDays.fromMillis(timestamp.getTime());
+    }
+}
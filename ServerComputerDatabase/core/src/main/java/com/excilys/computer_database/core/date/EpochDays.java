@@ -0,0 +1,201 @@
+package com.excilys.computer_database.core.date;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Dates as a number of days since 1970-01-01 (the epoch day of LocalDate), in a primitive long : {@link #NONE} stands
+ * for no date. Converts them from and to the timestamps of the database and the ISO strings (yyyy-MM-dd) of the forms
+ * and the JSON, without allocating (but for the rare days without midnight).
+ */
+public final class EpochDays {
+    /** No date : the smallest key, as NULL in MySQL. */
+    public static final long NONE = Long.MIN_VALUE;
+    /** Length of a formatted date. */
+    public static final int ISO_LENGTH = 10;
+
+    private static final long MILLIS_PER_DAY = 24L * 3600 * 1000;
+    /** Days from 0000-03-01 to 1970-01-01, and in a 400 years cycle. */
+    private static final long DAYS_0000_TO_1970 = 719468, DAYS_PER_CYCLE = 146097;
+    /**
+     * The zone of the dates : the timestamps are read and written by JDBC at the start of the day in the zone of the
+     * JVM, taken at startup.
+     */
+    private static final TimeZone ZONE = TimeZone.getDefault();
+
+    private EpochDays() {
+    }
+
+    /**
+     * @param millis A timestamp, in epoch milliseconds
+     * @return Its day in the zone of the JVM
+     */
+    public static long fromMillis(long millis) {
+        return fromMillis(millis, ZONE);
+    }
+
+    /**
+     * @param epochDay A day, not NONE
+     * @return Its start in the zone of the JVM (see {@link #toMillis(long, TimeZone)}), in epoch milliseconds
+     */
+    public static long toMillis(long epochDay) {
+        return toMillis(epochDay, ZONE);
+    }
+
+    /**
+     * @param millis A timestamp, in epoch milliseconds
+     * @param zone The zone of the dates
+     * @return Its day in the zone
+     */
+    static long fromMillis(long millis, TimeZone zone) {
+        return Math.floorDiv(millis + zone.getOffset(millis), MILLIS_PER_DAY);
+    }
+
+    /**
+     * The start of a day, as JDBC takes it (Timestamp.valueOf(date.atStartOfDay())) : midnight, the end of the gap when
+     * the clocks are put forward at midnight (the days DST starts in America/Sao_Paulo or America/Havana), the second
+     * midnight when they are put back.
+     * @param epochDay A day, not NONE
+     * @param zone The zone of the dates
+     * @return Its start in the zone, in epoch milliseconds
+     */
+    static long toMillis(long epochDay, TimeZone zone) {
+        long local = epochDay * MILLIS_PER_DAY;
+        int offset = zone.getOffset(local - MILLIS_PER_DAY);
+        if (offset == zone.getOffset(local + MILLIS_PER_DAY)) {
+            // The offsets are below a day : no change of offset around midnight
+            return local - offset;
+        }
+        // Close to a change : the lenient calendar takes the end of the gap when there is no midnight, the second
+        // midnight when there are two
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        GregorianCalendar calendar = new GregorianCalendar(zone);
+        calendar.clear();
+        calendar.set(date.getYear(), date.getMonthValue() - 1, date.getDayOfMonth());
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * @param date A date, can be null
+     * @return Its epoch day, NONE if null
+     */
+    public static long fromLocalDate(LocalDate date) {
+        return (date == null) ? NONE : date.toEpochDay();
+    }
+
+    /**
+     * @param epochDay A day, can be NONE
+     * @return The date, null if NONE
+     */
+    public static LocalDate toLocalDate(long epochDay) {
+        return (epochDay == NONE) ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Parse an ISO date.
+     * @param text The date, yyyy-MM-dd
+     * @return Its epoch day
+     * @throws DateTimeParseException If it is not a valid date in this format
+     */
+    public static long parseIso(CharSequence text) throws DateTimeParseException {
+        if (text.length() != ISO_LENGTH || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            throw new DateTimeParseException("Expected yyyy-MM-dd", text, 0);
+        }
+        int year = digits(text, 0, 4), month = digits(text, 5, 2), day = digits(text, 8, 2);
+        if (month < 1 || month > 12) {
+            throw new DateTimeParseException("Invalid month", text, 5);
+        }
+        if (day < 1 || day > lengthOfMonth(year, month)) {
+            throw new DateTimeParseException("Invalid day of month", text, 8);
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Write a day in ISO format.
+     * @param epochDay The day, not NONE, from year 0 to 9999
+     * @param buffer Receives the {@link #ISO_LENGTH} characters of the date
+     * @param offset Where they start in the buffer
+     * @throws DateTimeException If the year does not have four digits
+     */
+    public static void formatIso(long epochDay, char[] buffer, int offset) throws DateTimeException {
+        // Civil date of the day, counted in years starting on March 1st (see "chrono-Compatible Low-Level Date
+        // Algorithms", H. Hinnant)
+        long shifted = epochDay + DAYS_0000_TO_1970;
+        long cycle = Math.floorDiv(shifted, DAYS_PER_CYCLE);
+        int dayOfCycle = (int) (shifted - cycle * DAYS_PER_CYCLE);
+        int yearOfCycle = (dayOfCycle - dayOfCycle / 1460 + dayOfCycle / 36524 - dayOfCycle / 146096) / 365;
+        int dayOfYear = dayOfCycle - (365 * yearOfCycle + yearOfCycle / 4 - yearOfCycle / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = (shiftedMonth < 10) ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfCycle + cycle * 400 + ((month <= 2) ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            throw new DateTimeException("Year out of the ISO format : " + year);
+        }
+
+        int y = (int) year;
+        buffer[offset] = (char) ('0' + y / 1000);
+        buffer[offset + 1] = (char) ('0' + y / 100 % 10);
+        buffer[offset + 2] = (char) ('0' + y / 10 % 10);
+        buffer[offset + 3] = (char) ('0' + y % 10);
+        buffer[offset + 4] = '-';
+        buffer[offset + 5] = (char) ('0' + month / 10);
+        buffer[offset + 6] = (char) ('0' + month % 10);
+        buffer[offset + 7] = '-';
+        buffer[offset + 8] = (char) ('0' + day / 10);
+        buffer[offset + 9] = (char) ('0' + day % 10);
+    }
+
+    /**
+     * @param epochDay The day, not NONE
+     * @return The day in ISO format
+     */
+    public static String formatIso(long epochDay) {
+        char[] buffer = new char[ISO_LENGTH];
+        formatIso(epochDay, buffer, 0);
+        return new String(buffer);
+    }
+
+    /**
+     * Days since the epoch of a date, counting the years from March 1st to put February 29th at their end.
+     */
+    private static long toEpochDay(int year, int month, int day) {
+        int marchYear = (month <= 2) ? year - 1 : year;
+        long cycle = Math.floorDiv(marchYear, 400);
+        int yearOfCycle = (int) (marchYear - cycle * 400);
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfCycle = yearOfCycle * 365 + yearOfCycle / 4 - yearOfCycle / 100 + dayOfYear;
+        return cycle * DAYS_PER_CYCLE + dayOfCycle - DAYS_0000_TO_1970;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+        case 2:
+            boolean leap = (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+            return leap ? 29 : 28;
+        case 4:
+        case 6:
+        case 9:
+        case 11:
+            return 30;
+        default:
+            return 31;
+        }
+    }
+
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new DateTimeParseException("Expected a digit", text, i);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
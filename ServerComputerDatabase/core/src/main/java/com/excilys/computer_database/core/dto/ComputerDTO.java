@@ -7,7 +7,7 @@ import javax.validation.constraints.Size;
 import org.hibernate.validator.constraints.NotEmpty;
 import org.springframework.format.annotation.DateTimeFormat;
 
-import com.excilys.computer_database.core.DateHelper;
+import com.excilys.computer_database.core.date.EpochDays;
 import com.excilys.computer_database.core.entity.Computer;
 
 public class ComputerDTO {
@@ -16,8 +16,10 @@ public class ComputerDTO {
     @Size(min = 3, max = 40)
     private String name;
     private String companyName;
-    @DateTimeFormat(pattern = "yyyy-MM-dd")
-    private LocalDate introduced, discontinued;
+    /** Epoch days (see {@link EpochDays}), NONE if unknown : the forms and the views read them as LocalDate. */
+    private long introduced = EpochDays.NONE, discontinued = EpochDays.NONE;
+    /** The version of the computer read, sent back by the edit form : 0 in the listings. */
+    private long version;
 
     public ComputerDTO() {
     }
@@ -28,19 +30,35 @@ public class ComputerDTO {
         this.companyId = companyId;
         this.name = name;
         this.companyName = companyName;
-        this.introduced = introduced;
-        this.discontinued = discontinued;
+        this.introduced = EpochDays.fromLocalDate(introduced);
+        this.discontinued = EpochDays.fromLocalDate(discontinued);
+    }
+
+    /**
+     * Constructor of the JPQL projections, taking the columns as Hibernate types them.
+     * @param id The computer's id
+     * @param name The computer's name
+     * @param introduced The introduction epoch day, NONE or null if unknown
+     * @param discontinued The discontinuation epoch day, NONE or null if unknown
+     * @param companyId The company's id, null if none
+     * @param companyName The company's name, null if none
+     */
+    public ComputerDTO(Long id, String name, Long introduced, Long discontinued, Long companyId,
+            String companyName) {
+        this.id = id;
+        this.companyId = companyId;
+        this.name = name;
+        this.companyName = companyName;
+        this.introduced = (introduced == null) ? EpochDays.NONE : introduced;
+        this.discontinued = (discontinued == null) ? EpochDays.NONE : discontinued;
     }
 
     public ComputerDTO(Computer c) {
         this.id = c.getId();
         this.name = c.getName();
-        if (c.getIntroduced() != null) {
-            this.introduced = DateHelper.timestampToLocalDate(c.getIntroduced());
-        }
-        if (c.getDiscontinued() != null) {
-            this.discontinued = DateHelper.timestampToLocalDate(c.getDiscontinued());
-        }
+        this.introduced = c.getIntroduced();
+        this.discontinued = c.getDiscontinued();
+        this.version = c.getVersion();
 
         if (c.getCompany() != null) {
             this.companyId = c.getCompany().getId();
@@ -107,29 +125,75 @@ public class ComputerDTO {
     /**
      * @return the introduced
      */
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
     public LocalDate getIntroduced() {
-        return introduced;
+        return EpochDays.toLocalDate(introduced);
     }
 
     /**
      * @param introduced the introduced to set
      */
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
     public void setIntroduced(LocalDate introduced) {
+        this.introduced = EpochDays.fromLocalDate(introduced);
+    }
+
+    /**
+     * @return the introduced epoch day, NONE if unknown
+     */
+    public long getIntroducedDay() {
+        return introduced;
+    }
+
+    /**
+     * @param introduced the introduced epoch day to set, NONE if unknown
+     */
+    public void setIntroducedDay(long introduced) {
         this.introduced = introduced;
     }
 
     /**
      * @return the discontinued
      */
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
     public LocalDate getDiscontinued() {
-        return discontinued;
+        return EpochDays.toLocalDate(discontinued);
     }
 
     /**
      * @param discontinued the discontinued to set
      */
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
     public void setDiscontinued(LocalDate discontinued) {
+        this.discontinued = EpochDays.fromLocalDate(discontinued);
+    }
+
+    /**
+     * @return the discontinued epoch day, NONE if unknown
+     */
+    public long getDiscontinuedDay() {
+        return discontinued;
+    }
+
+    /**
+     * @param discontinued the discontinued epoch day to set, NONE if unknown
+     */
+    public void setDiscontinuedDay(long discontinued) {
         this.discontinued = discontinued;
     }
 
+    /**
+     * @return the version of the computer read
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param version the version to set
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
 }
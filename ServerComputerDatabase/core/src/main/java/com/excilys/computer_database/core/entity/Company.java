@@ -1,19 +1,25 @@
 package com.excilys.computer_database.core.entity;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.TableGenerator;
 import javax.persistence.UniqueConstraint;
 
 @Entity
+@Cacheable
 @Table(name="company", uniqueConstraints={@UniqueConstraint(columnNames="ID")})
 public class Company {
+    /** Taken by blocks from the id_generator table, so that the inserts of a transaction are batched. */
     @Id
     @Column(name="id", nullable=true, unique=true)
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "company_id")
+    @TableGenerator(name = "company_id", table = "id_generator", pkColumnName = "name", valueColumnName = "next_val",
+            pkColumnValue = "company", allocationSize = 50)
     private Long id;
     @Column(name="name", length=20, nullable=true)
     private String name;
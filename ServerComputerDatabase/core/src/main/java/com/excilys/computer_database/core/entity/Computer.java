@@ -1,8 +1,9 @@
 package com.excilys.computer_database.core.entity;
 
-import java.sql.Timestamp;
 import java.time.LocalDate;
 
+import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
@@ -10,29 +11,44 @@ import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.TableGenerator;
+import javax.persistence.Version;
 import javax.persistence.UniqueConstraint;
 
-import com.excilys.computer_database.core.DateHelper;
+import com.excilys.computer_database.core.date.EpochDayConverter;
+import com.excilys.computer_database.core.date.EpochDays;
 
 @Entity
 @Table(name = "computer", uniqueConstraints = { @UniqueConstraint(columnNames = "ID") })
 public class Computer {
+    /** Taken by blocks from the id_generator table, so that the inserts of a transaction are batched. */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "computer_id")
+    @TableGenerator(name = "computer_id", table = "id_generator", pkColumnName = "name", valueColumnName = "next_val",
+            pkColumnValue = "computer", allocationSize = 50)
     private Long id;
     private String name;
-    private Timestamp introduced, discontinued;
+    /** Epoch days (see {@link EpochDays}), NONE if unknown. */
+    @Convert(converter = EpochDayConverter.class)
+    private long introduced = EpochDays.NONE, discontinued = EpochDays.NONE;
 
     @ManyToOne
     @JoinColumn(name = "company_id")
     private Company company;
+    /** The name of the company, copied by the services : the computers are sorted by it without a join. */
+    @Column(name = "company_name")
+    private String companyName;
+    /** Incremented by each update : an update made from an older version is a conflict. */
+    @Version
+    private long version;
 
     /** Implementation of the Builder pattern. */
     public static class ComputerBuilder {
         private Long id;
         private String name;
-        private Timestamp introduced, discontinued;
+        private long introduced = EpochDays.NONE, discontinued = EpochDays.NONE;
         private Company company;
+        private long version;
 
         /**
          * Initialise a ComputerBuild to customize and build.
@@ -72,13 +88,11 @@ public class Computer {
 
         /**
          * Customize the computer's introduced date field.
-         * @param introduced The introduction date
+         * @param introduced The introduction epoch day, NONE if unknown
          * @return The instance of ComputerBuilder
          */
-        public ComputerBuilder introduced(Timestamp introduced) {
-            if (introduced != null) {
-                this.introduced = introduced;
-            }
+        public ComputerBuilder introduced(long introduced) {
+            this.introduced = introduced;
             return this;
         }
 
@@ -88,18 +102,16 @@ public class Computer {
          * @return The instance of ComputerBuilder
          */
         public ComputerBuilder introduced(LocalDate introduced) {
-            if (introduced != null) {
-                this.introduced = DateHelper.localDateToTimestamp(introduced);
-            }
+            this.introduced = EpochDays.fromLocalDate(introduced);
             return this;
         }
 
         /**
          * Customize the computer's discontinued date field.
-         * @param discontinued The discontinued date
+         * @param discontinued The discontinued epoch day, NONE if unknown
          * @return The instance of ComputerBuilder
          */
-        public ComputerBuilder discontinued(Timestamp discontinued) {
+        public ComputerBuilder discontinued(long discontinued) {
             this.discontinued = discontinued;
             return this;
         }
@@ -110,9 +122,7 @@ public class Computer {
          * @return The instance of ComputerBuilder
          */
         public ComputerBuilder discontinued(LocalDate discontinued) {
-            if (discontinued != null) {
-                this.discontinued = DateHelper.localDateToTimestamp(discontinued);
-            }
+            this.discontinued = EpochDays.fromLocalDate(discontinued);
             return this;
         }
 
@@ -125,6 +135,16 @@ public class Computer {
             this.company = company;
             return this;
         }
+
+        /**
+         * Customize the version the computer was read at.
+         * @param version The version
+         * @return The instance of ComputerBuilder
+         */
+        public ComputerBuilder version(long version) {
+            this.version = version;
+            return this;
+        }
     }
 
     /**
@@ -137,6 +157,7 @@ public class Computer {
         this.introduced = builder.introduced;
         this.discontinued = builder.discontinued;
         this.company = builder.company;
+        this.version = builder.version;
     }
 
     public Computer() {
@@ -145,8 +166,8 @@ public class Computer {
 
     @Override
     public String toString() {
-        return this.getId() + "\t" + this.getName() + "\t" + this.getIntroduced() + "\t" + this.getDiscontinued() + "\t"
-                + this.getCompany();
+        return this.getId() + "\t" + this.getName() + "\t" + EpochDays.toLocalDate(this.getIntroduced()) + "\t"
+                + EpochDays.toLocalDate(this.getDiscontinued()) + "\t" + this.getCompany();
     }
 
     /**
@@ -178,30 +199,30 @@ public class Computer {
     }
 
     /**
-     * @return the introduced
+     * @return the introduced epoch day, NONE if unknown
      */
-    public Timestamp getIntroduced() {
+    public long getIntroduced() {
         return introduced;
     }
 
     /**
-     * @param introduced the introduced to set
+     * @param introduced the introduced epoch day to set, NONE if unknown
      */
-    public void setIntroduced(Timestamp introduced) {
+    public void setIntroduced(long introduced) {
         this.introduced = introduced;
     }
 
     /**
-     * @return the discontinued
+     * @return the discontinued epoch day, NONE if unknown
      */
-    public Timestamp getDiscontinued() {
+    public long getDiscontinued() {
         return discontinued;
     }
 
     /**
-     * @param discontinued the discontinued to set
+     * @param discontinued the discontinued epoch day to set, NONE if unknown
      */
-    public void setDiscontinued(Timestamp discontinued) {
+    public void setDiscontinued(long discontinued) {
         this.discontinued = discontinued;
     }
 
@@ -219,6 +240,34 @@ public class Computer {
         this.company = company;
     }
 
+    /**
+     * @return the name of the company, as copied when the computer or the company was last written
+     */
+    public String getCompanyName() {
+        return companyName;
+    }
+
+    /**
+     * @param companyName the name of the company to copy
+     */
+    public void setCompanyName(String companyName) {
+        this.companyName = companyName;
+    }
+
+    /**
+     * @return the version the computer was read at
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param version the version to set
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -0,0 +1,15 @@
+package com.excilys.computer_database.core.page;
+
+/**
+ * How the totals of a page are computed.
+ */
+public enum CountStrategy {
+	/** COUNT(*) alongside the page query. */
+	EXACT,
+	/** COUNT(*) cached by filter, until the next write of the table. */
+	CACHED,
+	/** Row count from the table statistics : free, but approximate. */
+	ESTIMATED,
+	/** No total : one more row is read to tell if there is a next page. */
+	HAS_NEXT;
+}
@@ -0,0 +1,145 @@
+package com.excilys.computer_database.core.page;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * Position in a keyset (seek) pagination : the sort key and the id of the last row of a page (or the first one, for a
+ * backward cursor), with the sort it was computed for.
+ *
+ * The cursor is exchanged with the clients as an opaque url-safe token, see {@link #encode()} and {@link #decode}.
+ */
+public final class PageCursor {
+	private static final byte VERSION = 1;
+	private static final byte NULL_KEY = 0, STRING_KEY = 1, LONG_KEY = 2;
+
+	private final String sortProperty;
+	private final boolean ascending, backward;
+	private final Object key;
+	private final long id;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param sortProperty
+	 *            The sorted property, null when sorting by id only
+	 * @param ascending
+	 *            The sort direction
+	 * @param backward
+	 *            True to seek the rows before the key, false for the rows after it
+	 * @param key
+	 *            The sort key of the row, a String, a Long or null
+	 * @param id
+	 *            The id of the row
+	 */
+	public PageCursor(String sortProperty, boolean ascending, boolean backward, Object key, long id) {
+		if (key != null && !(key instanceof String) && !(key instanceof Long)) {
+			throw new IllegalArgumentException("Unsupported cursor key type : " + key.getClass());
+		}
+		this.sortProperty = sortProperty;
+		this.ascending = ascending;
+		this.backward = backward;
+		this.key = key;
+		this.id = id;
+	}
+
+	/**
+	 * @return The cursor as an opaque, url-safe token
+	 */
+	public String encode() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(VERSION);
+			out.writeUTF(sortProperty == null ? "" : sortProperty);
+			out.writeBoolean(ascending);
+			out.writeBoolean(backward);
+			if (key == null) {
+				out.writeByte(NULL_KEY);
+			} else if (key instanceof String) {
+				out.writeByte(STRING_KEY);
+				out.writeUTF((String) key);
+			} else {
+				out.writeByte(LONG_KEY);
+				out.writeLong((Long) key);
+			}
+			out.writeLong(id);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+	}
+
+	/**
+	 * Decode a token produced by {@link #encode()}.
+	 *
+	 * @param token
+	 *            The token
+	 * @return The cursor
+	 * @throws IllegalArgumentException
+	 *             If the token is malformed
+	 */
+	public static PageCursor decode(String token) throws IllegalArgumentException {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+			if (in.readByte() != VERSION) {
+				throw new IllegalArgumentException("Unknown cursor version");
+			}
+			String sortProperty = in.readUTF();
+			boolean ascending = in.readBoolean();
+			boolean backward = in.readBoolean();
+			Object key;
+			switch (in.readByte()) {
+			case NULL_KEY:
+				key = null;
+				break;
+			case STRING_KEY:
+				key = in.readUTF();
+				break;
+			case LONG_KEY:
+				key = in.readLong();
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown cursor key type");
+			}
+			long id = in.readLong();
+			return new PageCursor(sortProperty.isEmpty() ? null : sortProperty, ascending, backward, key, id);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Malformed cursor", e);
+		}
+	}
+
+	/**
+	 * @param sortProperty
+	 *            The sorted property
+	 * @param ascending
+	 *            The sort direction
+	 * @return True if the cursor was computed for this sort
+	 */
+	public boolean matches(String sortProperty, boolean ascending) {
+		return this.ascending == ascending
+				&& (this.sortProperty == null ? sortProperty == null : this.sortProperty.equals(sortProperty));
+	}
+
+	public String getSortProperty() {
+		return sortProperty;
+	}
+
+	public boolean isAscending() {
+		return ascending;
+	}
+
+	public boolean isBackward() {
+		return backward;
+	}
+
+	public Object getKey() {
+		return key;
+	}
+
+	public long getId() {
+		return id;
+	}
+}
@@ -3,8 +3,16 @@ package com.excilys.computer_database.core.page;
 import java.util.List;
 
 public class SimplePage<T> {
+	/** Value of the page number and of the totals when they are not known (keyset pagination). */
+	public static final int UNKNOWN = -1;
+
 	private List<T> list;
 	private int pageNumber, size, elementTotalCount, pageTotalCount;
+	/** Tokens to seek the next and the previous pages, null when there is no such page. */
+	private String nextCursor, prevCursor;
+	/** How the totals were computed, and if there is a page after this one. */
+	private CountStrategy countStrategy;
+	private boolean hasNext;
 
 	public SimplePage() {
 		
@@ -19,6 +27,20 @@ public class SimplePage<T> {
 		this.pageTotalCount = pageTotalCount;
 	}
 
+	/**
+	 * @param list
+	 *            The elements of the new page, as the converted elements of this one
+	 * @return A page of these elements, with the same position, totals and cursors as this one
+	 */
+	public <U> SimplePage<U> withList(List<U> list) {
+		SimplePage<U> page = new SimplePage<>(list, pageNumber, size, elementTotalCount, pageTotalCount);
+		page.setNextCursor(nextCursor);
+		page.setPrevCursor(prevCursor);
+		page.setCountStrategy(countStrategy);
+		page.setHasNext(hasNext);
+		return page;
+	}
+
 	public List<T> getList() {
 		return list;
 	}
@@ -58,4 +80,36 @@ public class SimplePage<T> {
 	public void setPageTotalCount(int pageTotalCount) {
 		this.pageTotalCount = pageTotalCount;
 	}
-}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+	public String getPrevCursor() {
+		return prevCursor;
+	}
+
+	public void setPrevCursor(String prevCursor) {
+		this.prevCursor = prevCursor;
+	}
+
+	public CountStrategy getCountStrategy() {
+		return countStrategy;
+	}
+
+	public void setCountStrategy(CountStrategy countStrategy) {
+		this.countStrategy = countStrategy;
+	}
+
+	public boolean isHasNext() {
+		return hasNext;
+	}
+
+	public void setHasNext(boolean hasNext) {
+		this.hasNext = hasNext;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.excilys.computer_database.core.date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+public class TestEpochDays {
+    /** UTC, a zone with DST at 2 or 3 am, and zones where DST starts at midnight (no 00:00 that day). */
+    private static final String[] ZONES = { "UTC", "Europe/Paris", "America/Sao_Paulo", "America/Havana" };
+
+    @Test
+    public void testIso() {
+        char[] buffer = new char[EpochDays.ISO_LENGTH];
+        for (LocalDate date = LocalDate.of(1600, 1, 1); date.getYear() < 2500; date = date.plusDays(1)) {
+            String iso = date.toString();
+            assertEquals(date.toEpochDay(), EpochDays.parseIso(iso));
+            EpochDays.formatIso(date.toEpochDay(), buffer, 0);
+            assertEquals(iso, new String(buffer));
+        }
+        assertEquals("0000-01-01", EpochDays.formatIso(LocalDate.of(0, 1, 1).toEpochDay()));
+        assertEquals("9999-12-31", EpochDays.formatIso(LocalDate.of(9999, 12, 31).toEpochDay()));
+
+        for (String invalid : new String[] { "2015-02-29", "2016-13-01", "2016-04-31", "2016-1-01", "2016/01/01",
+                "20a6-01-01", "" }) {
+            try {
+                EpochDays.parseIso(invalid);
+                fail(invalid + " is not a date");
+            } catch (DateTimeParseException e) {
+                // ok !
+            }
+        }
+    }
+
+    @Test
+    public void testMillis() {
+        TimeZone jvmZone = TimeZone.getDefault();
+        try {
+            for (String id : ZONES) {
+                TimeZone zone = TimeZone.getTimeZone(id);
+                // Timestamp.valueOf takes the zone of the JVM, as JDBC
+                TimeZone.setDefault(zone);
+                for (LocalDate date = LocalDate.of(1900, 1, 1); date.getYear() < 2050; date = date.plusDays(1)) {
+                    long millis = Timestamp.valueOf(date.atStartOfDay()).getTime();
+                    assertEquals(id + " " + date, millis, EpochDays.toMillis(date.toEpochDay(), zone));
+                    assertEquals(id + " " + date, date.toEpochDay(), EpochDays.fromMillis(millis, zone));
+                }
+            }
+        } finally {
+            TimeZone.setDefault(jvmZone);
+        }
+
+        // Days without midnight
+        TimeZone saoPaulo = TimeZone.getTimeZone("America/Sao_Paulo");
+        for (LocalDate date : new LocalDate[] { LocalDate.of(1914, 1, 1), LocalDate.of(1932, 10, 3) }) {
+            long day = date.toEpochDay();
+            assertEquals(date.toString(), day, EpochDays.fromMillis(EpochDays.toMillis(day, saoPaulo), saoPaulo));
+        }
+    }
+}
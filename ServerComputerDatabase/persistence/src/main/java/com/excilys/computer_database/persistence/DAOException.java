@@ -21,4 +21,13 @@ public class DAOException extends RuntimeException {
     public DAOException(Exception e) {
         super(e.getMessage(), e.getCause());
     }
+
+    /**
+     * Wrapper with a message.
+     * @param message The exception message
+     * @param e The exception to wrap
+     */
+    public DAOException(String message, Exception e) {
+        super(message, e);
+    }
 }
\ No newline at end of file
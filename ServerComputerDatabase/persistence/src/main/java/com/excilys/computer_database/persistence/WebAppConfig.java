@@ -1,6 +1,9 @@
 package com.excilys.computer_database.persistence;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
 import javax.sql.DataSource;
@@ -9,13 +12,17 @@ import org.hibernate.ejb.HibernatePersistence;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
 import org.springframework.core.Ordered;
 import org.springframework.core.env.Environment;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
@@ -23,40 +30,123 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter
 import org.springframework.web.servlet.view.JstlView;
 import org.springframework.web.servlet.view.UrlBasedViewResolver;
 
+import com.codahale.metrics.MetricRegistry;
+import com.excilys.computer_database.persistence.migration.SchemaMigrator;
+import com.excilys.computer_database.persistence.routing.ReplicaRoutingDataSource;
+import com.excilys.computer_database.persistence.statistics.CountingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
 @Configuration
 @EnableWebMvc
 @EnableTransactionManagement
+@EnableScheduling
 @ComponentScan("com.excilys")
 @PropertySource("classpath:application.properties")
 @EnableJpaRepositories("com.excilys.computer_database.persistence.dao")
 //@Import({ SecurityConfig.class })
 public class WebAppConfig extends WebMvcConfigurerAdapter {
 
-    private static final String PROPERTY_NAME_DATABASE_DRIVER = "hibernate.connection.driver_class";
-    private static final String PROPERTY_NAME_DATABASE_PASSWORD = "hibernate.connection.password";
-    private static final String PROPERTY_NAME_DATABASE_URL = "hibernate.connection.url";
-    private static final String PROPERTY_NAME_DATABASE_USERNAME = "hibernate.connection.username";
+    /** Classpath location of the connection pool configuration (credentials, statement cache, sizing). */
+    private static final String HIKARI_PROPERTIES = "/hikari.properties";
+
+    /** Classpath directory of the migrations of the schema. */
+    private static final String MIGRATIONS = "db/migration";
+
+    /** JDBC URLs of the read replicas, separated by commas : none by default. */
+    private static final String PROPERTY_NAME_REPLICAS = "datasource.replicas";
 
     private static final String PROPERTY_NAME_HIBERNATE_DIALECT = "hibernate.dialect";
     private static final String PROPERTY_NAME_HIBERNATE_SHOW_SQL = "hibernate.show_sql";
+    /** Second level and query cache settings, passed as is to Hibernate. */
+    private static final String[] PROPERTY_NAMES_CACHE = { "hibernate.cache.use_second_level_cache",
+        "hibernate.cache.use_query_cache", "hibernate.cache.default_cache_concurrency_strategy",
+        "hibernate.cache.region.factory_class", "net.sf.ehcache.configurationResourceName",
+        "javax.persistence.sharedCache.mode", "hibernate.generate_statistics" };
+    /** JDBC batches of the inserts and updates, and optimizer of the table generated ids, passed as is to Hibernate. */
+    private static final String[] PROPERTY_NAMES_BATCH = { "hibernate.jdbc.batch_size", "hibernate.order_inserts",
+        "hibernate.order_updates", "hibernate.id.optimizer.pooled.preferred" };
     private static final String PROPERTY_NAME_ENTITYMANAGER_PACKAGES_TO_SCAN = "entitymanager.packages.to.scan";
 
     @Resource
     private Environment env;
 
+    /**
+     * Resolves the ${...} of the annotations, as the periods of the @Scheduled jobs, from application.properties.
+     * @return The resolver
+     */
     @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+    public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
+        return new PropertySourcesPlaceholderConfigurer();
+    }
+
+    /**
+     * Registry receiving the pool metrics (active/idle/pending connections, acquire time, usage).
+     * @return The application's metric registry
+     */
+    @Bean
+    public MetricRegistry metricRegistry() {
+        return new MetricRegistry();
+    }
 
-        dataSource.setDriverClassName(env.getRequiredProperty(PROPERTY_NAME_DATABASE_DRIVER));
-        dataSource.setUrl(env.getRequiredProperty(PROPERTY_NAME_DATABASE_URL));
-        dataSource.setUsername(env.getRequiredProperty(PROPERTY_NAME_DATABASE_USERNAME));
-        dataSource.setPassword(env.getRequiredProperty(PROPERTY_NAME_DATABASE_PASSWORD));
+    /**
+     * The connection pool, configured from hikari.properties.
+     * @return The pool
+     */
+    @Bean(destroyMethod = "close")
+    public HikariDataSource poolDataSource() {
+        HikariConfig config = new HikariConfig(HIKARI_PROPERTIES);
+        config.setMetricRegistry(metricRegistry());
+
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * The primary and its read replicas : the read-only transactions go to the replicas. A pool by replica, configured
+     * from hikari.properties with the URLs of datasource.replicas.
+     * @return The DataSource routing the connections
+     */
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource routingDataSource() {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : env.getProperty(PROPERTY_NAME_REPLICAS, String[].class, new String[0])) {
+            HikariConfig config = new HikariConfig(HIKARI_PROPERTIES);
+            config.setJdbcUrl(url.trim());
+            config.setPoolName(config.getPoolName() + "-replica-" + (replicas.size() + 1));
+            config.setReadOnly(true);
+            config.setMetricRegistry(metricRegistry());
+            replicas.add(new HikariDataSource(config));
+        }
+
+        return new ReplicaRoutingDataSource(poolDataSource(), replicas,
+                env.getProperty("datasource.replicas.max-lag", Long.class, 2L),
+                env.getProperty("datasource.replicas.check-period", Long.class, 1000L),
+                env.getProperty("datasource.replicas.sticky", Long.class, 5000L),
+                () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()), metricRegistry());
+    }
+
+    /**
+     * The DataSource of the application : the primary or a replica, counting the statements of each request (see
+     * StatementCounter). The connection is taken at the first statement, once the transaction tells if it is read-only.
+     * @return The DataSource
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource() {
+        return new CountingDataSource(new LazyConnectionDataSourceProxy(routingDataSource()));
+    }
 
-        return dataSource;
+    /**
+     * The migrations of the schema, applied to the primary when the context starts, before Hibernate.
+     * @return The migrator
+     */
+    @Bean(initMethod = "migrate")
+    public SchemaMigrator schemaMigrator() {
+        return new SchemaMigrator(poolDataSource(), MIGRATIONS);
     }
 
     @Bean
+    @DependsOn("schemaMigrator")
     public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
         LocalContainerEntityManagerFactoryBean entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
         entityManagerFactoryBean.setDataSource(dataSource());
@@ -72,6 +162,12 @@ public class WebAppConfig extends WebMvcConfigurerAdapter {
         Properties properties = new Properties();
         properties.put(PROPERTY_NAME_HIBERNATE_DIALECT, env.getRequiredProperty(PROPERTY_NAME_HIBERNATE_DIALECT));
         properties.put(PROPERTY_NAME_HIBERNATE_SHOW_SQL, env.getRequiredProperty(PROPERTY_NAME_HIBERNATE_SHOW_SQL));
+        for (String name : PROPERTY_NAMES_CACHE) {
+            properties.put(name, env.getRequiredProperty(name));
+        }
+        for (String name : PROPERTY_NAMES_BATCH) {
+            properties.put(name, env.getRequiredProperty(name));
+        }
         return properties;
     }
 
@@ -1,7 +1,30 @@
 package com.excilys.computer_database.persistence.dao;
 
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
 import com.excilys.computer_database.core.entity.Company;
 
-public interface CompanyDAO extends PagingAndSortingRepository<Company, Long>{ }
+public interface CompanyDAO extends PagingAndSortingRepository<Company, Long>{
+    /**
+     * @return All the companies, from the query cache when none was written since the last call
+     */
+    @Query("select c from Company c order by c.id")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    List<Company> findAllCached();
+
+    /**
+     * @param pageable The page
+     * @return The page of companies, without the COUNT(*) query of findAll(Pageable) : one more row is read to tell
+     *         if there is a next page
+     */
+    @Query("select c from Company c")
+    Slice<Company> findSlice(Pageable pageable);
+}
@@ -0,0 +1,144 @@
+package com.excilys.computer_database.persistence.dao;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.excilys.computer_database.core.dto.ComputerDTO;
+import com.excilys.computer_database.core.entity.Computer;
+import com.excilys.computer_database.core.page.PageCursor;
+
+/**
+ * Queries of the ComputerDAO which can't be derived by Spring Data, implemented by ComputerDAOImpl.
+ */
+public interface ComputerDAOCustom {
+
+    /**
+     * Keyset (seek) pagination : fetch the computers following (or preceding) the cursor, without scanning the
+     * previous rows as an OFFSET would do. The rows are ordered by the sorted property then by id.
+     * @param sortProperty The sorted property ("name", "introduced", "discontinued" or "company.name", read from the
+     *            company name copied in the computer), null to sort by id only
+     * @param ascending The sort direction
+     * @param cursor The position to seek from, null for the first page
+     * @param limit The maximum number of rows to return
+     * @return The computers, in the display order
+     */
+    List<Computer> findByKeyset(String sortProperty, boolean ascending, PageCursor cursor, int limit);
+
+    /**
+     * DTO projection of {@link #findByKeyset} : a single select of the computers, no join, no managed entity.
+     */
+    List<ComputerDTO> findDTOByKeyset(String sortProperty, boolean ascending, PageCursor cursor, int limit);
+
+    /**
+     * Offset pagination without the COUNT(*) query of findAll(Pageable) : the rows are ordered by the sorted property
+     * then by id.
+     * @param sortProperty The sorted property, as for {@link #findByKeyset}, null to sort by id only
+     * @param ascending The sort direction
+     * @param offset The number of rows to skip
+     * @param limit The maximum number of rows to return
+     * @return The computers, in the display order
+     */
+    List<Computer> findPage(String sortProperty, boolean ascending, int offset, int limit);
+
+    /**
+     * DTO projection of {@link #findPage} : a single select of the computers, no join, no managed entity.
+     */
+    List<ComputerDTO> findDTOPage(String sortProperty, boolean ascending, int offset, int limit);
+
+    /**
+     * Fetch some computers with their company, in a single query.
+     * @param ids The ids of the computers
+     * @return The computers found, in no particular order
+     */
+    List<Computer> findByIds(Collection<Long> ids);
+
+    /**
+     * DTO projection of {@link #findByIds} : a single select of the computers, no join, no managed entity.
+     */
+    List<ComputerDTO> findDTOByIds(Collection<Long> ids);
+
+    /**
+     * Read all the computers, ordered by id, from a forward-only cursor : the rows are fetched from the database by
+     * batches (one by one with MySQL, which would otherwise read the whole result set in memory) and projected in
+     * DTOs which are not retained, so the memory used does not depend on the number of rows. Call it in a
+     * transaction, and do not run other queries from the action.
+     * @param action Called for each computer
+     * @return The number of computers read
+     */
+    long forEachDTO(Consumer<ComputerDTO> action);
+
+    /**
+     * Write a batch of imported computers with JDBC batches, bypassing the persistence context. Call it in a
+     * transaction.
+     *
+     * With upsert, a computer is identified by its natural key (its name and its company), the names compared as the
+     * collation of the name column compares them (the case ignored with the default ones) : the existing computers of
+     * the batch are fetched with one select, then updated, the others are inserted. A key repeated in the batch is
+     * written once, with its last values.
+     * @param computers The computers : their name, dates and company id are written, their id is ignored (the inserted
+     *            ones take theirs from the id generator of the entity)
+     * @param upsert True to update the existing computers, false to insert them all
+     * @return The number of computers inserted and updated
+     */
+    SavedBatch saveBatch(List<ComputerDTO> computers, boolean upsert);
+
+    /**
+     * Update a computer if it is still at the version it was read at, with a single statement (UPDATE ... WHERE id = ?
+     * AND version = ?) : the computer is not loaded first. Its version is incremented. Call it in a transaction.
+     * @param computer The computer : its name, dates, company id and company name are written, at its id and version
+     * @return True if updated, false if the computer was updated since or does not exist
+     */
+    boolean updateIfVersion(Computer computer);
+
+    /**
+     * Update a computer whatever its version, with a single statement (UPDATE ... WHERE id = ?) : the computer is not
+     * loaded first. Its version is incremented. Call it in a transaction.
+     * @param computer The computer : its name, dates, company id and company name are written, at its id
+     * @return The new version of the computer, -1 if it does not exist
+     */
+    long overwrite(Computer computer);
+
+    /**
+     * Delete some computers with set-based statements (DELETE ... WHERE id IN (...), by chunks), instead of a select
+     * and a delete per computer. The computers are not loaded : the computers of the persistence context are flushed
+     * before.
+     * @param ids The ids of the computers to delete
+     * @return The number of deleted computers
+     */
+    int deleteByIds(long[] ids);
+
+    /**
+     * Delete at most some computers of a company, with a single statement (MySQL's DELETE ... LIMIT) : call it in
+     * separate transactions until it returns less than the limit to delete them all with bounded locks.
+     * @param companyId The id of the company
+     * @param limit The maximum number of computers to delete
+     * @return The number of deleted computers
+     */
+    int deleteByCompanyId(long companyId, int limit);
+
+    /**
+     * Copy the new name of a company to its computers (their company_name), with a single statement. Call it in the
+     * transaction renaming the company.
+     * @param companyId The id of the company
+     * @param name Its new name
+     * @return The number of computers updated
+     */
+    int updateCompanyName(long companyId, String name);
+
+    /**
+     * @return The greatest id of the computers, 0 if none
+     */
+    long findMaxId();
+
+    /**
+     * Give back to the computers of a range of ids whose company_name differs from the name of their company (a write
+     * which bypassed the services) the name of their company, with set-based statements bounded by the primary key :
+     * call it in separate transactions over the ranges up to {@link #findMaxId()} to repair them all with bounded
+     * locks.
+     * @param fromId The id the range starts after
+     * @param toId The last id of the range
+     * @return The number of computers repaired
+     */
+    int repairCompanyNames(long fromId, long toId);
+}
@@ -0,0 +1,521 @@
+package com.excilys.computer_database.persistence.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+import com.excilys.computer_database.core.date.EpochDays;
+import com.excilys.computer_database.core.dto.ComputerDTO;
+import com.excilys.computer_database.core.entity.Computer;
+import com.excilys.computer_database.core.page.PageCursor;
+import com.excilys.computer_database.persistence.DAOException;
+
+/**
+ * Implementation of the ComputerDAOCustom queries, picked up by Spring Data.
+ */
+public class ComputerDAOImpl implements ComputerDAOCustom {
+    /** The sortable properties, and their JPQL path in the queries below. */
+    private static final Map<String, String> SORT_PATHS;
+    static {
+        SORT_PATHS = new HashMap<>();
+        SORT_PATHS.put("name", "c.name");
+        SORT_PATHS.put("introduced", "c.introduced");
+        SORT_PATHS.put("discontinued", "c.discontinued");
+        SORT_PATHS.put("company.name", "c.companyName");
+    }
+    /** Select the entities, with their company. */
+    private static final String ENTITY_SELECT = "select c from Computer c left join fetch c.company co";
+    /**
+     * Select the DTOs straight from the columns of the computers, the company name included : no entity is loaded into
+     * the persistence context, no company is joined.
+     */
+    private static final String DTO_SELECT = "select new " + ComputerDTO.class.getName()
+            + "(c.id, c.name, c.introduced, c.discontinued, c.company.id, c.companyName) from Computer c";
+    /** Default number of ids bound per DELETE statement. */
+    public static final int DELETE_CHUNK = 500;
+    /** Rows fetched per round trip by {@link #forEachDTO}, except with MySQL. */
+    static final int EXPORT_FETCH_SIZE = 1000;
+
+    @PersistenceContext
+    private EntityManager em;
+    private int deleteChunk = DELETE_CHUNK;
+
+    @Override
+    public List<Computer> findByKeyset(String sortProperty, boolean ascending, PageCursor cursor, int limit) {
+        return keyset(ENTITY_SELECT, Computer.class, sortProperty, ascending, cursor, limit);
+    }
+
+    @Override
+    public List<ComputerDTO> findDTOByKeyset(String sortProperty, boolean ascending, PageCursor cursor, int limit) {
+        return keyset(DTO_SELECT, ComputerDTO.class, sortProperty, ascending, cursor, limit);
+    }
+
+    @Override
+    public List<Computer> findPage(String sortProperty, boolean ascending, int offset, int limit) {
+        return page(ENTITY_SELECT, Computer.class, sortProperty, ascending, offset, limit);
+    }
+
+    @Override
+    public List<ComputerDTO> findDTOPage(String sortProperty, boolean ascending, int offset, int limit) {
+        return page(DTO_SELECT, ComputerDTO.class, sortProperty, ascending, offset, limit);
+    }
+
+    @Override
+    public List<Computer> findByIds(Collection<Long> ids) {
+        return byIds(ENTITY_SELECT, Computer.class, ids);
+    }
+
+    @Override
+    public List<ComputerDTO> findDTOByIds(Collection<Long> ids) {
+        return byIds(DTO_SELECT, ComputerDTO.class, ids);
+    }
+
+    /**
+     * Keyset pagination, see {@link #findByKeyset}.
+     * @param select The select clause, ENTITY_SELECT or DTO_SELECT
+     * @param type The type of the rows it selects
+     */
+    private <T> List<T> keyset(String select, Class<T> type, String sortProperty, boolean ascending,
+            PageCursor cursor, int limit) {
+        String key = sortPath(sortProperty);
+
+        // A backward seek reads the rows in the reversed order, then put them back in the display order
+        boolean backward = cursor != null && cursor.isBackward();
+        boolean forward = ascending != backward;
+
+        StringBuilder jpql = new StringBuilder(select).append(" where 1 = 1");
+        if (cursor != null) {
+            jpql.append(" and ").append(seekCondition(key, cursor.getKey() == null, forward));
+        }
+        // Backward from a NULL key, the keys are all NULL : ordered by id only, MySQL reads the rows from the (key, id)
+        // index without a filesort
+        boolean nullKeys = cursor != null && cursor.getKey() == null && !forward;
+        appendOrder(jpql, nullKeys ? null : key, forward);
+
+        TypedQuery<T> query = em.createQuery(jpql.toString(), type).setMaxResults(limit);
+        if (cursor != null) {
+            query.setParameter("id", cursor.getId());
+            if (key != null && cursor.getKey() != null) {
+                query.setParameter("key", cursor.getKey());
+            }
+        }
+
+        List<T> rows = query.getResultList();
+        if (backward) {
+            Collections.reverse(rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Offset pagination, see {@link #findPage}.
+     * @param select The select clause, ENTITY_SELECT or DTO_SELECT
+     * @param type The type of the rows it selects
+     */
+    private <T> List<T> page(String select, Class<T> type, String sortProperty, boolean ascending, int offset,
+            int limit) {
+        StringBuilder jpql = new StringBuilder(select);
+        appendOrder(jpql, sortPath(sortProperty), ascending);
+        return em.createQuery(jpql.toString(), type).setFirstResult(offset).setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Rows by id, see {@link #findByIds}.
+     * @param select The select clause, ENTITY_SELECT or DTO_SELECT
+     * @param type The type of the rows it selects
+     */
+    private <T> List<T> byIds(String select, Class<T> type, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return em.createQuery(select + " where c.id in :ids", type).setParameter("ids", ids).getResultList();
+    }
+
+    /**
+     * Order by the sort key then by id.
+     * @param jpql The query to complete
+     * @param key The JPQL path of the sort key, null when sorting by id only
+     * @param ascending The direction
+     */
+    private static void appendOrder(StringBuilder jpql, String key, boolean ascending) {
+        String direction = ascending ? " asc" : " desc";
+        jpql.append(" order by ");
+        if (key != null) {
+            jpql.append(key).append(direction).append(", ");
+        }
+        jpql.append("c.id").append(direction);
+    }
+
+    @Override
+    public long forEachDTO(Consumer<ComputerDTO> action) {
+        Session session = em.unwrap(Session.class);
+        // Connector/J only streams the rows of a forward-only statement with this fetch size
+        boolean mysql = ((SessionFactoryImplementor) session.getSessionFactory())
+                .getDialect() instanceof MySQLDialect;
+        ScrollableResults rows = session.createQuery(DTO_SELECT + " order by c.id").setReadOnly(true)
+                .setCacheable(false).setFetchSize(mysql ? Integer.MIN_VALUE : EXPORT_FETCH_SIZE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            long count = 0;
+            while (rows.next()) {
+                action.accept((ComputerDTO) rows.get(0));
+                count++;
+            }
+            return count;
+        } finally {
+            rows.close();
+        }
+    }
+
+    @Override
+    public SavedBatch saveBatch(final List<ComputerDTO> computers, final boolean upsert) {
+        if (computers.isEmpty()) {
+            return new SavedBatch(0, 0);
+        }
+        em.flush();
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            if (!upsert) {
+                insert(session, connection, computers);
+                return new SavedBatch(computers.size(), 0);
+            }
+
+            List<ComputerDTO> inserts = new ArrayList<>(computers.size());
+            int updated = 0;
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE computer SET introduced = ?, discontinued = ?, version = version + 1 WHERE id = ?")) {
+                boolean batched = false;
+                for (Map.Entry<Integer, Long> key : findIdsByNaturalKey(connection, computers).entrySet()) {
+                    ComputerDTO computer = computers.get(key.getKey());
+                    if (key.getValue() == null) {
+                        inserts.add(computer);
+                        continue;
+                    }
+                    setDate(statement, 1, computer.getIntroducedDay());
+                    setDate(statement, 2, computer.getDiscontinuedDay());
+                    statement.setLong(3, key.getValue());
+                    statement.addBatch();
+                    batched = true;
+                }
+                if (batched) {
+                    for (int count : statement.executeBatch()) {
+                        updated += (count == Statement.SUCCESS_NO_INFO) ? 1 : count;
+                    }
+                }
+            }
+            insert(session, connection, inserts);
+            return new SavedBatch(inserts.size(), updated);
+        });
+    }
+
+    /**
+     * Insert computers with a JDBC batch (a single multi-row INSERT with rewriteBatchedStatements). Their ids are taken
+     * from the id generator of the entity, as the ids of the computers persisted by Hibernate.
+     */
+    private static void insert(SessionImplementor session, Connection connection, List<ComputerDTO> computers)
+            throws SQLException {
+        if (computers.isEmpty()) {
+            return;
+        }
+        IdentifierGenerator ids = session.getFactory().getIdentifierGenerator(Computer.class.getName());
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO computer"
+                + " (id, name, introduced, discontinued, company_id, company_name)"
+                + " VALUES (?, ?, ?, ?, ?, (SELECT name FROM company WHERE id = ?))")) {
+            for (ComputerDTO computer : computers) {
+                statement.setLong(1, ((Number) ids.generate(session, null)).longValue());
+                statement.setString(2, computer.getName());
+                setDate(statement, 3, computer.getIntroducedDay());
+                setDate(statement, 4, computer.getDiscontinuedDay());
+                if (computer.getCompanyId() == null) {
+                    statement.setNull(5, Types.BIGINT);
+                    statement.setNull(6, Types.BIGINT);
+                } else {
+                    statement.setLong(5, computer.getCompanyId());
+                    statement.setLong(6, computer.getCompanyId());
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Fetch the ids of the computers with the natural keys of some computers, in one select (on the name index). The
+     * keys are grouped by the database, with the existing computers : the names are compared by the collation of the
+     * name column, not as Java strings.
+     * @return The id of the computer of each key of the batch, by position in the batch of the last computer of the
+     *         key : the smallest id when several computers have the same key, null if none has
+     */
+    private static Map<Integer, Long> findIdsByNaturalKey(Connection connection, List<ComputerDTO> computers)
+            throws SQLException {
+        Set<String> names = new LinkedHashSet<>();
+        for (ComputerDTO computer : computers) {
+            names.add(computer.getName());
+        }
+        // The parameters take the collation of the column in the union
+        StringBuilder sql = new StringBuilder("SELECT MAX(k.position), MIN(k.id) FROM (")
+                .append("SELECT id, NULL AS position, name, company_id FROM computer WHERE name IN (?");
+        for (int i = 1; i < names.size(); i++) {
+            sql.append(",?");
+        }
+        sql.append(')');
+        for (int i = 0; i < computers.size(); i++) {
+            sql.append(" UNION ALL SELECT NULL, ? AS position, ? AS name, ? AS company_id");
+        }
+        sql.append(") k GROUP BY k.name, k.company_id HAVING MAX(k.position) IS NOT NULL ORDER BY 1");
+
+        Map<Integer, Long> ids = new LinkedHashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (String name : names) {
+                statement.setString(index++, name);
+            }
+            for (int i = 0; i < computers.size(); i++) {
+                statement.setInt(index++, i);
+                statement.setString(index++, computers.get(i).getName());
+                if (computers.get(i).getCompanyId() == null) {
+                    statement.setNull(index++, Types.BIGINT);
+                } else {
+                    statement.setLong(index++, computers.get(i).getCompanyId());
+                }
+            }
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    long id = rows.getLong(2);
+                    Long existing = rows.wasNull() ? null : id;
+                    ids.put(rows.getInt(1), existing);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Bind an epoch day, NULL if NONE.
+     */
+    private static void setDate(PreparedStatement statement, int index, long epochDay) throws SQLException {
+        if (epochDay == EpochDays.NONE) {
+            statement.setNull(index, Types.TIMESTAMP);
+        } else {
+            statement.setTimestamp(index, new Timestamp(EpochDays.toMillis(epochDay)));
+        }
+    }
+
+    @Override
+    public boolean updateIfVersion(final Computer computer) {
+        em.flush();
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("UPDATE computer SET name = ?,"
+                    + " introduced = ?, discontinued = ?, company_id = ?, company_name = ?, version = version + 1"
+                    + " WHERE id = ? AND version = ?")) {
+                setColumns(statement, computer);
+                statement.setLong(7, computer.getVersion());
+                return statement.executeUpdate() > 0;
+            }
+        });
+    }
+
+    @Override
+    public long overwrite(final Computer computer) {
+        em.flush();
+        // LAST_INSERT_ID(expr) sends the new version back with the update count, as a generated key : no select
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("UPDATE computer SET name = ?,"
+                    + " introduced = ?, discontinued = ?, company_id = ?, company_name = ?,"
+                    + " version = LAST_INSERT_ID(version + 1) WHERE id = ?", Statement.RETURN_GENERATED_KEYS)) {
+                setColumns(statement, computer);
+                if (statement.executeUpdate() == 0) {
+                    return -1L;
+                }
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    if (!keys.next()) {
+                        throw new DAOException("No version returned by the update of the computer "
+                                + computer.getId());
+                    }
+                    return keys.getLong(1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Bind the columns of an update (name, introduced, discontinued, company_id, company_name), then its id.
+     */
+    private static void setColumns(PreparedStatement statement, Computer computer) throws SQLException {
+        statement.setString(1, computer.getName());
+        setDate(statement, 2, computer.getIntroduced());
+        setDate(statement, 3, computer.getDiscontinued());
+        if (computer.getCompany() == null || computer.getCompany().getId() == null) {
+            statement.setNull(4, Types.BIGINT);
+        } else {
+            statement.setLong(4, computer.getCompany().getId());
+        }
+        statement.setString(5, computer.getCompanyName());
+        statement.setLong(6, computer.getId());
+    }
+
+    @Override
+    public int deleteByIds(final long[] ids) {
+        if (ids.length == 0) {
+            return 0;
+        }
+        em.flush();
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            int count = 0;
+            PreparedStatement statement = null;
+            try {
+                for (int from = 0; from < ids.length; from += deleteChunk) {
+                    int size = Math.min(deleteChunk, ids.length - from);
+                    // All the chunks but the last have the same size : prepare their statement once
+                    if (statement == null || size != deleteChunk) {
+                        if (statement != null) {
+                            statement.close();
+                        }
+                        statement = connection.prepareStatement(deleteStatement(size));
+                    }
+                    for (int i = 0; i < size; i++) {
+                        statement.setLong(i + 1, ids[from + i]);
+                    }
+                    count += statement.executeUpdate();
+                }
+            } finally {
+                if (statement != null) {
+                    statement.close();
+                }
+            }
+            return count;
+        });
+    }
+
+    @Override
+    public int deleteByCompanyId(final long companyId, final int limit) {
+        em.flush();
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection
+                    .prepareStatement("DELETE FROM computer WHERE company_id = ? LIMIT ?")) {
+                statement.setLong(1, companyId);
+                statement.setInt(2, limit);
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public int updateCompanyName(final long companyId, final String name) {
+        em.flush();
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection
+                    .prepareStatement("UPDATE computer SET company_name = ? WHERE company_id = ?")) {
+                statement.setString(1, name);
+                statement.setLong(2, companyId);
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public long findMaxId() {
+        Long maxId = em.createQuery("select max(c.id) from Computer c", Long.class).getSingleResult();
+        return (maxId == null) ? 0 : maxId;
+    }
+
+    @Override
+    public int repairCompanyNames(final long fromId, final long toId) {
+        em.flush();
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            int repaired = 0;
+            for (String sql : new String[] {"UPDATE computer c JOIN company co ON co.id = c.company_id"
+                    + " SET c.company_name = co.name WHERE c.id > ? AND c.id <= ? AND NOT (c.company_name <=> co.name)",
+                    "UPDATE computer SET company_name = NULL"
+                            + " WHERE id > ? AND id <= ? AND company_id IS NULL AND company_name IS NOT NULL"}) {
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    statement.setLong(1, fromId);
+                    statement.setLong(2, toId);
+                    repaired += statement.executeUpdate();
+                }
+            }
+            return repaired;
+        });
+    }
+
+    /**
+     * @param deleteChunk The number of ids bound per DELETE statement by {@link #deleteByIds(long[])}
+     */
+    public void setDeleteChunk(int deleteChunk) {
+        this.deleteChunk = deleteChunk;
+    }
+
+    /**
+     * @param size The number of ids
+     * @return The SQL deleting the computers of these ids
+     */
+    private static String deleteStatement(int size) {
+        StringBuilder sql = new StringBuilder(30 + 2 * size).append("DELETE FROM computer WHERE id IN (?");
+        for (int i = 1; i < size; i++) {
+            sql.append(",?");
+        }
+        return sql.append(')').toString();
+    }
+
+    /**
+     * @param sortProperty A sortable property, or null
+     * @return Its JPQL path, null if the property is null
+     */
+    private static String sortPath(String sortProperty) {
+        if (sortProperty == null) {
+            return null;
+        }
+        String key = SORT_PATHS.get(sortProperty);
+        if (key == null) {
+            throw new DAOException("Unsortable property " + sortProperty);
+        }
+        return key;
+    }
+
+    /**
+     * Build the condition selecting the rows after (key, id) in the reading order. NULL sort keys are the smallest
+     * ones, as in MySQL.
+     * @param key The JPQL path of the sort key, null when sorting by id only
+     * @param nullKey True if the cursor's key is NULL
+     * @param forward True when reading in the ascending order
+     * @return The JPQL condition
+     */
+    private static String seekCondition(String key, boolean nullKey, boolean forward) {
+        String op = forward ? " > " : " < ";
+        if (key == null) {
+            return "c.id" + op + ":id";
+        }
+        if (nullKey) {
+            return forward ? "((" + key + " is null and c.id > :id) or " + key + " is not null)"
+                    : "(" + key + " is null and c.id < :id)";
+        }
+        String seek = "(" + key + op + ":key or (" + key + " = :key and c.id" + op + ":id)";
+        return forward ? seek + ")" : seek + " or " + key + " is null)";
+    }
+}
@@ -0,0 +1,32 @@
+package com.excilys.computer_database.persistence.dao;
+
+/**
+ * What {@link ComputerDAOCustom#saveBatch(java.util.List, boolean)} wrote.
+ */
+public final class SavedBatch {
+    private final int inserted, updated;
+
+    /**
+     * Constructor.
+     * @param inserted The number of computers inserted
+     * @param updated The number of existing computers updated
+     */
+    public SavedBatch(int inserted, int updated) {
+        this.inserted = inserted;
+        this.updated = updated;
+    }
+
+    /**
+     * @return The number of computers inserted
+     */
+    public int getInserted() {
+        return inserted;
+    }
+
+    /**
+     * @return The number of existing computers updated, each once
+     */
+    public int getUpdated() {
+        return updated;
+    }
+}
@@ -0,0 +1,34 @@
+package com.excilys.computer_database.persistence.dao;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.stereotype.Repository;
+
+/**
+ * Reads the statistics MySQL keeps on the tables.
+ */
+@Repository
+public class TableStatisticsDAO {
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Estimate the number of rows of a table, without counting them. The estimate of InnoDB can be off by tens of
+     * percent, and is refreshed by ANALYZE TABLE.
+     * @param table The table name, in the current schema
+     * @return The estimated row count, null if the database gives none
+     */
+    public Long estimateRowCount(String table) {
+        List<?> rows = em
+                .createNativeQuery("SELECT TABLE_ROWS FROM information_schema.TABLES"
+                        + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?1")
+                .setParameter(1, table).getResultList();
+        if (rows.isEmpty() || rows.get(0) == null) {
+            return null;
+        }
+        return ((Number) rows.get(0)).longValue();
+    }
+}
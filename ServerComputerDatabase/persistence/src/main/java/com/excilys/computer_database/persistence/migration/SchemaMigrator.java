@@ -0,0 +1,278 @@
+package com.excilys.computer_database.persistence.migration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.util.FileCopyUtils;
+
+import com.excilys.computer_database.persistence.DAOException;
+
+/**
+ * Versioned, forward-only migrations of the schema : the scripts V&lt;version&gt;__&lt;description&gt;.sql of a
+ * classpath location are run in the order of their version, once each. The applied versions are recorded in the
+ * schema_version table, with the checksum of their script : a script changed after it was applied fails the migration,
+ * write a new version instead.
+ *
+ * A schema created by database/1-SCHEMA.sql, which has no schema_version table, is taken as the version 1 without
+ * running it. A version older than the last applied one fails the migration, a version applied but unknown to the
+ * application (a newer application ran) is only logged.
+ *
+ * The migrations are serialized between the instances of the application by a lock of the database. MySQL commits each
+ * DDL statement : a script failing half way is not recorded and stays half applied, so a script holds a single DDL
+ * statement where it can (one ALTER TABLE for several indexes).
+ */
+public class SchemaMigrator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaMigrator.class);
+    /** The scripts, their version and description in their name. */
+    private static final Pattern SCRIPT = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final String HISTORY = "schema_version";
+    /** The table telling that the schema was created before the migrations. */
+    private static final String BASELINE_TABLE = "computer";
+    private static final String LOCK = "computer-database-migrations";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private final DataSource dataSource;
+    private final String location;
+
+    /**
+     * A script and its version.
+     */
+    public static final class Migration {
+        private final int version;
+        private final String description;
+        private final Resource script;
+        private final long checksum;
+
+        private Migration(int version, String description, Resource script, long checksum) {
+            this.version = version;
+            this.description = description;
+            this.script = script;
+            this.checksum = checksum;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public long getChecksum() {
+            return checksum;
+        }
+    }
+
+    /**
+     * Constructor.
+     * @param dataSource The database to migrate : the primary, not a replica
+     * @param location The classpath directory of the scripts, as "db/migration"
+     */
+    public SchemaMigrator(DataSource dataSource, String location) {
+        this.dataSource = dataSource;
+        this.location = location;
+    }
+
+    /**
+     * Apply the pending migrations.
+     * @return The migrations applied, in their order
+     * @throws DAOException If a migration fails, or the history does not match the scripts
+     */
+    public List<Migration> migrate() {
+        List<Migration> migrations = findMigrations();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            lock(connection);
+            try {
+                return migrate(connection, migrations);
+            } finally {
+                unlock(connection);
+            }
+        } catch (SQLException e) {
+            throw new DAOException("The migration of the schema failed", e);
+        }
+    }
+
+    /**
+     * @return The version of the schema, 0 before the first migration
+     */
+    public int getVersion() {
+        try (Connection connection = dataSource.getConnection()) {
+            TreeMap<Integer, Long> applied = applied(connection);
+            return applied.isEmpty() ? 0 : applied.lastKey();
+        } catch (SQLException e) {
+            throw new DAOException("The version of the schema could not be read", e);
+        }
+    }
+
+    private List<Migration> migrate(Connection connection, List<Migration> migrations) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + HISTORY + " (version int NOT NULL,"
+                    + " description varchar(255) NOT NULL, checksum bigint NOT NULL, installed_on datetime NOT NULL,"
+                    + " execution_time int NOT NULL, CONSTRAINT pk_schema_version PRIMARY KEY (version))");
+        }
+
+        TreeMap<Integer, Long> applied = applied(connection);
+        if (applied.isEmpty() && !migrations.isEmpty() && migrations.get(0).version == 1 && baseline(connection)) {
+            Migration first = migrations.get(0);
+            LOGGER.info("Schema created before the migrations, taken as the version 1");
+            record(connection, first, 0);
+            applied.put(first.version, first.checksum);
+        }
+
+        int current = applied.isEmpty() ? 0 : applied.lastKey();
+        List<Migration> pending = new ArrayList<>();
+        for (Migration migration : migrations) {
+            Long checksum = applied.remove(migration.version);
+            if (checksum != null) {
+                if (checksum != migration.checksum) {
+                    throw new DAOException("The migration V" + migration.version + " was changed after it was applied");
+                }
+            } else if (migration.version < current) {
+                throw new DAOException("The migration V" + migration.version + " is older than the applied V"
+                        + current);
+            } else {
+                pending.add(migration);
+            }
+        }
+        if (!applied.isEmpty()) {
+            LOGGER.warn("Schema migrated by a newer application : versions {} unknown", applied.keySet());
+        }
+
+        for (Migration migration : pending) {
+            LOGGER.info("Migrating the schema to V{} : {}", migration.version, migration.description);
+            long start = System.nanoTime();
+            ScriptUtils.executeSqlScript(connection, migration.script);
+            record(connection, migration, (int) ((System.nanoTime() - start) / 1000000));
+        }
+        if (pending.isEmpty()) {
+            LOGGER.info("Schema up to date, version {}", current);
+        }
+        return pending;
+    }
+
+    /**
+     * @return The scripts of the location, by version
+     */
+    private List<Migration> findMigrations() {
+        Resource[] scripts;
+        try {
+            scripts = new PathMatchingResourcePatternResolver().getResources("classpath*:" + location + "/V*__*.sql");
+        } catch (IOException e) {
+            throw new DAOException("The migrations of " + location + " could not be listed", e);
+        }
+        Map<Integer, Migration> migrations = new TreeMap<>();
+        for (Resource script : scripts) {
+            Matcher name = SCRIPT.matcher(script.getFilename());
+            if (!name.matches()) {
+                throw new DAOException("Invalid migration name " + script.getFilename());
+            }
+            Migration migration = new Migration(Integer.parseInt(name.group(1)), name.group(2).replace('_', ' '),
+                    script, checksum(script));
+            if (migrations.put(migration.version, migration) != null) {
+                throw new DAOException("Several migrations V" + migration.version);
+            }
+        }
+        return new ArrayList<>(migrations.values());
+    }
+
+    /**
+     * @return The CRC32 of the script, whatever its line separators
+     */
+    private static long checksum(Resource script) {
+        try (InputStream in = script.getInputStream()) {
+            String text = new String(FileCopyUtils.copyToByteArray(in), StandardCharsets.UTF_8).replace("\r\n", "\n");
+            CRC32 crc = new CRC32();
+            crc.update(text.getBytes(StandardCharsets.UTF_8));
+            return crc.getValue();
+        } catch (IOException e) {
+            throw new DAOException("The migration " + script.getFilename() + " could not be read", e);
+        }
+    }
+
+    /**
+     * @return The checksums of the applied versions, by version
+     */
+    private static TreeMap<Integer, Long> applied(Connection connection) throws SQLException {
+        TreeMap<Integer, Long> applied = new TreeMap<>();
+        if (!tableExists(connection, HISTORY)) {
+            return applied;
+        }
+        try (Statement statement = connection.createStatement();
+                ResultSet rows = statement.executeQuery("SELECT version, checksum FROM " + HISTORY)) {
+            while (rows.next()) {
+                applied.put(rows.getInt(1), rows.getLong(2));
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * @return True if the schema was created before the migrations
+     */
+    private static boolean baseline(Connection connection) throws SQLException {
+        return tableExists(connection, BASELINE_TABLE);
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM information_schema.TABLES"
+                + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?")) {
+            statement.setString(1, table);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next();
+            }
+        }
+    }
+
+    private static void record(Connection connection, Migration migration, int millis) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + HISTORY
+                + " (version, description, checksum, installed_on, execution_time) VALUES (?, ?, ?, ?, ?)")) {
+            statement.setInt(1, migration.version);
+            statement.setString(2, migration.description);
+            statement.setLong(3, migration.checksum);
+            statement.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+            statement.setInt(5, millis);
+            statement.executeUpdate();
+        }
+    }
+
+    private static void lock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, LOCK);
+            statement.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rows = statement.executeQuery()) {
+                if (!rows.next() || rows.getInt(1) != 1) {
+                    throw new DAOException("The schema is being migrated by another application");
+                }
+            }
+        }
+    }
+
+    private static void unlock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, LOCK);
+            statement.execute();
+        }
+    }
+}
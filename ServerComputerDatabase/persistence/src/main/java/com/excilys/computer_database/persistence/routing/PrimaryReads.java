@@ -0,0 +1,42 @@
+package com.excilys.computer_database.persistence.routing;
+
+import java.util.function.Supplier;
+
+/**
+ * Sends the read-only transactions of the current thread to the primary (see {@link ReplicaRoutingDataSource}) : the
+ * reads filling a cache shared by all the clients, or tagged with the version of the data, which a lagging replica
+ * would leave stale for all of them until the next write.
+ *
+ * The transaction is routed when it takes its connection, at its first statement : a read joining a transaction which
+ * already read from a replica is not sent to the primary. Run it in a transaction of its own.
+ */
+public final class PrimaryReads {
+    private static final ThreadLocal<Boolean> REQUIRED = new ThreadLocal<>();
+
+    private PrimaryReads() {
+    }
+
+    /**
+     * @return True if the reads of the current thread must go to the primary
+     */
+    public static boolean isRequired() {
+        return REQUIRED.get() != null;
+    }
+
+    /**
+     * Run a read on the primary.
+     * @param read The read, starting its transaction
+     * @return What it returns
+     */
+    public static <T> T call(Supplier<T> read) {
+        if (isRequired()) {
+            return read.get();
+        }
+        REQUIRED.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            REQUIRED.remove();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.excilys.computer_database.persistence.routing;
+
+/**
+ * The client the current thread works for, so that the reads following its own writes go to the primary (see
+ * {@link ReplicaRoutingDataSource}). Set by the webapp for each request, and carried to the threads running its work.
+ */
+public final class ReadYourWrites {
+    private static final ThreadLocal<String> CLIENT = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    /**
+     * @return The client of the current thread, null if unknown
+     */
+    public static String getClient() {
+        return CLIENT.get();
+    }
+
+    /**
+     * @param client The client of the current thread, as its user or session, null when its work ends
+     */
+    public static void setClient(String client) {
+        if (client == null) {
+            CLIENT.remove();
+        } else {
+            CLIENT.set(client);
+        }
+    }
+}
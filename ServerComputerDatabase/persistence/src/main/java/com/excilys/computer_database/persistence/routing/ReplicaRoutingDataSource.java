@@ -0,0 +1,361 @@
+package com.excilys.computer_database.persistence.routing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * DataSource sending the connections of the read-only transactions (@Transactional(readOnly = true)) to the replicas,
+ * in turn, and the others to the primary. The connection must be taken once the transaction has started : wrap it in a
+ * LazyConnectionDataSourceProxy.
+ *
+ * A replica more than maxLagSeconds behind the primary, or unreachable, is left until it catches up : the lag is
+ * checked every checkPeriodMillis. Without an up to date replica, the reads go to the primary.
+ *
+ * The reads of a client (see {@link ReadYourWrites}) go to the primary for stickyMillis after it last committed a
+ * write, so that it reads its own writes even from a lagging replica : the statements of its read-write transactions
+ * are watched, a transaction which only read does not count. The reads filling the caches shared by all the clients
+ * go to the primary too (see {@link PrimaryReads}).
+ *
+ * The routed connections are counted in the metric registry, under "datasource.routing.".
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private static final String PRIMARY = "primary";
+    /** Time between two warnings about a replica still failing its checks. */
+    private static final long WARNING_PERIOD_MILLIS = 60000;
+    /** The statements which only read, after the comments. */
+    private static final Pattern READ = Pattern.compile("(?is)\\s*(/\\*.*?\\*/\\s*)*(select|show|explain|set)\\b.*");
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagSeconds, stickyMillis;
+    /** The time in milliseconds, only compared with itself. */
+    private final LongSupplier clock;
+    /** Time of the last write, by client. */
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder primary = new LongAdder(), replica = new LongAdder(), sticky = new LongAdder(),
+            fallback = new LongAdder();
+    /** Null without replicas. */
+    private final ScheduledExecutorService checker;
+
+    /**
+     * A replica, and its state at the last check.
+     */
+    private static final class Replica {
+        private final String key;
+        private final DataSource dataSource;
+        /** Not before the first check. */
+        private volatile boolean upToDate;
+        /** Time of the last warning about its checks, null before the first one. Read by the checks only. */
+        private Long warned;
+
+        Replica(String key, DataSource dataSource) {
+            this.key = key;
+            this.dataSource = dataSource;
+        }
+    }
+
+    /**
+     * Constructor.
+     * @param primary The primary, receiving the writes
+     * @param replicas The replicas, closed with this DataSource
+     * @param maxLagSeconds The lag of a replica still read
+     * @param checkPeriodMillis The time between the checks of the lag, 0 to check on {@link #checkReplicas()} only
+     * @param stickyMillis The time the reads of a client go to the primary after it wrote
+     * @param clock The time in milliseconds
+     * @param metricRegistry Receives the routed connections and the replicas up to date
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long maxLagSeconds,
+            long checkPeriodMillis, long stickyMillis, LongSupplier clock, MetricRegistry metricRegistry) {
+        this.maxLagSeconds = maxLagSeconds;
+        this.stickyMillis = stickyMillis;
+        this.clock = clock;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (DataSource dataSource : replicas) {
+            Replica r = new Replica("replica-" + (this.replicas.size() + 1), dataSource);
+            this.replicas.add(r);
+            targets.put(r.key, dataSource);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+
+        metricRegistry.register("datasource.routing.primary", (Gauge<Long>) this.primary::sum);
+        metricRegistry.register("datasource.routing.replica", (Gauge<Long>) replica::sum);
+        metricRegistry.register("datasource.routing.sticky", (Gauge<Long>) sticky::sum);
+        metricRegistry.register("datasource.routing.fallback", (Gauge<Long>) fallback::sum);
+        metricRegistry.register("datasource.replicas.up-to-date", (Gauge<Integer>) this::getReplicasUpToDate);
+
+        if (this.replicas.isEmpty() || checkPeriodMillis <= 0) {
+            checker = null;
+        } else {
+            checker = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("replica-check-"));
+            checker.scheduleWithFixedDelay(this::checkReplicas, 0, checkPeriodMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return watchWrites(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return watchWrites(super.getConnection(username, password));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || PrimaryReads.isRequired()) {
+            primary.increment();
+            return PRIMARY;
+        }
+
+        String client = ReadYourWrites.getClient();
+        if (client != null) {
+            Long written = lastWrites.get(client);
+            if (written != null && clock.getAsLong() - written < stickyMillis) {
+                sticky.increment();
+                return PRIMARY;
+            }
+        }
+        int start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica r = replicas.get(Math.floorMod(start + i, replicas.size()));
+            if (r.upToDate) {
+                replica.increment();
+                return r.key;
+            }
+        }
+        fallback.increment();
+        return PRIMARY;
+    }
+
+    /**
+     * Watch the statements of a read-write transaction of a client, to send its reads to the primary once it has
+     * committed a write.
+     * @param connection The connection of the transaction
+     * @return The connection, watched if needed
+     */
+    private Connection watchWrites(Connection connection) {
+        String client = ReadYourWrites.getClient();
+        if (client == null || replicas.isEmpty() || TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return connection;
+        }
+        ClientWrite write = new ClientWrite(client);
+        TransactionSynchronizationManager.registerSynchronization(write);
+        return proxy(Connection.class, new WatchedConnection(connection, write));
+    }
+
+    /**
+     * Check the lag of the replicas, and forget the writes older than the stickiness. A failed check is logged once a
+     * minute, whatever the state of the replica before.
+     */
+    public void checkReplicas() {
+        long now = clock.getAsLong();
+        for (Replica r : replicas) {
+            boolean upToDate;
+            String failure = null;
+            try {
+                long lag = lagSeconds(r.dataSource);
+                upToDate = lag <= maxLagSeconds;
+                if (!upToDate) {
+                    failure = ((lag == Long.MAX_VALUE) ? "?" : Long.toString(lag)) + " s behind the primary";
+                }
+            } catch (SQLException | RuntimeException e) {
+                upToDate = false;
+                failure = "unreachable : " + e.getMessage();
+            }
+            if (failure != null && (r.upToDate || r.warned == null || now - r.warned >= WARNING_PERIOD_MILLIS)) {
+                LOGGER.warn("{} {}, its reads go to the primary", r.key, failure);
+                r.warned = now;
+            }
+            if (upToDate && !r.upToDate) {
+                LOGGER.info("{} up to date, it receives the reads", r.key);
+                r.warned = null;
+            }
+            r.upToDate = upToDate;
+        }
+
+        lastWrites.values().removeIf(written -> now - written >= stickyMillis);
+    }
+
+    /**
+     * The lag of a replica, from its replication status. A server without replication, as the primary itself in
+     * development, has no lag. The user needs the global REPLICATION CLIENT privilege (GRANT REPLICATION CLIENT ON *.*,
+     * see 2-PRIVILEGES.sql) : without it, the replica fails its checks and is never read.
+     * @param replica The replica
+     * @return Its lag in seconds, Long.MAX_VALUE if its replication is stopped
+     * @throws SQLException If the replica can't be reached
+     */
+    protected long lagSeconds(DataSource replica) throws SQLException {
+        try (Connection connection = replica.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet status = statement.executeQuery("SHOW SLAVE STATUS")) {
+            if (!status.next()) {
+                return 0;
+            }
+            long lag = status.getLong("Seconds_Behind_Master");
+            return status.wasNull() ? Long.MAX_VALUE : lag;
+        }
+    }
+
+    /**
+     * @return The replicas receiving the reads
+     */
+    public int getReplicasUpToDate() {
+        int upToDate = 0;
+        for (Replica r : replicas) {
+            if (r.upToDate) {
+                upToDate++;
+            }
+        }
+        return upToDate;
+    }
+
+    /**
+     * The write of a client, recorded once its transaction has committed.
+     */
+    private final class ClientWrite extends TransactionSynchronizationAdapter {
+        private final String client;
+        /** Set once a statement of the transaction writes. */
+        private volatile boolean written;
+
+        ClientWrite(String client) {
+            this.client = client;
+        }
+
+        @Override
+        public void afterCommit() {
+            if (written) {
+                lastWrites.put(client, clock.getAsLong());
+            }
+        }
+    }
+
+    /**
+     * Marks the write when the connection prepares a statement which writes, or executes one.
+     */
+    private static final class WatchedConnection implements InvocationHandler {
+        private final Connection connection;
+        private final ClientWrite write;
+
+        WatchedConnection(Connection connection, ClientWrite write) {
+            this.connection = connection;
+            this.write = write;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "prepareStatement":
+            case "prepareCall":
+                watch((String) args[0], write);
+                return ReplicaRoutingDataSource.invoke(connection, method, args);
+            case "createStatement":
+                return proxy(Statement.class, new WatchedStatement(
+                        (Statement) ReplicaRoutingDataSource.invoke(connection, method, args), write));
+            default:
+                return ReplicaRoutingDataSource.invoke(connection, method, args);
+            }
+        }
+    }
+
+    /**
+     * Marks the write when the statement executes SQL which writes.
+     */
+    private static final class WatchedStatement implements InvocationHandler {
+        private final Statement statement;
+        private final ClientWrite write;
+
+        WatchedStatement(Statement statement, ClientWrite write) {
+            this.statement = statement;
+            this.write = write;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ((method.getName().startsWith("execute") || method.getName().equals("addBatch")) && args != null
+                    && args.length > 0 && args[0] instanceof String) {
+                watch((String) args[0], write);
+            }
+            return ReplicaRoutingDataSource.invoke(statement, method, args);
+        }
+    }
+
+    private static void watch(String sql, ClientWrite write) {
+        if (!write.written && !READ.matcher(sql).matches()) {
+            write.written = true;
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(ReplicaRoutingDataSource.class.getClassLoader(),
+                new Class<?>[] { type }, handler));
+    }
+
+    /**
+     * Call a method on the proxied object, throwing what it throws.
+     */
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Stop the checks and close the replicas. The primary is left open.
+     */
+    @Override
+    public void close() throws IOException {
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+        for (Replica r : replicas) {
+            if (r.dataSource instanceof Closeable) {
+                ((Closeable) r.dataSource).close();
+            }
+        }
+    }
+}
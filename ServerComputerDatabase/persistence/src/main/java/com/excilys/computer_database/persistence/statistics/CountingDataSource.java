@@ -0,0 +1,141 @@
+package com.excilys.computer_database.persistence.statistics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import com.excilys.computer_database.persistence.timeout.StatementDeadline;
+
+/**
+ * DataSource reporting each statement executed on its connections to the {@link StatementCounter} of the thread, with
+ * the time of its execution. A batch counts for one statement : it is sent in one round trip. The commits and rollbacks
+ * count in the time only.
+ *
+ * Wraps the connection pool, so that Hibernate and the JDBC work of the DAO are counted alike. The statements are
+ * bounded by the {@link StatementDeadline} of the thread too.
+ */
+public class CountingDataSource extends DelegatingDataSource {
+
+    /**
+     * Constructor.
+     * @param target The DataSource whose statements are counted
+     */
+    public CountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    private static <T> T wrap(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(CountingDataSource.class.getClassLoader(), new Class<?>[] { type },
+                handler));
+    }
+
+    /**
+     * Call a method on the proxied object, throwing what it throws.
+     */
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Wraps the statements created by the connection.
+     */
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("equals")) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+
+            if (method.getName().equals("commit") || method.getName().equals("rollback")) {
+                long start = System.nanoTime();
+                try {
+                    return CountingDataSource.invoke(connection, method, args);
+                } finally {
+                    StatementCounter.waited(System.nanoTime() - start);
+                }
+            }
+
+            Object result = CountingDataSource.invoke(connection, method, args);
+            switch (method.getName()) {
+            case "createStatement":
+                return wrap(Statement.class, new StatementHandler((Statement) result, null));
+            case "prepareStatement":
+                return wrap(PreparedStatement.class, new StatementHandler((Statement) result, (String) args[0]));
+            case "prepareCall":
+                return wrap(CallableStatement.class, new StatementHandler((Statement) result, (String) args[0]));
+            default:
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Counts and times the executions of the statement, bounded by the deadline of the thread.
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        /** The prepared SQL, null for a plain statement. */
+        private final String sql;
+
+        StatementHandler(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().startsWith("execute")) {
+                String executed = sql;
+                if (args != null && args.length > 0 && args[0] instanceof String) {
+                    executed = (String) args[0];
+                } else if (executed == null) {
+                    executed = "(batch)";
+                }
+                int timeout = StatementDeadline.apply(statement);
+                long start = System.nanoTime();
+                try {
+                    return CountingDataSource.invoke(statement, method, args);
+                } finally {
+                    StatementCounter.executed(executed, System.nanoTime() - start);
+                    if (timeout >= 0) {
+                        statement.setQueryTimeout(timeout);
+                    }
+                }
+            }
+            return CountingDataSource.invoke(statement, method, args);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.excilys.computer_database.persistence.statistics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * The timed operations of the application, by layer : the HTTP endpoints (see the MetricsInterceptor of the webapp),
+ * the services and the repositories (see {@link InstrumentationPostProcessor}).
+ */
+@Component
+public class Instrumentation {
+    public static final String HTTP = "http", SERVICE = "service", REPOSITORY = "repository";
+
+    /** By layer and name. */
+    private final Map<String, OperationMetrics> operations = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param layer The layer, as {@link #HTTP}
+     * @param name The operation, as RESTController.listComputer
+     * @return Its metrics, created on the first call
+     */
+    public OperationMetrics operation(String layer, String name) {
+        return operations.computeIfAbsent(layer + "." + name, key -> new OperationMetrics(layer, name));
+    }
+
+    /**
+     * @return The operations called so far, sorted by layer and name
+     */
+    public Collection<OperationMetrics> getOperations() {
+        return new ArrayList<>(operations.values());
+    }
+
+    /**
+     * Drain the recent latencies of the operations every half window, whether the metrics are read or not.
+     */
+    @Scheduled(fixedRate = OperationMetrics.HALF_WINDOW_MILLIS)
+    public void drainLatencies() {
+        for (OperationMetrics operation : operations.values()) {
+            operation.drain();
+        }
+    }
+}
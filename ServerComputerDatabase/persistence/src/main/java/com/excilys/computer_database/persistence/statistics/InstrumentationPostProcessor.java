@@ -0,0 +1,123 @@
+package com.excilys.computer_database.persistence.statistics;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Time every method of the services (@Service) and of the repositories (the Spring Data ones and the @Repository
+ * classes) in the {@link Instrumentation}, with the time they waited for the database.
+ *
+ * A bean already proxied, as a transactional service, gets the timing as its first advice : the time includes the
+ * commit. The others are proxied. Not ordered, so run after the post-processors creating the transactional proxies.
+ */
+@Component
+public class InstrumentationPostProcessor implements BeanPostProcessor {
+
+    private final Instrumentation instrumentation;
+
+    /**
+     * Constructor.
+     * @param instrumentation Receives the times
+     */
+    @Autowired
+    public InstrumentationPostProcessor(Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> targetClass = AopUtils.getTargetClass(bean);
+        String layer;
+        if (bean instanceof Repository || AnnotationUtils.findAnnotation(targetClass,
+                org.springframework.stereotype.Repository.class) != null) {
+            layer = Instrumentation.REPOSITORY;
+        } else if (AnnotationUtils.findAnnotation(targetClass, Service.class) != null) {
+            layer = Instrumentation.SERVICE;
+        } else {
+            return bean;
+        }
+        TimingInterceptor timing = new TimingInterceptor(instrumentation, layer, typeName(bean, targetClass));
+
+        if (bean instanceof Advised && !((Advised) bean).isFrozen()) {
+            ((Advised) bean).addAdvice(0, timing);
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(ClassUtils.getAllInterfaces(bean).length == 0);
+        proxyFactory.addAdvice(timing);
+        return proxyFactory.getProxy(targetClass.getClassLoader());
+    }
+
+    /**
+     * @return The name of the operations of the bean : the interface of a Spring Data repository, as the class of its
+     *         proxy is generic, the class otherwise
+     */
+    private static String typeName(Object bean, Class<?> targetClass) {
+        if (bean instanceof Repository) {
+            for (Class<?> type : bean.getClass().getInterfaces()) {
+                if (Repository.class.isAssignableFrom(type) && !type.getName().startsWith("org.springframework.")) {
+                    return type.getSimpleName();
+                }
+            }
+        }
+        return ClassUtils.getUserClass(targetClass).getSimpleName();
+    }
+
+    /**
+     * Time the calls, an operation by method name.
+     */
+    private static final class TimingInterceptor implements MethodInterceptor {
+        private final Instrumentation instrumentation;
+        private final String layer, type;
+        private final Map<Method, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+        TimingInterceptor(Instrumentation instrumentation, String layer, String type) {
+            this.instrumentation = instrumentation;
+            this.layer = layer;
+            this.type = type;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Method method = invocation.getMethod();
+            if (method.getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            OperationMetrics operation = operations.get(method);
+            if (operation == null) {
+                operation = operations.computeIfAbsent(method,
+                        m -> instrumentation.operation(layer, type + "." + m.getName()));
+            }
+
+            StatementCounter.Snapshot snapshot = StatementCounter.start();
+            long start = System.nanoTime();
+            boolean error = true;
+            try {
+                Object result = invocation.proceed();
+                error = false;
+                return result;
+            } finally {
+                operation.record(System.nanoTime() - start, snapshot.getDatabaseNanos(), error);
+            }
+        }
+    }
+}
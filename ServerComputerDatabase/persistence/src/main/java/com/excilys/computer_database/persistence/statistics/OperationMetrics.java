@@ -0,0 +1,146 @@
+package com.excilys.computer_database.persistence.statistics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * The calls of an operation : an HTTP endpoint, a service or a repository method. Recorded without lock by the threads
+ * running the calls (an HdrHistogram Recorder and LongAdders), read by the metrics endpoint.
+ *
+ * The latencies are those of the last minute or so : what was recorded is drained into the current half minute every
+ * half minute by {@link Instrumentation}, and on each read, which reports it with the previous half. Latencies left
+ * undrained for a whole minute are dropped, since they may be older than the window. The counts and times are totals
+ * since the start.
+ */
+public final class OperationMetrics {
+    /** Longest latency recorded, longer ones are recorded as it. */
+    public static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final int SIGNIFICANT_DIGITS = 2;
+    /** Period of the drains of the latencies. */
+    static final long HALF_WINDOW_MILLIS = 30000;
+    private static final long HALF_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(HALF_WINDOW_MILLIS);
+
+    private final String layer, name;
+    private final LongSupplier nanoClock;
+    private final Recorder recorder = new Recorder(MAX_MICROS, SIGNIFICANT_DIGITS);
+    private final LongAdder count = new LongAdder(), errors = new LongAdder(), totalNanos = new LongAdder(),
+            databaseNanos = new LongAdder();
+
+    /** The window of the latencies, under the lock of this object. */
+    private Histogram interval, current = histogram(), previous = histogram();
+    private long currentStart, lastDrain;
+
+    /**
+     * Constructor.
+     * @param layer The layer of the operation, as {@link Instrumentation#HTTP}
+     * @param name The operation, as RESTController.listComputer
+     */
+    OperationMetrics(String layer, String name) {
+        this(layer, name, System::nanoTime);
+    }
+
+    /**
+     * Constructor.
+     * @param layer The layer of the operation, as {@link Instrumentation#HTTP}
+     * @param name The operation, as RESTController.listComputer
+     * @param nanoClock The time, in nanoseconds, as System.nanoTime()
+     */
+    OperationMetrics(String layer, String name, LongSupplier nanoClock) {
+        this.layer = layer;
+        this.name = name;
+        this.nanoClock = nanoClock;
+        currentStart = nanoClock.getAsLong();
+        lastDrain = currentStart;
+    }
+
+    /**
+     * Record a call.
+     * @param nanos Its duration
+     * @param databaseNanos The time it waited for the database
+     * @param error True if it failed
+     */
+    public void record(long nanos, long databaseNanos, boolean error) {
+        recorder.recordValue(Math.min(Math.max(nanos / 1000, 0), MAX_MICROS));
+        count.increment();
+        totalNanos.add(nanos);
+        this.databaseNanos.add(databaseNanos);
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * @return The latencies of the last minute or so, in microseconds
+     */
+    public synchronized Histogram getRecentLatencies() {
+        drain();
+        Histogram recent = previous.copy();
+        recent.add(current);
+        return recent;
+    }
+
+    /**
+     * Move the latencies recorded since the previous drain into the current half of the window, rotating the halves
+     * when due.
+     */
+    synchronized void drain() {
+        interval = recorder.getIntervalHistogram(interval);
+        long now = nanoClock.getAsLong();
+        if (now - currentStart >= HALF_WINDOW_NANOS) {
+            Histogram recycled = previous;
+            previous = current;
+            current = recycled;
+            current.reset();
+            // Nothing drained for a whole window : the previous half is too old
+            if (now - currentStart >= 2 * HALF_WINDOW_NANOS) {
+                previous.reset();
+            }
+            currentStart = now;
+        }
+        // Not drained for a whole window : these latencies can be of any age
+        if (now - lastDrain < 2 * HALF_WINDOW_NANOS) {
+            current.add(interval);
+        }
+        lastDrain = now;
+    }
+
+    /**
+     * @return The share of the time of the calls spent waiting for the database, between 0 and 1
+     */
+    public double getDatabaseShare() {
+        long total = totalNanos.sum();
+        return (total == 0) ? 0 : Math.min(1.0, (double) databaseNanos.sum() / total);
+    }
+
+    public String getLayer() {
+        return layer;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getDatabaseNanos() {
+        return databaseNanos.sum();
+    }
+
+    private static Histogram histogram() {
+        return new Histogram(MAX_MICROS, SIGNIFICANT_DIGITS);
+    }
+}
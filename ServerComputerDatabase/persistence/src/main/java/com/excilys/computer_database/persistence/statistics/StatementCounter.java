@@ -0,0 +1,130 @@
+package com.excilys.computer_database.persistence.statistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Counts the SQL statements sent to the database by each thread, and the time spent waiting for them, so that they are
+ * attributed to the HTTP request or the service call running on it. The statements are reported by
+ * {@link CountingDataSource}.
+ *
+ * Work handed to another thread is counted on that thread.
+ */
+public final class StatementCounter {
+    private static final ThreadLocal<StatementCounter> CURRENT = ThreadLocal.withInitial(StatementCounter::new);
+
+    /** Statements run by the thread since it started. */
+    private long statements;
+    /** Time the thread waited for the database since it started, in nanoseconds. */
+    private long databaseNanos;
+    /** The SQL of the statements, while a recording snapshot is open on the thread, null otherwise. */
+    private List<String> recorded;
+    /** The recording snapshots open on the thread. */
+    private int recorders;
+
+    private StatementCounter() {
+    }
+
+    /**
+     * Count a statement run by the current thread.
+     * @param sql The SQL of the statement
+     * @param nanos The time of its execution
+     */
+    static void executed(String sql, long nanos) {
+        StatementCounter counter = CURRENT.get();
+        counter.statements++;
+        counter.databaseNanos += nanos;
+        if (counter.recorded != null) {
+            counter.recorded.add(sql);
+        }
+    }
+
+    /**
+     * Count the time the current thread waited for the database out of a statement, as a commit.
+     * @param nanos The time
+     */
+    static void waited(long nanos) {
+        CURRENT.get().databaseNanos += nanos;
+    }
+
+    /**
+     * Start counting the statements run by the current thread. Only the count is kept.
+     * @return The snapshot, reading the statements run since now
+     */
+    public static Snapshot start() {
+        return start(false);
+    }
+
+    /**
+     * Start counting the statements run by the current thread.
+     * @param record True to keep their SQL too, until the snapshot is closed
+     * @return The snapshot, reading the statements run since now
+     */
+    public static Snapshot start(boolean record) {
+        StatementCounter counter = CURRENT.get();
+        int from = 0;
+        if (record) {
+            if (counter.recorded == null) {
+                counter.recorded = new ArrayList<>();
+            }
+            counter.recorders++;
+            from = counter.recorded.size();
+        }
+        return new Snapshot(counter, counter.statements, counter.databaseNanos, record ? from : -1);
+    }
+
+    /**
+     * The statements run by a thread since the snapshot was started. Read it on that thread.
+     */
+    public static final class Snapshot implements AutoCloseable {
+        private final StatementCounter counter;
+        private final long start, startNanos;
+        /** Index of the first recorded statement, -1 if not recording. */
+        private final int from;
+        private boolean closed;
+
+        private Snapshot(StatementCounter counter, long start, long startNanos, int from) {
+            this.counter = counter;
+            this.start = start;
+            this.startNanos = startNanos;
+            this.from = from;
+        }
+
+        /**
+         * @return The number of statements run since the start
+         */
+        public long getStatements() {
+            return counter.statements - start;
+        }
+
+        /**
+         * @return The time waited for the database since the start, in nanoseconds
+         */
+        public long getDatabaseNanos() {
+            return counter.databaseNanos - startNanos;
+        }
+
+        /**
+         * @return The SQL of the statements run since the start, empty if the snapshot does not record
+         */
+        public List<String> getSql() {
+            if (from < 0 || closed) {
+                return Collections.emptyList();
+            }
+            return new ArrayList<>(counter.recorded.subList(from, counter.recorded.size()));
+        }
+
+        /** Stop recording, the count can still be read. */
+        @Override
+        public void close() {
+            if (from < 0 || closed) {
+                return;
+            }
+            closed = true;
+            if (--counter.recorders == 0) {
+                counter.recorded = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.excilys.computer_database.persistence.timeout;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+
+/**
+ * The time the work of the current thread must end by : its statements are given the time left as query timeout (the
+ * driver kills them when it passes), and fail at once once it passed. Set by the webapp for the work of the REST
+ * requests, whose result is abandoned after a timeout : the work frees its thread instead of waiting for the database.
+ *
+ * Applied to the statements by {@link com.excilys.computer_database.persistence.statistics.CountingDataSource}.
+ */
+public final class StatementDeadline {
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private StatementDeadline() {
+    }
+
+    /**
+     * @param deadline The end of the work of the current thread, in epoch milliseconds
+     */
+    public static void set(long deadline) {
+        DEADLINE.set(deadline);
+    }
+
+    /**
+     * Remove the deadline of the current thread, when its work ends.
+     */
+    public static void clear() {
+        DEADLINE.remove();
+    }
+
+    /**
+     * Bound a statement about to be executed by the deadline of the current thread.
+     * @param statement The statement
+     * @return Its query timeout to restore after the execution, -1 if unchanged
+     * @throws SQLTimeoutException If the deadline passed
+     * @throws SQLException If the timeout could not be set
+     */
+    public static int apply(Statement statement) throws SQLException {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return -1;
+        }
+        long left = deadline - System.currentTimeMillis();
+        if (left <= 0) {
+            throw new SQLTimeoutException("Deadline of the work passed " + -left + " ms ago");
+        }
+        int seconds = (int) Math.min(Integer.MAX_VALUE, (left + 999) / 1000);
+        int timeout = statement.getQueryTimeout();
+        if (timeout != 0 && timeout <= seconds) {
+            return -1;
+        }
+        statement.setQueryTimeout(seconds);
+        return timeout;
+    }
+}
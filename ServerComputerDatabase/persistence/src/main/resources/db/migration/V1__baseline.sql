@@ -0,0 +1,30 @@
+-- The schema of database/1-SCHEMA.sql, as the application was first deployed : a schema created by that script (it has
+-- no schema_version table) is taken as this version without running it.
+
+CREATE TABLE company (
+  id                        bigint not null auto_increment,
+  name                      varchar(255),
+  constraint pk_company primary key (id));
+
+CREATE TABLE computer (
+  id                        bigint not null auto_increment,
+  name                      varchar(255),
+  introduced                timestamp NULL,
+  discontinued              timestamp NULL,
+  company_id                bigint default NULL,
+  constraint pk_computer primary key (id));
+
+ALTER TABLE computer ADD CONSTRAINT fk_computer_company_1 FOREIGN KEY (company_id) REFERENCES company (id)
+  ON DELETE RESTRICT ON UPDATE RESTRICT;
+CREATE INDEX ix_computer_company_1 ON computer (company_id);
+
+CREATE TABLE user (
+  id                        bigint not null auto_increment,
+  username                  varchar(255),
+  password                  varchar(255),
+  role                      varchar(255),
+  constraint pk_user primary key (id));
+
+INSERT INTO user(username, password, role) VALUES
+  ('admin', '8c6976e5b5410415bde908bd4dee15dfb167a9c873fc4bb8a81f6f2ab448a918', 'ROLE_ADMIN'),
+  ('user', '04f8996da763b7a969b1028ee3007569eaf3a635486ddab211d512c85b9df8fb', 'ROLE_USER');
@@ -0,0 +1,7 @@
+-- The dates as datetime : the timestamps could not store the dates before 1970, they were inserted as zero dates,
+-- read as NULL by the application. The zero dates are set to NULL before the change of type, which strict modes refuse
+-- with zero dates.
+UPDATE computer SET introduced = NULL WHERE introduced = 0;
+UPDATE computer SET discontinued = NULL WHERE discontinued = 0;
+
+ALTER TABLE computer MODIFY introduced datetime NULL, MODIFY discontinued datetime NULL;
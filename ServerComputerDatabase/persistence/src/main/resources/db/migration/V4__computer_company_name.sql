@@ -0,0 +1,7 @@
+-- The name of the company of each computer, kept by the services (and repaired by CompanyNameRepair) : the computers
+-- are sorted by company name from the index (company_name, id), without joining the company.
+ALTER TABLE computer
+  ADD COLUMN company_name varchar(255) NULL,
+  ADD INDEX ix_computer_company_name_id (company_name, id);
+
+UPDATE computer c JOIN company co ON co.id = c.company_id SET c.company_name = co.name;
@@ -0,0 +1,16 @@
+-- The ids of the computers and companies, taken by the application by blocks of 50 (pooled-lo : next_val is the first
+-- id of the next block) instead of the auto_increment, so that Hibernate batches the inserts of a transaction.
+-- The blocks start after the ids already given by the auto_increment. The rows inserted without the application must
+-- take their ids here too : the auto_increment would give them ids of a block.
+CREATE TABLE id_generator (
+  name varchar(64) NOT NULL,
+  next_val bigint NOT NULL,
+  CONSTRAINT pk_id_generator PRIMARY KEY (name)
+);
+
+INSERT INTO id_generator (name, next_val)
+  SELECT 'computer', GREATEST(COALESCE(MAX(id), 0) + 1, COALESCE((SELECT AUTO_INCREMENT FROM information_schema.TABLES
+    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'computer'), 1)) FROM computer;
+INSERT INTO id_generator (name, next_val)
+  SELECT 'company', GREATEST(COALESCE(MAX(id), 0) + 1, COALESCE((SELECT AUTO_INCREMENT FROM information_schema.TABLES
+    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'company'), 1)) FROM company;
@@ -0,0 +1,3 @@
+-- The version of each computer, incremented by each update : an update is conditional on the version the computer was
+-- read at (UPDATE ... WHERE id = ? AND version = ?), so that concurrent edits conflict instead of overwriting.
+ALTER TABLE computer ADD COLUMN version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,88 @@
+package com.excilys.computer_database.persistence.migration;
+
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.excilys.computer_database.persistence.statistics.StatementCounter;
+
+/**
+ * Assertions on the plans of the SQL statements, to catch the missing indexes.
+ */
+final class QueryPlans {
+    /** The text before the parameters of a LIMIT. */
+    private static final Pattern LIMIT = Pattern.compile("(?i)limit\\s*(\\d+\\s*,\\s*)?$");
+    /** The text before a parameter compared to a column, the column in group 1. */
+    private static final Pattern COLUMN = Pattern.compile("(?i)(\\w+)\\s*(?:[<>=]+|in\\s*\\([^()]*)\\s*$");
+    /** The text after a selected parameter, its alias in group 1. */
+    private static final Pattern ALIAS = Pattern.compile("(?i)^\\s*as\\s+(\\w+)");
+
+    private QueryPlans() {
+    }
+
+    /**
+     * Record the SQL of the statements run by a call.
+     * @param call The call, run on the current thread
+     * @return The SQL of its statements
+     */
+    static List<String> record(Runnable call) {
+        try (StatementCounter.Snapshot snapshot = StatementCounter.start(true)) {
+            call.run();
+            return snapshot.getSql();
+        }
+    }
+
+    /**
+     * Fail if MySQL plans a statement with a filesort or a temporary table, or with a full scan of a table unless
+     * allowed. The derived tables are not checked : they hold the rows of the parameters, as many as a batch. The
+     * parameters are replaced by the literal of the column they are compared to or of their alias, those of a LIMIT by
+     * 10.
+     * @param jdbc The database
+     * @param sql The SQL of a SELECT, UPDATE or DELETE
+     * @param literals The SQL literals, by column name
+     * @param fullScan True if the statement reads a whole table anyway
+     */
+    static void assertIndexed(JdbcTemplate jdbc, String sql, Map<String, String> literals, boolean fullScan) {
+        String explained = inline(sql, literals);
+        for (Map<String, Object> row : jdbc.queryForList("EXPLAIN " + explained)) {
+            if (String.valueOf(row.get("table")).startsWith("<derived")) {
+                continue;
+            }
+            String extra = String.valueOf(row.get("Extra"));
+            if (extra.contains("filesort") || extra.contains("temporary")
+                    || (!fullScan && "ALL".equals(row.get("type")))) {
+                fail("Not read from an index (" + row.get("table") + " : " + row.get("type") + ", " + extra + ") :\n  "
+                        + explained);
+            }
+        }
+    }
+
+    private static String inline(String sql, Map<String, String> literals) {
+        StringBuilder inlined = new StringBuilder(sql.length() + 64);
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c != '?') {
+                inlined.append(c);
+                continue;
+            }
+            if (LIMIT.matcher(inlined).find()) {
+                inlined.append("10");
+                continue;
+            }
+            Matcher column = COLUMN.matcher(inlined);
+            Matcher alias = ALIAS.matcher(sql.substring(i + 1));
+            String literal = column.find() ? literals.get(column.group(1).toLowerCase())
+                    : alias.find() ? literals.get(alias.group(1).toLowerCase()) : null;
+            if (literal == null) {
+                fail("No literal for the parameter " + inlined + "?");
+            }
+            inlined.append(literal);
+        }
+        return inlined.toString();
+    }
+}
@@ -0,0 +1,148 @@
+package com.excilys.computer_database.persistence.migration;
+
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.excilys.computer_database.core.date.EpochDays;
+import com.excilys.computer_database.core.dto.ComputerDTO;
+import com.excilys.computer_database.core.page.PageCursor;
+import com.excilys.computer_database.persistence.WebAppConfig;
+import com.excilys.computer_database.persistence.dao.ComputerDAO;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * The migrations of the schema, and the indexes they create for the statements of the repositories.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = WebAppConfig.class)
+@WebAppConfiguration
+public class TestSchemaMigrator {
+    private static final String[] SORT_PROPERTIES = { null, "name", "introduced", "discontinued", "company.name" };
+
+    @Autowired
+    SchemaMigrator schemaMigrator;
+    @Autowired
+    ComputerDAO computerDAO;
+    @Autowired
+    HikariDataSource poolDataSource;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void testMigrated() {
+        assertTrue(schemaMigrator.getVersion() >= 3);
+        // Applied when the context started : nothing more to do
+        assertTrue(schemaMigrator.migrate().isEmpty());
+    }
+
+    @Test
+    public void testIndexCoverage() {
+        TransactionTemplate read = new TransactionTemplate(transactionManager);
+        read.setReadOnly(true);
+
+        // The pages, their counts and the seeks in both directions, by each sort key, as the services read them
+        List<String> pages = new ArrayList<>();
+        for (String property : SORT_PROPERTIES) {
+            for (boolean ascending : new boolean[] { true, false }) {
+                pages.addAll(QueryPlans.record(() -> read.execute(status -> {
+                    computerDAO.findPage(property, ascending, 0, 11);
+                    computerDAO.findDTOPage(property, ascending, 20, 11);
+                    computerDAO.count();
+                    List<ComputerDTO> first = computerDAO.findDTOByKeyset(property, ascending, null, 11);
+                    List<ComputerDTO> second = computerDAO.findDTOByKeyset(property, ascending,
+                            cursor(property, ascending, false, first.get(first.size() - 1)), 11);
+                    computerDAO.findByKeyset(property, ascending, cursor(property, ascending, true, second.get(0)),
+                            11);
+                    return null;
+                })));
+            }
+        }
+        // The reads by id, and the statements of the imports and the deletions, rolled back
+        pages.addAll(QueryPlans.record(() -> new TransactionTemplate(transactionManager).execute(status -> {
+            computerDAO.findOne(1L);
+            computerDAO.findByIds(Arrays.asList(1L, 2L));
+            computerDAO.saveBatch(Arrays.asList(new ComputerDTO(null, "MacBook Pro", (LocalDate) null, null, 1L,
+                    null)), true);
+            computerDAO.deleteByIds(new long[] { -1 });
+            computerDAO.deleteByCompanyId(-1, 10);
+            status.setRollbackOnly();
+            return null;
+        })));
+        // Reading all the computers scans the table, in the order of an index
+        List<String> all = QueryPlans.record(() -> read.execute(status -> {
+            computerDAO.findAll();
+            return computerDAO.forEachDTO(computer -> {
+            });
+        }));
+
+        // MySQL reads a table of a few hundred rows by a full scan and a filesort, cheaper than an index : the plans
+        // are explained on a table of a realistic size, copies of the computers
+        JdbcTemplate jdbc = new JdbcTemplate(poolDataSource);
+        try {
+            for (int i = 0; i < 4; i++) {
+                jdbc.update("INSERT INTO computer (name, introduced, discontinued, company_id, company_name)"
+                        + " SELECT CONCAT('index coverage ', name), introduced, discontinued, company_id, company_name"
+                        + " FROM computer");
+            }
+            jdbc.queryForList("ANALYZE TABLE computer");
+
+            // The cursors in the middle of the table
+            Map<String, String> literals = new HashMap<>();
+            literals.put("id", String.valueOf(jdbc.queryForObject("SELECT MAX(id) FROM computer", Long.class) / 2));
+            literals.put("company_id", "1");
+            literals.put("name", "'M'");
+            literals.put("company_name", "'M'");
+            literals.put("introduced", "'1990-01-01'");
+            literals.put("discontinued", "'1990-01-01'");
+            literals.put("position", "0");
+
+            int explained = 0;
+            for (String sql : pages) {
+                if (sql.matches("(?is)\\s*(select|update|delete)\\b.*")) {
+                    QueryPlans.assertIndexed(jdbc, sql, literals, false);
+                    explained++;
+                }
+            }
+            assertTrue(explained > 40);
+            for (String sql : all) {
+                QueryPlans.assertIndexed(jdbc, sql, literals, true);
+            }
+        } finally {
+            jdbc.update("DELETE FROM computer WHERE name LIKE 'index coverage %'");
+            jdbc.queryForList("ANALYZE TABLE computer");
+        }
+    }
+
+    /** @return The cursor of a row, as the services compute it */
+    private static PageCursor cursor(String property, boolean ascending, boolean backward, ComputerDTO row) {
+        Object key;
+        if (property == null) {
+            key = null;
+        } else if ("introduced".equals(property)) {
+            key = (row.getIntroducedDay() == EpochDays.NONE) ? null : row.getIntroducedDay();
+        } else if ("discontinued".equals(property)) {
+            key = (row.getDiscontinuedDay() == EpochDays.NONE) ? null : row.getDiscontinuedDay();
+        } else if ("company.name".equals(property)) {
+            key = row.getCompanyName();
+        } else {
+            key = row.getName();
+        }
+        return new PageCursor(property, ascending, backward, key, row.getId());
+    }
+}
@@ -0,0 +1,160 @@
+package com.excilys.computer_database.persistence.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.codahale.metrics.MetricRegistry;
+import com.excilys.computer_database.persistence.WebAppConfig;
+import com.excilys.computer_database.persistence.dao.ComputerDAO;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * The routing of the read-only transactions to the replicas, the primary standing for them.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = WebAppConfig.class)
+@WebAppConfiguration
+public class TestReplicaRoutingDataSource {
+    @Autowired
+    HikariDataSource poolDataSource;
+    @Autowired
+    MetricRegistry metricRegistry;
+    @Autowired
+    ComputerDAO computerDAO;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void testFallback() {
+        // The read-only transactions of the application : without replica, they fall back to the primary
+        long fallback = gauge("datasource.routing.fallback");
+        TransactionTemplate read = new TransactionTemplate(transactionManager);
+        read.setReadOnly(true);
+        read.execute(status -> computerDAO.count());
+        assertTrue(gauge("datasource.routing.fallback") > fallback);
+    }
+
+    @Test
+    public void testReplicaRouting() throws Exception {
+        AtomicInteger primaryConnections = new AtomicInteger(), replicaConnections = new AtomicInteger();
+        AtomicLong clock = new AtomicLong(), lag = new AtomicLong();
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(counting(primaryConnections),
+                Arrays.asList(counting(replicaConnections)), 2, 0, 1000, clock::get, new MetricRegistry()) {
+            @Override
+            protected long lagSeconds(DataSource replica) {
+                return lag.get();
+            }
+        };
+        // Reads the defaults of the connections on the primary
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        primaryConnections.set(0);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        TransactionTemplate write = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        TransactionTemplate read = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        read.setReadOnly(true);
+        Runnable select = () -> read.execute(status -> jdbc.queryForObject("SELECT COUNT(*) FROM computer",
+                Long.class));
+
+        // Not checked yet
+        select.run();
+        assertEquals(1, primaryConnections.getAndSet(0));
+        routing.checkReplicas();
+        select.run();
+        assertEquals(0, primaryConnections.get());
+        assertEquals(1, replicaConnections.getAndSet(0));
+
+        // Read your writes, for a while
+        Runnable update = () -> jdbc.update("UPDATE computer SET name = name WHERE id = -1");
+        try {
+            ReadYourWrites.setClient("alice");
+            write.execute(status -> {
+                update.run();
+                return null;
+            });
+            select.run();
+            assertEquals(2, primaryConnections.getAndSet(0));
+            ReadYourWrites.setClient("bob");
+            select.run();
+            assertEquals(1, replicaConnections.getAndSet(0));
+            clock.addAndGet(1000);
+            ReadYourWrites.setClient("alice");
+            select.run();
+            assertEquals(1, replicaConnections.getAndSet(0));
+
+            // A read-write transaction which only read
+            write.execute(status -> jdbc.queryForObject("SELECT 1", Integer.class));
+            select.run();
+            assertEquals(1, primaryConnections.getAndSet(0));
+            assertEquals(1, replicaConnections.getAndSet(0));
+
+            // A write longer than the stickiness : counted from its commit
+            write.execute(status -> {
+                update.run();
+                clock.addAndGet(1000);
+                return null;
+            });
+            select.run();
+            assertEquals(2, primaryConnections.getAndSet(0));
+            clock.addAndGet(1000);
+        } finally {
+            ReadYourWrites.setClient(null);
+        }
+
+        // The reads filling the shared caches
+        PrimaryReads.call(() -> {
+            select.run();
+            return null;
+        });
+        assertEquals(1, primaryConnections.getAndSet(0));
+        assertEquals(0, replicaConnections.get());
+
+        // A lagging replica is left
+        lag.set(3);
+        routing.checkReplicas();
+        select.run();
+        assertEquals(1, primaryConnections.getAndSet(0));
+        assertEquals(0, replicaConnections.get());
+        routing.close();
+
+        // The lag read from a server without replication
+        ReplicaRoutingDataSource real = new ReplicaRoutingDataSource(poolDataSource, Arrays.asList(poolDataSource), 2,
+                0, 1000, clock::get, new MetricRegistry());
+        real.checkReplicas();
+        assertEquals(1, real.getReplicasUpToDate());
+    }
+
+    private long gauge(String name) {
+        return ((Number) metricRegistry.getGauges().get(name).getValue()).longValue();
+    }
+
+    private DataSource counting(AtomicInteger connections) {
+        return new DelegatingDataSource(poolDataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                connections.incrementAndGet();
+                return super.getConnection();
+            }
+        };
+    }
+}
@@ -0,0 +1,66 @@
+package com.excilys.computer_database.persistence.statistics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * The window of the recent latencies, on the clock of the test.
+ */
+public class TestOperationMetrics {
+    private final AtomicLong clock = new AtomicLong();
+    private final OperationMetrics metrics = new OperationMetrics(Instrumentation.SERVICE, "Test.call", clock::get);
+
+    @Test
+    public void testWindow() {
+        record(5);
+        assertEquals(5, recent());
+
+        // Kept for the half in progress and the next one
+        seconds(40);
+        record(2);
+        assertEquals(7, recent());
+        seconds(40);
+        assertEquals(2, recent());
+        seconds(40);
+        assertEquals(0, recent());
+    }
+
+    @Test
+    public void testScrapeGap() {
+        // Left undrained for a whole window : of unknown age, dropped
+        record(3);
+        seconds(600);
+        assertEquals(0, recent());
+
+        // Drained on time, they are kept until the window has passed them, read or not
+        record(4);
+        seconds(30);
+        metrics.drain();
+        seconds(20);
+        assertEquals(4, recent());
+        seconds(10);
+        metrics.drain();
+        seconds(30);
+        metrics.drain();
+        seconds(10);
+        assertEquals(0, recent());
+    }
+
+    private long recent() {
+        return metrics.getRecentLatencies().getTotalCount();
+    }
+
+    private void record(int calls) {
+        for (int i = 0; i < calls; i++) {
+            metrics.record(TimeUnit.MILLISECONDS.toNanos(10), 0, false);
+        }
+    }
+
+    private void seconds(long seconds) {
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+}
@@ -4,9 +4,25 @@ import java.util.List;
 
 import com.excilys.computer_database.core.dto.CompanyDTO;
 import com.excilys.computer_database.core.entity.Company;
+import com.excilys.computer_database.core.page.CountStrategy;
 import com.excilys.computer_database.core.page.SimplePage;
 
 public interface CompanyService {
+	/**
+	 * Progress of a company deletion.
+	 */
+	public static interface DeleteListener {
+		/**
+		 * Called after each committed chunk of computers.
+		 * 
+		 * @param companyId
+		 *            The id of the company being deleted
+		 * @param computersDeleted
+		 *            The number of computers deleted so far
+		 */
+		public void progress(long companyId, long computersDeleted);
+	};
+
 	/**
 	 * @return A page containing the companies.
 	 * @param pageNumber
@@ -16,18 +32,51 @@ public interface CompanyService {
 	 */
 	public SimplePage<Company> listSomeCompanies(int pageNumber, int size);
 
+	/**
+	 * @return A page containing the companies, telling the count strategy used in
+	 *         {@link SimplePage#getCountStrategy()}
+	 * @param pageNumber
+	 *            The page number
+	 * @param size
+	 *            The page size
+	 * @param count
+	 *            How to compute the totals, EXACT if null. ESTIMATED falls back to HAS_NEXT when the database has no
+	 *            estimate.
+	 */
+	public SimplePage<Company> listSomeCompanies(int pageNumber, int size, CountStrategy count);
+
 	/**
 	 * @return An Iterable of all the companies
 	 */
 	public Iterable<Company> listAllCompanies();
 
 	/**
-	 * Return the list of all companyDTO
+	 * Return the list of all companyDTO, cached until a company is created or deleted.
 	 * 
-	 * @return Return the list of all companyDTO
+	 * @return Return the list of all companyDTO, unmodifiable and shared : its DTOs must not be modified either
 	 */
 	public List<CompanyDTO> getDTOList() ;
 
+	/**
+	 * Create the company in the DB.
+	 * 
+	 * @param company
+	 *            The company to create
+	 * @return The created company
+	 */
+	public Company createCompany(Company company);
+
+	/**
+	 * Rename a company, and the copy of its name in its computers, in the same transaction.
+	 * 
+	 * @param id
+	 *            The company's id
+	 * @param name
+	 *            Its new name
+	 * @return The renamed company, null if there is none of this id
+	 */
+	public Company rename(Long id, String name);
+
 	/**
 	 * @return The company to find
 	 * @param id
@@ -40,6 +89,19 @@ public interface CompanyService {
 	 * 
 	 * @param id
 	 *            The computer's id to delete
+	 * @return The number of deleted computers
+	 */
+	public long delete(Long id);
+
+	/**
+	 * Delete the corresponding company, and the associated computers. The computers are deleted by chunks, each in its
+	 * own transaction, without loading them : a chunk deleted before a failure stays deleted.
+	 * 
+	 * @param id
+	 *            The company's id to delete
+	 * @param listener
+	 *            Notified after each chunk, can be null
+	 * @return The number of deleted computers
 	 */
-	public void delete(Long id);
+	public long delete(Long id, DeleteListener listener);
 }
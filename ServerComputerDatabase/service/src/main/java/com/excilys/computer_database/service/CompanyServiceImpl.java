@@ -1,60 +1,181 @@
 package com.excilys.computer_database.service;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.excilys.computer_database.core.dto.CompanyDTO;
 import com.excilys.computer_database.core.entity.Company;
+import com.excilys.computer_database.core.page.CountStrategy;
 import com.excilys.computer_database.core.page.SimplePage;
 import com.excilys.computer_database.persistence.dao.CompanyDAO;
 import com.excilys.computer_database.persistence.dao.ComputerDAO;
+import com.excilys.computer_database.persistence.dao.TableStatisticsDAO;
+import com.excilys.computer_database.persistence.routing.PrimaryReads;
+import com.excilys.computer_database.service.cache.CompanyCache;
+import com.excilys.computer_database.service.cache.CountCache;
+import com.excilys.computer_database.service.event.CompanyChangedEvent;
+import com.excilys.computer_database.service.event.ComputerChangedEvent;
 
 @Service("companyService")
 @Transactional
 public class CompanyServiceImpl implements CompanyService{
+	private static final Logger LOGGER = LoggerFactory.getLogger(CompanyServiceImpl.class);
+	/** Default number of computers deleted per transaction. */
+	public static final int DELETE_CHUNK = 1000;
 
 	@Autowired
 	private CompanyDAO companyDAO;
 	@Autowired
 	private ComputerDAO computerDAO;
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	@Autowired
+	private CompanyCache companyCache;
+	@Autowired
+	private CountCache countCache;
+	@Autowired
+	private TableStatisticsDAO tableStatisticsDAO;
+
+	private int deleteChunk = DELETE_CHUNK;
 
 	/** Default constructor. */
 	public CompanyServiceImpl() { }
 
+	@Transactional(readOnly = true)
 	public SimplePage<Company> listSomeCompanies(int pageNumber, int size) {
-		Page<Company> page = companyDAO.findAll(new PageRequest(pageNumber, size));
-		return new SimplePage<Company>(page.getContent(), pageNumber, size, (int) page.getTotalElements(),
-				page.getTotalPages());
+		return listSomeCompanies(pageNumber, size, CountStrategy.EXACT);
+	}
+
+	@Transactional(readOnly = true)
+	public SimplePage<Company> listSomeCompanies(int pageNumber, int size, CountStrategy count) {
+		if (count == null || count == CountStrategy.EXACT) {
+			Page<Company> page = companyDAO.findAll(new PageRequest(pageNumber, size));
+			SimplePage<Company> result = new SimplePage<Company>(page.getContent(), pageNumber, size,
+					(int) page.getTotalElements(), page.getTotalPages());
+			result.setCountStrategy(CountStrategy.EXACT);
+			result.setHasNext(page.hasNext());
+			return result;
+		}
+
+		Slice<Company> slice = companyDAO.findSlice(new PageRequest(pageNumber, size));
+		long total;
+		switch (count) {
+		case CACHED:
+			total = countCache.get(CountCache.COMPANIES, "", companyDAO::count);
+			break;
+		case ESTIMATED:
+			Long estimate = tableStatisticsDAO.estimateRowCount(CountCache.COMPANIES);
+			if (estimate == null) {
+				count = CountStrategy.HAS_NEXT;
+				total = SimplePage.UNKNOWN;
+			} else {
+				// Not less than the rows known to exist
+				total = Math.max(estimate,
+						(long) pageNumber * size + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0));
+			}
+			break;
+		case HAS_NEXT:
+		default:
+			total = SimplePage.UNKNOWN;
+			break;
+		}
+
+		SimplePage<Company> result = new SimplePage<Company>(slice.getContent(), pageNumber, size, (int) total,
+				(total == SimplePage.UNKNOWN) ? SimplePage.UNKNOWN : (int) ((total + size - 1) / size));
+		result.setCountStrategy(count);
+		result.setHasNext(slice.hasNext());
+		return result;
 	}
 
+	@Transactional(readOnly = true)
 	public Iterable<Company> listAllCompanies() {
-		return companyDAO.findAll();
+		// Kept in the query cache : not from a lagging replica
+		return PrimaryReads.call(companyDAO::findAllCached);
 	}
 
+	@Transactional(readOnly = true)
 	public List<CompanyDTO> getDTOList() {
-		Iterable<Company> companies = listAllCompanies();
-		List<CompanyDTO> dtoList = new LinkedList<CompanyDTO>();
-		for (Company company : companies) {
-			dtoList.add(new CompanyDTO(company));
-		}
+		return companyCache.getDTOList(() -> {
+			List<CompanyDTO> dtoList = new ArrayList<CompanyDTO>();
+			for (Company company : listAllCompanies()) {
+				dtoList.add(new CompanyDTO(company));
+			}
+			return dtoList;
+		});
+	}
 
-		return dtoList;
+	public Company createCompany(Company company) {
+		Company created = companyDAO.save(company);
+		eventPublisher.publishEvent(new CompanyChangedEvent(CompanyChangedEvent.Type.CREATED, created.getId()));
+		return created;
 	}
 
-	public void delete(Long id) {
-		// Delete related computers
-		computerDAO.removeByCompany_Id(id);
+	public Company rename(Long id, String name) {
+		Company company = companyDAO.findOne(id);
+		if (company == null) {
+			return null;
+		}
+		company.setName(name);
+		int computers = computerDAO.updateCompanyName(id, name);
+		LOGGER.debug("Company {} renamed, with {} computers", id, computers);
+		eventPublisher.publishEvent(new CompanyChangedEvent(CompanyChangedEvent.Type.RENAMED, id));
+		// The company name of its computers was written in bulk : nothing else of them
+		eventPublisher.publishEvent(ComputerChangedEvent.companyRenamed(id, name));
+		return company;
+	}
 
-		// Delete the company
-		companyDAO.delete(id);
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public long delete(Long id) {
+		return delete(id, null);
 	}
 
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public long delete(final Long id, DeleteListener listener) {
+		TransactionTemplate chunkTransaction = new TransactionTemplate(transactionManager);
+		chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+		// Delete related computers, a chunk per transaction to keep the locks short
+		long deleted = 0;
+		int chunk;
+		do {
+			chunk = chunkTransaction.execute(status -> computerDAO.deleteByCompanyId(id, deleteChunk));
+			deleted += chunk;
+			LOGGER.debug("Company {} : {} computers deleted", id, deleted);
+			if (listener != null) {
+				listener.progress(id, deleted);
+			}
+		} while (chunk == deleteChunk);
+
+		// Delete the company, with the computers added meanwhile
+		deleted += chunkTransaction.execute(status -> {
+			int late = computerDAO.deleteByCompanyId(id, Integer.MAX_VALUE);
+			companyDAO.delete(id);
+			eventPublisher.publishEvent(ComputerChangedEvent.companyDeleted(id));
+			eventPublisher.publishEvent(new CompanyChangedEvent(CompanyChangedEvent.Type.DELETED, id));
+			return late;
+		});
+
+		LOGGER.info("Company {} deleted with {} computers", id, deleted);
+		return deleted;
+	}
+
+	@Transactional(readOnly = true)
 	public Company find(Long id) {
 		return companyDAO.findOne(id);
 	}
@@ -77,6 +198,14 @@ public class CompanyServiceImpl implements CompanyService{
 		this.companyDAO = companyDAO;
 	}
 
+	/**
+	 * @param deleteChunk
+	 *            The number of computers deleted per transaction when deleting a company
+	 */
+	public void setDeleteChunk(int deleteChunk) {
+		this.deleteChunk = deleteChunk;
+	}
+
 	/**
 	 * @return the computerDAO
 	 */
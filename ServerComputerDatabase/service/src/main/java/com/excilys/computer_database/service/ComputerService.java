@@ -1,15 +1,26 @@
 package com.excilys.computer_database.service;
 
+import java.util.function.Consumer;
+
 import org.springframework.data.domain.Sort.Direction;
 
 import com.excilys.computer_database.core.dto.ComputerDTO;
 import com.excilys.computer_database.core.entity.Computer;
+import com.excilys.computer_database.core.page.CountStrategy;
 import com.excilys.computer_database.core.page.SimplePage;
+import com.excilys.computer_database.persistence.DAOException;
 
 public interface ComputerService {
 	public static enum COLUMN {
 		COMPUTER_NAME, INTRODUCED, DISCONTINUED, COMPANY_NAME
 	};
+
+	/**
+	 * The result of an update : CONFLICT if the computer was updated since it was read, and was left unchanged.
+	 */
+	public static enum UpdateResult {
+		UPDATED, CONFLICT
+	};
 	
 	/**
 	 * @param id
@@ -20,6 +31,28 @@ public interface ComputerService {
 
 	public SimplePage<Computer> listComputers(COLUMN column, Direction direction, String search, int page, int size);
 
+	/**
+	 * Offset pagination of the computers.
+	 * 
+	 * @param column
+	 *            The sorted column, null to sort by id
+	 * @param direction
+	 *            The sort direction, ascending if null
+	 * @param search
+	 *            The text to look for in the computer and company names, can be null
+	 * @param page
+	 *            The page number, from 0
+	 * @param size
+	 *            The page size
+	 * @param count
+	 *            How to compute the totals, EXACT if null. A search is always counted exactly, by the search index ;
+	 *            ESTIMATED falls back to HAS_NEXT when the database has no estimate.
+	 * @return The page, telling the strategy used in {@link SimplePage#getCountStrategy()}. Its totals are
+	 *         {@link SimplePage#UNKNOWN} with HAS_NEXT.
+	 */
+	public SimplePage<Computer> listComputers(COLUMN column, Direction direction, String search, int page, int size,
+			CountStrategy count);
+
 	/**
 	 * @param begining
 	 * @param nbPerPage
@@ -30,6 +63,36 @@ public interface ComputerService {
 	 */
 	public SimplePage<ComputerDTO> listComputersDTO(COLUMN column, Direction direction, String search, int page, int size);
 
+	/**
+	 * DTO version of {@link #listComputers(COLUMN, Direction, String, int, int, CountStrategy)}.
+	 */
+	public SimplePage<ComputerDTO> listComputersDTO(COLUMN column, Direction direction, String search, int page,
+			int size, CountStrategy count);
+
+	/**
+	 * Keyset (seek) pagination of the computers : a page costs the same whatever its position.
+	 * 
+	 * @param column
+	 *            The sorted column, null to sort by id
+	 * @param direction
+	 *            The sort direction, ascending if null
+	 * @param search
+	 *            The text to look for in the computer and company names, can be null
+	 * @param cursor
+	 *            A token from {@link SimplePage#getNextCursor()} or {@link SimplePage#getPrevCursor()}, null or
+	 *            empty for the first page. A token computed for another sort is ignored.
+	 * @param size
+	 *            The page size
+	 * @return The page, with its cursors. Its page number and totals are {@link SimplePage#UNKNOWN}.
+	 */
+	public SimplePage<Computer> seekComputers(COLUMN column, Direction direction, String search, String cursor, int size);
+
+	/**
+	 * DTO version of {@link #seekComputers(COLUMN, Direction, String, String, int)}.
+	 */
+	public SimplePage<ComputerDTO> seekComputersDTO(COLUMN column, Direction direction, String search, String cursor,
+			int size);
+
 	public String getColumn(COLUMN col);
 
 	/**
@@ -40,15 +103,38 @@ public interface ComputerService {
 	public Iterable<Computer> listAllComputers();
 
 	/**
-	 * Update the computer in the DB.
+	 * Read all the computers, ordered by id, without holding them in memory : for the exports of the whole catalog.
+	 * 
+	 * @param action
+	 *            Called for each computer, in a read-only transaction
+	 * @return The number of computers read
+	 */
+	public long exportComputers(Consumer<ComputerDTO> action);
+
+	/**
+	 * Update the computer in the DB, if it was not updated since it was read : a single UPDATE, conditional on its
+	 * version. Read the computer again to retry a conflict.
 	 * 
 	 * @param comp
-	 *            The computer to update
-	 * @return The computer
+	 *            The computer to update, with the version it was read at : set to its new version when updated
+	 * @return UPDATED, or CONFLICT if the computer was updated since
+	 * @throws DAOException
+	 *             If there is no computer of this id
 	 */
-	public Computer update(Computer comp);
+	public UpdateResult update(Computer comp);
 
-	public Computer update(ComputerDTO comp);
+	public UpdateResult update(ComputerDTO comp);
+
+	/**
+	 * Update the computer in the DB whatever its version : a single UPDATE, for the clients that don't send the
+	 * version they read.
+	 * 
+	 * @param comp
+	 *            The computer to update : set to its new version
+	 * @throws DAOException
+	 *             If there is no computer of this id
+	 */
+	public void overwrite(Computer comp);
 
 	/**
 	 * Create the computer in the DB.
@@ -77,5 +163,12 @@ public interface ComputerService {
 	 */
 	public void delete(Long id);
 
-	public void deleteComputerList(Long[] idList);
+	/**
+	 * Delete some computers at once, with a few set-based statements.
+	 * 
+	 * @param idList
+	 *            The ids of the computers to delete
+	 * @return The number of deleted computers
+	 */
+	public int deleteComputerList(long[] idList);
 }
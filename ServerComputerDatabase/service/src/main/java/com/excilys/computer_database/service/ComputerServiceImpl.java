@@ -1,22 +1,35 @@
 package com.excilys.computer_database.service;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.excilys.computer_database.binding.ComputerDTOMapper;
+import com.excilys.computer_database.core.date.EpochDays;
 import com.excilys.computer_database.core.dto.ComputerDTO;
 import com.excilys.computer_database.core.entity.Company;
 import com.excilys.computer_database.core.entity.Computer;
+import com.excilys.computer_database.core.page.CountStrategy;
+import com.excilys.computer_database.core.page.PageCursor;
 import com.excilys.computer_database.core.page.SimplePage;
 import com.excilys.computer_database.persistence.DAOException;
+import com.excilys.computer_database.persistence.dao.CompanyDAO;
 import com.excilys.computer_database.persistence.dao.ComputerDAO;
+import com.excilys.computer_database.persistence.dao.TableStatisticsDAO;
+import com.excilys.computer_database.service.cache.CountCache;
+import com.excilys.computer_database.service.event.ComputerChangedEvent;
+import com.excilys.computer_database.service.search.ComputerSearchIndex;
+import com.excilys.computer_database.service.search.SearchDocument;
+import com.excilys.computer_database.service.search.SearchMatches;
 
 @Service
 @Transactional
@@ -25,40 +38,311 @@ public class ComputerServiceImpl implements ComputerService {
 	@Autowired
 	private ComputerDAO computerDAO;
 	@Autowired
+	private CompanyDAO companyDAO;
+	@Autowired
 	private ComputerDTOMapper computerDTOMapper;
+	@Autowired
+	private ComputerSearchIndex searchIndex;
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+	@Autowired
+	private CountCache countCache;
+	@Autowired
+	private TableStatisticsDAO tableStatisticsDAO;
 
+	@Transactional(readOnly = true)
 	public Computer getComputerById(Long id) {
 		return computerDAO.findOne(id);
 	}
 
+	@Transactional(readOnly = true)
 	public SimplePage<Computer> listComputers(COLUMN column, Direction direction, String search, int page, int size) {
-		PageRequest r;
-		if (column == null) {
-			r = new PageRequest(page, size);
-		} else {
-			r = new PageRequest(page, size, direction, getColumn(column));
+		return listComputers(column, direction, search, page, size, CountStrategy.EXACT);
+	}
+
+	@Transactional(readOnly = true)
+	public SimplePage<Computer> listComputers(COLUMN column, Direction direction, String search, int page, int size,
+			CountStrategy count) {
+		return list(entities, column, direction, search, page, size, count);
+	}
+
+	@Transactional(readOnly = true)
+	public SimplePage<ComputerDTO> listComputersDTO(COLUMN column, Direction direction, String search, int page,
+			int size) {
+		return listComputersDTO(column, direction, search, page, size, CountStrategy.EXACT);
+	}
+
+	@Transactional(readOnly = true)
+	public SimplePage<ComputerDTO> listComputersDTO(COLUMN column, Direction direction, String search, int page,
+			int size, CountStrategy count) {
+		return list(dtos, column, direction, search, page, size, count);
+	}
+
+	@Transactional(readOnly = true)
+	public SimplePage<Computer> seekComputers(COLUMN column, Direction direction, String search, String cursor,
+			int size) {
+		return seek(entities, column, direction, search, cursor, size);
+	}
+
+	@Transactional(readOnly = true)
+	public SimplePage<ComputerDTO> seekComputersDTO(COLUMN column, Direction direction, String search, String cursor,
+			int size) {
+		return seek(dtos, column, direction, search, cursor, size);
+	}
+
+	/**
+	 * Where the listed rows come from : the entities, or their DTO projection for the read-only pages.
+	 */
+	private interface Rows<T> {
+		List<T> page(String property, boolean ascending, int offset, int limit);
+
+		List<T> keyset(String property, boolean ascending, PageCursor cursor, int limit);
+
+		/** @return The rows of these ids, in no particular order */
+		List<T> byIds(Collection<Long> ids);
+
+		long id(T row);
+
+		/** @return The value of the sorted column (dates as epoch days), null if sorted by id */
+		Object sortKey(T row, COLUMN column);
+	}
+
+	private final Rows<Computer> entities = new Rows<Computer>() {
+		public List<Computer> page(String property, boolean ascending, int offset, int limit) {
+			return computerDAO.findPage(property, ascending, offset, limit);
 		}
 
-		Page<Computer> p;
-		if (search == null || search.isEmpty()) {
-			p = computerDAO.findAll(r);
-		} else {
-			p = computerDAO.findByNameOrCompany_Name(search, search, r);
+		public List<Computer> keyset(String property, boolean ascending, PageCursor cursor, int limit) {
+			return computerDAO.findByKeyset(property, ascending, cursor, limit);
+		}
+
+		public List<Computer> byIds(Collection<Long> ids) {
+			return computerDAO.findByIds(ids);
+		}
+
+		public long id(Computer c) {
+			return c.getId();
+		}
+
+		public Object sortKey(Computer c, COLUMN column) {
+			switch (column) {
+			case INTRODUCED:
+				return dateKey(c.getIntroduced());
+			case DISCONTINUED:
+				return dateKey(c.getDiscontinued());
+			case COMPANY_NAME:
+				return c.getCompanyName();
+			case COMPUTER_NAME:
+			default:
+				return c.getName();
+			}
+		}
+	};
+
+	private final Rows<ComputerDTO> dtos = new Rows<ComputerDTO>() {
+		public List<ComputerDTO> page(String property, boolean ascending, int offset, int limit) {
+			return computerDAO.findDTOPage(property, ascending, offset, limit);
+		}
+
+		public List<ComputerDTO> keyset(String property, boolean ascending, PageCursor cursor, int limit) {
+			return computerDAO.findDTOByKeyset(property, ascending, cursor, limit);
+		}
+
+		public List<ComputerDTO> byIds(Collection<Long> ids) {
+			return computerDAO.findDTOByIds(ids);
+		}
+
+		public long id(ComputerDTO c) {
+			return c.getId();
 		}
-		return new SimplePage<>(p.getContent(), page, size, p.getNumberOfElements(), p.getTotalPages());
+
+		public Object sortKey(ComputerDTO c, COLUMN column) {
+			switch (column) {
+			case INTRODUCED:
+				return dateKey(c.getIntroducedDay());
+			case DISCONTINUED:
+				return dateKey(c.getDiscontinuedDay());
+			case COMPANY_NAME:
+				return c.getCompanyName();
+			case COMPUTER_NAME:
+			default:
+				return c.getName();
+			}
+		}
+	};
+
+	/** Offset pagination, see {@link #listComputers(COLUMN, Direction, String, int, int, CountStrategy)}. */
+	private <T> SimplePage<T> list(Rows<T> source, COLUMN column, Direction direction, String search, int page,
+			int size, CountStrategy count) {
+		boolean ascending = direction != Direction.DESC;
+		if (search != null && !search.isEmpty()) {
+			// The index counts the matches for free
+			SearchMatches matches = searchIndex.search(search, column, ascending, page * size, size);
+			int total = matches.getTotal();
+			SimplePage<T> result = new SimplePage<>(load(source, matches.getPage()), page, size, total,
+					pageCount(total, size));
+			result.setCountStrategy(CountStrategy.EXACT);
+			setCursors(source, result, column, direction, matches.hasPrevious(), matches.hasNext());
+			return result;
+		}
+
+		// One more row tells if there is a next page
+		String property = (column == null) ? null : getColumn(column);
+		List<T> rows = new ArrayList<>(source.page(property, ascending, page * size, size + 1));
+		boolean hasNext = rows.size() > size;
+		if (hasNext) {
+			rows.remove(size);
+		}
+
+		if (count == null) {
+			count = CountStrategy.EXACT;
+		}
+		long total;
+		switch (count) {
+		case EXACT:
+			total = computerDAO.count();
+			break;
+		case CACHED:
+			total = countCache.get(CountCache.COMPUTERS, "", computerDAO::count);
+			break;
+		case ESTIMATED:
+			Long estimate = tableStatisticsDAO.estimateRowCount(CountCache.COMPUTERS);
+			if (estimate == null) {
+				count = CountStrategy.HAS_NEXT;
+				total = SimplePage.UNKNOWN;
+			} else {
+				// Not less than the rows known to exist
+				total = Math.max(estimate, (long) page * size + rows.size() + (hasNext ? 1 : 0));
+			}
+			break;
+		case HAS_NEXT:
+		default:
+			total = SimplePage.UNKNOWN;
+			break;
+		}
+
+		SimplePage<T> result = new SimplePage<>(rows, page, size, (int) total,
+				(total == SimplePage.UNKNOWN) ? SimplePage.UNKNOWN : pageCount(total, size));
+		result.setCountStrategy(count);
+		// Let the client switch to the keyset pagination from there
+		setCursors(source, result, column, direction, page > 0, hasNext);
+		return result;
 	}
 
-	public SimplePage<ComputerDTO> listComputersDTO(COLUMN column, Direction direction, String search, int page,
+	/** Keyset pagination, see {@link #seekComputers(COLUMN, Direction, String, String, int)}. */
+	private <T> SimplePage<T> seek(Rows<T> source, COLUMN column, Direction direction, String search, String cursor,
 			int size) {
-		SimplePage<Computer> computers = listComputers(column, direction, search, page, size);
-		List<ComputerDTO> list = new LinkedList<ComputerDTO>();
+		String property = (column == null) ? null : getColumn(column);
+		boolean ascending = direction != Direction.DESC;
+		PageCursor from = decodeCursor(cursor, property, ascending);
+		if (search != null && !search.isEmpty()) {
+			SearchMatches matches = searchIndex.seek(search, column, ascending, (from == null) ? null : from.getId(),
+					from != null && from.isBackward(), size);
+			SimplePage<T> result = new SimplePage<>(load(source, matches.getPage()), SimplePage.UNKNOWN, size,
+					SimplePage.UNKNOWN, SimplePage.UNKNOWN);
+			result.setCountStrategy(CountStrategy.HAS_NEXT);
+			setCursors(source, result, column, direction, matches.hasPrevious(), matches.hasNext());
+			return result;
+		}
+
+		// One more row tells if there is a page beyond this one
+		List<T> rows = new ArrayList<>(source.keyset(property, ascending, from, size + 1));
+		boolean hasMore = rows.size() > size;
+		boolean hasPrevious, hasNext;
+		if (from != null && from.isBackward()) {
+			// The extra row is the farthest from the cursor : the first one
+			if (hasMore) {
+				rows.remove(0);
+			}
+			hasPrevious = hasMore;
+			hasNext = true;
+		} else {
+			if (hasMore) {
+				rows.remove(rows.size() - 1);
+			}
+			hasPrevious = from != null;
+			hasNext = hasMore;
+		}
+
+		SimplePage<T> result = new SimplePage<>(rows, SimplePage.UNKNOWN, size, SimplePage.UNKNOWN,
+				SimplePage.UNKNOWN);
+		result.setCountStrategy(CountStrategy.HAS_NEXT);
+		setCursors(source, result, column, direction, hasPrevious, hasNext);
+		return result;
+	}
+
+	/**
+	 * Load the rows of some search matches.
+	 * 
+	 * @return The rows, in the order of the matches
+	 */
+	private <T> List<T> load(Rows<T> source, List<SearchDocument> matches) {
+		List<Long> ids = new ArrayList<>(matches.size());
+		for (SearchDocument d : matches) {
+			ids.add(d.getId());
+		}
+		Map<Long, T> byId = new HashMap<>();
+		for (T row : source.byIds(ids)) {
+			byId.put(source.id(row), row);
+		}
+		List<T> rows = new ArrayList<>(ids.size());
+		for (Long id : ids) {
+			// Deleted since the search, if missing
+			if (byId.containsKey(id)) {
+				rows.add(byId.get(id));
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Decode a cursor token.
+	 * 
+	 * @return The cursor, or null (first page) if the token is absent, malformed or computed for another sort
+	 */
+	private PageCursor decodeCursor(String token, String property, boolean ascending) {
+		if (token == null || token.isEmpty()) {
+			return null;
+		}
+		try {
+			PageCursor cursor = PageCursor.decode(token);
+			return cursor.matches(property, ascending) ? cursor : null;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/** @return The number of pages of this size needed for this number of elements */
+	private static int pageCount(long total, int size) {
+		return (int) ((total + size - 1) / size);
+	}
 
-		for (Computer c : computers.getList()) {
-			list.add(computerDTOMapper.unmap(c));
+	/** @return The cursor key of a date : its epoch day, null if none */
+	private static Long dateKey(long epochDay) {
+		return (epochDay == EpochDays.NONE) ? null : epochDay;
+	}
+
+	/** Set the cursors seeking the pages around the page's rows. */
+	private <T> void setCursors(Rows<T> source, SimplePage<T> page, COLUMN column, Direction direction,
+			boolean hasPrevious, boolean hasNext) {
+		page.setHasNext(hasNext);
+		List<T> rows = page.getList();
+		if (rows.isEmpty()) {
+			return;
 		}
+		String property = (column == null) ? null : getColumn(column);
+		boolean ascending = direction != Direction.DESC;
 
-		return new SimplePage<>(list, computers.getPageNumber(), computers.getSize(), computers.getElementTotalCount(),
-				computers.getPageNumber());
+		if (hasPrevious) {
+			T first = rows.get(0);
+			Object key = (column == null) ? null : source.sortKey(first, column);
+			page.setPrevCursor(new PageCursor(property, ascending, true, key, source.id(first)).encode());
+		}
+		if (hasNext) {
+			T last = rows.get(rows.size() - 1);
+			Object key = (column == null) ? null : source.sortKey(last, column);
+			page.setNextCursor(new PageCursor(property, ascending, false, key, source.id(last)).encode());
+		}
 	}
 
 	public String getColumn(COLUMN col) {
@@ -76,57 +360,89 @@ public class ComputerServiceImpl implements ComputerService {
 		}
 	}
 
+	@Transactional(readOnly = true)
 	public Iterable<Computer> listAllComputers() {
 		return computerDAO.findAll();
 	}
 
-	public Computer update(Computer comp) {
-		// Find the computer
-		Computer c = this.getComputerById(comp.getId());
+	@Transactional(readOnly = true)
+	public long exportComputers(Consumer<ComputerDTO> action) {
+		return computerDAO.forEachDTO(action);
+	}
 
-		if (c == null) {
-			throw new DAOException("No computer for id " + comp.getId());
+	public UpdateResult update(Computer comp) {
+		comp.setCompanyName(companyName(comp.getCompany()));
+		if (!computerDAO.updateIfVersion(comp)) {
+			// Only a failed update reads the computer, to tell a conflict from an unknown id
+			if (!computerDAO.exists(comp.getId())) {
+				throw new DAOException("No computer for id " + comp.getId());
+			}
+			return UpdateResult.CONFLICT;
 		}
+		comp.setVersion(comp.getVersion() + 1);
 
-		// Update its attributs
-		c.setName(comp.getName());
-		c.setIntroduced(comp.getIntroduced());
-		c.setDiscontinued(comp.getDiscontinued());
-		c.setCompany(comp.getCompany());
-
-		return comp;
+		eventPublisher.publishEvent(ComputerChangedEvent.saved(comp));
+		return UpdateResult.UPDATED;
 	}
 
 	@Transactional(rollbackFor = DAOException.class)
-	public Computer update(ComputerDTO comp) {
+	public UpdateResult update(ComputerDTO comp) {
 		return update(computerDTOMapper.map(comp));
 	}
 
+	public void overwrite(Computer comp) {
+		comp.setCompanyName(companyName(comp.getCompany()));
+		long version = computerDAO.overwrite(comp);
+		if (version < 0) {
+			throw new DAOException("No computer for id " + comp.getId());
+		}
+		comp.setVersion(version);
+
+		eventPublisher.publishEvent(ComputerChangedEvent.saved(comp));
+	}
+
 	public Computer createComputer(Computer computer) {
-		return computerDAO.save(computer);
+		computer.setCompanyName(companyName(computer.getCompany()));
+		Computer created = computerDAO.save(computer);
+		eventPublisher.publishEvent(ComputerChangedEvent.saved(created));
+		return created;
 	}
 
 	public Computer createComputer(ComputerDTO comp) {
-		Computer c = new Computer.ComputerBuilder(comp.getName()).introduced(comp.getIntroduced())
-				.discontinued(comp.getDiscontinued())
+		Computer c = new Computer.ComputerBuilder(comp.getName()).introduced(comp.getIntroducedDay())
+				.discontinued(comp.getDiscontinuedDay())
 				.company((comp.getCompanyId() != null) ? new Company(comp.getCompanyId(), comp.getCompanyName()) : null)
 				.build();
 		return createComputer(c);
 	}
 
+	/**
+	 * @param company
+	 *            The company of a written computer, which may only carry its id
+	 * @return The name of the company as stored (from the second level cache), copied in the computer. Null if none.
+	 */
+	private String companyName(Company company) {
+		if (company == null || company.getId() == null) {
+			return null;
+		}
+		Company stored = companyDAO.findOne(company.getId());
+		return (stored == null) ? null : stored.getName();
+	}
+
 	public void delete(Computer comp) {
 		computerDAO.delete(comp);
+		eventPublisher.publishEvent(ComputerChangedEvent.deleted(comp.getId()));
 	}
 
 	public void delete(Long id) {
 		computerDAO.delete(id);
+		eventPublisher.publishEvent(ComputerChangedEvent.deleted(id));
 	}
 
-	public void deleteComputerList(Long[] idList) {
-		// TODO : Improve the complexity (too many separated request)
-		for (Long l : idList) {
-			computerDAO.delete(l);
-		}
+	public int deleteComputerList(long[] idList) {
+		int deleted = computerDAO.deleteByIds(idList);
+		eventPublisher.publishEvent(ComputerChangedEvent.deleted(idList.clone()));
+		return deleted;
 	}
 
 	/**
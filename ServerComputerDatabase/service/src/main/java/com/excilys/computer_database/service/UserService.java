@@ -1,9 +1,11 @@
 package com.excilys.computer_database.service;
 
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -12,22 +14,77 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 import com.excilys.computer_database.core.entity.User;
 import com.excilys.computer_database.persistence.dao.UserDAO;
+import com.excilys.computer_database.persistence.routing.PrimaryReads;
+import com.excilys.computer_database.service.cache.UserDetailsCache;
+import com.excilys.computer_database.service.event.UserChangedEvent;
 
+/**
+ * The users of the authentication, read through the {@link UserDetailsCache}.
+ */
 public class UserService implements UserDetailsService {
 
     @Autowired
     private UserDAO userDAO;
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userDAO.findByUsername(username);
+        UserDetails user = userDetailsCache.get(username, this::findUser);
+        if (user == null) {
+            throw new UsernameNotFoundException("Unknown user : " + username);
+        }
+        return user;
+    }
+
+    /**
+     * Change the password of a user.
+     * @param username The username
+     * @param encodedPassword The new password, encoded in sha-256 as the stored ones
+     * @throws UsernameNotFoundException If there is no such user
+     */
+    public void changePassword(String username, String encodedPassword) throws UsernameNotFoundException {
+        update(username, user -> user.setPassword(encodedPassword));
+    }
+
+    /**
+     * Change the role of a user.
+     * @param username The username
+     * @param role The new role, as ROLE_ADMIN
+     * @throws UsernameNotFoundException If there is no such user
+     */
+    public void changeRole(String username, String role) throws UsernameNotFoundException {
+        update(username, user -> user.setRole(role));
+    }
 
-        // List the GrandedAuthority
-        List<GrantedAuthority> authorities = new LinkedList<>();
-        authorities.add(new SimpleGrantedAuthority(user.getRole()));
+    /**
+     * Write a user, then drop it from the cache once committed.
+     */
+    private void update(String username, Consumer<User> change) {
+        User user = userDAO.findByUsername(username);
+        if (user == null) {
+            throw new UsernameNotFoundException("Unknown user : " + username);
+        }
+        change.accept(user);
+        userDAO.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(username));
+    }
 
-        // Creating the User
-        return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(), authorities);
+    /**
+     * @return The user in the database, null if unknown. Read on the primary : cached, it must not be older than the
+     *         last change of the user
+     */
+    private UserDetails findUser(String username) {
+        User user = PrimaryReads.call(() -> userDAO.findByUsername(username));
+        if (user == null) {
+            return null;
+        }
+        List<GrantedAuthority> authorities = (user.getRole() == null) ? Collections.emptyList()
+                : Collections.singletonList(new SimpleGrantedAuthority(user.getRole()));
+        return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(),
+                authorities);
     }
 
     /**
@@ -44,5 +101,10 @@ public class UserService implements UserDetailsService {
         this.userDAO = userDAO;
     }
 
-
+    /**
+     * @param userDetailsCache the userDetailsCache to set
+     */
+    public void setUserDetailsCache(UserDetailsCache userDetailsCache) {
+        this.userDetailsCache = userDetailsCache;
+    }
 }
@@ -0,0 +1,106 @@
+package com.excilys.computer_database.service.cache;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.excilys.computer_database.core.dto.CompanyDTO;
+import com.excilys.computer_database.core.entity.Company;
+import com.excilys.computer_database.service.event.CompanyChangedEvent;
+
+/**
+ * Cache of the company DTO list shown by the computer forms, dropped once a company write has committed.
+ *
+ * The Company entities and the query listing them are cached by Hibernate (see ehcache.xml) : the hits and misses of
+ * the three caches are published in the metric registry, under "companies.".
+ */
+@Component
+public class CompanyCache {
+	@Autowired
+	private MetricRegistry metricRegistry;
+	@PersistenceUnit
+	private EntityManagerFactory entityManagerFactory;
+
+	/**
+	 * The cached DTO list. Replaced by a new generation on each invalidation : a list is cached only in the generation
+	 * it was loaded in, by a compare and set, so a list loaded before an invalidation is never cached after it.
+	 */
+	private final AtomicReference<Generation> generation = new AtomicReference<>(new Generation(null));
+	private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+
+	/**
+	 * The DTO list of a generation, null when it must be loaded again.
+	 */
+	private static final class Generation {
+		private final List<CompanyDTO> dtoList;
+
+		Generation(List<CompanyDTO> dtoList) {
+			this.dtoList = dtoList;
+		}
+	}
+
+	/**
+	 * @param loader
+	 *            Load the list, on a miss
+	 * @return The cached list, unmodifiable
+	 */
+	public List<CompanyDTO> getDTOList(Supplier<List<CompanyDTO>> loader) {
+		Generation current = generation.get();
+		if (current.dtoList != null) {
+			hits.increment();
+			return current.dtoList;
+		}
+		misses.increment();
+
+		List<CompanyDTO> list = Collections.unmodifiableList(loader.get());
+		// Cache it unless a company was written meanwhile
+		generation.compareAndSet(current, new Generation(list));
+		return list;
+	}
+
+	/**
+	 * Drop the cached list once a company write has committed.
+	 *
+	 * @param event
+	 *            The write
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCompanyChanged(CompanyChangedEvent event) {
+		generation.set(new Generation(null));
+	}
+
+	/** Publish the hits and misses of the company caches. */
+	@PostConstruct
+	public void registerMetrics() {
+		final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		final String region = Company.class.getName();
+
+		metricRegistry.register("companies.dto-list.hits", (Gauge<Long>) hits::sum);
+		metricRegistry.register("companies.dto-list.misses", (Gauge<Long>) misses::sum);
+		metricRegistry.register("companies.entity-cache.hits", (Gauge<Long>) () -> {
+			SecondLevelCacheStatistics s = statistics.getSecondLevelCacheStatistics(region);
+			return (s == null) ? 0 : s.getHitCount();
+		});
+		metricRegistry.register("companies.entity-cache.misses", (Gauge<Long>) () -> {
+			SecondLevelCacheStatistics s = statistics.getSecondLevelCacheStatistics(region);
+			return (s == null) ? 0 : s.getMissCount();
+		});
+		metricRegistry.register("companies.query-cache.hits", (Gauge<Long>) statistics::getQueryCacheHitCount);
+		metricRegistry.register("companies.query-cache.misses", (Gauge<Long>) statistics::getQueryCacheMissCount);
+	}
+}
@@ -0,0 +1,83 @@
+package com.excilys.computer_database.service.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.excilys.computer_database.persistence.routing.PrimaryReads;
+import com.excilys.computer_database.service.event.CompanyChangedEvent;
+import com.excilys.computer_database.service.event.ComputerChangedEvent;
+
+/**
+ * Row counts of the listings (the CACHED count strategy), by table and filter. The counts of a table are dropped once
+ * a write to it has committed.
+ *
+ * A missing count is read in a transaction of its own, started once the map of the table is taken : the transaction of
+ * the listing may have read from a snapshot older than the last invalidation. It is read on the primary, as a lagging
+ * replica may not have the last write yet.
+ */
+@Component
+public class CountCache {
+	public static final String COMPUTERS = "computer", COMPANIES = "company";
+
+	/**
+	 * Counts by filter, by table. The map of a table is replaced on each invalidation : a count read before it is put
+	 * in the replaced map, never read again.
+	 */
+	private final Map<String, Map<String, Long>> counts = new ConcurrentHashMap<>();
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	/**
+	 * @param table
+	 *            The counted table
+	 * @param filter
+	 *            The filter of the count, empty for none
+	 * @param counter
+	 *            Count the rows, on a miss : called in a new read-only transaction, on the primary
+	 * @return The cached count
+	 */
+	public long get(String table, String filter, LongSupplier counter) {
+		Map<String, Long> tableCounts = counts.computeIfAbsent(table, t -> new ConcurrentHashMap<>());
+		Long cached = tableCounts.get(filter);
+		if (cached != null) {
+			return cached;
+		}
+
+		TransactionTemplate countTransaction = new TransactionTemplate(transactionManager);
+		countTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		countTransaction.setReadOnly(true);
+		long count = PrimaryReads.call(() -> countTransaction.execute(status -> counter.getAsLong()));
+		// Lost if the table was written meanwhile
+		tableCounts.put(filter, count);
+		return count;
+	}
+
+	/**
+	 * Drop the counts of a table.
+	 *
+	 * @param table
+	 *            The table
+	 */
+	public void invalidate(String table) {
+		counts.put(table, new ConcurrentHashMap<>());
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onComputerChanged(ComputerChangedEvent event) {
+		invalidate(COMPUTERS);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCompanyChanged(CompanyChangedEvent event) {
+		invalidate(COMPANIES);
+	}
+}
@@ -0,0 +1,70 @@
+package com.excilys.computer_database.service.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.excilys.computer_database.service.event.CompanyChangedEvent;
+import com.excilys.computer_database.service.event.ComputerChangedEvent;
+
+/**
+ * Version of each table, incremented once a write to it has committed : the ETags of the REST reads. A read tagged
+ * before its query is never newer than its tag, so a client holding the current tag has the current data : the tagged
+ * reads go to the primary, a lagging replica could read data older than their tag.
+ *
+ * The tags hold the startup time of the application, as the versions start again from 0 on each startup.
+ */
+@Component
+public class DataVersions {
+	public static final String COMPUTERS = "computer", COMPANIES = "company";
+
+	private final String startup = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+	private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+	/**
+	 * @param table
+	 *            The table
+	 * @return Its current version
+	 */
+	public long get(String table) {
+		return version(table).get();
+	}
+
+	/**
+	 * Tag the data of a table, before reading it.
+	 *
+	 * @param table
+	 *            The table
+	 * @return The entity tag of its current version, without the quotes
+	 */
+	public String etag(String table) {
+		return table + '-' + startup + '-' + get(table);
+	}
+
+	/**
+	 * Change the version of a table.
+	 *
+	 * @param table
+	 *            The written table
+	 */
+	public void increment(String table) {
+		version(table).incrementAndGet();
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onComputerChanged(ComputerChangedEvent event) {
+		increment(COMPUTERS);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCompanyChanged(CompanyChangedEvent event) {
+		increment(COMPANIES);
+	}
+
+	private AtomicLong version(String table) {
+		return versions.computeIfAbsent(table, t -> new AtomicLong());
+	}
+}
@@ -0,0 +1,243 @@
+package com.excilys.computer_database.service.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.excilys.computer_database.service.event.UserChangedEvent;
+
+/**
+ * The users loaded for the authentication, by username, for a time to live (users.cache.ttl, ms). The unknown
+ * usernames are cached too, for a shorter time (users.cache.negative-ttl, ms). A user is dropped once a write of its
+ * password or role has committed.
+ *
+ * A username is loaded once however many requests ask for it at the same time : the others wait for this load. The
+ * cache holds at most users.cache.size users, the ones closest to expire are dropped first.
+ *
+ * The hits, misses and evictions are published in the metric registry, under "users.cache.".
+ */
+@Component
+public class UserDetailsCache {
+	private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private final int maxSize;
+	private final long ttlMillis, negativeTtlMillis;
+	/** The time in milliseconds, only compared with itself. */
+	private final LongSupplier clock;
+	private final LongAdder hits = new LongAdder(), negativeHits = new LongAdder(), misses = new LongAdder(),
+			waits = new LongAdder(), evictions = new LongAdder();
+
+	/**
+	 * A user, being loaded or loaded.
+	 */
+	private static final class Entry {
+		/** Completed with the user, or null if unknown. */
+		private final CompletableFuture<UserDetails> user = new CompletableFuture<>();
+		/** Never while it is loading. */
+		private volatile long expiresAt = Long.MAX_VALUE;
+	}
+
+	/**
+	 * Constructor, from the application properties.
+	 *
+	 * @param env
+	 *            The properties
+	 * @param metricRegistry
+	 *            Receives the size, hits, misses and evictions
+	 */
+	@Autowired
+	public UserDetailsCache(Environment env, MetricRegistry metricRegistry) {
+		this(env.getProperty("users.cache.size", Integer.class, 1000),
+				env.getProperty("users.cache.ttl", Long.class, 300000L),
+				env.getProperty("users.cache.negative-ttl", Long.class, 30000L),
+				() -> System.nanoTime() / NANOS_PER_MILLI, metricRegistry);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxSize
+	 *            The users kept at most, unknown ones included
+	 * @param ttlMillis
+	 *            The time a user is kept
+	 * @param negativeTtlMillis
+	 *            The time an unknown username is kept
+	 * @param clock
+	 *            The time in milliseconds
+	 * @param metricRegistry
+	 *            Receives the size, hits, misses and evictions
+	 */
+	public UserDetailsCache(int maxSize, long ttlMillis, long negativeTtlMillis, LongSupplier clock,
+			MetricRegistry metricRegistry) {
+		this.maxSize = maxSize;
+		this.ttlMillis = ttlMillis;
+		this.negativeTtlMillis = negativeTtlMillis;
+		this.clock = clock;
+
+		metricRegistry.register("users.cache.size", (Gauge<Integer>) entries::size);
+		metricRegistry.register("users.cache.hits", (Gauge<Long>) hits::sum);
+		metricRegistry.register("users.cache.negative-hits", (Gauge<Long>) negativeHits::sum);
+		metricRegistry.register("users.cache.misses", (Gauge<Long>) misses::sum);
+		metricRegistry.register("users.cache.waits", (Gauge<Long>) waits::sum);
+		metricRegistry.register("users.cache.evictions", (Gauge<Long>) evictions::sum);
+	}
+
+	/**
+	 * @param username
+	 *            The username
+	 * @param loader
+	 *            Load the user on a miss, null if unknown
+	 * @return A copy of the cached user, free to erase its credentials. Null if unknown.
+	 */
+	public UserDetails get(String username, Function<String, UserDetails> loader) {
+		while (true) {
+			long now = clock.getAsLong();
+			Entry entry = entries.get(username);
+			if (entry != null && entry.expiresAt > now) {
+				if (!entry.user.isDone()) {
+					waits.increment();
+				}
+				UserDetails user = await(entry);
+				if (user == null) {
+					negativeHits.increment();
+				} else {
+					hits.increment();
+				}
+				return copy(user);
+			}
+
+			// Load it, unless another thread started meanwhile
+			Entry loading = new Entry();
+			boolean owner = (entry == null) ? entries.putIfAbsent(username, loading) == null
+					: entries.replace(username, entry, loading);
+			if (owner) {
+				return copy(load(username, loading, loader, now));
+			}
+		}
+	}
+
+	/**
+	 * Drop a user : the next authentication loads it.
+	 *
+	 * @param username
+	 *            The username
+	 */
+	public void evict(String username) {
+		if (entries.remove(username) != null) {
+			evictions.increment();
+		}
+	}
+
+	/**
+	 * Drop all the users.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * @return The users cached, unknown ones and the ones loading included
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Drop a user once a write of its password or role has committed.
+	 *
+	 * @param event
+	 *            The write
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onUserChanged(UserChangedEvent event) {
+		evict(event.getUsername());
+	}
+
+	private UserDetails load(String username, Entry loading, Function<String, UserDetails> loader, long now) {
+		misses.increment();
+		UserDetails user;
+		try {
+			user = loader.apply(username);
+		} catch (RuntimeException e) {
+			// Not cached : the waiting threads fail too, the next ones retry
+			entries.remove(username, loading);
+			loading.user.completeExceptionally(e);
+			throw e;
+		}
+		loading.expiresAt = now + ((user == null) ? negativeTtlMillis : ttlMillis);
+		loading.user.complete(user);
+		if (entries.size() > maxSize) {
+			trim();
+		}
+		return user;
+	}
+
+	/**
+	 * Drop the expired users, then the ones closest to expire, down to three quarters of the maximum : the next
+	 * trims are some loads away.
+	 */
+	private synchronized void trim() {
+		long now = clock.getAsLong();
+		List<Map.Entry<String, Entry>> loaded = new ArrayList<>();
+		for (Map.Entry<String, Entry> e : entries.entrySet()) {
+			Entry entry = e.getValue();
+			if (entry.expiresAt <= now) {
+				if (entries.remove(e.getKey(), entry)) {
+					evictions.increment();
+				}
+			} else if (entry.user.isDone()) {
+				loaded.add(e);
+			}
+		}
+		int excess = entries.size() - maxSize * 3 / 4;
+		if (excess <= 0) {
+			return;
+		}
+		loaded.sort(Comparator.comparingLong(e -> e.getValue().expiresAt));
+		for (int i = 0; i < excess && i < loaded.size(); i++) {
+			if (entries.remove(loaded.get(i).getKey(), loaded.get(i).getValue())) {
+				evictions.increment();
+			}
+		}
+	}
+
+	private static UserDetails await(Entry entry) {
+		try {
+			return entry.user.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * The authentication erases the password of the user it is given : give it a copy.
+	 */
+	private static UserDetails copy(UserDetails user) {
+		if (user == null) {
+			return null;
+		}
+		return new User(user.getUsername(), user.getPassword(), user.isEnabled(), user.isAccountNonExpired(),
+				user.isCredentialsNonExpired(), user.isAccountNonLocked(), user.getAuthorities());
+	}
+}
@@ -0,0 +1,35 @@
+package com.excilys.computer_database.service.event;
+
+/**
+ * Published by the services when companies are written, delivered to the listeners once the transaction has
+ * committed.
+ */
+public final class CompanyChangedEvent {
+	public static enum Type {
+		CREATED, RENAMED, DELETED
+	};
+
+	private final Type type;
+	private final long companyId;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param type
+	 *            What happened to the company
+	 * @param companyId
+	 *            The id of the company
+	 */
+	public CompanyChangedEvent(Type type, long companyId) {
+		this.type = type;
+		this.companyId = companyId;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public long getCompanyId() {
+		return companyId;
+	}
+}
@@ -0,0 +1,119 @@
+package com.excilys.computer_database.service.event;
+
+import com.excilys.computer_database.core.entity.Company;
+import com.excilys.computer_database.core.entity.Computer;
+
+/**
+ * Published by the services when computers are written. The listeners receive it once the transaction has committed
+ * (see {@link org.springframework.transaction.event.TransactionalEventListener}), so they never see rolled back
+ * changes.
+ */
+public final class ComputerChangedEvent {
+	public static enum Type {
+		/** A computer was created or updated. */
+		SAVED,
+		/** Some computers were deleted. */
+		DELETED,
+		/** A company and all its computers were deleted. */
+		COMPANY_DELETED,
+		/** A company was renamed, and the company name of its computers with it. */
+		COMPANY_RENAMED,
+		/** Computers were written in bulk : everything must be read again. */
+		RELOADED
+	};
+
+	private final Type type;
+	private final Computer computer;
+	private final long[] ids;
+	private final Long companyId;
+	private final String companyName;
+
+	private ComputerChangedEvent(Type type, Computer computer, long[] ids, Long companyId, String companyName) {
+		this.type = type;
+		this.computer = computer;
+		this.ids = ids;
+		this.companyId = companyId;
+		this.companyName = companyName;
+	}
+
+	/**
+	 * @param computer
+	 *            The created or updated computer
+	 * @return The event, holding a copy of the computer as it is now
+	 */
+	public static ComputerChangedEvent saved(Computer computer) {
+		Company company = computer.getCompany();
+		Computer copy = new Computer.ComputerBuilder(computer.getName()).id(computer.getId())
+				.introduced(computer.getIntroduced()).discontinued(computer.getDiscontinued())
+				.company((company == null) ? null : new Company(company.getId(), company.getName())).build();
+		return new ComputerChangedEvent(Type.SAVED, copy, null, null, null);
+	}
+
+	/**
+	 * @param ids
+	 *            The ids of the deleted computers
+	 * @return The event
+	 */
+	public static ComputerChangedEvent deleted(long... ids) {
+		return new ComputerChangedEvent(Type.DELETED, null, ids, null, null);
+	}
+
+	/**
+	 * @param companyId
+	 *            The id of the deleted company
+	 * @return The event
+	 */
+	public static ComputerChangedEvent companyDeleted(long companyId) {
+		return new ComputerChangedEvent(Type.COMPANY_DELETED, null, null, companyId, null);
+	}
+
+	/**
+	 * @param companyId
+	 *            The id of the renamed company
+	 * @param companyName
+	 *            Its new name
+	 * @return The event
+	 */
+	public static ComputerChangedEvent companyRenamed(long companyId, String companyName) {
+		return new ComputerChangedEvent(Type.COMPANY_RENAMED, null, null, companyId, companyName);
+	}
+
+	/**
+	 * @return The event
+	 */
+	public static ComputerChangedEvent reloaded() {
+		return new ComputerChangedEvent(Type.RELOADED, null, null, null, null);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return The saved computer (SAVED only). Its company may only carry an id.
+	 */
+	public Computer getComputer() {
+		return computer;
+	}
+
+	/**
+	 * @return The ids of the deleted computers (DELETED only)
+	 */
+	public long[] getIds() {
+		return ids;
+	}
+
+	/**
+	 * @return The id of the deleted or renamed company (COMPANY_DELETED and COMPANY_RENAMED only)
+	 */
+	public Long getCompanyId() {
+		return companyId;
+	}
+
+	/**
+	 * @return The new name of the company (COMPANY_RENAMED only)
+	 */
+	public String getCompanyName() {
+		return companyName;
+	}
+}
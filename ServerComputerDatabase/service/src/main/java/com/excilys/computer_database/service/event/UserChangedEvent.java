@@ -0,0 +1,23 @@
+package com.excilys.computer_database.service.event;
+
+/**
+ * Published by the services when the password or the role of a user is written, delivered to the listeners once the
+ * transaction has committed.
+ */
+public final class UserChangedEvent {
+	private final String username;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param username
+	 *            The name of the user
+	 */
+	public UserChangedEvent(String username) {
+		this.username = username;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+}
@@ -0,0 +1,349 @@
+package com.excilys.computer_database.service.imports;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.excilys.computer_database.core.date.EpochDays;
+import com.excilys.computer_database.core.dto.ComputerDTO;
+import com.excilys.computer_database.core.entity.Company;
+import com.excilys.computer_database.persistence.dao.CompanyDAO;
+import com.excilys.computer_database.persistence.dao.ComputerDAO;
+import com.excilys.computer_database.persistence.dao.SavedBatch;
+import com.excilys.computer_database.service.event.ComputerChangedEvent;
+
+/**
+ * Bulk import of computers : the calling thread parses the text and routes the rows by natural key to writer threads,
+ * which write them by JDBC batches, a transaction per batch. A row always goes to the same writer as the other rows of
+ * its key, so the upserts of a key are applied in order : the names are routed case and accent insensitive, as the
+ * database compares them. The queues of the writers are bounded : the parsing waits
+ * when the database can't keep up.
+ *
+ * The written rows are counted in the "computers.imported" meter of the metric registry, and the progress logged
+ * every few seconds. The search index and the counts are reloaded at the end.
+ */
+@Service
+public class ComputerImporter {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ComputerImporter.class);
+	/** Default number of rows per JDBC batch and transaction. */
+	public static final int BATCH_SIZE = 1000;
+	/** Default number of writer threads : each holds a connection of the pool while writing. */
+	public static final int WRITERS = 4;
+	/** Batches waiting per writer. */
+	private static final int QUEUED_BATCHES = 2;
+	/** Rejected rows described in the report. */
+	private static final int MAX_ERRORS = 100;
+	private static final long PROGRESS_PERIOD = TimeUnit.SECONDS.toNanos(5);
+	private static final int MAX_NAME_LENGTH = 255;
+	private static final Pattern TRAILING_SPACES = Pattern.compile("\\s+$"), MARKS = Pattern.compile("\\p{M}");
+	/** Sent to the writers once everything is queued. */
+	private static final List<ComputerDTO> END = Collections.emptyList();
+
+	@Autowired
+	private ComputerDAO computerDAO;
+	@Autowired
+	private CompanyDAO companyDAO;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+	@Autowired
+	private MetricRegistry metricRegistry;
+
+	private int batchSize = BATCH_SIZE, writers = WRITERS;
+
+	/**
+	 * Import computers. The companies are given by id or by name, and must exist. The batches written before a
+	 * failure stay written.
+	 * 
+	 * @param in
+	 *            The text, read until its end
+	 * @param format
+	 *            Its format
+	 * @param mode
+	 *            Insert all the computers, or update the existing ones
+	 * @return What was done, and why it stopped before the end if it did
+	 */
+	public ImportReport importComputers(Reader in, ImportFormat format, ImportMode mode) {
+		long start = System.nanoTime();
+		ImportReport report = new ImportReport(format, mode);
+		Companies companies = new Companies(companyDAO.findAllCached());
+
+		Pipeline pipeline = new Pipeline(mode == ImportMode.UPSERT);
+		ExecutorService executor = Executors.newFixedThreadPool(writers,
+				new CustomizableThreadFactory("computer-import-"));
+		for (BlockingQueue<List<ComputerDTO>> queue : pipeline.queues) {
+			executor.execute(() -> pipeline.write(queue));
+		}
+
+		try (ComputerParser parser = format.open(in)) {
+			parse(parser, companies, pipeline, report, start);
+		} catch (IOException | RuntimeException e) {
+			pipeline.fail(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			pipeline.fail(e);
+		} finally {
+			if (pipeline.end()) {
+				executor.shutdown();
+			} else {
+				executor.shutdownNow();
+			}
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		long elapsed = System.nanoTime() - start;
+		long written = pipeline.inserted.get() + pipeline.updated.get();
+		report.setInserted(pipeline.inserted.get());
+		report.setUpdated(pipeline.updated.get());
+		report.setMillis(TimeUnit.NANOSECONDS.toMillis(elapsed));
+		report.setRowsPerSecond(written * 1e9 / Math.max(elapsed, 1));
+		Throwable failure = pipeline.failure.get();
+		if (failure != null) {
+			report.setFailure(failure.toString());
+			LOGGER.error("Import failed", failure);
+		}
+		if (written > 0) {
+			eventPublisher.publishEvent(ComputerChangedEvent.reloaded());
+		}
+		LOGGER.info("Import ({} {}) : {}", format, mode, report);
+		return report;
+	}
+
+	/**
+	 * Parse the rows, check them and send them by batches to their writer, until the end or a failure.
+	 */
+	private void parse(ComputerParser parser, Companies companies, Pipeline pipeline, ImportReport report,
+			long start) throws IOException, InterruptedException {
+		long read = 0, rejected = 0, lastProgress = start;
+		try {
+			while (pipeline.failure.get() == null) {
+				ComputerDTO computer;
+				try {
+					computer = parser.next();
+					if (computer == null) {
+						break;
+					}
+					companies.resolve(computer);
+					check(computer);
+				} catch (InvalidRowException e) {
+					read++;
+					rejected++;
+					if (report.getErrors().size() < MAX_ERRORS) {
+						report.getErrors().add(e.getMessage() + " (row " + read + ")");
+					}
+					continue;
+				}
+				read++;
+				pipeline.add(computer);
+
+				long now = System.nanoTime();
+				if (now - lastProgress > PROGRESS_PERIOD) {
+					lastProgress = now;
+					long written = pipeline.inserted.get() + pipeline.updated.get();
+					LOGGER.info("Import : {} rows read, {} written ({} rows/s)", read, written,
+							written * TimeUnit.SECONDS.toNanos(1) / (now - start));
+				}
+			}
+			pipeline.flush();
+		} finally {
+			report.setRead(read);
+			report.setRejected(rejected);
+		}
+	}
+
+	private static void check(ComputerDTO computer) throws InvalidRowException {
+		String name = computer.getName();
+		if (name == null || name.trim().isEmpty()) {
+			throw new InvalidRowException("No name");
+		}
+		if (name.length() > MAX_NAME_LENGTH) {
+			throw new InvalidRowException("Name longer than " + MAX_NAME_LENGTH + " characters");
+		}
+		if (computer.getIntroducedDay() != EpochDays.NONE && computer.getDiscontinuedDay() != EpochDays.NONE
+				&& computer.getDiscontinuedDay() < computer.getIntroducedDay()) {
+			throw new InvalidRowException("Discontinued before introduced");
+		}
+	}
+
+	/**
+	 * @return The name without case, accents and trailing spaces : the names the collations of the database take for
+	 *         the same one have the same key
+	 */
+	private static String routingKey(String name) {
+		String decomposed = Normalizer.normalize(TRAILING_SPACES.matcher(name).replaceFirst(""), Normalizer.Form.NFD);
+		return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * The companies of the database, to resolve the rows' companies without a query.
+	 */
+	private static final class Companies {
+		private final Map<String, Long> idsByName = new HashMap<>();
+		private final Set<Long> ids = new HashSet<>();
+
+		Companies(List<Company> companies) {
+			for (Company company : companies) {
+				ids.add(company.getId());
+				if (company.getName() != null) {
+					idsByName.putIfAbsent(company.getName(), company.getId());
+				}
+			}
+		}
+
+		/** Set the company id of the computer from its company name, if it has no id. */
+		void resolve(ComputerDTO computer) throws InvalidRowException {
+			if (computer.getCompanyId() != null) {
+				if (!ids.contains(computer.getCompanyId())) {
+					throw new InvalidRowException("Unknown company id " + computer.getCompanyId());
+				}
+			} else if (computer.getCompanyName() != null) {
+				Long id = idsByName.get(computer.getCompanyName());
+				if (id == null) {
+					throw new InvalidRowException("Unknown company " + computer.getCompanyName());
+				}
+				computer.setCompanyId(id);
+			}
+		}
+	}
+
+	/**
+	 * The batches being filled by the parsing, and the queues of the writers.
+	 */
+	private final class Pipeline {
+		final List<BlockingQueue<List<ComputerDTO>>> queues = new ArrayList<>(writers);
+		final List<List<ComputerDTO>> batches = new ArrayList<>(writers);
+		final AtomicLong inserted = new AtomicLong(), updated = new AtomicLong();
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final boolean upsert;
+		final TransactionTemplate batchTransaction = new TransactionTemplate(transactionManager);
+		final Meter meter = metricRegistry.meter("computers.imported");
+
+		Pipeline(boolean upsert) {
+			this.upsert = upsert;
+			batchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+			for (int i = 0; i < writers; i++) {
+				queues.add(new ArrayBlockingQueue<>(QUEUED_BATCHES));
+				batches.add(new ArrayList<>(batchSize));
+			}
+		}
+
+		/** Add a row to the batch of its writer, and queue the batch once full : waits while the queue is full. */
+		void add(ComputerDTO computer) throws InterruptedException {
+			int writer = Math.floorMod(31 * routingKey(computer.getName()).hashCode()
+					+ Objects.hashCode(computer.getCompanyId()), writers);
+			List<ComputerDTO> batch = batches.get(writer);
+			batch.add(computer);
+			if (batch.size() == batchSize) {
+				queues.get(writer).put(batch);
+				batches.set(writer, new ArrayList<>(batchSize));
+			}
+		}
+
+		/** Queue the incomplete batches. */
+		void flush() throws InterruptedException {
+			for (int i = 0; i < writers; i++) {
+				if (!batches.get(i).isEmpty() && failure.get() == null) {
+					queues.get(i).put(batches.get(i));
+				}
+			}
+		}
+
+		/**
+		 * Stop the writers once they have written what is queued.
+		 * 
+		 * @return False if interrupted : the writers must be interrupted too
+		 */
+		boolean end() {
+			for (BlockingQueue<List<ComputerDTO>> queue : queues) {
+				try {
+					queue.put(END);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					fail(e);
+					return false;
+				}
+			}
+			return true;
+		}
+
+		void fail(Throwable e) {
+			failure.compareAndSet(null, e);
+		}
+
+		/** Write the batches of a queue until the end. After a failure, they are only drained. */
+		void write(BlockingQueue<List<ComputerDTO>> queue) {
+			try {
+				while (true) {
+					List<ComputerDTO> batch = queue.take();
+					if (batch == END) {
+						return;
+					}
+					if (failure.get() != null) {
+						continue;
+					}
+					try {
+						SavedBatch saved = batchTransaction.execute(status -> computerDAO.saveBatch(batch, upsert));
+						inserted.addAndGet(saved.getInserted());
+						updated.addAndGet(saved.getUpdated());
+						meter.mark(batch.size());
+					} catch (RuntimeException | Error e) {
+						// Keep draining the queue, so that the parsing is not blocked
+						fail(e);
+					}
+				}
+			} catch (InterruptedException e) {
+				fail(e);
+			}
+		}
+	}
+
+	/**
+	 * @param batchSize
+	 *            The number of rows per JDBC batch and transaction
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @param writers
+	 *            The number of writer threads
+	 */
+	public void setWriters(int writers) {
+		this.writers = writers;
+	}
+}
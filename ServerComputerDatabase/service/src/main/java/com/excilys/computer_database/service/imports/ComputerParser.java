@@ -0,0 +1,20 @@
+package com.excilys.computer_database.service.imports;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import com.excilys.computer_database.core.dto.ComputerDTO;
+
+/**
+ * Reads the computers of an import one by one.
+ */
+public interface ComputerParser extends Closeable {
+	/**
+	 * @return The next computer, with its name, dates, and company id or name ; null at the end of the text
+	 * @throws InvalidRowException
+	 *             If the next row is not a computer : the following ones can still be read
+	 * @throws IOException
+	 *             If the text can't be read, or is malformed beyond the row
+	 */
+	public ComputerDTO next() throws InvalidRowException, IOException;
+}
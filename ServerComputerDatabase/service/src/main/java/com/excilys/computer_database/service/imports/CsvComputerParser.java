@@ -0,0 +1,142 @@
+package com.excilys.computer_database.service.imports;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.excilys.computer_database.core.date.EpochDays;
+import com.excilys.computer_database.core.dto.ComputerDTO;
+
+/**
+ * CSV as of RFC 4180, as written by the export : the header names the columns (name, introduced, discontinued,
+ * companyId, companyName, the others are ignored), the dates are in ISO format, the missing values are empty.
+ */
+public class CsvComputerParser implements ComputerParser {
+	private final BufferedReader in;
+	private final int name, introduced, discontinued, companyId, companyName;
+	private final List<String> fields = new ArrayList<>();
+	private final StringBuilder field = new StringBuilder();
+	/** The line read next, and the one of the current record. */
+	private long line = 1, recordLine;
+
+	/**
+	 * Constructor : reads the header.
+	 * 
+	 * @param in
+	 *            The text
+	 * @throws IOException
+	 *             If the header can't be read, or has no name column
+	 */
+	public CsvComputerParser(Reader in) throws IOException {
+		this.in = (in instanceof BufferedReader) ? (BufferedReader) in : new BufferedReader(in);
+		if (!readRecord()) {
+			throw new IOException("No CSV header");
+		}
+		name = fields.indexOf("name");
+		introduced = fields.indexOf("introduced");
+		discontinued = fields.indexOf("discontinued");
+		companyId = fields.indexOf("companyId");
+		companyName = fields.indexOf("companyName");
+		if (name < 0) {
+			throw new IOException("No name column in the CSV header : " + fields);
+		}
+	}
+
+	@Override
+	public ComputerDTO next() throws InvalidRowException, IOException {
+		do {
+			if (!readRecord()) {
+				return null;
+			}
+			// Skip the blank lines
+		} while (fields.size() == 1 && fields.get(0).isEmpty());
+
+		ComputerDTO computer = new ComputerDTO();
+		computer.setName(field(name));
+		try {
+			computer.setIntroducedDay(date(field(introduced)));
+			computer.setDiscontinuedDay(date(field(discontinued)));
+			String id = field(companyId);
+			computer.setCompanyId((id == null) ? null : Long.valueOf(id));
+		} catch (DateTimeParseException | NumberFormatException e) {
+			throw new InvalidRowException(recordLine, e.getMessage());
+		}
+		computer.setCompanyName(field(companyName));
+		return computer;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * @return The field of this column in the current record, null if absent or empty
+	 */
+	private String field(int column) {
+		if (column < 0 || column >= fields.size()) {
+			return null;
+		}
+		String value = fields.get(column);
+		return value.isEmpty() ? null : value;
+	}
+
+	private static long date(String iso) {
+		return (iso == null) ? EpochDays.NONE : EpochDays.parseIso(iso);
+	}
+
+	/**
+	 * Read the fields of the next record, which may span several lines within quotes.
+	 * 
+	 * @return False at the end of the text
+	 */
+	private boolean readRecord() throws IOException {
+		fields.clear();
+		field.setLength(0);
+		recordLine = line;
+		int c = in.read();
+		if (c < 0) {
+			return false;
+		}
+		boolean quoted = false;
+		while (true) {
+			if (quoted) {
+				if (c < 0) {
+					throw new IOException("Line " + recordLine + " : unterminated quoted field");
+				}
+				if (c == '"') {
+					in.mark(1);
+					int next = in.read();
+					if (next == '"') {
+						field.append('"');
+					} else {
+						quoted = false;
+						in.reset();
+					}
+				} else {
+					if (c == '\n') {
+						line++;
+					}
+					field.append((char) c);
+				}
+			} else if (c == '"' && field.length() == 0) {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else if (c == '\n' || c < 0) {
+				if (c == '\n') {
+					line++;
+				}
+				fields.add(field.toString());
+				return true;
+			} else if (c != '\r') {
+				field.append((char) c);
+			}
+			c = in.read();
+		}
+	}
+}
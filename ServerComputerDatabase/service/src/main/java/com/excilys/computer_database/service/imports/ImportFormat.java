@@ -0,0 +1,33 @@
+package com.excilys.computer_database.service.imports;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * The formats of the imports : the ones of the export, whose id column is ignored.
+ */
+public enum ImportFormat {
+	/** A header line naming the columns (name is required), then a line per computer. */
+	CSV {
+		@Override
+		public ComputerParser open(Reader in) throws IOException {
+			return new CsvComputerParser(in);
+		}
+	},
+	/** A JSON object per computer. */
+	NDJSON {
+		@Override
+		public ComputerParser open(Reader in) throws IOException {
+			return new NdjsonComputerParser(in);
+		}
+	};
+
+	/**
+	 * @param in
+	 *            The imported text
+	 * @return Its parser
+	 * @throws IOException
+	 *             If the beginning of the text can't be read
+	 */
+	public abstract ComputerParser open(Reader in) throws IOException;
+}
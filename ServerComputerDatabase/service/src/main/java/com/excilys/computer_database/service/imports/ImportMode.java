@@ -0,0 +1,11 @@
+package com.excilys.computer_database.service.imports;
+
+/**
+ * What an import does with the computers already in the database.
+ */
+public enum ImportMode {
+	/** Insert all the computers. */
+	INSERT,
+	/** Update the computers of the same name and company, insert the others. */
+	UPSERT
+}
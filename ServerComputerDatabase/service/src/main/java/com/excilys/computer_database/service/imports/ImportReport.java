@@ -0,0 +1,135 @@
+package com.excilys.computer_database.service.imports;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What an import did.
+ */
+public class ImportReport {
+	private ImportFormat format;
+	private ImportMode mode;
+	private long read, inserted, updated, rejected, millis;
+	private double rowsPerSecond;
+	/** The first rejected rows, with the reason. */
+	private List<String> errors = new ArrayList<>();
+	/** Why the import stopped before the end, null if it did not. */
+	private String failure;
+
+	public ImportReport() {
+	}
+
+	/**
+	 * @param format
+	 *            The format of the import
+	 * @param mode
+	 *            Its mode
+	 */
+	public ImportReport(ImportFormat format, ImportMode mode) {
+		this.format = format;
+		this.mode = mode;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder().append(read).append(" rows read, ").append(inserted)
+				.append(" inserted, ").append(updated).append(" updated, ").append(rejected).append(" rejected in ")
+				.append(millis).append(" ms (").append(Math.round(rowsPerSecond)).append(" rows/s)");
+		for (String error : errors) {
+			sb.append("\n  ").append(error);
+		}
+		if (failure != null) {
+			sb.append("\nFailed : ").append(failure);
+		}
+		return sb.toString();
+	}
+
+	public ImportFormat getFormat() {
+		return format;
+	}
+
+	public void setFormat(ImportFormat format) {
+		this.format = format;
+	}
+
+	public ImportMode getMode() {
+		return mode;
+	}
+
+	public void setMode(ImportMode mode) {
+		this.mode = mode;
+	}
+
+	/**
+	 * @return The number of rows read, rejected ones included
+	 */
+	public long getRead() {
+		return read;
+	}
+
+	public void setRead(long read) {
+		this.read = read;
+	}
+
+	public long getInserted() {
+		return inserted;
+	}
+
+	public void setInserted(long inserted) {
+		this.inserted = inserted;
+	}
+
+	public long getUpdated() {
+		return updated;
+	}
+
+	public void setUpdated(long updated) {
+		this.updated = updated;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public void setRejected(long rejected) {
+		this.rejected = rejected;
+	}
+
+	/**
+	 * @return The duration of the import
+	 */
+	public long getMillis() {
+		return millis;
+	}
+
+	public void setMillis(long millis) {
+		this.millis = millis;
+	}
+
+	/**
+	 * @return The rows written (inserted or updated) per second
+	 */
+	public double getRowsPerSecond() {
+		return rowsPerSecond;
+	}
+
+	public void setRowsPerSecond(double rowsPerSecond) {
+		this.rowsPerSecond = rowsPerSecond;
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	public void setErrors(List<String> errors) {
+		this.errors = errors;
+	}
+
+	public String getFailure() {
+		return failure;
+	}
+
+	public void setFailure(String failure) {
+		this.failure = failure;
+	}
+}
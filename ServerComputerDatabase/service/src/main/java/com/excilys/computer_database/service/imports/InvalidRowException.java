@@ -0,0 +1,26 @@
+package com.excilys.computer_database.service.imports;
+
+/**
+ * A row of an import which can't be read as a computer : it is rejected, the import goes on.
+ */
+public class InvalidRowException extends Exception {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param line
+	 *            The line of the row in the imported text, from 1
+	 * @param message
+	 *            What is wrong
+	 */
+	public InvalidRowException(long line, String message) {
+		super("Line " + line + " : " + message);
+	}
+
+	/**
+	 * @param message
+	 *            What is wrong
+	 */
+	public InvalidRowException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,94 @@
+package com.excilys.computer_database.service.imports;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.format.DateTimeParseException;
+
+import com.excilys.computer_database.core.date.EpochDays;
+import com.excilys.computer_database.core.dto.ComputerDTO;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Newline delimited JSON, as written by the export : an object per computer with its name, introduced and discontinued
+ * (ISO dates), companyId and companyName fields, the others are ignored.
+ */
+public class NdjsonComputerParser implements ComputerParser {
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	private final JsonParser parser;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param in
+	 *            The text
+	 * @throws IOException
+	 *             If the parser can't be created
+	 */
+	public NdjsonComputerParser(Reader in) throws IOException {
+		parser = FACTORY.createParser(in);
+	}
+
+	@Override
+	public ComputerDTO next() throws InvalidRowException, IOException {
+		JsonToken token = parser.nextToken();
+		if (token == null) {
+			return null;
+		}
+		long line = parser.getCurrentLocation().getLineNr();
+		if (token != JsonToken.START_OBJECT) {
+			throw new IOException("Line " + line + " : a JSON object is expected");
+		}
+
+		// Read the whole object before rejecting it, to stay on the next one
+		ComputerDTO computer = new ComputerDTO();
+		String error = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			token = parser.nextToken();
+			try {
+				switch (field) {
+				case "name":
+					computer.setName(text(token));
+					break;
+				case "introduced":
+					computer.setIntroducedDay(date(token));
+					break;
+				case "discontinued":
+					computer.setDiscontinuedDay(date(token));
+					break;
+				case "companyId":
+					computer.setCompanyId((token == JsonToken.VALUE_NULL) ? null : parser.getValueAsLong());
+					break;
+				case "companyName":
+					computer.setCompanyName(text(token));
+					break;
+				default:
+					parser.skipChildren();
+					break;
+				}
+			} catch (DateTimeParseException e) {
+				error = field + " : " + e.getMessage();
+			}
+		}
+		if (error != null) {
+			throw new InvalidRowException(line, error);
+		}
+		return computer;
+	}
+
+	@Override
+	public void close() throws IOException {
+		parser.close();
+	}
+
+	private String text(JsonToken token) throws IOException {
+		return (token == JsonToken.VALUE_NULL) ? null : parser.getText();
+	}
+
+	private long date(JsonToken token) throws IOException {
+		return (token == JsonToken.VALUE_NULL) ? EpochDays.NONE : EpochDays.parseIso(parser.getText());
+	}
+}
@@ -0,0 +1,89 @@
+package com.excilys.computer_database.service.repair;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.excilys.computer_database.persistence.dao.ComputerDAO;
+import com.excilys.computer_database.service.event.ComputerChangedEvent;
+
+/**
+ * Repair the company names copied in the computers (see Computer.getCompanyName()), which drift when the tables are
+ * written without the services : run every computers.company-name.repair-period (ms), by ranges of ids, a range per
+ * transaction to keep the locks short.
+ *
+ * The repaired computers are published in the metric registry, as "computers.company-name.repaired".
+ */
+@Component
+public class CompanyNameRepair {
+	private static final Logger LOGGER = LoggerFactory.getLogger(CompanyNameRepair.class);
+	/** Number of ids repaired per transaction. */
+	public static final int REPAIR_CHUNK = 1000;
+
+	private final ComputerDAO computerDAO;
+	private final ApplicationEventPublisher eventPublisher;
+	private final TransactionTemplate transaction;
+	private final LongAdder repaired = new LongAdder();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param computerDAO
+	 *            The computers
+	 * @param eventPublisher
+	 *            Receives the repairs, as a bulk write of the computers
+	 * @param transactionManager
+	 *            The transactions
+	 * @param metricRegistry
+	 *            Receives the repaired computers
+	 */
+	@Autowired
+	public CompanyNameRepair(ComputerDAO computerDAO, ApplicationEventPublisher eventPublisher,
+			PlatformTransactionManager transactionManager, MetricRegistry metricRegistry) {
+		this.computerDAO = computerDAO;
+		this.eventPublisher = eventPublisher;
+		this.transaction = new TransactionTemplate(transactionManager);
+		this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		metricRegistry.register("computers.company-name.repaired", (Gauge<Long>) repaired::sum);
+	}
+
+	/**
+	 * The periodic repair.
+	 */
+	@Scheduled(fixedDelayString = "${computers.company-name.repair-period:3600000}",
+			initialDelayString = "${computers.company-name.repair-period:3600000}")
+	public void scheduledRepair() {
+		repair();
+	}
+
+	/**
+	 * Repair the computers now.
+	 *
+	 * @return The number of computers repaired
+	 */
+	public int repair() {
+		long maxId = transaction.execute(status -> computerDAO.findMaxId());
+		int count = 0;
+		for (long from = 0; from < maxId; from += REPAIR_CHUNK) {
+			long fromId = from;
+			count += transaction.execute(status -> computerDAO.repairCompanyNames(fromId, fromId + REPAIR_CHUNK));
+		}
+		if (count > 0) {
+			// Once the last range is committed
+			eventPublisher.publishEvent(ComputerChangedEvent.reloaded());
+			repaired.add(count);
+			LOGGER.warn("Company name repaired in {} computers", count);
+		}
+		return count;
+	}
+}
@@ -0,0 +1,709 @@
+package com.excilys.computer_database.service.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.excilys.computer_database.core.dto.ComputerDTO;
+import com.excilys.computer_database.core.entity.Company;
+import com.excilys.computer_database.core.entity.Computer;
+import com.excilys.computer_database.core.page.PageCursor;
+import com.excilys.computer_database.persistence.dao.CompanyDAO;
+import com.excilys.computer_database.persistence.dao.ComputerDAO;
+import com.excilys.computer_database.persistence.routing.PrimaryReads;
+import com.excilys.computer_database.service.ComputerService.COLUMN;
+import com.excilys.computer_database.service.event.ComputerChangedEvent;
+
+/**
+ * In-memory search index of the computers, by computer name and company name.
+ *
+ * The normalized computer names are cut into trigrams : a query of 3 characters or more reads the posting list of its
+ * rarest trigram, then checks each candidate against its document. Shorter queries read the names, and the words of
+ * the names, starting with them in a sorted map. The companies are few, their names are simply scanned.
+ *
+ * The matches are ranked : exact match first, then prefix, word prefix and substring, a computer name match before a
+ * company name match. Only the matches up to the end of the page asked are sorted, in a bounded heap : the others are
+ * only counted.
+ *
+ * The index is built on the first search, which waits for it, then kept in sync by the {@link ComputerChangedEvent}s,
+ * once their transaction has committed. After a bulk write (a RELOADED event), a new index is built in the background
+ * while the searches keep reading the previous one, swapped for the new one once it has caught up with the changes
+ * committed during its build. The posting lists are not pruned on update or deletion (the candidates are checked
+ * anyway) : they are compacted when the stale entries become too many.
+ */
+@Component
+public class ComputerSearchIndex {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ComputerSearchIndex.class);
+
+	/** Length of the indexed n-grams, and the minimum length of a substring query. */
+	static final int GRAM = 3;
+	private static final int BUILD_BATCH = 1000;
+	private static final int MIN_STALE_POSTINGS = 1024;
+
+	// Ranks of a match, the best first
+	private static final int EXACT = 0, PREFIX = 1, WORD_PREFIX = 2, SUBSTRING = 3, NO_MATCH = Integer.MAX_VALUE;
+
+	@Autowired
+	private ComputerDAO computerDAO;
+	@Autowired
+	private CompanyDAO companyDAO;
+
+	/** Builds the indexes, out of the searches and their transactions. */
+	private final ExecutorService builder = Executors
+			.newSingleThreadExecutor(new CustomizableThreadFactory("search-index-"));
+	/** Read by the searches, written by the changes and the swap of the index. */
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	// Written under the write lock
+	/** The index read by the searches, null until first built. */
+	private volatile Index current;
+	/** True from a bulk write until an index built after it is swapped in. */
+	private volatile boolean stale;
+	/** The build in progress, null if none. */
+	private Future<?> build;
+	/** True if a bulk write committed during the build in progress : built again once done. */
+	private boolean rebuild;
+	/** Changes committed during the build in progress, applied to its index once loaded. */
+	private final List<Consumer<Index>> pending = new ArrayList<>();
+
+	/**
+	 * The indexed computers and their posting lists.
+	 */
+	private static final class Index {
+		/** The indexed computers, by id. */
+		private final Map<Long, SearchDocument> documents = new HashMap<>();
+		/** Trigram of the computer names, to the ids of the computers. */
+		private final Map<String, LongList> grams = new HashMap<>();
+		/** Computer names and the tail of the names from each word, to the ids of the computers. */
+		private final TreeMap<String, LongList> words = new TreeMap<>();
+		/** Normalized name of the companies, by id. */
+		private final Map<Long, String> companies = new HashMap<>();
+		/** Ids of the computers, by company id. */
+		private final Map<Long, LongList> companyComputers = new HashMap<>();
+		private long postings, stalePostings;
+
+		/** Apply a change. */
+		void apply(ComputerChangedEvent event, SearchDocument document) {
+			switch (event.getType()) {
+			case SAVED:
+				put(document);
+				break;
+			case DELETED:
+				for (long id : event.getIds()) {
+					remove(id);
+				}
+				break;
+			case COMPANY_DELETED:
+				Long companyId = event.getCompanyId();
+				companies.remove(companyId);
+				LongList ids = companyComputers.remove(companyId);
+				for (int i = 0; ids != null && i < ids.size(); i++) {
+					SearchDocument d = documents.get(ids.get(i));
+					if (d != null && companyId.equals(d.getCompanyId())) {
+						remove(d.getId());
+					}
+				}
+				break;
+			case COMPANY_RENAMED:
+				renameCompany(event.getCompanyId(), event.getCompanyName());
+				break;
+			default:
+				break;
+			}
+		}
+
+		/** Index or re-index a computer. */
+		void put(SearchDocument document) {
+			long id = document.getId();
+			SearchDocument previous = documents.put(id, document);
+
+			Set<String> previousGrams = (previous == null) ? Collections.<String> emptySet()
+					: grams(previous.getName());
+			Set<String> newGrams = grams(document.getName());
+			for (String gram : newGrams) {
+				if (!previousGrams.contains(gram)) {
+					posting(grams, gram).add(id);
+					postings++;
+				}
+			}
+			for (String gram : previousGrams) {
+				if (!newGrams.contains(gram)) {
+					stalePostings++;
+				}
+			}
+
+			if (previous == null || !equal(previous.getName(), document.getName())) {
+				if (previous != null) {
+					unlinkWords(previous);
+				}
+				for (String word : words(document.getName())) {
+					posting(words, word).add(id);
+				}
+			}
+
+			Long companyId = document.getCompanyId();
+			if (companyId != null) {
+				if (previous == null || !companyId.equals(previous.getCompanyId())) {
+					posting(companyComputers, companyId).add(id);
+				}
+				if (document.getCompanyName() != null) {
+					companies.put(companyId, document.getCompanyName());
+				}
+			}
+			compactIfNeeded();
+		}
+
+		/** Remove a computer from the index. */
+		void remove(long id) {
+			SearchDocument previous = documents.remove(id);
+			if (previous != null) {
+				unlinkWords(previous);
+				stalePostings += grams(previous.getName()).size();
+				compactIfNeeded();
+			}
+		}
+
+		/** Give its new name to a company and to its computers : their computer names, and postings, are the same. */
+		void renameCompany(Long companyId, String name) {
+			LongList ids = companyComputers.get(companyId);
+			for (int i = 0; ids != null && i < ids.size(); i++) {
+				SearchDocument d = documents.get(ids.get(i));
+				if (d != null && companyId.equals(d.getCompanyId())) {
+					documents.put(d.getId(), d.withCompanyName(name));
+				}
+			}
+			String normalized = SearchDocument.normalize(name);
+			if (normalized == null) {
+				companies.remove(companyId);
+			} else if (ids != null) {
+				companies.put(companyId, normalized);
+			}
+		}
+
+		private void unlinkWords(SearchDocument document) {
+			for (String word : words(document.getName())) {
+				LongList ids = words.get(word);
+				if (ids != null && ids.remove(document.getId()) && ids.isEmpty()) {
+					words.remove(word);
+				}
+			}
+		}
+
+		/** Rebuild the posting lists from the documents when they are mostly stale. */
+		private void compactIfNeeded() {
+			if (stalePostings < MIN_STALE_POSTINGS || stalePostings * 2 < postings) {
+				return;
+			}
+			grams.clear();
+			companyComputers.clear();
+			postings = 0;
+			stalePostings = 0;
+			for (SearchDocument document : documents.values()) {
+				for (String gram : grams(document.getName())) {
+					posting(grams, gram).add(document.getId());
+					postings++;
+				}
+				if (document.getCompanyId() != null) {
+					posting(companyComputers, document.getCompanyId()).add(document.getId());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Search a page of the computers whose name or company name matches a text.
+	 *
+	 * @param text
+	 *            The text to look for : a prefix of a name or of one of its words, or for 3 characters and more any
+	 *            part of a name. The case is ignored.
+	 * @param column
+	 *            The column to sort the matches by, null to sort them by relevance
+	 * @param ascending
+	 *            The sort direction, ignored when sorting by relevance
+	 * @param offset
+	 *            The number of matches before the page
+	 * @param size
+	 *            The size of the page
+	 * @return The matches of the page, sorted by the column then id as the database would, or by relevance
+	 */
+	public SearchMatches search(String text, COLUMN column, boolean ascending, int offset, int size) {
+		Map<Long, Integer> scores = new HashMap<>();
+		List<SearchDocument> matches = match(text, scores);
+		int total = matches.size();
+		int from = Math.min(offset, total);
+		List<SearchDocument> first = top(matches, order(scores, column, ascending), from + size);
+		return new SearchMatches(first.subList(from, first.size()), total, from > 0, from + size < total);
+	}
+
+	/**
+	 * Search the page of matches next to one of them, for the keyset pagination.
+	 *
+	 * @param text
+	 *            The text to look for, see {@link #search(String, COLUMN, boolean, int, int)}
+	 * @param column
+	 *            The column to sort the matches by, null to sort them by relevance
+	 * @param ascending
+	 *            The sort direction, ignored when sorting by relevance
+	 * @param cursorId
+	 *            The id of the computer the page starts after, null for the first page. The page is the first one
+	 *            too if this computer does not match anymore.
+	 * @param backward
+	 *            True for the page ending before this computer
+	 * @param size
+	 *            The size of the page
+	 * @return The matches of the page, in the order asked
+	 */
+	public SearchMatches seek(String text, COLUMN column, boolean ascending, Long cursorId, boolean backward,
+			int size) {
+		Map<Long, Integer> scores = new HashMap<>();
+		List<SearchDocument> matches = match(text, scores);
+		Comparator<SearchDocument> order = order(scores, column, ascending);
+		SearchDocument cursor = null;
+		for (int i = 0; cursorId != null && cursor == null && i < matches.size(); i++) {
+			if (matches.get(i).getId() == cursorId) {
+				cursor = matches.get(i);
+			}
+		}
+		if (cursor == null) {
+			return new SearchMatches(top(matches, order, size), matches.size(), false, matches.size() > size);
+		}
+
+		// The matches on the side of the cursor, the cursor's own match out
+		List<SearchDocument> side = new ArrayList<>();
+		for (SearchDocument document : matches) {
+			int compared = order.compare(document, cursor);
+			if (backward ? compared < 0 : compared > 0) {
+				side.add(document);
+			}
+		}
+		if (!backward) {
+			return new SearchMatches(top(side, order, size), matches.size(), true, side.size() > size);
+		}
+		// The last ones before the cursor
+		List<SearchDocument> page = top(side, order.reversed(), size);
+		Collections.reverse(page);
+		return new SearchMatches(page, matches.size(), side.size() > size, true);
+	}
+
+	/**
+	 * @param scores
+	 *            Receives the score of each match, by id
+	 * @return The computers matching the text, in no order
+	 */
+	private List<SearchDocument> match(String text, Map<Long, Integer> scores) {
+		String query = SearchDocument.normalize(text);
+		if (query == null) {
+			return Collections.emptyList();
+		}
+		awaitIndex(false);
+
+		List<SearchDocument> matches = new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			Index index = current;
+			if (query.length() >= GRAM) {
+				LongList candidates = rarestPosting(index, query);
+				for (int i = 0; candidates != null && i < candidates.size(); i++) {
+					collect(index, candidates.get(i), query, matches, scores);
+				}
+			} else {
+				for (LongList candidates : index.words.subMap(query, query + Character.MAX_VALUE).values()) {
+					for (int i = 0; i < candidates.size(); i++) {
+						collect(index, candidates.get(i), query, matches, scores);
+					}
+				}
+			}
+			for (Map.Entry<Long, String> company : index.companies.entrySet()) {
+				LongList candidates = index.companyComputers.get(company.getKey());
+				if (candidates != null && rank(company.getValue(), query) != NO_MATCH) {
+					for (int i = 0; i < candidates.size(); i++) {
+						collect(index, candidates.get(i), query, matches, scores);
+					}
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return matches;
+	}
+
+	/**
+	 * Build the index again in the background, from the database : the searches read the current one meanwhile.
+	 */
+	public void invalidate() {
+		lock.writeLock().lock();
+		try {
+			stale = true;
+			if (build != null) {
+				// Its reads may have missed the bulk write
+				rebuild = true;
+			} else if (current != null) {
+				startBuild();
+			}
+			// Else built on the first search
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Wait for the index to hold every change committed so far, bulk writes included : the searches only wait for the
+	 * first index.
+	 */
+	public void awaitBuilt() {
+		awaitIndex(true);
+	}
+
+	/**
+	 * Apply a committed change of the computers.
+	 *
+	 * @param event
+	 *            The change
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onComputerChanged(final ComputerChangedEvent event) {
+		if (event.getType() == ComputerChangedEvent.Type.RELOADED) {
+			invalidate();
+			return;
+		}
+		if (current == null && !isBuilding()) {
+			// Not built yet, it will read the change from the database
+			return;
+		}
+
+		final SearchDocument document;
+		if (event.getType() == ComputerChangedEvent.Type.SAVED) {
+			Computer computer = event.getComputer();
+			document = new SearchDocument(computer, companyName(computer.getCompany()));
+		} else {
+			document = null;
+		}
+
+		lock.writeLock().lock();
+		try {
+			if (current != null) {
+				current.apply(event, document);
+			}
+			if (build != null) {
+				pending.add(index -> index.apply(event, document));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Wait for an index to search.
+	 *
+	 * @param upToDate
+	 *            True to wait for an index built after the last bulk write too, false to search the previous one
+	 *            meanwhile
+	 */
+	private void awaitIndex(boolean upToDate) {
+		while (current == null || stale) {
+			Future<?> awaited;
+			lock.writeLock().lock();
+			try {
+				if (current != null && !stale) {
+					return;
+				}
+				// A failed build is started again by the next search
+				awaited = (build == null) ? startBuild() : build;
+				if (current != null && !upToDate) {
+					return;
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+
+			try {
+				awaited.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while the search index is built", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IllegalStateException("Search index not built", e.getCause());
+			}
+		}
+	}
+
+	private boolean isBuilding() {
+		lock.readLock().lock();
+		try {
+			return build != null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/** Start a build in the background. Called under the write lock. */
+	private Future<?> startBuild() {
+		rebuild = false;
+		pending.clear();
+		build = builder.submit(this::build);
+		return build;
+	}
+
+	/** Build an index from the database, then swap it in. Runs on the builder thread. */
+	private void build() {
+		long start = System.nanoTime();
+		Index index = new Index();
+		try {
+			// On the primary : the changes committed before the build are not applied by their events
+			PrimaryReads.call(() -> {
+				PageCursor cursor = null;
+				List<ComputerDTO> batch;
+				do {
+					// A select of the computers, with the company names they hold : no join
+					batch = computerDAO.findDTOByKeyset(null, true, cursor, BUILD_BATCH);
+					for (ComputerDTO c : batch) {
+						index.put(new SearchDocument(c));
+					}
+					if (!batch.isEmpty()) {
+						cursor = new PageCursor(null, true, false, null, batch.get(batch.size() - 1).getId());
+					}
+				} while (batch.size() == BUILD_BATCH);
+				return null;
+			});
+		} catch (RuntimeException e) {
+			lock.writeLock().lock();
+			try {
+				build = null;
+				pending.clear();
+			} finally {
+				lock.writeLock().unlock();
+			}
+			LOGGER.error("Search index not built, {}", (current == null) ? "no search until it is"
+					: "the previous one is searched meanwhile", e);
+			throw e;
+		}
+
+		lock.writeLock().lock();
+		try {
+			for (Consumer<Index> change : pending) {
+				change.accept(index);
+			}
+			current = index;
+			build = null;
+			stale = rebuild;
+			if (rebuild) {
+				startBuild();
+			}
+			LOGGER.info("Search index built : {} computers in {} ms", index.documents.size(),
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/** Stop the build in progress. */
+	@PreDestroy
+	public void shutdown() {
+		builder.shutdownNow();
+	}
+
+	/**
+	 * @return The name of the company, read from the index or the database if the company only carries its id
+	 */
+	private String companyName(Company company) {
+		if (company == null || company.getName() != null) {
+			return (company == null) ? null : company.getName();
+		}
+		lock.readLock().lock();
+		try {
+			String name = (current == null) ? null : current.companies.get(company.getId());
+			if (name != null) {
+				return name;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		Company stored = companyDAO.findOne(company.getId());
+		return (stored == null) ? null : stored.getName();
+	}
+
+	/** @return The shortest posting list of the query's trigrams, null if one of them is unknown */
+	private static LongList rarestPosting(Index index, String query) {
+		LongList rarest = null;
+		for (String gram : grams(query)) {
+			LongList ids = index.grams.get(gram);
+			if (ids == null) {
+				return null;
+			}
+			if (rarest == null || ids.size() < rarest.size()) {
+				rarest = ids;
+			}
+		}
+		return rarest;
+	}
+
+	/** Add a candidate to the matches if it matches, and was not already. */
+	private static void collect(Index index, long id, String query, List<SearchDocument> matches,
+			Map<Long, Integer> scores) {
+		SearchDocument document = index.documents.get(id);
+		if (document == null || scores.containsKey(id)) {
+			return;
+		}
+		int nameRank = rank(document.getName(), query);
+		int companyRank = rank(document.getCompanyName(), query);
+		if (nameRank == NO_MATCH && companyRank == NO_MATCH) {
+			return;
+		}
+		// At the same rank, a computer name match comes first
+		int score = Math.min((nameRank == NO_MATCH) ? NO_MATCH : nameRank * 2,
+				(companyRank == NO_MATCH) ? NO_MATCH : companyRank * 2 + 1);
+		scores.put(id, score);
+		matches.add(document);
+	}
+
+	/**
+	 * @param text
+	 *            A normalized name, can be null
+	 * @param query
+	 *            The normalized query
+	 * @return How the query matches the text. Queries shorter than {@link #GRAM} only match prefixes.
+	 */
+	static int rank(String text, String query) {
+		if (text == null) {
+			return NO_MATCH;
+		}
+		if (text.equals(query)) {
+			return EXACT;
+		}
+		if (text.startsWith(query)) {
+			return PREFIX;
+		}
+		int i = text.indexOf(query);
+		if (i < 0) {
+			return NO_MATCH;
+		}
+		for (; i > 0; i = text.indexOf(query, i + 1)) {
+			if (!Character.isLetterOrDigit(text.charAt(i - 1))) {
+				return WORD_PREFIX;
+			}
+		}
+		return (query.length() < GRAM) ? NO_MATCH : SUBSTRING;
+	}
+
+	/** @return The distinct trigrams of a normalized name, none if it is null or too short */
+	static Set<String> grams(String name) {
+		if (name == null || name.length() < GRAM) {
+			return Collections.emptySet();
+		}
+		Set<String> result = new HashSet<>();
+		for (int i = 0; i + GRAM <= name.length(); i++) {
+			result.add(name.substring(i, i + GRAM));
+		}
+		return result;
+	}
+
+	/** @return The name and its tails starting at each word, none if it is null */
+	static Set<String> words(String name) {
+		if (name == null) {
+			return Collections.emptySet();
+		}
+		Set<String> result = new HashSet<>();
+		result.add(name);
+		for (int i = 1; i < name.length(); i++) {
+			if (!Character.isLetterOrDigit(name.charAt(i - 1)) && Character.isLetterOrDigit(name.charAt(i))) {
+				result.add(name.substring(i));
+			}
+		}
+		return result;
+	}
+
+	private static <K> LongList posting(Map<K, LongList> index, K key) {
+		LongList ids = index.get(key);
+		if (ids == null) {
+			ids = new LongList();
+			index.put(key, ids);
+		}
+		return ids;
+	}
+
+	/**
+	 * @return The count first documents in this order, sorted : kept in a heap of this size, rather than all sorted
+	 */
+	static List<SearchDocument> top(List<SearchDocument> documents, Comparator<SearchDocument> order, int count) {
+		if (count <= 0 || documents.isEmpty()) {
+			return new ArrayList<>();
+		}
+		// The last one kept on top, to be replaced by a better one
+		PriorityQueue<SearchDocument> heap = new PriorityQueue<>(Math.min(count, documents.size()), order.reversed());
+		for (SearchDocument document : documents) {
+			if (heap.size() < count) {
+				heap.add(document);
+			} else if (order.compare(document, heap.peek()) < 0) {
+				heap.poll();
+				heap.add(document);
+			}
+		}
+		List<SearchDocument> result = new ArrayList<>(heap);
+		result.sort(order);
+		return result;
+	}
+
+	private static boolean equal(String a, String b) {
+		return (a == null) ? b == null : a.equals(b);
+	}
+
+	private static Comparator<SearchDocument> order(Map<Long, Integer> scores, COLUMN column, boolean ascending) {
+		return (column == null) ? byScore(scores) : byColumn(column, ascending);
+	}
+
+	/** Relevance order : best score, then name and id. */
+	private static Comparator<SearchDocument> byScore(final Map<Long, Integer> scores) {
+		return Comparator.<SearchDocument> comparingInt(d -> scores.get(d.getId()))
+				.thenComparing(SearchDocument::getName, Comparator.nullsLast(Comparator.<String> naturalOrder()))
+				.thenComparingLong(SearchDocument::getId);
+	}
+
+	/** Order of the database : the column (NULL first), then the id, both in the given direction. */
+	private static Comparator<SearchDocument> byColumn(COLUMN column, boolean ascending) {
+		Comparator<SearchDocument> order;
+		switch (column) {
+		case INTRODUCED:
+			order = Comparator.comparingLong(SearchDocument::getIntroduced);
+			break;
+		case DISCONTINUED:
+			order = Comparator.comparingLong(SearchDocument::getDiscontinued);
+			break;
+		case COMPANY_NAME:
+			order = Comparator.comparing(SearchDocument::getCompanyName,
+					Comparator.nullsFirst(Comparator.<String> naturalOrder()));
+			break;
+		case COMPUTER_NAME:
+		default:
+			order = Comparator.comparing(SearchDocument::getName,
+					Comparator.nullsFirst(Comparator.<String> naturalOrder()));
+			break;
+		}
+		order = order.thenComparingLong(SearchDocument::getId);
+		return ascending ? order : order.reversed();
+	}
+}
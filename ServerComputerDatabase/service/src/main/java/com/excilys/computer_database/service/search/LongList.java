@@ -0,0 +1,46 @@
+package com.excilys.computer_database.service.search;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive longs : a posting list of the index costs 8 bytes per id, instead of a boxed Long and a
+ * collection entry.
+ */
+final class LongList {
+	private long[] values = new long[2];
+	private int size;
+
+	void add(long value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size + (size >> 1) + 1);
+		}
+		values[size++] = value;
+	}
+
+	/**
+	 * Remove a value, without keeping the order of the others.
+	 *
+	 * @return True if the value was in the list
+	 */
+	boolean remove(long value) {
+		for (int i = 0; i < size; i++) {
+			if (values[i] == value) {
+				values[i] = values[--size];
+				return true;
+			}
+		}
+		return false;
+	}
+
+	long get(int index) {
+		return values[index];
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+}
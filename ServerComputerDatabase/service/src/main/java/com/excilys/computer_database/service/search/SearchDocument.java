@@ -0,0 +1,121 @@
+package com.excilys.computer_database.service.search;
+
+import java.util.Locale;
+
+import com.excilys.computer_database.core.date.EpochDays;
+import com.excilys.computer_database.core.dto.ComputerDTO;
+import com.excilys.computer_database.core.entity.Computer;
+
+/**
+ * What the search index knows about a computer : its normalized names, to match and sort them, and its dates, to sort
+ * the matches as the database would.
+ */
+public final class SearchDocument {
+	/** Date of the documents without date : the smallest key, as NULL in MySQL. */
+	public static final long NO_DATE = EpochDays.NONE;
+
+	private final long id;
+	private final String name;
+	private final Long companyId;
+	private final String companyName;
+	private final long introduced, discontinued;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param computer
+	 *            The computer
+	 * @param companyName
+	 *            The name of its company, null if none
+	 */
+	SearchDocument(Computer computer, String companyName) {
+		this.id = computer.getId();
+		this.name = normalize(computer.getName());
+		this.companyId = (computer.getCompany() == null) ? null : computer.getCompany().getId();
+		this.companyName = normalize(companyName);
+		this.introduced = computer.getIntroduced();
+		this.discontinued = computer.getDiscontinued();
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param computer
+	 *            The computer, with the name of its company
+	 */
+	SearchDocument(ComputerDTO computer) {
+		this.id = computer.getId();
+		this.name = normalize(computer.getName());
+		this.companyId = computer.getCompanyId();
+		this.companyName = normalize(computer.getCompanyName());
+		this.introduced = computer.getIntroducedDay();
+		this.discontinued = computer.getDiscontinuedDay();
+	}
+
+	private SearchDocument(SearchDocument document, String companyName) {
+		this.id = document.id;
+		this.name = document.name;
+		this.companyId = document.companyId;
+		this.companyName = normalize(companyName);
+		this.introduced = document.introduced;
+		this.discontinued = document.discontinued;
+	}
+
+	/**
+	 * @param companyName
+	 *            The new name of its company, null if none
+	 * @return The same computer, with this company name
+	 */
+	SearchDocument withCompanyName(String companyName) {
+		return new SearchDocument(this, companyName);
+	}
+
+	/**
+	 * @param text
+	 *            A name or a query
+	 * @return The text as it is indexed : trimmed and lower case, null if empty
+	 */
+	static String normalize(String text) {
+		if (text == null) {
+			return null;
+		}
+		String normalized = text.trim().toLowerCase(Locale.ROOT);
+		return normalized.isEmpty() ? null : normalized;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * @return The normalized computer name, null if none
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public Long getCompanyId() {
+		return companyId;
+	}
+
+	/**
+	 * @return The normalized company name, null if none
+	 */
+	public String getCompanyName() {
+		return companyName;
+	}
+
+	/**
+	 * @return The introduction epoch day, {@link #NO_DATE} if none
+	 */
+	public long getIntroduced() {
+		return introduced;
+	}
+
+	/**
+	 * @return The discontinuation epoch day, {@link #NO_DATE} if none
+	 */
+	public long getDiscontinued() {
+		return discontinued;
+	}
+}
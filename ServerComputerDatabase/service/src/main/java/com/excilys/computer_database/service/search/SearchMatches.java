@@ -0,0 +1,37 @@
+package com.excilys.computer_database.service.search;
+
+import java.util.List;
+
+/**
+ * A page of the matches of a search, with their count and whether there are matches on each side of the page.
+ */
+public final class SearchMatches {
+	private final List<SearchDocument> page;
+	private final int total;
+	private final boolean hasPrevious, hasNext;
+
+	SearchMatches(List<SearchDocument> page, int total, boolean hasPrevious, boolean hasNext) {
+		this.page = page;
+		this.total = total;
+		this.hasPrevious = hasPrevious;
+		this.hasNext = hasNext;
+	}
+
+	/** @return The matches of the page, in the order asked */
+	public List<SearchDocument> getPage() {
+		return page;
+	}
+
+	/** @return The number of matches, all pages together */
+	public int getTotal() {
+		return total;
+	}
+
+	public boolean hasPrevious() {
+		return hasPrevious;
+	}
+
+	public boolean hasNext() {
+		return hasNext;
+	}
+}
@@ -0,0 +1,170 @@
+package com.excilys.computer_database.webapp.async;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.excilys.computer_database.persistence.routing.ReadYourWrites;
+import com.excilys.computer_database.persistence.statistics.StatementCounter;
+import com.excilys.computer_database.persistence.timeout.StatementDeadline;
+import com.excilys.computer_database.webapp.filter.StatementCountFilter;
+import com.excilys.computer_database.webapp.metrics.MetricsInterceptor;
+
+/**
+ * Run the database work of the REST requests out of the container threads (Servlet 3 async) : the container thread is
+ * released while the queries run, so a slow database doesn't block the other pages (login, resources).
+ *
+ * The work runs on a fixed number of threads (the size of the connection pool is enough) with a bounded queue : when
+ * the queue is full the request ends at once with a {@link ServiceOverloadedException} instead of piling up, when the
+ * work doesn't end before the timeout with a {@link ServiceTimeoutException} (the work may still commit). The
+ * statements of a work are bounded by the timeout (see {@link StatementDeadline}), so an abandoned work frees its
+ * thread : interrupting it doesn't stop a JDBC call.
+ *
+ * Configured by rest.executor.threads, rest.executor.queue and rest.executor.timeout (ms) in application.properties.
+ */
+@Component
+public class RestExecutor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RestExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final Meter rejected, timeouts;
+
+    /**
+     * Constructor, from the application properties.
+     * @param env The properties
+     * @param metricRegistry Receives the queue, active threads, rejection and timeout metrics
+     */
+    @Autowired
+    public RestExecutor(Environment env, MetricRegistry metricRegistry) {
+        this(env.getProperty("rest.executor.threads", Integer.class, 10),
+                env.getProperty("rest.executor.queue", Integer.class, 50),
+                env.getProperty("rest.executor.timeout", Long.class, 10000L), metricRegistry);
+    }
+
+    /**
+     * Constructor.
+     * @param threads The threads running the work
+     * @param queueCapacity The requests waiting for a thread, the next ones are refused
+     * @param timeoutMillis The time given to a request, from its submission to its result
+     * @param metricRegistry Receives the queue, active threads, rejection and timeout metrics
+     */
+    public RestExecutor(int threads, int queueCapacity, long timeoutMillis, MetricRegistry metricRegistry) {
+        this.timeoutMillis = timeoutMillis;
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("rest-"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        metricRegistry.register("rest.executor.active", (Gauge<Integer>) executor::getActiveCount);
+        metricRegistry.register("rest.executor.queued", (Gauge<Integer>) () -> executor.getQueue().size());
+        rejected = metricRegistry.meter("rest.executor.rejected");
+        timeouts = metricRegistry.meter("rest.executor.timeouts");
+    }
+
+    /**
+     * Run a work asynchronously. Return the result from the controller : the request is completed when the work ends.
+     *
+     * The statements run by the work are added to the count of the request (see {@link StatementCountFilter}), and the
+     * time it waited for the database to its metrics (see {@link MetricsInterceptor}). It reads the writes of the client
+     * of the request (see {@link ReadYourWrites}).
+     * @param work The work, its exceptions are handled as if thrown by the controller
+     * @return The result of the work, a ServiceOverloadedException if the queue is full, a ServiceTimeoutException on
+     *         timeout
+     */
+    public <T> DeferredResult<T> submit(Callable<T> work) {
+        DeferredResult<T> result = new DeferredResult<>(timeoutMillis);
+        HttpServletRequest request = currentRequest();
+        String client = ReadYourWrites.getClient();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+
+        Future<?> future;
+        try {
+            future = executor.submit(() -> {
+                if (result.isSetOrExpired()) {
+                    return;
+                }
+                StatementCounter.Snapshot snapshot = StatementCounter.start();
+                ReadYourWrites.setClient(client);
+                StatementDeadline.set(deadline);
+                T value = null;
+                Exception error = null;
+                try {
+                    value = work.call();
+                } catch (Exception e) {
+                    error = e;
+                } finally {
+                    StatementDeadline.clear();
+                    ReadYourWrites.setClient(null);
+                }
+
+                // Before the result, which dispatches the request back to the container. Once the result is set by
+                // the timeout, the request may be recycled for another one : left alone.
+                synchronized (result) {
+                    if (result.isSetOrExpired()) {
+                        return;
+                    }
+                    if (request != null) {
+                        request.setAttribute(StatementCountFilter.ASYNC_STATEMENTS_ATTRIBUTE,
+                                snapshot.getStatements());
+                        request.setAttribute(MetricsInterceptor.ASYNC_DATABASE_NANOS_ATTRIBUTE,
+                                snapshot.getDatabaseNanos());
+                    }
+                }
+                if (error == null) {
+                    result.setResult(value);
+                } else {
+                    result.setErrorResult(error);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.mark();
+            LOGGER.warn("REST request refused, {} requests waiting", executor.getQueue().size());
+            result.setErrorResult(new ServiceOverloadedException("Too many requests waiting for the database"));
+            return result;
+        }
+
+        // Free the thread or the place in the queue of an abandoned request
+        result.onTimeout(() -> {
+            timeouts.mark();
+            future.cancel(true);
+            synchronized (result) {
+                result.setErrorResult(new ServiceTimeoutException("No result after " + timeoutMillis + " ms"));
+            }
+        });
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return The request handled by the current thread, null out of a request
+     */
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return (attributes instanceof ServletRequestAttributes) ? ((ServletRequestAttributes) attributes).getRequest()
+                : null;
+    }
+}
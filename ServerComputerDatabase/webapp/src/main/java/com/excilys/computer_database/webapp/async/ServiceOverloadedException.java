@@ -0,0 +1,13 @@
+package com.excilys.computer_database.webapp.async;
+
+/**
+ * A request refused by the {@link RestExecutor} : its database work could not be queued, it never ran. Sent as a 503,
+ * the client should retry later.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package com.excilys.computer_database.webapp.async;
+
+/**
+ * A request abandoned by the {@link RestExecutor} at its timeout : its database work may still end after the answer,
+ * a write may be committed. Sent as a 504, without Retry-After : the client should read the data before retrying a
+ * write.
+ */
+public class ServiceTimeoutException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public ServiceTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -13,6 +13,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 
 import com.excilys.computer_database.core.dto.ComputerDTO;
+import com.excilys.computer_database.core.page.CountStrategy;
 import com.excilys.computer_database.core.page.SimplePage;
 import com.excilys.computer_database.service.ComputerService;
 import com.excilys.computer_database.service.ComputerService.COLUMN;
@@ -25,7 +26,8 @@ public class DashboardController {
 
     // Request's parameters
     private static final String PAGE_SIZE = "pageSize", CURRENT_PAGE = "page", ORDER_BY = "column", SEARCH = "search",
-            COMPUTER_LIST = "computerList", NB_RESULTS = "nbResults", LIST_TO_DELETE = "selection", ORDER_TAG = "order";
+            COMPUTER_LIST = "computerList", NB_RESULTS = "nbResults", LIST_TO_DELETE = "selection", ORDER_TAG = "order",
+            CURSOR = "cursor", NEXT_CURSOR = "nextCursor", PREV_CURSOR = "prevCursor";
     private static final String VIEW_NAME = "dashboard";
     // Legal param values
     private static final Map<String, COLUMN> COLUMN_AUTHORISED;
@@ -75,12 +77,24 @@ public class DashboardController {
         String search = request.getParameter(SEARCH);
         request.setAttribute(SEARCH, search);
 
+        // Cursor : when present, seek the page from it instead of using the page number
+        String cursor = request.getParameter(CURSOR);
+        request.setAttribute(CURSOR, cursor);
+
         // Ask the DB
-        SimplePage<ComputerDTO> searchResult = computerService.listComputersDTO(column, order, search, currentPage,
-                pageSize);
+        SimplePage<ComputerDTO> searchResult;
+        if (cursor != null) {
+            searchResult = computerService.seekComputersDTO(column, order, search, cursor, pageSize);
+        } else {
+            // The total shown by the dashboard is counted once per write, not once per page
+            searchResult = computerService.listComputersDTO(column, order, search, currentPage, pageSize,
+                    CountStrategy.CACHED);
+        }
 
         request.setAttribute(COMPUTER_LIST, searchResult.getList());
         request.setAttribute(NB_RESULTS, searchResult.getElementTotalCount());
+        request.setAttribute(NEXT_CURSOR, searchResult.getNextCursor());
+        request.setAttribute(PREV_CURSOR, searchResult.getPrevCursor());
 
         return VIEW_NAME;
     }
@@ -94,7 +108,7 @@ public class DashboardController {
             String[] tab = selection.split(",");
 
             // Verify it's long value
-            Long[] idTab = new Long[tab.length];
+            long[] idTab = new long[tab.length];
             for (int i = 0; i < tab.length; i++) {
                 idTab[i] = Long.parseLong(tab[i]);
             }
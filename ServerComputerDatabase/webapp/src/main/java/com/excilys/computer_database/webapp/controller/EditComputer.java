@@ -20,6 +20,7 @@ import com.excilys.computer_database.core.dto.CompanyDTO;
 import com.excilys.computer_database.core.dto.ComputerDTO;
 import com.excilys.computer_database.service.CompanyService;
 import com.excilys.computer_database.service.ComputerService;
+import com.excilys.computer_database.service.ComputerService.UpdateResult;
 
 @Controller
 @RequestMapping("editComputer")
@@ -44,7 +45,13 @@ public class EditComputer {
     public String getRequest(HttpServletRequest request) {
         // Verify the request contains the computer's id to edit
         Long idComputer = Long.parseLong(request.getParameter("idComputer"));
+        return editPage(request, idComputer);
+    }
 
+    /**
+     * The form, filled with the computer as stored.
+     */
+    private String editPage(HttpServletRequest request, Long idComputer) {
         // Fetch the computer to edit
         ComputerDTOMapper mapper = new ComputerDTOMapper();
         ComputerDTO computer = mapper.unmap(computerService.getComputerById(idComputer));
@@ -70,7 +77,11 @@ public class EditComputer {
         }
 
         // Validation by constraint (date coherences)
-        computerService.update(computerDTO);
+        if (computerService.update(computerDTO) == UpdateResult.CONFLICT) {
+            // Edited since the form was read : show the current computer, to edit again
+            request.setAttribute("conflict", true);
+            return editPage(request, computerDTO.getId());
+        }
 
         return dashboard.dashboardGet(request);
     }
@@ -0,0 +1,125 @@
+package com.excilys.computer_database.webapp.controller;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.excilys.computer_database.persistence.statistics.Instrumentation;
+import com.excilys.computer_database.persistence.statistics.OperationMetrics;
+import com.excilys.computer_database.webapp.metrics.PrometheusWriter;
+
+/**
+ * Expose the application's metrics in JSON, and in the text format of Prometheus, to be scraped by the monitoring.
+ */
+@RestController
+public class MetricsController {
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final double MICROS_PER_MILLI = TimeUnit.MILLISECONDS.toMicros(1);
+
+    @Autowired
+    private MetricRegistry metricRegistry;
+    @Autowired
+    private Instrumentation instrumentation;
+
+    /**
+     * Connection pool metrics : active, idle, pending and total connections, the connection acquire time (ms) and the
+     * connection usage time (ms). Followed by the other metrics of the registry, as the company cache hits and misses,
+     * and by the timed operations (see {@link #operations(Map)}).
+     * @return The metrics, by name
+     */
+    @RequestMapping({ "/rest/metrics", "/rest/metrics/pool" })
+    public Map<String, Object> pool() {
+        Map<String, Object> metrics = new TreeMap<>();
+
+        for (Map.Entry<String, Gauge> e : metricRegistry.getGauges().entrySet()) {
+            metrics.put(e.getKey(), e.getValue().getValue());
+        }
+        for (Map.Entry<String, Timer> e : metricRegistry.getTimers().entrySet()) {
+            Map<String, Object> timer = snapshot(e.getValue().getSnapshot(), NANOS_PER_MILLI);
+            timer.put("count", e.getValue().getCount());
+            timer.put("m1_rate", e.getValue().getOneMinuteRate());
+            metrics.put(e.getKey(), timer);
+        }
+        for (Map.Entry<String, com.codahale.metrics.Histogram> e : metricRegistry.getHistograms().entrySet()) {
+            Map<String, Object> histogram = snapshot(e.getValue().getSnapshot(), 1);
+            histogram.put("count", e.getValue().getCount());
+            metrics.put(e.getKey(), histogram);
+        }
+        for (Map.Entry<String, Meter> e : metricRegistry.getMeters().entrySet()) {
+            Map<String, Object> meter = new TreeMap<>();
+            meter.put("count", e.getValue().getCount());
+            meter.put("m1_rate", e.getValue().getOneMinuteRate());
+            metrics.put(e.getKey(), meter);
+        }
+        operations(metrics);
+
+        return metrics;
+    }
+
+    /**
+     * The metrics in the text format of Prometheus : the timed operations by layer, then the registry.
+     * @param response The response
+     * @throws IOException If the response can't be written
+     */
+    @RequestMapping("/rest/metrics/prometheus")
+    public void prometheus(HttpServletResponse response) throws IOException {
+        response.setContentType(PrometheusWriter.CONTENT_TYPE);
+        PrintWriter out = response.getWriter();
+        PrometheusWriter writer = new PrometheusWriter(out);
+        writer.writeOperations(instrumentation.getOperations());
+        writer.writeRegistry(metricRegistry);
+        out.flush();
+    }
+
+    /**
+     * Add the timed operations, as http.RESTController.listComputer : the calls, the errors, the latencies of the last
+     * minute (ms) and the share of their time spent waiting for the database.
+     * @param metrics The metrics, by name
+     */
+    private void operations(Map<String, Object> metrics) {
+        for (OperationMetrics operation : instrumentation.getOperations()) {
+            Histogram latencies = operation.getRecentLatencies();
+            Map<String, Object> values = new TreeMap<>();
+            values.put("count", operation.getCount());
+            values.put("errors", operation.getErrors());
+            values.put("db_share", operation.getDatabaseShare());
+            values.put("mean", latencies.getMean() / MICROS_PER_MILLI);
+            values.put("max", latencies.getMaxValue() / MICROS_PER_MILLI);
+            values.put("p50", latencies.getValueAtPercentile(50) / MICROS_PER_MILLI);
+            values.put("p99", latencies.getValueAtPercentile(99) / MICROS_PER_MILLI);
+            values.put("p999", latencies.getValueAtPercentile(99.9) / MICROS_PER_MILLI);
+            metrics.put(operation.getLayer() + "." + operation.getName(), values);
+        }
+    }
+
+    /**
+     * Summarize a snapshot.
+     * @param s The snapshot
+     * @param divisor The unit conversion to apply to the values
+     * @return The mean, max and main percentiles
+     */
+    private Map<String, Object> snapshot(Snapshot s, double divisor) {
+        Map<String, Object> values = new TreeMap<>();
+        values.put("mean", s.getMean() / divisor);
+        values.put("max", s.getMax() / divisor);
+        values.put("p50", s.getMedian() / divisor);
+        values.put("p95", s.get95thPercentile() / divisor);
+        values.put("p99", s.get99thPercentile() / divisor);
+        values.put("p999", s.get999thPercentile() / divisor);
+        return values;
+    }
+}
@@ -1,30 +1,71 @@
 package com.excilys.computer_database.webapp.controller;
 
-import java.time.LocalDate;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.List;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
 
-import com.excilys.computer_database.core.DateHelper;
+import com.excilys.computer_database.core.date.EpochDays;
 import com.excilys.computer_database.core.entity.Company;
 import com.excilys.computer_database.core.entity.Computer;
 import com.excilys.computer_database.core.entity.Computer.ComputerBuilder;
+import com.excilys.computer_database.core.page.CountStrategy;
 import com.excilys.computer_database.core.page.SimplePage;
+import com.excilys.computer_database.persistence.routing.PrimaryReads;
 import com.excilys.computer_database.service.CompanyService;
 import com.excilys.computer_database.service.ComputerService;
+import com.excilys.computer_database.service.ComputerService.UpdateResult;
+import com.excilys.computer_database.service.cache.DataVersions;
+import com.excilys.computer_database.service.imports.ComputerImporter;
+import com.excilys.computer_database.service.imports.ImportFormat;
+import com.excilys.computer_database.service.imports.ImportMode;
+import com.excilys.computer_database.service.imports.ImportReport;
+import com.excilys.computer_database.webapp.async.RestExecutor;
+import com.excilys.computer_database.webapp.async.ServiceOverloadedException;
+import com.excilys.computer_database.webapp.async.ServiceTimeoutException;
+import com.excilys.computer_database.webapp.export.ExportFormat;
+import com.excilys.computer_database.webapp.export.ExportWriter;
 
+/**
+ * The REST API. The requests are answered asynchronously : their database work runs on the {@link RestExecutor}, and
+ * they are answered with a 503 when it is overloaded. The export and the import, long transfers of the whole body,
+ * stay on the container thread.
+ *
+ * The reads are tagged with the version of their table (see {@link DataVersions}) : a client sending the tag it
+ * received in If-None-Match gets a 304 without any query while the table is not written. The tagged reads go to the
+ * primary (see {@link PrimaryReads}) : read from a lagging replica, an older body would be kept under the current tag.
+ */
 @RestController
 public class RESTController {
 	private static List<Integer> authorized_size = Arrays.asList(10, 20, 50);
+	/** Seconds before retrying a refused request. */
+	private static final String RETRY_AFTER = "1";
 
 	@Autowired
 	private ComputerService computerService;
 	@Autowired
 	private CompanyService companyService;
+	@Autowired
+	private ComputerImporter computerImporter;
+	@Autowired
+	private RestExecutor restExecutor;
+	@Autowired
+	private DataVersions dataVersions;
 
 	@RequestMapping("/rest/listcompany")
 	/**
@@ -34,16 +75,27 @@ public class RESTController {
 	 *            The page number
 	 * @param size
 	 *            The size of the requested page (10, 20 or 50)
-	 * @return
+	 * @param count
+	 *            How to compute the totals : EXACT (default), CACHED, ESTIMATED or HAS_NEXT
+	 * @param webRequest
+	 *            The request, checked against the version of the companies
+	 * @return Nothing if not modified
 	 */
-	public SimplePage<Company> listCompany(@RequestParam(value = "pageNumber", defaultValue = "0") int pageNumber,
-			@RequestParam(value = "size", defaultValue = "20") int size) {
+	public DeferredResult<SimplePage<Company>> listCompany(
+			@RequestParam(value = "pageNumber", defaultValue = "0") int pageNumber,
+			@RequestParam(value = "size", defaultValue = "20") int size,
+			@RequestParam(value = "count", defaultValue = "EXACT") CountStrategy count, ServletWebRequest webRequest) {
+		if (notModified(webRequest, DataVersions.COMPANIES)) {
+			return null;
+		}
+
 		// Check request parameters
-		pageNumber = checkPageNumber(pageNumber);
-		size = checkPageSize(size);
+		int checkedPageNumber = checkPageNumber(pageNumber);
+		int checkedSize = checkPageSize(size);
 
 		// List and send companies
-		return companyService.listSomeCompanies(pageNumber, size);
+		return restExecutor.submit(() -> PrimaryReads
+				.call(() -> companyService.listSomeCompanies(checkedPageNumber, checkedSize, count)));
 	}
 
 	/**
@@ -53,17 +105,36 @@ public class RESTController {
 	 *            The page number
 	 * @param size
 	 *            The size of the requested page (10, 20 or 50)
-	 * @return
+	 * @param cursor
+	 *            The nextCursor or prevCursor of a previous page : seek the page from there instead of using the page
+	 *            number. An empty value requests the first page in this mode.
+	 * @param count
+	 *            How to compute the totals without cursor : EXACT (default), CACHED, ESTIMATED or HAS_NEXT
+	 * @param webRequest
+	 *            The request, checked against the version of the computers
+	 * @return Nothing if not modified
 	 */
 	@RequestMapping("/rest/listcomputer")
-	public SimplePage<Computer> listComputer(@RequestParam(value = "pageNumber", defaultValue = "0") int pageNumber,
-			@RequestParam(value = "size", defaultValue = "20") int size) {
+	public DeferredResult<SimplePage<Computer>> listComputer(
+			@RequestParam(value = "pageNumber", defaultValue = "0") int pageNumber,
+			@RequestParam(value = "size", defaultValue = "20") int size,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "count", defaultValue = "EXACT") CountStrategy count, ServletWebRequest webRequest) {
+		if (notModified(webRequest, DataVersions.COMPUTERS)) {
+			return null;
+		}
+
 		// Check request parameters
-		pageNumber = checkPageNumber(pageNumber);
-		size = checkPageSize(size);
+		int checkedPageNumber = checkPageNumber(pageNumber);
+		int checkedSize = checkPageSize(size);
 
 		// List and send companies without search or order parameters
-		return computerService.listComputers(null, null, null, pageNumber, size);
+		return restExecutor.submit(() -> PrimaryReads.call(() -> {
+			if (cursor != null) {
+				return computerService.seekComputers(null, null, null, cursor, checkedSize);
+			}
+			return computerService.listComputers(null, null, null, checkedPageNumber, checkedSize, count);
+		}));
 	}
 
 	/**
@@ -71,11 +142,17 @@ public class RESTController {
 	 * 
 	 * @param id
 	 *            The computer id to fetch
-	 * @return
+	 * @param webRequest
+	 *            The request, checked against the version of the computers
+	 * @return Nothing if not modified
 	 */
 	@RequestMapping("/rest/findcomputer")
-	public Computer findComputer(@RequestParam(value = "id", required = true) Long id) {
-		return computerService.getComputerById(id);
+	public DeferredResult<Computer> findComputer(@RequestParam(value = "id", required = true) Long id,
+			ServletWebRequest webRequest) {
+		if (notModified(webRequest, DataVersions.COMPUTERS)) {
+			return null;
+		}
+		return restExecutor.submit(() -> PrimaryReads.call(() -> computerService.getComputerById(id)));
 	}
 
 	/**
@@ -92,34 +169,32 @@ public class RESTController {
 	 * @return
 	 */
 	@RequestMapping("/rest/createcomputer")
-	public Computer createComputer(@RequestParam(value = "name", required = true) String name,
+	public DeferredResult<Computer> createComputer(@RequestParam(value = "name", required = true) String name,
 			@RequestParam(value = "introduced", required = false) String introduced,
 			@RequestParam(value = "discontinued", required = false) String discontinued,
 			@RequestParam(value = "companyId", required = false) Long companyId) {
-		LocalDate finalIntroduced = null;
-		if (introduced != null) {
-			finalIntroduced = DateHelper.isoStringToLocalDate(introduced);
-		}
+		long finalIntroduced = (introduced == null) ? EpochDays.NONE : EpochDays.parseIso(introduced);
 
-		LocalDate finalDiscontinued = null;
-		if (discontinued != null) {
-			finalDiscontinued = DateHelper.isoStringToLocalDate(discontinued);
-		}
+		long finalDiscontinued = (discontinued == null) ? EpochDays.NONE : EpochDays.parseIso(discontinued);
 
-		Company company = null;
-		if (companyId != null) {
-			company = companyService.find(companyId);
-		}
+		return restExecutor.submit(() -> {
+			Company company = null;
+			if (companyId != null) {
+				company = companyService.find(companyId);
+			}
 
-		// TODO : Passer par un validator au préalable
-		return new ComputerBuilder(name).introduced(finalIntroduced).discontinued(finalDiscontinued).company(company)
-				.build();
+			// TODO : Passer par un validator au préalable
+			return new ComputerBuilder(name).introduced(finalIntroduced).discontinued(finalDiscontinued)
+					.company(company).build();
+		});
 	}
 
-	@RequestMapping("/rest/updatecomputer")
 	/**
-	 * Catch the computer update requests and send the result in JSON format.
+	 * Catch the computer update requests and send the result in JSON format. The update fails if the computer was
+	 * updated since the version the client read : the answer is a 409 with the current computer, to retry from it.
 	 * 
+	 * @param id
+	 *            The computer id
 	 * @param name
 	 *            The computer name
 	 * @param introduced
@@ -128,32 +203,99 @@ public class RESTController {
 	 *            The computer discontinued date
 	 * @param companyId
 	 *            The computer's company id
-	 * @return
+	 * @param version
+	 *            The version of the computer read by the client. Without it, the computer is overwritten whatever its
+	 *            version
+	 * @return The computer updated, with its new version
 	 */
-	public Computer updateComputer(@RequestParam(value = "id", required = true) Long id,
+	@RequestMapping("/rest/updatecomputer")
+	public DeferredResult<ResponseEntity<Computer>> updateComputer(@RequestParam(value = "id", required = true) Long id,
 			@RequestParam(value = "name", required = true) String name,
 			@RequestParam(value = "introduced", required = false) String introduced,
 			@RequestParam(value = "discontinued", required = false) String discontinued,
-			@RequestParam(value = "companyId", required = false) Long companyId) {
+			@RequestParam(value = "companyId", required = false) Long companyId,
+			@RequestParam(value = "version", required = false) Long version) {
 		// Formating the parameters
-		LocalDate finalIntroduced = null;
-		if (introduced != null) {
-			finalIntroduced = DateHelper.isoStringToLocalDate(introduced);
-		}
+		long finalIntroduced = (introduced == null) ? EpochDays.NONE : EpochDays.parseIso(introduced);
 
-		LocalDate finalDiscontinued = null;
-		if (discontinued != null) {
-			finalDiscontinued = DateHelper.isoStringToLocalDate(discontinued);
-		}
+		long finalDiscontinued = (discontinued == null) ? EpochDays.NONE : EpochDays.parseIso(discontinued);
+
+		return restExecutor.submit(() -> {
+			Company company = null;
+			if (companyId != null) {
+				company = companyService.find(companyId);
+			}
+
+			// TODO : Validate the computer
+			Computer computer = new ComputerBuilder(name).id(id).introduced(finalIntroduced)
+					.discontinued(finalDiscontinued).company(company).build();
+			if (version == null) {
+				computerService.overwrite(computer);
+			} else {
+				computer.setVersion(version);
+				if (computerService.update(computer) == UpdateResult.CONFLICT) {
+					return ResponseEntity.status(HttpStatus.CONFLICT).body(computerService.getComputerById(id));
+				}
+			}
+			return ResponseEntity.ok(computer);
+		});
+	}
 
-		Company company = null;
-		if (companyId != null) {
-			company = companyService.find(companyId);
+	/**
+	 * Stream all the computers, ordered by id : each row is written as it is read from the database, so the whole
+	 * catalog can be exported with a constant memory.
+	 * 
+	 * @param format
+	 *            NDJSON (default, a JSON object per line) or CSV
+	 * @param response
+	 *            The response to write
+	 * @throws IOException
+	 *             If the client is gone
+	 */
+	@RequestMapping("/rest/export")
+	public void export(@RequestParam(value = "format", defaultValue = "NDJSON") ExportFormat format,
+			HttpServletResponse response) throws IOException {
+		response.setContentType(format.getContentType());
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("Content-Disposition", "attachment; filename=\"computers." + format.getExtension() + "\"");
+
+		try (ExportWriter out = format.open(response.getWriter())) {
+			computerService.exportComputers(computer -> {
+				try {
+					out.write(computer);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
 		}
+	}
 
-		// TODO : Validate the computer
-		return new ComputerBuilder(name).id(id).introduced(finalIntroduced).discontinued(finalDiscontinued)
-				.company(company).build();
+	/**
+	 * Import the computers posted in the request body, in the format of the export : see
+	 * {@link ComputerImporter#importComputers}.
+	 * 
+	 * @param format
+	 *            NDJSON (default) or CSV
+	 * @param mode
+	 *            UPSERT (default) to update the computers of the same name and company, INSERT to insert them all
+	 * @return The report of the import, with a 500 status if it stopped before the end
+	 * @throws IOException
+	 *             If the body can't be read
+	 */
+	@RequestMapping(value = "/rest/import", method = RequestMethod.POST)
+	public ImportReport importComputers(@RequestParam(value = "format", defaultValue = "NDJSON") ImportFormat format,
+			@RequestParam(value = "mode", defaultValue = "UPSERT") ImportMode mode, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		if (request.getCharacterEncoding() == null) {
+			request.setCharacterEncoding("UTF-8");
+		}
+		ImportReport report = computerImporter.importComputers(request.getReader(), format, mode);
+		if (report.getFailure() != null) {
+			response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+		}
+		return report;
 	}
 
 	@RequestMapping("/rest/deleteComputer")
@@ -164,9 +306,52 @@ public class RESTController {
 	 *            The computer id to fetch
 	 * @return
 	 */
-	public String deleteComputer(@RequestParam(value = "id", required = true) Long id) {
-		computerService.delete(id);
-		return "Ok";
+	public DeferredResult<String> deleteComputer(@RequestParam(value = "id", required = true) Long id) {
+		return restExecutor.submit(() -> {
+			computerService.delete(id);
+			return "Ok";
+		});
+	}
+
+	/**
+	 * Answer the requests refused by the {@link RestExecutor} with a 503, and a Retry-After header.
+	 * 
+	 * @param e
+	 *            Why the request was refused
+	 * @return The response
+	 */
+	@ExceptionHandler(ServiceOverloadedException.class)
+	public ResponseEntity<String> overloaded(ServiceOverloadedException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER)
+				.body(e.getMessage());
+	}
+
+	/**
+	 * Answer the requests abandoned by the {@link RestExecutor} at their timeout with a 504, without Retry-After : their
+	 * work may still commit, a write is not to be retried blindly.
+	 * 
+	 * @param e
+	 *            Why the request was abandoned
+	 * @return The response
+	 */
+	@ExceptionHandler(ServiceTimeoutException.class)
+	public ResponseEntity<String> timedOut(ServiceTimeoutException e) {
+		return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(e.getMessage());
+	}
+
+	/**
+	 * Tag the response with the version of the table it reads, before reading it.
+	 * 
+	 * @param webRequest
+	 *            The request
+	 * @param table
+	 *            The table read by the request
+	 * @return True if the client has this version : the response is a 304, nothing else to do
+	 */
+	private boolean notModified(ServletWebRequest webRequest, String table) {
+		// Revalidated on each use, rather than never stored
+		webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+		return webRequest.checkNotModified(dataVersions.etag(table));
 	}
 
 	/**
@@ -0,0 +1,81 @@
+package com.excilys.computer_database.webapp.export;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import com.excilys.computer_database.core.date.EpochDays;
+import com.excilys.computer_database.core.dto.ComputerDTO;
+
+/**
+ * CSV as of RFC 4180 : a header line, then a line per computer. The dates are in ISO format, the missing values are
+ * empty.
+ */
+public class CsvExportWriter extends ExportWriter {
+    static final String HEADER = "id,name,introduced,discontinued,companyId,companyName";
+    private static final String LINE_END = "\r\n";
+
+    private final char[] date = new char[EpochDays.ISO_LENGTH];
+
+    /**
+     * Constructor : writes the header.
+     * @param out Where to write
+     * @throws IOException If the header can't be written
+     */
+    public CsvExportWriter(Writer out) throws IOException {
+        super(out);
+        out.write(HEADER);
+        out.write(LINE_END);
+    }
+
+    @Override
+    public void write(ComputerDTO computer) throws IOException {
+        out.write(Long.toString(computer.getId()));
+        out.write(',');
+        writeText(computer.getName());
+        out.write(',');
+        writeDate(computer.getIntroducedDay());
+        out.write(',');
+        writeDate(computer.getDiscontinuedDay());
+        out.write(',');
+        if (computer.getCompanyId() != null) {
+            out.write(Long.toString(computer.getCompanyId()));
+        }
+        out.write(',');
+        writeText(computer.getCompanyName());
+        out.write(LINE_END);
+    }
+
+    private void writeDate(long epochDay) throws IOException {
+        if (epochDay != EpochDays.NONE) {
+            EpochDays.formatIso(epochDay, date, 0);
+            out.write(date);
+        }
+    }
+
+    /**
+     * Write a field, quoted if it holds a separator, a quote or a line break.
+     */
+    private void writeText(String text) throws IOException {
+        if (text == null) {
+            return;
+        }
+        boolean quoted = false;
+        for (int i = 0; i < text.length() && !quoted; i++) {
+            char c = text.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quoted) {
+            out.write(text);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+}
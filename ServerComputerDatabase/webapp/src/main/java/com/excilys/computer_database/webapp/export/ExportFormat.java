@@ -0,0 +1,44 @@
+package com.excilys.computer_database.webapp.export;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The formats of the catalog export.
+ */
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson") {
+        @Override
+        public ExportWriter open(Writer out) throws IOException {
+            return new NdjsonExportWriter(out);
+        }
+    },
+    CSV("text/csv", "csv") {
+        @Override
+        public ExportWriter open(Writer out) throws IOException {
+            return new CsvExportWriter(out);
+        }
+    };
+
+    private final String contentType, extension;
+
+    private ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    /**
+     * @param out Where to write the computers
+     * @return The writer of this format
+     * @throws IOException If the beginning of the export can't be written
+     */
+    public abstract ExportWriter open(Writer out) throws IOException;
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,38 @@
+package com.excilys.computer_database.webapp.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+import com.excilys.computer_database.core.dto.ComputerDTO;
+
+/**
+ * Writes the exported computers one by one to a character stream, without holding them.
+ */
+public abstract class ExportWriter implements Closeable {
+    protected final Writer out;
+
+    /**
+     * Constructor.
+     * @param out Where to write : flushed, but not closed, by {@link #close()}
+     */
+    protected ExportWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Write a computer.
+     * @param computer The computer
+     * @throws IOException If the stream can't be written (the client is gone)
+     */
+    public abstract void write(ComputerDTO computer) throws IOException;
+
+    /**
+     * Flush what is buffered. The stream is left open : it belongs to the caller.
+     * @throws IOException If the stream can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        out.flush();
+    }
+}
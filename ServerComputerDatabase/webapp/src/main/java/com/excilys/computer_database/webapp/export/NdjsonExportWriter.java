@@ -0,0 +1,43 @@
+package com.excilys.computer_database.webapp.export;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import com.excilys.computer_database.core.dto.ComputerDTO;
+import com.excilys.computer_database.webapp.json.ComputerDTOSerializer;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Newline delimited JSON : a JSON object per computer, on its own line.
+ */
+public class NdjsonExportWriter extends ExportWriter {
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private final JsonGenerator generator;
+
+    /**
+     * Constructor.
+     * @param out Where to write
+     * @throws IOException If the generator can't be created
+     */
+    public NdjsonExportWriter(Writer out) throws IOException {
+        super(out);
+        generator = FACTORY.createGenerator(out);
+        // The lines separate the objects
+        generator.setRootValueSeparator(null);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Override
+    public void write(ComputerDTO computer) throws IOException {
+        ComputerDTOSerializer.write(computer, generator);
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+        super.close();
+    }
+}
@@ -0,0 +1,292 @@
+package com.excilys.computer_database.webapp.filter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Compress the text responses (JSON, CSV, HTML...) larger than the minLength init parameter (default 1024 bytes) in
+ * gzip, for the clients accepting it. The body is held until it reaches this length, then compressed as it is
+ * written : a streamed response stays streamed.
+ *
+ * An asynchronous request is compressed when its result is written, on the dispatch ending it.
+ *
+ * Every text response varies on Accept-Encoding, compressed or not, for the caches. A compressed response is another
+ * representation : its ETag is made weak, which If-None-Match still matches.
+ */
+public class GzipFilter extends OncePerRequestFilter {
+    private static final String[] COMPRESSED_TYPES = { "text/", "application/json", "application/x-ndjson",
+        "application/javascript", "application/xml" };
+
+    private int minLength = 1024;
+
+    public void setMinLength(int minLength) {
+        this.minLength = minLength;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        // Already wrapped by the dispatch which started the request
+        GzipResponse gzipResponse = WebUtils.getNativeResponse(response, GzipResponse.class);
+        if (gzipResponse == null) {
+            if ("HEAD".equals(request.getMethod())) {
+                chain.doFilter(request, response);
+                return;
+            }
+            gzipResponse = new GzipResponse(response, minLength, acceptsGzip(request));
+            response = gzipResponse;
+        }
+
+        chain.doFilter(request, response);
+        // On error, the held body is dropped for the error page
+        if (!isAsyncStarted(request)) {
+            gzipResponse.finish();
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String accepted = request.getHeader("Accept-Encoding");
+        return accepted != null && accepted.toLowerCase().contains("gzip");
+    }
+
+    /**
+     * @return True if the content type is text, worth compressing
+     */
+    static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase();
+        for (String compressed : COMPRESSED_TYPES) {
+            if (type.startsWith(compressed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hold the body until it is long enough to be compressed, or until it ends.
+     */
+    static final class GzipResponse extends HttpServletResponseWrapper {
+        private final int minLength;
+        /** False if the client doesn't accept gzip : the body is only held to tell its type. */
+        private final boolean accepted;
+        private final ByteArrayOutputStream held;
+        /** Where the body goes once decided : the response itself or the compression. Null while held. */
+        private OutputStream target;
+        private GzipOutputStream stream;
+        private PrintWriter writer;
+
+        GzipResponse(HttpServletResponse response, int minLength, boolean accepted) {
+            super(response);
+            this.minLength = minLength;
+            this.accepted = accepted;
+            held = new ByteArrayOutputStream(minLength);
+        }
+
+        // The length is not known before the compression
+        @Override
+        public void setContentLength(int len) {
+            if (!accepted) {
+                super.setContentLength(len);
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (!accepted || !"Content-Length".equalsIgnoreCase(name)) {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (!accepted || !"Content-Length".equalsIgnoreCase(name)) {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+            if (stream == null) {
+                stream = new GzipOutputStream();
+            }
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (stream != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called");
+                }
+                stream = new GzipOutputStream();
+                writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (target != null) {
+                target.flush();
+            }
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            held.reset();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            held.reset();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (target != null) {
+                throw new IllegalStateException("The response body has already been sent");
+            }
+            held.reset();
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            resetBuffer();
+            super.reset();
+        }
+
+        /**
+         * Send the end of the body : the held bytes, or the end of the compression.
+         * @throws IOException If the body can't be written
+         */
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (target == null) {
+                if (held.size() == 0) {
+                    return;
+                }
+                // Short enough to be sent as is, with its length
+                vary();
+                getResponse().setContentLength(held.size());
+                target = getResponse().getOutputStream();
+                held.writeTo(target);
+            } else if (target instanceof GZIPOutputStream) {
+                ((GZIPOutputStream) target).finish();
+            }
+            target.flush();
+        }
+
+        /**
+         * Decide how to send the body, once it is longer than the minimum or flushed.
+         */
+        private void start(boolean compress) throws IOException {
+            OutputStream out = getResponse().getOutputStream();
+            vary();
+            if (compress && accepted && !isCommitted() && getHeader("Content-Encoding") == null
+                    && isCompressible(getContentType())) {
+                super.setHeader("Content-Encoding", "gzip");
+                String etag = getHeader("ETag");
+                if (etag != null && !etag.startsWith("W/")) {
+                    super.setHeader("ETag", "W/" + etag);
+                }
+                // Flushed on each flush of the response, for the streamed responses
+                target = new GZIPOutputStream(out, 8192, true);
+            } else {
+                target = out;
+            }
+            held.writeTo(target);
+            held.reset();
+        }
+
+        /**
+         * Tell the caches that a text response depends on Accept-Encoding, whether this one is compressed or not.
+         */
+        private void vary() {
+            if (isCommitted() || !isCompressible(getContentType())) {
+                return;
+            }
+            for (String vary : getHeaders("Vary")) {
+                if (vary.toLowerCase().contains("accept-encoding")) {
+                    return;
+                }
+            }
+            super.addHeader("Vary", "Accept-Encoding");
+        }
+
+        private final class GzipOutputStream extends ServletOutputStream {
+            @Override
+            public void write(int b) throws IOException {
+                if (target == null) {
+                    held.write(b);
+                    if (held.size() >= minLength) {
+                        start(true);
+                    }
+                    return;
+                }
+                target.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (target == null) {
+                    if (held.size() + len < minLength) {
+                        held.write(b, off, len);
+                        return;
+                    }
+                    start(true);
+                }
+                target.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                // A flush before the minimum length commits the response : too late to compress
+                if (target == null && held.size() > 0) {
+                    start(false);
+                }
+                if (target != null) {
+                    target.flush();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                // Closed by the filter
+            }
+        }
+    }
+}
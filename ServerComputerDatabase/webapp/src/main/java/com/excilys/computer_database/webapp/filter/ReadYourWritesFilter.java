@@ -0,0 +1,50 @@
+package com.excilys.computer_database.webapp.filter;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.excilys.computer_database.persistence.routing.ReadYourWrites;
+
+/**
+ * Tell the database routing which client the request works for, so that it reads its own writes (see
+ * {@link ReadYourWrites}) : the authenticated user, else the session, else the address. Mapped after the security
+ * filters, which set the user.
+ *
+ * The asynchronous work of the request gets the client from the RestExecutor.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ReadYourWrites.setClient(client(request));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.setClient(null);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    private static String client(HttpServletRequest request) {
+        if (request.getRemoteUser() != null) {
+            return "user:" + request.getRemoteUser();
+        }
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            return "session:" + session.getId();
+        }
+        return "address:" + request.getRemoteAddr();
+    }
+}
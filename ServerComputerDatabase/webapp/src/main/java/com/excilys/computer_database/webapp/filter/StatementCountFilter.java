@@ -0,0 +1,141 @@
+package com.excilys.computer_database.webapp.filter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.excilys.computer_database.persistence.statistics.StatementCounter;
+
+/**
+ * Count the SQL statements run by each request. The count is sent in the X-SQL-Statements header, and logged with the
+ * sqlStatements MDC field : at debug level, at warn level above the warnThreshold init parameter (default 20).
+ *
+ * The header is set when the body starts to be written : statements run after it (while rendering the view) are only
+ * in the log.
+ *
+ * An asynchronous request is counted when it is dispatched back with its result, adding the statements of the work
+ * stored in the {@link #ASYNC_STATEMENTS_ATTRIBUTE} request attribute (see RestExecutor).
+ */
+public class StatementCountFilter extends OncePerRequestFilter {
+    public static final String HEADER = "X-SQL-Statements", MDC_KEY = "sqlStatements";
+    /** Request attribute : the statements run by the asynchronous work of the request, a Long. */
+    public static final String ASYNC_STATEMENTS_ATTRIBUTE = StatementCountFilter.class.getName() + ".ASYNC_STATEMENTS";
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementCountFilter.class);
+
+    private int warnThreshold = 20;
+
+    public void setWarnThreshold(int warnThreshold) {
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        StatementCounter.Snapshot snapshot = StatementCounter.start();
+        long asyncStatements = 0;
+        if (isAsyncDispatch(request)) {
+            Long work = (Long) request.getAttribute(ASYNC_STATEMENTS_ATTRIBUTE);
+            asyncStatements = (work == null) ? 0 : work;
+        }
+        CountingResponse countingResponse = new CountingResponse(response, snapshot, asyncStatements);
+        try {
+            chain.doFilter(request, countingResponse);
+        } finally {
+            // Counted when the result is dispatched
+            if (!isAsyncStarted(request)) {
+                countingResponse.setCountHeader();
+                log(request, countingResponse.getStatements());
+            }
+        }
+    }
+
+    private void log(HttpServletRequest request, long statements) {
+        MDC.put(MDC_KEY, Long.toString(statements));
+        try {
+            if (statements > warnThreshold) {
+                LOGGER.warn("{} {} : {} SQL statements", request.getMethod(), request.getRequestURI(), statements);
+            } else {
+                LOGGER.debug("{} {} : {} SQL statements", request.getMethod(), request.getRequestURI(), statements);
+            }
+        } finally {
+            MDC.remove(MDC_KEY);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    /**
+     * Set the header before the response is committed.
+     */
+    private static final class CountingResponse extends HttpServletResponseWrapper {
+        private final StatementCounter.Snapshot snapshot;
+        private final long asyncStatements;
+
+        CountingResponse(HttpServletResponse response, StatementCounter.Snapshot snapshot, long asyncStatements) {
+            super(response);
+            this.snapshot = snapshot;
+            this.asyncStatements = asyncStatements;
+        }
+
+        long getStatements() {
+            return snapshot.getStatements() + asyncStatements;
+        }
+
+        /** Ignored by the container once the response is committed. */
+        void setCountHeader() {
+            if (!isCommitted()) {
+                setHeader(HEADER, Long.toString(getStatements()));
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            setCountHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            setCountHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            setCountHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            setCountHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            setCountHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            setCountHeader();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.excilys.computer_database.webapp.json;
+
+import java.io.IOException;
+
+import com.excilys.computer_database.core.entity.Company;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Writes a company as its bean properties would be : id, name.
+ */
+public class CompanySerializer extends StdSerializer<Company> {
+    private static final long serialVersionUID = 1L;
+
+    public CompanySerializer() {
+        super(Company.class);
+    }
+
+    @Override
+    public void serialize(Company company, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        write(company, generator);
+    }
+
+    /**
+     * Write a company.
+     * @param company The company, can be null
+     * @param generator The generator
+     * @throws IOException If the generator fails to write
+     */
+    public static void write(Company company, JsonGenerator generator) throws IOException {
+        if (company == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartObject();
+        if (company.getId() == null) {
+            generator.writeNullField("id");
+        } else {
+            generator.writeNumberField("id", company.getId());
+        }
+        generator.writeStringField("name", company.getName());
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,50 @@
+package com.excilys.computer_database.webapp.json;
+
+import java.io.IOException;
+
+import com.excilys.computer_database.core.dto.ComputerDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Writes a computer DTO as the export does : id, name, introduced, discontinued (ISO dates), companyId, companyName.
+ */
+public class ComputerDTOSerializer extends StdSerializer<ComputerDTO> {
+    private static final long serialVersionUID = 1L;
+
+    public ComputerDTOSerializer() {
+        super(ComputerDTO.class);
+    }
+
+    @Override
+    public void serialize(ComputerDTO computer, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        write(computer, generator);
+    }
+
+    /**
+     * Write a computer DTO.
+     * @param computer The computer
+     * @param generator The generator
+     * @throws IOException If the generator fails to write
+     */
+    public static void write(ComputerDTO computer, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        if (computer.getId() == null) {
+            generator.writeNullField("id");
+        } else {
+            generator.writeNumberField("id", computer.getId());
+        }
+        generator.writeStringField("name", computer.getName());
+        EpochDaySerializer.writeField(generator, "introduced", computer.getIntroducedDay());
+        EpochDaySerializer.writeField(generator, "discontinued", computer.getDiscontinuedDay());
+        if (computer.getCompanyId() == null) {
+            generator.writeNullField("companyId");
+        } else {
+            generator.writeNumberField("companyId", computer.getCompanyId());
+        }
+        generator.writeStringField("companyName", computer.getCompanyName());
+        generator.writeEndObject();
+    }
+}
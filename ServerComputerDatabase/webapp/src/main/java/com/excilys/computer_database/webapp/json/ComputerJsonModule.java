@@ -0,0 +1,38 @@
+package com.excilys.computer_database.webapp.json;
+
+import com.excilys.computer_database.core.dto.ComputerDTO;
+import com.excilys.computer_database.core.entity.Company;
+import com.excilys.computer_database.core.entity.Computer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * The JSON form of the computers : their epoch days are written in epoch milliseconds, as the Timestamps of the REST
+ * API were, or null. They are read from the milliseconds or from ISO dates (yyyy-MM-dd).
+ *
+ * The pages, computers, DTOs and companies are written by hand through the generator rather than by reflection, in
+ * the same form as their bean properties (but for the DTOs, written as the export does, with ISO dates).
+ */
+public class ComputerJsonModule extends SimpleModule {
+    private static final long serialVersionUID = 1L;
+
+    public ComputerJsonModule() {
+        super("ComputerJsonModule");
+        addSerializer(Computer.class, new ComputerSerializer());
+        addSerializer(Company.class, new CompanySerializer());
+        addSerializer(ComputerDTO.class, new ComputerDTOSerializer());
+        addSerializer(new SimplePageSerializer());
+        setMixInAnnotation(Computer.class, ComputerMixIn.class);
+    }
+
+    /**
+     * The deserialization of the dates of a computer.
+     */
+    abstract static class ComputerMixIn {
+        @JsonDeserialize(using = EpochDayDeserializer.class)
+        abstract void setIntroduced(long introduced);
+
+        @JsonDeserialize(using = EpochDayDeserializer.class)
+        abstract void setDiscontinued(long discontinued);
+    }
+}
@@ -0,0 +1,38 @@
+package com.excilys.computer_database.webapp.json;
+
+import java.io.IOException;
+
+import com.excilys.computer_database.core.entity.Computer;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Writes a computer as its bean properties would be, the dates in epoch milliseconds as the Timestamps they were, the
+ * company inline.
+ */
+public class ComputerSerializer extends StdSerializer<Computer> {
+    private static final long serialVersionUID = 1L;
+
+    public ComputerSerializer() {
+        super(Computer.class);
+    }
+
+    @Override
+    public void serialize(Computer computer, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        generator.writeStartObject();
+        if (computer.getId() == null) {
+            generator.writeNullField("id");
+        } else {
+            generator.writeNumberField("id", computer.getId());
+        }
+        generator.writeStringField("name", computer.getName());
+        EpochDaySerializer.writeMillisField(generator, "introduced", computer.getIntroduced());
+        EpochDaySerializer.writeMillisField(generator, "discontinued", computer.getDiscontinued());
+        generator.writeFieldName("company");
+        CompanySerializer.write(computer.getCompany(), generator);
+        generator.writeNumberField("version", computer.getVersion());
+        generator.writeEndObject();
+    }
+}
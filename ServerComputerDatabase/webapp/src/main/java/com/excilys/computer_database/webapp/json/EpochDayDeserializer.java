@@ -0,0 +1,41 @@
+package com.excilys.computer_database.webapp.json;
+
+import java.io.IOException;
+import java.time.format.DateTimeParseException;
+
+import com.excilys.computer_database.core.date.EpochDays;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+
+/**
+ * Reads an ISO date (yyyy-MM-dd), or the epoch milliseconds of a Timestamp, into an epoch day, null into NONE.
+ */
+public class EpochDayDeserializer extends StdScalarDeserializer<Long> {
+    private static final long serialVersionUID = 1L;
+
+    public EpochDayDeserializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return EpochDays.fromMillis(parser.getLongValue());
+        }
+        if (parser.getCurrentToken() != JsonToken.VALUE_STRING) {
+            throw context.mappingException(Long.class, parser.getCurrentToken());
+        }
+        try {
+            return EpochDays.parseIso(parser.getText());
+        } catch (DateTimeParseException e) {
+            throw context.weirdStringException(parser.getText(), Long.class, e.getMessage());
+        }
+    }
+
+    @Override
+    public Long getNullValue(DeserializationContext context) {
+        return EpochDays.NONE;
+    }
+}
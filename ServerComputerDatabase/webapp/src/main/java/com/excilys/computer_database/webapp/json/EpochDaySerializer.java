@@ -0,0 +1,51 @@
+package com.excilys.computer_database.webapp.json;
+
+import java.io.IOException;
+
+import com.excilys.computer_database.core.date.EpochDays;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes the epoch days (see {@link EpochDays}) as ISO strings through a buffer of the thread, or as the epoch
+ * milliseconds of their midnight, null if NONE : the primitive day is never boxed nor turned into a String.
+ */
+public final class EpochDaySerializer {
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[EpochDays.ISO_LENGTH]);
+
+    private EpochDaySerializer() {
+    }
+
+    /**
+     * Write a date field as an ISO string.
+     * @param generator The generator, in an object
+     * @param name The field name
+     * @param epochDay The date, NONE for null
+     * @throws IOException If the generator fails to write
+     */
+    public static void writeField(JsonGenerator generator, String name, long epochDay) throws IOException {
+        generator.writeFieldName(name);
+        if (epochDay == EpochDays.NONE) {
+            generator.writeNull();
+            return;
+        }
+        char[] buffer = BUFFER.get();
+        EpochDays.formatIso(epochDay, buffer, 0);
+        generator.writeString(buffer, 0, EpochDays.ISO_LENGTH);
+    }
+
+    /**
+     * Write a date field as the Timestamps of the REST API were : the epoch milliseconds of its midnight in the
+     * zone of the server.
+     * @param generator The generator, in an object
+     * @param name The field name
+     * @param epochDay The date, NONE for null
+     * @throws IOException If the generator fails to write
+     */
+    public static void writeMillisField(JsonGenerator generator, String name, long epochDay) throws IOException {
+        if (epochDay == EpochDays.NONE) {
+            generator.writeNullField(name);
+        } else {
+            generator.writeNumberField(name, EpochDays.toMillis(epochDay));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.excilys.computer_database.webapp.json;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.excilys.computer_database.core.page.SimplePage;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Writes a page as its bean properties would be, in the same order. The elements are written by the serializer of
+ * their class, looked up once for a page of elements of the same class.
+ */
+public class SimplePageSerializer extends StdSerializer<SimplePage<?>> {
+    private static final long serialVersionUID = 1L;
+
+    public SimplePageSerializer() {
+        super(SimplePage.class, false);
+    }
+
+    @Override
+    public void serialize(SimplePage<?> page, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName("list");
+        writeList(page.getList(), generator, provider);
+        generator.writeNumberField("pageNumber", page.getPageNumber());
+        generator.writeNumberField("size", page.getSize());
+        generator.writeNumberField("elementTotalCount", page.getElementTotalCount());
+        generator.writeNumberField("pageTotalCount", page.getPageTotalCount());
+        generator.writeStringField("nextCursor", page.getNextCursor());
+        generator.writeStringField("prevCursor", page.getPrevCursor());
+        if (page.getCountStrategy() == null) {
+            generator.writeNullField("countStrategy");
+        } else {
+            generator.writeStringField("countStrategy", page.getCountStrategy().name());
+        }
+        generator.writeBooleanField("hasNext", page.isHasNext());
+        generator.writeEndObject();
+    }
+
+    private static void writeList(List<?> list, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        if (list == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray();
+        Class<?> serializedClass = null;
+        JsonSerializer<Object> serializer = null;
+        for (Object element : list) {
+            if (element == null) {
+                generator.writeNull();
+                continue;
+            }
+            if (element.getClass() != serializedClass) {
+                serializedClass = element.getClass();
+                serializer = provider.findValueSerializer(serializedClass);
+            }
+            serializer.serialize(element, generator, provider);
+        }
+        generator.writeEndArray();
+    }
+}
@@ -0,0 +1,84 @@
+package com.excilys.computer_database.webapp.metrics;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import com.excilys.computer_database.persistence.statistics.Instrumentation;
+import com.excilys.computer_database.persistence.statistics.OperationMetrics;
+import com.excilys.computer_database.persistence.statistics.StatementCounter;
+
+/**
+ * Time the requests of each controller method in the {@link Instrumentation}, as Controller.method, with the time they
+ * waited for the database. A request fails with an exception or a status of 500 or more.
+ *
+ * An asynchronous request is timed from its first dispatch to the end of the dispatch of its result, adding the time
+ * its work waited for the database, stored in the {@link #ASYNC_DATABASE_NANOS_ATTRIBUTE} request attribute (see
+ * RestExecutor).
+ */
+public class MetricsInterceptor implements AsyncHandlerInterceptor {
+    /** Request attribute : the time the asynchronous work of the request waited for the database, a Long. */
+    public static final String ASYNC_DATABASE_NANOS_ATTRIBUTE = MetricsInterceptor.class.getName()
+            + ".ASYNC_DATABASE_NANOS";
+    private static final String START_ATTRIBUTE = MetricsInterceptor.class.getName() + ".START";
+    private static final String SNAPSHOT_ATTRIBUTE = MetricsInterceptor.class.getName() + ".SNAPSHOT";
+    /** The time the dispatches before the current one waited for the database, a Long. */
+    private static final String DATABASE_NANOS_ATTRIBUTE = MetricsInterceptor.class.getName() + ".DATABASE_NANOS";
+
+    @Autowired
+    private Instrumentation instrumentation;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        // Each dispatch on its own thread
+        request.setAttribute(SNAPSHOT_ATTRIBUTE, StatementCounter.start());
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+            ModelAndView modelAndView) {
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        request.setAttribute(DATABASE_NANOS_ATTRIBUTE, databaseNanos(request));
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        Long start = (Long) request.getAttribute(START_ATTRIBUTE);
+        if (start == null || !(handler instanceof HandlerMethod)) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        long databaseNanos = databaseNanos(request);
+        Long asyncNanos = (Long) request.getAttribute(ASYNC_DATABASE_NANOS_ATTRIBUTE);
+        if (asyncNanos != null) {
+            databaseNanos += asyncNanos;
+        }
+
+        HandlerMethod method = (HandlerMethod) handler;
+        OperationMetrics operation = instrumentation.operation(Instrumentation.HTTP,
+                method.getBeanType().getSimpleName() + "." + method.getMethod().getName());
+        operation.record(nanos, databaseNanos, ex != null || response.getStatus() >= 500);
+    }
+
+    /**
+     * @return The time the request waited for the database so far, on the current thread and the previous dispatches
+     */
+    private static long databaseNanos(HttpServletRequest request) {
+        StatementCounter.Snapshot snapshot = (StatementCounter.Snapshot) request.getAttribute(SNAPSHOT_ATTRIBUTE);
+        Long previous = (Long) request.getAttribute(DATABASE_NANOS_ATTRIBUTE);
+        return ((snapshot == null) ? 0 : snapshot.getDatabaseNanos()) + ((previous == null) ? 0 : previous);
+    }
+}
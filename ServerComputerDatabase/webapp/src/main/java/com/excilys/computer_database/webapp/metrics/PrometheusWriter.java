@@ -0,0 +1,169 @@
+package com.excilys.computer_database.webapp.metrics;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.excilys.computer_database.persistence.statistics.Instrumentation;
+import com.excilys.computer_database.persistence.statistics.OperationMetrics;
+
+/**
+ * Write the metrics in the text format of Prometheus (version 0.0.4).
+ *
+ * The operations of the {@link Instrumentation} are three families by layer, labelled by operation : a summary of the
+ * latencies (the quantiles of the last minute, the sum and count since the start), the errors and the time waited for
+ * the database. The share of the database is the rate of the latter over the rate of the sum. The metrics of the
+ * registry follow, their names prefixed and their dots replaced by underscores.
+ */
+public final class PrometheusWriter {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String PREFIX = "computer_database_";
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final double MICROS_PER_SECOND = TimeUnit.SECONDS.toMicros(1);
+
+    private final PrintWriter out;
+
+    /**
+     * @param out Where to write
+     */
+    public PrometheusWriter(PrintWriter out) {
+        this.out = out;
+    }
+
+    /**
+     * Write the operations, by layer.
+     * @param operations The operations
+     */
+    public void writeOperations(Collection<OperationMetrics> operations) {
+        for (String layer : new String[] { Instrumentation.HTTP, Instrumentation.SERVICE,
+            Instrumentation.REPOSITORY }) {
+            List<OperationMetrics> calls = new ArrayList<>();
+            for (OperationMetrics operation : operations) {
+                if (operation.getLayer().equals(layer)) {
+                    calls.add(operation);
+                }
+            }
+            if (calls.isEmpty()) {
+                continue;
+            }
+
+            String name = PREFIX + layer + "_seconds";
+            type(name, "summary", "Latency of the " + layer + " calls, quantiles of the last minute");
+            for (OperationMetrics operation : calls) {
+                String label = "operation=\"" + escape(operation.getName()) + "\"";
+                org.HdrHistogram.Histogram latencies = operation.getRecentLatencies();
+                for (double quantile : QUANTILES) {
+                    double value = (latencies.getTotalCount() == 0) ? Double.NaN
+                            : latencies.getValueAtPercentile(quantile * 100) / MICROS_PER_SECOND;
+                    sample(name, label + ",quantile=\"" + quantile + "\"", value);
+                }
+                sample(name + "_sum", label, operation.getTotalNanos() / NANOS_PER_SECOND);
+                sample(name + "_count", label, operation.getCount());
+            }
+
+            name = PREFIX + layer + "_errors_total";
+            type(name, "counter", "Failed " + layer + " calls");
+            for (OperationMetrics operation : calls) {
+                sample(name, "operation=\"" + escape(operation.getName()) + "\"", operation.getErrors());
+            }
+
+            name = PREFIX + layer + "_database_seconds_total";
+            type(name, "counter", "Time the " + layer + " calls waited for the database");
+            for (OperationMetrics operation : calls) {
+                sample(name, "operation=\"" + escape(operation.getName()) + "\"",
+                        operation.getDatabaseNanos() / NANOS_PER_SECOND);
+            }
+        }
+    }
+
+    /**
+     * Write the numeric gauges, the counters, the meters, the timers and the histograms of the registry.
+     * @param registry The registry
+     */
+    public void writeRegistry(MetricRegistry registry) {
+        for (Map.Entry<String, Gauge> e : registry.getGauges().entrySet()) {
+            Object value = e.getValue().getValue();
+            if (value instanceof Number) {
+                String name = PREFIX + sanitize(e.getKey());
+                type(name, "gauge", null);
+                sample(name, null, ((Number) value).doubleValue());
+            }
+        }
+        for (Map.Entry<String, Counter> e : registry.getCounters().entrySet()) {
+            String name = PREFIX + sanitize(e.getKey());
+            type(name, "gauge", null);
+            sample(name, null, e.getValue().getCount());
+        }
+        for (Map.Entry<String, Meter> e : registry.getMeters().entrySet()) {
+            String name = PREFIX + sanitize(e.getKey()) + "_total";
+            type(name, "counter", null);
+            sample(name, null, e.getValue().getCount());
+        }
+        for (Map.Entry<String, Timer> e : registry.getTimers().entrySet()) {
+            String name = PREFIX + sanitize(e.getKey()) + "_seconds";
+            type(name, "summary", null);
+            Snapshot snapshot = e.getValue().getSnapshot();
+            for (double quantile : QUANTILES) {
+                sample(name, "quantile=\"" + quantile + "\"", snapshot.getValue(quantile) / NANOS_PER_SECOND);
+            }
+            sample(name + "_count", null, e.getValue().getCount());
+        }
+        for (Map.Entry<String, Histogram> e : registry.getHistograms().entrySet()) {
+            String name = PREFIX + sanitize(e.getKey());
+            type(name, "summary", null);
+            Snapshot snapshot = e.getValue().getSnapshot();
+            for (double quantile : QUANTILES) {
+                sample(name, "quantile=\"" + quantile + "\"", snapshot.getValue(quantile));
+            }
+            sample(name + "_count", null, e.getValue().getCount());
+        }
+    }
+
+    private void type(String name, String type, String help) {
+        if (help != null) {
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        }
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private void sample(String name, String labels, double value) {
+        out.append(name);
+        if (labels != null) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(format(value)).append('\n');
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return (value > 0) ? "+Inf" : "-Inf";
+        }
+        return (value == Math.rint(value) && Math.abs(value) < 1e15) ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+
+    /**
+     * @return The name with the characters not allowed by Prometheus replaced by underscores
+     */
+    private static String sanitize(String name) {
+        return name.replaceAll("[^a-zA-Z0-9_:]", "_");
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
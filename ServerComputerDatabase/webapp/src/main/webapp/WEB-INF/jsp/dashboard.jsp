@@ -12,7 +12,8 @@
 
 	<section id="main">
 		<div class="container">
-			<h1 id="homeTitle">${nbResults}
+			<h1 id="homeTitle">
+				<c:if test="${nbResults >= 0}">${nbResults}</c:if>
 				<spring:message code="computerFound" />
 			</h1>
 			<div id="actions" class="form-horizontal">
@@ -98,7 +99,8 @@
 		<div class="container text-center">
 			<!-- Pagination buttons -->
 			<tag:pagination pageUrl="dashboard" page="${page}"
-				nbResults="${nbResults}" pageSize="${pageSize}"></tag:pagination>
+				nbResults="${nbResults}" pageSize="${pageSize}" cursor="${cursor}"
+				nextCursor="${nextCursor}" prevCursor="${prevCursor}"></tag:pagination>
 
 			<!-- NumberPerPage buttons -->
 			<div class="btn-group btn-group-sm pull-right" role="group">
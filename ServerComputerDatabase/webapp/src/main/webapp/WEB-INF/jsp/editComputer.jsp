@@ -19,11 +19,19 @@
 						<spring:message code="form.EditComputer" />
 					</h1>
 
+					<c:if test="${conflict}">
+						<div class="alert alert-warning">
+							<spring:message code="form.Conflict" />
+						</div>
+					</c:if>
+
 					<form id="editComputer" action="editComputer" method="POST">
 						<!-- We include the CSRF token in the request, because of Spring Security -->
 						<input type="hidden" name="${_csrf.parameterName}" value="${_csrf.token}" />
 							
 						<input type="hidden" id="id" name="id" value="${computer.id}" />
+						<!-- The version edited : the update fails if the computer was edited since -->
+						<input type="hidden" id="version" name="version" value="${computer.version}" />
 
 						<fieldset>
 							<div class="form-group">
@@ -0,0 +1,112 @@
+package com.excilys.tests.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.codahale.metrics.MetricRegistry;
+import com.excilys.computer_database.persistence.DAOException;
+import com.excilys.computer_database.service.ComputerService;
+import com.excilys.computer_database.webapp.async.RestExecutor;
+import com.excilys.computer_database.webapp.async.ServiceOverloadedException;
+import com.excilys.computer_database.webapp.async.ServiceTimeoutException;
+import com.excilys.computer_database.webapp.filter.StatementCountFilter;
+
+/**
+ * The bounded executor of the asynchronous REST requests : its queue, its errors and its timeout.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"file:src/main/webapp/WEB-INF/applicationContext.xml"})
+@WebAppConfiguration
+public class TestRestExecutor {
+    @Autowired
+    ComputerService computerService;
+    @Autowired
+    DataSource applicationDataSource;
+
+    @Test
+    public void testQueue() throws Exception {
+        RestExecutor executor = new RestExecutor(1, 1, 10000, new MetricRegistry());
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // One running, one waiting : the next ones are refused at once
+            DeferredResult<Long> running = executor.submit(() -> {
+                release.await();
+                return 1L;
+            });
+            DeferredResult<Integer> queued = executor.submit(
+                    () -> computerService.listComputers(null, Direction.ASC, null, 0, 10).getElementTotalCount());
+            DeferredResult<Long> refused = executor.submit(() -> 3L);
+            assertTrue(refused.getResult() instanceof ServiceOverloadedException);
+            assertFalse(queued.hasResult());
+
+            release.countDown();
+            waitFor(queued);
+            assertEquals(1L, running.getResult());
+            assertTrue((Integer) queued.getResult() > 0);
+
+            // The errors of the work are the result
+            DeferredResult<Long> failed = executor.submit(() -> {
+                throw new DAOException("Failed");
+            });
+            waitFor(failed);
+            assertTrue(failed.getResult() instanceof DAOException);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        // A work abandoned at its timeout : its statement is killed at the deadline, which frees the thread, and it
+        // leaves the request alone
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        RestExecutor bounded = new RestExecutor(1, 1, 1000, new MetricRegistry());
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            DeferredResult<Integer> slow = bounded.submit(() -> {
+                started.countDown();
+                return new JdbcTemplate(applicationDataSource).queryForObject("SELECT SLEEP(10)", Integer.class);
+            });
+            started.await();
+            // As the timeout of the container does
+            slow.setErrorResult(new ServiceTimeoutException("No result"));
+            RequestContextHolder.resetRequestAttributes();
+            DeferredResult<Long> next = bounded.submit(() -> 2L);
+            waitFor(next);
+            assertEquals(2L, next.getResult());
+            assertNull(request.getAttribute(StatementCountFilter.ASYNC_STATEMENTS_ATTRIBUTE));
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+            bounded.shutdown();
+        }
+    }
+
+    /** Wait at most 5 s for a result. */
+    private static void waitFor(DeferredResult<?> result) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!result.hasResult() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.excilys.tests.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.FileCopyUtils;
+
+import com.excilys.computer_database.webapp.filter.GzipFilter;
+
+/**
+ * The compression of the responses, on a chain writing a JSON body tagged by an ETag.
+ */
+public class TestGzipFilter {
+
+    @Test
+    public void testGzipFilter() throws Exception {
+        GzipFilter filter = new GzipFilter();
+        filter.setMinLength(100);
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            large.append("{\"id\":").append(i).append('}');
+        }
+
+        // Compressed above the minimum length, for the clients accepting it
+        MockHttpServletResponse response = gzip(filter, "gzip, deflate", large.toString());
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals("W/\"7\"", response.getHeader("ETag"));
+        try (Reader in = new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())), "UTF-8")) {
+            assertEquals(large.toString(), FileCopyUtils.copyToString(in));
+        }
+        assertTrue(response.getContentAsByteArray().length < large.length());
+
+        response = gzip(filter, "gzip", "{\"id\":1}");
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("{\"id\":1}", response.getContentAsString());
+        assertEquals(8, response.getContentLength());
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals("\"7\"", response.getHeader("ETag"));
+
+        // The identity response varies too, for the caches serving both
+        response = gzip(filter, null, large.toString());
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals(large.toString(), response.getContentAsString());
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals("\"7\"", response.getHeader("ETag"));
+    }
+
+    private static MockHttpServletResponse gzip(GzipFilter filter, String acceptEncoding, String body)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/rest/listcomputer");
+        if (acceptEncoding != null) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> {
+            res.setContentType("application/json;charset=UTF-8");
+            ((HttpServletResponse) res).setHeader("ETag", "\"7\"");
+            res.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+        });
+        return response;
+    }
+}
@@ -0,0 +1,65 @@
+package com.excilys.tests.json;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.excilys.computer_database.core.dto.ComputerDTO;
+import com.excilys.computer_database.core.entity.Company;
+import com.excilys.computer_database.core.entity.Computer;
+import com.excilys.computer_database.core.entity.Computer.ComputerBuilder;
+import com.excilys.computer_database.core.page.CountStrategy;
+import com.excilys.computer_database.core.page.SimplePage;
+import com.excilys.computer_database.webapp.export.ExportFormat;
+import com.excilys.computer_database.webapp.export.ExportWriter;
+import com.excilys.computer_database.webapp.json.ComputerJsonModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The serializers of the REST responses : the same JSON as written by reflection, and as the export.
+ */
+public class TestComputerJsonModule {
+
+    @Test
+    public void testJsonWireFormat() throws Exception {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().modulesToInstall(ComputerJsonModule.class).build();
+        Company apple = new Company(1L, "Apple \"Inc.\"");
+        Computer complete = new ComputerBuilder("Mac \u00e9").id(7L).introduced(LocalDate.of(1980, 5, 1))
+                .discontinued(LocalDate.of(1990, 1, 2)).company(apple).build();
+        SimplePage<Computer> computers = new SimplePage<>(Arrays.asList(complete, new ComputerBuilder("Empty")
+                .build()), 1, 10, 574, 58);
+        computers.setCountStrategy(CountStrategy.EXACT);
+        computers.setHasNext(true);
+        computers.setNextCursor("abc");
+
+        // The form written by reflection before the serializers, the dates as the Timestamps they were
+        ObjectMapper reflection = new ObjectMapper();
+        assertEquals("{\"list\":[{\"id\":7,\"name\":\"Mac \u00e9\",\"introduced\":"
+                + reflection.writeValueAsString(Timestamp.valueOf(LocalDate.of(1980, 5, 1).atStartOfDay()))
+                + ",\"discontinued\":"
+                + reflection.writeValueAsString(Timestamp.valueOf(LocalDate.of(1990, 1, 2).atStartOfDay()))
+                + ",\"company\":{\"id\":1,\"name\":\"Apple \\\"Inc.\\\"\"},"
+                + "\"version\":0},{\"id\":null,\"name\":\"Empty\",\"introduced\":null,\"discontinued\":null,"
+                + "\"company\":null,\"version\":0}],"
+                + "\"pageNumber\":1,\"size\":10,\"elementTotalCount\":574,\"pageTotalCount\":58,"
+                + "\"nextCursor\":\"abc\",\"prevCursor\":null,\"countStrategy\":\"EXACT\",\"hasNext\":true}",
+                mapper.writeValueAsString(computers));
+        SimplePage<Company> companies = new SimplePage<>(Arrays.asList(apple, new Company("No id")), 0, 20, 42, 3);
+        assertEquals(reflection.writeValueAsString(companies), mapper.writeValueAsString(companies));
+        assertEquals(reflection.writeValueAsString(new SimplePage<>()), mapper.writeValueAsString(new SimplePage<>()));
+
+        // The DTOs as in the export
+        ComputerDTO dto = new ComputerDTO(complete);
+        StringWriter ndjson = new StringWriter();
+        try (ExportWriter out = ExportFormat.NDJSON.open(ndjson)) {
+            out.write(dto);
+        }
+        assertEquals(ndjson.toString().trim(), mapper.writeValueAsString(dto));
+    }
+}
@@ -0,0 +1,108 @@
+package com.excilys.tests.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.method.HandlerMethod;
+
+import com.codahale.metrics.MetricRegistry;
+import com.excilys.computer_database.persistence.statistics.Instrumentation;
+import com.excilys.computer_database.persistence.statistics.OperationMetrics;
+import com.excilys.computer_database.service.ComputerService;
+import com.excilys.computer_database.webapp.metrics.MetricsInterceptor;
+import com.excilys.computer_database.webapp.metrics.PrometheusWriter;
+
+/**
+ * The latencies of the requests, services and repositories, and their Prometheus exposition.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"file:src/main/webapp/WEB-INF/applicationContext.xml"})
+@WebAppConfiguration
+public class TestInstrumentation {
+    @Autowired
+    ComputerService computerService;
+    @Autowired
+    Instrumentation instrumentation;
+    @Autowired
+    MetricRegistry metricRegistry;
+
+    @Test
+    public void testInstrumentation() throws Exception {
+        computerService.listComputers(null, Direction.ASC, "book", 0, 10);
+        OperationMetrics service = operation(Instrumentation.SERVICE, "ComputerServiceImpl.listComputers");
+        assertTrue(service.getCount() > 0);
+        assertTrue(service.getRecentLatencies().getTotalCount() > 0);
+        assertTrue("The service waits for its queries", service.getDatabaseNanos() > 0);
+        assertTrue(service.getDatabaseShare() > 0 && service.getDatabaseShare() <= 1);
+        boolean repository = false;
+        for (OperationMetrics operation : instrumentation.getOperations()) {
+            repository |= operation.getLayer().equals(Instrumentation.REPOSITORY)
+                    && operation.getName().startsWith("ComputerDAO.") && operation.getCount() > 0;
+        }
+        assertTrue("The repository calls are timed", repository);
+
+        // A failed call
+        computerService.getComputerById(1L);
+        long errors = operation(Instrumentation.SERVICE, "ComputerServiceImpl.getComputerById").getErrors();
+        try {
+            computerService.getComputerById(null);
+            fail("No computer without id");
+        } catch (RuntimeException e) {
+            // Counted
+        }
+        assertEquals(errors + 1, operation(Instrumentation.SERVICE, "ComputerServiceImpl.getComputerById").getErrors());
+
+        // A request
+        MetricsInterceptor interceptor = new MetricsInterceptor();
+        ReflectionTestUtils.setField(interceptor, "instrumentation", instrumentation);
+        HandlerMethod handler = new HandlerMethod(this, getClass().getMethod("testInstrumentation"));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/rest/listcomputer");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, handler);
+        computerService.listComputers(null, Direction.ASC, "book", 0, 10);
+        response.setStatus(503);
+        interceptor.afterCompletion(request, response, handler, null);
+        OperationMetrics http = operation(Instrumentation.HTTP, "TestInstrumentation.testInstrumentation");
+        assertEquals(1, http.getCount());
+        assertEquals(1, http.getErrors());
+        assertTrue(http.getDatabaseNanos() > 0);
+
+        StringWriter text = new StringWriter();
+        PrometheusWriter writer = new PrometheusWriter(new PrintWriter(text));
+        writer.writeOperations(instrumentation.getOperations());
+        writer.writeRegistry(metricRegistry);
+        String prometheus = text.toString();
+        assertTrue(prometheus, prometheus.contains("# TYPE computer_database_http_seconds summary\n"));
+        assertTrue(prometheus, prometheus.contains(
+                "computer_database_http_errors_total{operation=\"TestInstrumentation.testInstrumentation\"} 1\n"));
+        assertTrue(prometheus, prometheus.contains(
+                "computer_database_service_seconds{operation=\"ComputerServiceImpl.listComputers\","
+                        + "quantile=\"0.999\"}"));
+        for (String line : prometheus.split("\n")) {
+            assertTrue(line, line.startsWith("#") || line.matches("[a-zA-Z_:][a-zA-Z0-9_:]*(\\{.*\\})? \\S+"));
+        }
+    }
+
+    private OperationMetrics operation(String layer, String name) {
+        for (OperationMetrics operation : instrumentation.getOperations()) {
+            if (operation.getLayer().equals(layer) && operation.getName().equals(name)) {
+                return operation;
+            }
+        }
+        throw new AssertionError("Not timed : " + layer + "." + name + " in " + instrumentation.getOperations());
+    }
+}
@@ -0,0 +1,84 @@
+package com.excilys.tests.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import javax.servlet.Filter;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+/**
+ * The security of the import, the only unauthenticated bulk write of the REST API.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"file:src/main/webapp/WEB-INF/applicationContext.xml",
+        "file:src/main/webapp/WEB-INF/spring-security.xml"})
+@WebAppConfiguration
+public class TestRestSecurity {
+    @Autowired
+    @Qualifier("springSecurityFilterChain")
+    Filter springSecurityFilterChain;
+
+    @Test
+    public void testImportNeedsAdmin() throws Exception {
+        // Anonymous : no csrf token
+        MockFilterChain chain = new MockFilterChain();
+        assertEquals(403, post(null, null, chain).getStatus());
+        assertNull(chain.getRequest());
+
+        // HTTP Basic, without cookie nor token : for the administrators only
+        chain = new MockFilterChain();
+        assertEquals(403, post("user:user", null, chain).getStatus());
+        assertNull(chain.getRequest());
+        chain = new MockFilterChain();
+        assertEquals(401, post("admin:wrong", null, chain).getStatus());
+        assertNull(chain.getRequest());
+        chain = new MockFilterChain();
+        assertEquals(200, post("admin:admin", null, chain).getStatus());
+        assertNotNull(chain.getRequest());
+
+        // The session of an administrator, as a forged cross-site request would use it : no csrf token
+        SecurityContextImpl admin = new SecurityContextImpl();
+        admin.setAuthentication(new UsernamePasswordAuthenticationToken("admin", null,
+                AuthorityUtils.createAuthorityList("ROLE_ADMIN")));
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, admin);
+        chain = new MockFilterChain();
+        assertEquals(403, post(null, session, chain).getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    private MockHttpServletResponse post(String credentials, MockHttpSession session, MockFilterChain chain)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/rest/import");
+        request.setServletPath("/rest/import");
+        if (credentials != null) {
+            request.addHeader("Authorization",
+                    "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+        }
+        if (session != null) {
+            request.setSession(session);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        springSecurityFilterChain.doFilter(request, response, chain);
+        return response;
+    }
+}
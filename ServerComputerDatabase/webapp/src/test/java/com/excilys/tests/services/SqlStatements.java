@@ -0,0 +1,50 @@
+package com.excilys.tests.services;
+
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.excilys.computer_database.persistence.statistics.StatementCounter;
+
+/**
+ * Assertions on the SQL statements run by a call, to catch the N+1 selects. Their plans are checked by the tests of
+ * the persistence module.
+ */
+public final class SqlStatements {
+    private SqlStatements() {
+    }
+
+    /**
+     * Fail if the call runs more statements than allowed, listing them.
+     * @param max The allowed statements
+     * @param call The call, run on the current thread
+     * @return What the call returns
+     */
+    public static <T> T assertAtMost(int max, Supplier<T> call) {
+        try (StatementCounter.Snapshot snapshot = StatementCounter.start(true)) {
+            T result = call.get();
+            if (snapshot.getStatements() > max) {
+                StringBuilder message = new StringBuilder().append(snapshot.getStatements())
+                        .append(" statements, at most ").append(max).append(" expected :");
+                for (String sql : snapshot.getSql()) {
+                    message.append("\n  ").append(sql);
+                }
+                fail(message.toString());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Record the SQL of the statements run by a call.
+     * @param call The call, run on the current thread
+     * @return The SQL of its statements
+     */
+    public static List<String> record(Runnable call) {
+        try (StatementCounter.Snapshot snapshot = StatementCounter.start(true)) {
+            call.run();
+            return snapshot.getSql();
+        }
+    }
+}
@@ -1,21 +1,43 @@
 package com.excilys.tests.services;
 
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import javax.sql.DataSource;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.AopTestUtils;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.excilys.computer_database.core.dto.CompanyDTO;
+import com.excilys.computer_database.core.entity.Company;
+import com.excilys.computer_database.core.entity.Computer;
+import com.excilys.computer_database.core.entity.Computer.ComputerBuilder;
 import com.excilys.computer_database.service.CompanyService;
+import com.excilys.computer_database.service.CompanyServiceImpl;
+import com.excilys.computer_database.service.ComputerService;
+import com.excilys.computer_database.service.ComputerService.COLUMN;
+import com.excilys.computer_database.service.cache.CompanyCache;
+import com.excilys.computer_database.service.event.CompanyChangedEvent;
+import com.excilys.computer_database.service.repair.CompanyNameRepair;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(locations = {"file:src/main/webapp/WEB-INF/applicationContext.xml"})
@@ -23,6 +45,16 @@ import com.excilys.computer_database.service.CompanyService;
 public class TestCompanyService{
     @Autowired
     CompanyService companyService;
+    @Autowired
+    ComputerService computerService;
+    @Autowired
+    MetricRegistry metricRegistry;
+    @Autowired
+    CompanyNameRepair companyNameRepair;
+    @Autowired
+    CompanyCache companyCache;
+    @Autowired
+    DataSource dataSource;
 
     @Before
     public void beforeTest(){
@@ -38,12 +70,97 @@ public class TestCompanyService{
         assertTrue(list.size() > 30);
     }
 
-    public void testCreation(){
-        // No company creation feature in the spec for the moment
+    @Test
+    public void testCache(){
+        // The list is cached until a company is created or deleted
+        List<CompanyDTO> list = companyService.getDTOList();
+        assertSame(list, companyService.getDTOList());
+
+        Company company = companyService.createCompany(new Company("Cache Test"));
+        List<CompanyDTO> withCreated = companyService.getDTOList();
+        assertEquals(list.size() + 1, withCreated.size());
+        assertEquals(company.getId().longValue(), withCreated.get(withCreated.size() - 1).getId());
+
+        companyService.delete(company.getId());
+        assertEquals(list.size(), companyService.getDTOList().size());
+
+        // A list loaded while a company write commits is not cached
+        CompanyChangedEvent written = new CompanyChangedEvent(CompanyChangedEvent.Type.CREATED, 0);
+        companyCache.onCompanyChanged(written);
+        List<CompanyDTO> stale = companyCache.getDTOList(() -> {
+            companyCache.onCompanyChanged(written);
+            return Collections.emptyList();
+        });
+        assertTrue(stale.isEmpty());
+        assertEquals(list.size(), companyService.getDTOList().size());
+
+        // The entities come from the second level cache
+        long hits = gauge("companies.entity-cache.hits");
+        companyService.find(1L);
+        companyService.find(1L);
+        assertTrue(gauge("companies.entity-cache.hits") > hits);
+        assertFalse(gauge("companies.dto-list.hits") == 0);
+    }
+
+    @Test
+    public void testCompanyNameCopy() {
+        Company company = companyService.createCompany(new Company("Copy Test"));
+        try {
+            // Written with the company id only
+            Computer computer = computerService.createComputer(
+                    new ComputerBuilder("Copy Test 1").company(new Company(company.getId(), null)).build());
+            assertEquals("Copy Test", companyName(computer.getId()));
+
+            companyService.rename(company.getId(), "Copy Test Renamed");
+            assertEquals("Copy Test Renamed", companyName(computer.getId()));
+            assertEquals("Copy Test Renamed", computerService.seekComputersDTO(COLUMN.COMPANY_NAME, Direction.ASC,
+                    "copy test 1", null, 10).getList().get(0).getCompanyName());
+            assertNull(companyService.rename(-1L, "None"));
+
+            // Written without the services
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            jdbc.update("UPDATE computer SET company_name = 'Drift' WHERE id = ?", computer.getId());
+            assertEquals(1, companyNameRepair.repair());
+            assertEquals("Copy Test Renamed", companyName(computer.getId()));
+            assertEquals(0, companyNameRepair.repair());
+        } finally {
+            companyService.delete(company.getId());
+        }
+    }
+
+    private String companyName(long computerId) {
+        return new JdbcTemplate(dataSource).queryForObject("SELECT company_name FROM computer WHERE id = ?",
+                String.class, computerId);
+    }
+
+    private long gauge(String name) {
+        return (Long) ((Gauge<?>) metricRegistry.getGauges().get(name)).getValue();
     }
 
+    @Test
     public void testDelete(){
-        // No company deletion feature in the spec for the moment
+        Company company = companyService.createCompany(new Company("Delete Test"));
+        long[] ids = new long[25];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = computerService.createComputer(new ComputerBuilder("Delete Test " + i).company(company).build())
+                    .getId();
+        }
+
+        // Small chunks : 2 full chunks, then the partial last one
+        CompanyServiceImpl target = AopTestUtils.getTargetObject(companyService);
+        target.setDeleteChunk(10);
+        final List<Long> progress = new ArrayList<>();
+        try {
+            assertEquals(25, companyService.delete(company.getId(), (companyId, deleted) -> progress.add(deleted)));
+        } finally {
+            target.setDeleteChunk(CompanyServiceImpl.DELETE_CHUNK);
+        }
+        assertEquals("[10, 20, 25]", progress.toString());
+
+        assertNull(companyService.find(company.getId()));
+        for (long id : ids) {
+            assertNull(computerService.getComputerById(id));
+        }
     }
 
 }
@@ -1,20 +1,58 @@
 package com.excilys.tests.services;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.excilys.computer_database.core.date.EpochDays;
+import com.excilys.computer_database.core.dto.ComputerDTO;
+import com.excilys.computer_database.core.entity.Company;
 import com.excilys.computer_database.core.entity.Computer;
 import com.excilys.computer_database.core.entity.Computer.ComputerBuilder;
+import com.excilys.computer_database.core.page.CountStrategy;
+import com.excilys.computer_database.core.page.SimplePage;
 import com.excilys.computer_database.persistence.DAOException;
+import com.excilys.computer_database.persistence.dao.ComputerDAOImpl;
 import com.excilys.computer_database.service.ComputerService;
+import com.excilys.computer_database.service.ComputerService.COLUMN;
+import com.excilys.computer_database.service.ComputerService.UpdateResult;
+import com.excilys.computer_database.service.cache.DataVersions;
+import com.excilys.computer_database.service.imports.ComputerImporter;
+import com.excilys.computer_database.service.imports.ImportFormat;
+import com.excilys.computer_database.service.imports.ImportMode;
+import com.excilys.computer_database.service.imports.ImportReport;
+import com.excilys.computer_database.service.search.ComputerSearchIndex;
+import com.excilys.computer_database.webapp.export.ExportFormat;
+import com.excilys.computer_database.webapp.export.ExportWriter;
+import com.excilys.computer_database.webapp.json.ComputerJsonModule;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
 
 
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -23,6 +61,18 @@ import com.excilys.computer_database.service.ComputerService;
 public class TestComputerService {
     @Autowired
     ComputerService computerService;
+    @Autowired
+    ComputerImporter computerImporter;
+    @Autowired
+    DataVersions dataVersions;
+    @Autowired
+    HikariDataSource poolDataSource;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    ComputerDAOImpl computerDAOImpl;
+    @Autowired
+    ComputerSearchIndex computerSearchIndex;
 
     @Before
     public void beforeTest() {
@@ -105,4 +155,534 @@ public class TestComputerService {
             // ok !
         }
     }
+
+    @Test
+    public void testSeekComputers() {
+        int total = 0;
+        for (@SuppressWarnings("unused") Computer c : computerService.listAllComputers()) {
+            total++;
+        }
+
+        for (COLUMN column : new COLUMN[] { null, COLUMN.COMPUTER_NAME, COLUMN.INTRODUCED, COLUMN.COMPANY_NAME }) {
+            for (Direction direction : Direction.values()) {
+                // Walk forward through all the pages : every computer is seen exactly once
+                Set<Long> seen = new HashSet<>();
+                SimplePage<Computer> first = computerService.seekComputers(column, direction, null, null, 50);
+                assertNull(first.getPrevCursor());
+
+                SimplePage<Computer> page = first, second = null;
+                while (true) {
+                    for (Computer c : page.getList()) {
+                        assertTrue("Computer seen twice : " + c.getId(), seen.add(c.getId()));
+                    }
+                    if (page.getNextCursor() == null) {
+                        break;
+                    }
+                    page = computerService.seekComputers(column, direction, null, page.getNextCursor(), 50);
+                    if (second == null) {
+                        second = page;
+                    }
+                }
+                assertEquals(column + " " + direction, total, seen.size());
+
+                // Going back from the second page gives the first one
+                SimplePage<Computer> back = computerService.seekComputers(column, direction, null,
+                        second.getPrevCursor(), 50);
+                assertEquals(ids(first.getList()), ids(back.getList()));
+                assertNull(back.getPrevCursor());
+            }
+        }
+    }
+
+    @Test
+    public void testSearchComputers() {
+        // Same matches as a scan of all the computers
+        int expected = 0;
+        for (Computer c : computerService.listAllComputers()) {
+            if (contains(c.getName(), "book") || (c.getCompany() != null && contains(c.getCompany().getName(), "book"))) {
+                expected++;
+            }
+        }
+        SimplePage<Computer> page = computerService.listComputers(null, Direction.ASC, "book", 0, 10);
+        assertEquals(expected, page.getElementTotalCount());
+        assertTrue(expected > 10);
+
+        // Exact match first, then the prefixes
+        List<Computer> macbooks = computerService.listComputers(null, Direction.ASC, "MACBOOK", 0, 10).getList();
+        assertEquals("MacBook", macbooks.get(0).getName());
+        for (Computer c : macbooks) {
+            assertTrue(c.getName(), c.getName().toLowerCase().startsWith("macbook"));
+        }
+
+        // The pages follow each other in the order of all the matches
+        List<Computer> twenty = computerService.listComputers(COLUMN.INTRODUCED, Direction.DESC, "book", 0, 20)
+                .getList();
+        List<Computer> pages = new ArrayList<>(
+                computerService.listComputers(COLUMN.INTRODUCED, Direction.DESC, "book", 0, 10).getList());
+        pages.addAll(computerService.listComputers(COLUMN.INTRODUCED, Direction.DESC, "book", 1, 10).getList());
+        assertEquals(twenty, pages);
+
+        // Company names match too, and the matches are sorted as asked
+        List<Computer> apples = computerService.listComputers(COLUMN.COMPUTER_NAME, Direction.DESC, "apple", 0, 50)
+                .getList();
+        assertFalse(apples.isEmpty());
+        for (int i = 1; i < apples.size(); i++) {
+            assertTrue(apples.get(i - 1).getName().compareToIgnoreCase(apples.get(i).getName()) >= 0);
+        }
+
+        // The keyset pagination walks through the same matches
+        Set<Long> seen = new HashSet<>();
+        SimplePage<Computer> seek = computerService.seekComputers(COLUMN.INTRODUCED, Direction.ASC, "book", null, 10);
+        SimplePage<Computer> second = computerService.seekComputers(COLUMN.INTRODUCED, Direction.ASC, "book",
+                seek.getNextCursor(), 10);
+        assertEquals(seek.getList(), computerService
+                .seekComputers(COLUMN.INTRODUCED, Direction.ASC, "book", second.getPrevCursor(), 10).getList());
+        while (true) {
+            for (Computer c : seek.getList()) {
+                assertTrue("Computer seen twice : " + c.getId(), seen.add(c.getId()));
+            }
+            if (seek.getNextCursor() == null) {
+                break;
+            }
+            seek = computerService.seekComputers(COLUMN.INTRODUCED, Direction.ASC, "book", seek.getNextCursor(), 10);
+        }
+        assertEquals(expected, seen.size());
+
+        // The index follows the writes
+        Computer created = computerService.createComputer(new ComputerBuilder("Zyxwv Search Test").build());
+        try {
+            assertEquals(1, computerService.listComputers(null, Direction.ASC, "xwv sea", 0, 10).getElementTotalCount());
+            created.setName("Zyxwv Qzrenamed");
+            computerService.update(created);
+            assertEquals(0, computerService.listComputers(null, Direction.ASC, "xwv sea", 0, 10).getElementTotalCount());
+            // A word prefix shorter than a trigram, found in no other name
+            SimplePage<Computer> renamed = computerService.listComputers(null, Direction.ASC, "qz", 0, 10);
+            assertEquals(1, renamed.getElementTotalCount());
+            assertEquals(created.getId(), renamed.getList().get(0).getId());
+        } finally {
+            computerService.delete(created.getId());
+        }
+        assertEquals(0, computerService.listComputers(null, Direction.ASC, "zyxwv", 0, 10).getElementTotalCount());
+    }
+
+    @Test
+    public void testDeleteComputerList() {
+        long[] ids = new long[6];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = computerService.createComputer(new ComputerBuilder("Bulk Delete Test " + i).build()).getId();
+        }
+        assertEquals(6, computerService.listComputers(null, Direction.ASC, "bulk delete test", 0, 10)
+                .getElementTotalCount());
+
+        // Small chunks : 2 full chunks, then the partial last one. An unknown id is ignored
+        long[] selection = Arrays.copyOf(ids, ids.length + 1);
+        selection[ids.length] = Long.MAX_VALUE;
+        computerDAOImpl.setDeleteChunk(3);
+        final int[] deleted = new int[1];
+        List<String> sql;
+        try {
+            sql = SqlStatements.record(() -> deleted[0] = computerService.deleteComputerList(selection));
+        } finally {
+            computerDAOImpl.setDeleteChunk(ComputerDAOImpl.DELETE_CHUNK);
+        }
+        assertEquals(6, deleted[0]);
+        int chunks = 0;
+        for (String statement : sql) {
+            if (statement.trim().toLowerCase().startsWith("delete from computer where id in")) {
+                chunks++;
+            }
+        }
+        assertEquals(3, chunks);
+        for (long id : ids) {
+            assertNull(computerService.getComputerById(id));
+        }
+        assertEquals(0, computerService.listComputers(null, Direction.ASC, "bulk delete test", 0, 10)
+                .getElementTotalCount());
+        assertEquals(0, computerService.deleteComputerList(new long[0]));
+    }
+
+    @Test
+    public void testCountStrategies() {
+        int total = 0;
+        for (@SuppressWarnings("unused") Computer c : computerService.listAllComputers()) {
+            total++;
+        }
+
+        SimplePage<Computer> exact = computerService.listComputers(null, Direction.ASC, null, 1, 10,
+                CountStrategy.EXACT);
+        assertEquals(CountStrategy.EXACT, exact.getCountStrategy());
+        assertEquals(total, exact.getElementTotalCount());
+        assertEquals((total + 9) / 10, exact.getPageTotalCount());
+        assertTrue(exact.isHasNext());
+
+        // The DTO page has the same totals
+        SimplePage<ComputerDTO> dto = computerService.listComputersDTO(null, Direction.ASC, null, 1, 10,
+                CountStrategy.EXACT);
+        assertEquals(total, dto.getElementTotalCount());
+        assertEquals(exact.getPageTotalCount(), dto.getPageTotalCount());
+
+        // Cached until a computer is written
+        SimplePage<Computer> cached = computerService.listComputers(null, Direction.ASC, null, 1, 10,
+                CountStrategy.CACHED);
+        assertEquals(CountStrategy.CACHED, cached.getCountStrategy());
+        assertEquals(total, cached.getElementTotalCount());
+        assertEquals(ids(exact.getList()), ids(cached.getList()));
+        Computer created = computerService.createComputer(new ComputerBuilder("Count Test").build());
+        try {
+            assertEquals(total + 1, computerService.listComputers(null, Direction.ASC, null, 1, 10,
+                    CountStrategy.CACHED).getElementTotalCount());
+        } finally {
+            computerService.delete(created.getId());
+        }
+        assertEquals(total, computerService.listComputers(null, Direction.ASC, null, 1, 10, CountStrategy.CACHED)
+                .getElementTotalCount());
+
+        // No total
+        SimplePage<Computer> hasNext = computerService.listComputers(null, Direction.ASC, null, 1, 10,
+                CountStrategy.HAS_NEXT);
+        assertEquals(CountStrategy.HAS_NEXT, hasNext.getCountStrategy());
+        assertEquals(SimplePage.UNKNOWN, hasNext.getElementTotalCount());
+        assertEquals(ids(exact.getList()), ids(hasNext.getList()));
+        assertTrue(hasNext.isHasNext());
+        assertFalse(computerService.listComputers(null, Direction.ASC, null, (total - 1) / 10, 10,
+                CountStrategy.HAS_NEXT).isHasNext());
+
+        SimplePage<Computer> estimated = computerService.listComputers(null, Direction.ASC, null, 1, 10,
+                CountStrategy.ESTIMATED);
+        assertEquals(CountStrategy.ESTIMATED, estimated.getCountStrategy());
+        assertTrue(estimated.getElementTotalCount() >= 20);
+    }
+
+    @Test
+    public void testCachedCountAfterSnapshot() throws Exception {
+        TransactionTemplate read = new TransactionTemplate(transactionManager);
+        read.setReadOnly(true);
+        final Computer[] created = new Computer[1];
+        try {
+            long[] totals = read.execute(status -> {
+                // The snapshot of the listing opens before a computer is created and the counts are dropped
+                long before = computerService.listComputers(null, Direction.ASC, null, 0, 10, CountStrategy.EXACT)
+                        .getElementTotalCount();
+                Thread writer = new Thread(() -> created[0] = computerService.createComputer(
+                        new ComputerBuilder("Count Snapshot Test").build()));
+                writer.start();
+                try {
+                    writer.join();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return new long[] { before, computerService.listComputers(null, Direction.ASC, null, 0, 10,
+                        CountStrategy.CACHED).getElementTotalCount() };
+            });
+            // Counted after the creation, not from the snapshot of the listing
+            assertEquals(totals[0] + 1, totals[1]);
+            assertEquals(totals[1], computerService.listComputers(null, Direction.ASC, null, 0, 10,
+                    CountStrategy.CACHED).getElementTotalCount());
+        } finally {
+            if (created[0] != null) {
+                computerService.delete(created[0].getId());
+            }
+        }
+    }
+
+    @Test
+    public void testProjections() {
+        // The projected DTOs are the mapped entities, in every order, and the cursors are the same
+        for (COLUMN column : COLUMN.values()) {
+            for (Direction direction : Direction.values()) {
+                SimplePage<Computer> entities = computerService.listComputers(column, direction, null, 2, 20);
+                SimplePage<ComputerDTO> dtos = computerService.listComputersDTO(column, direction, null, 2, 20);
+                assertSameRows(entities.getList(), dtos.getList());
+                assertEquals(entities.getElementTotalCount(), dtos.getElementTotalCount());
+
+                SimplePage<Computer> next = computerService.seekComputers(column, direction, null,
+                        entities.getNextCursor(), 20);
+                SimplePage<ComputerDTO> nextDTO = computerService.seekComputersDTO(column, direction, null,
+                        dtos.getNextCursor(), 20);
+                assertEquals(next.getNextCursor(), nextDTO.getNextCursor());
+                assertSameRows(next.getList(), nextDTO.getList());
+            }
+        }
+
+        // Search results
+        assertSameRows(computerService.seekComputers(null, Direction.ASC, "mac", null, 20).getList(),
+                computerService.seekComputersDTO(null, Direction.ASC, "mac", null, 20).getList());
+    }
+
+    @Test
+    public void testStatementCount() {
+        // The company comes with the computer, not by one more select per distinct company
+        SqlStatements.assertAtMost(1, () -> computerService.listAllComputers());
+        SqlStatements.assertAtMost(1, () -> computerService.getComputerById(1L));
+
+        // A count and a page
+        for (COLUMN column : COLUMN.values()) {
+            SimplePage<Computer> page = SqlStatements.assertAtMost(2,
+                    () -> computerService.listComputers(column, Direction.ASC, null, 1, 50, CountStrategy.EXACT));
+            SqlStatements.assertAtMost(2,
+                    () -> computerService.listComputersDTO(column, Direction.ASC, null, 1, 50, CountStrategy.EXACT));
+            SqlStatements.assertAtMost(1, () -> computerService.seekComputers(column, Direction.ASC, null,
+                    page.getNextCursor(), 50));
+        }
+    }
+
+    @Test
+    public void testDates() throws Exception {
+        // Read from the database
+        Computer appleIII = computerService.getComputerById(12L);
+        assertEquals(LocalDate.of(1980, 5, 1).toEpochDay(), appleIII.getIntroduced());
+        assertEquals(LocalDate.of(1984, 4, 1).toEpochDay(), appleIII.getDiscontinued());
+        assertEquals(EpochDays.NONE, computerService.getComputerById(13L).getIntroduced());
+        ComputerDTO dto = new ComputerDTO(appleIII);
+        assertEquals(LocalDate.of(1980, 5, 1), dto.getIntroduced());
+
+        // Written and read back
+        Computer created = computerService.createComputer(new ComputerBuilder("Epoch Day Test")
+                .introduced(LocalDate.of(2016, 2, 29)).build());
+        try {
+            Computer read = computerService.getComputerById(created.getId());
+            assertEquals(LocalDate.of(2016, 2, 29).toEpochDay(), read.getIntroduced());
+            assertEquals(EpochDays.NONE, read.getDiscontinued());
+
+            // In JSON, as the epoch milliseconds of the Timestamps or null
+            ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().modulesToInstall(ComputerJsonModule.class)
+                    .build();
+            String json = mapper.writeValueAsString(read);
+            long millis = Timestamp.valueOf(LocalDate.of(2016, 2, 29).atStartOfDay()).getTime();
+            assertTrue(json, json.contains("\"introduced\":" + millis + ",\"discontinued\":null"));
+            Computer parsed = mapper.readValue(json, Computer.class);
+            assertEquals(read.getIntroduced(), parsed.getIntroduced());
+            assertEquals(EpochDays.NONE, parsed.getDiscontinued());
+        } finally {
+            computerService.delete(created.getId());
+        }
+    }
+
+    @Test
+    public void testExport() throws Exception {
+        // A single streamed query, in the id order
+        List<Long> ids = new ArrayList<>();
+        long exported = SqlStatements.assertAtMost(1, () -> computerService.exportComputers(c -> ids.add(c.getId())));
+        assertEquals(computerService.listComputers(null, Direction.ASC, null, 0, 10).getElementTotalCount(), exported);
+        assertEquals(exported, ids.size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1) < ids.get(i));
+        }
+
+        ComputerDTO computer = new ComputerDTO(7L, "Comma, \"Quote\"", LocalDate.of(1980, 5, 1), null, 1L,
+                "Apple Inc.");
+        StringWriter csv = new StringWriter();
+        try (ExportWriter out = ExportFormat.CSV.open(csv)) {
+            out.write(computer);
+        }
+        assertEquals("id,name,introduced,discontinued,companyId,companyName\r\n"
+                + "7,\"Comma, \"\"Quote\"\"\",1980-05-01,,1,Apple Inc.\r\n", csv.toString());
+
+        StringWriter ndjson = new StringWriter();
+        try (ExportWriter out = ExportFormat.NDJSON.open(ndjson)) {
+            out.write(computer);
+            out.write(computer);
+        }
+        String[] lines = ndjson.toString().split("\n");
+        assertEquals(2, lines.length);
+        JsonNode row = new ObjectMapper().readTree(lines[1]);
+        assertEquals(computer.getName(), row.get("name").asText());
+        assertEquals("1980-05-01", row.get("introduced").asText());
+        assertTrue(row.get("discontinued").isNull());
+        assertEquals(1L, row.get("companyId").asLong());
+    }
+
+    @Test
+    public void testImport() throws Exception {
+        String csv = "name,introduced,discontinued,companyId,companyName\r\n"
+                + "Import Test 1,1990-01-02,,1,\r\n"
+                + "\"Import Test 2, quoted\",,,,Apple Inc.\r\n"
+                + "Import Test 3,1990-02-30,,,\r\n"
+                + "Import Test 4,,,,No Such Company\r\n"
+                + "Import Test 5,,,,\r\n";
+        try {
+            ImportReport report = computerImporter.importComputers(new StringReader(csv), ImportFormat.CSV,
+                    ImportMode.INSERT);
+            assertNull(report.getFailure());
+            assertEquals(5, report.getRead());
+            assertEquals(3, report.getInserted());
+            assertEquals(2, report.getRejected());
+            assertEquals(2, report.getErrors().size());
+            List<ComputerDTO> imported = importedComputers();
+            assertEquals(3, imported.size());
+            assertEquals("Import Test 1", imported.get(0).getName());
+            assertEquals(LocalDate.of(1990, 1, 2), imported.get(0).getIntroduced());
+            assertEquals(Long.valueOf(1), imported.get(1).getCompanyId());
+
+            // Same name, its case ignored as by the collation, and company : updated, once even if repeated
+            String ndjson = "{\"name\":\"Import Test 1\",\"introduced\":\"1991-03-04\",\"companyId\":1}\n"
+                    + "{\"name\":\"IMPORT TEST 1\",\"introduced\":\"1992-03-04\",\"companyId\":1}\n"
+                    + "{\"name\":\"import test 5\",\"introduced\":\"1980-01-01\"}\n"
+                    + "{\"name\":\"Import Test 6\",\"discontinued\":\"2001\"}\n"
+                    + "{\"name\":\"Import Test 7\",\"companyId\":1}\n";
+            report = computerImporter.importComputers(new StringReader(ndjson), ImportFormat.NDJSON,
+                    ImportMode.UPSERT);
+            assertNull(report.getFailure());
+            assertEquals(5, report.getRead());
+            assertEquals(1, report.getInserted());
+            assertEquals(2, report.getUpdated());
+            assertEquals(1, report.getRejected());
+            imported = importedComputers();
+            assertEquals(4, imported.size());
+            assertEquals("Import Test 1", imported.get(0).getName());
+            assertEquals(LocalDate.of(1992, 3, 4), imported.get(0).getIntroduced());
+            assertEquals(LocalDate.of(1980, 1, 1), imported.get(2).getIntroduced());
+        } finally {
+            computerService.deleteComputerList(
+                    importedComputers().stream().mapToLong(ComputerDTO::getId).toArray());
+        }
+        assertEquals(0, importedComputers().size());
+    }
+
+    @Test
+    public void testBatchedInserts() throws Exception {
+        List<Computer> created = new ArrayList<>();
+        try {
+            // The ids are taken from the id_generator table when persisted : the inserts wait for the commit, in a batch
+            List<String> statements = SqlStatements.record(() -> new TransactionTemplate(transactionManager)
+                    .execute(status -> {
+                        for (int i = 1; i <= 3; i++) {
+                            created.add(computerService.createComputer(new ComputerBuilder("Batch Test " + i)
+                                    .company(new Company(1L, null)).build()));
+                            assertTrue(created.get(i - 1).getId() != null);
+                        }
+                        return null;
+                    }));
+            long inserts = statements.stream().filter(sql -> sql.toLowerCase().startsWith("insert into computer"))
+                    .count();
+            assertEquals(1, inserts);
+            assertEquals(3, created.stream().map(Computer::getId).distinct().count());
+            assertEquals("Apple Inc.", computerService.getComputerById(created.get(2).getId()).getCompanyName());
+
+            // The imports take their ids from the same generator
+            ImportReport report = computerImporter.importComputers(
+                    new StringReader("{\"name\":\"Batch Test 4\",\"companyId\":1}\n"), ImportFormat.NDJSON,
+                    ImportMode.INSERT);
+            assertEquals(1, report.getInserted());
+            List<ComputerDTO> batch = batchComputers();
+            assertEquals(4, batch.size());
+            assertEquals(4, batch.stream().map(ComputerDTO::getId).distinct().count());
+
+            // The ids given are below the next block
+            JdbcTemplate jdbc = new JdbcTemplate(poolDataSource);
+            long next = jdbc.queryForObject("SELECT next_val FROM id_generator WHERE name = 'computer'", Long.class);
+            assertTrue(next > jdbc.queryForObject("SELECT MAX(id) FROM computer", Long.class));
+        } finally {
+            computerService.deleteComputerList(batchComputers().stream().mapToLong(ComputerDTO::getId).toArray());
+        }
+    }
+
+    @Test
+    public void testVersionedUpdate() {
+        Computer created = computerService.createComputer(new ComputerBuilder("Versioned Update Test").build());
+        try {
+            assertEquals(0, created.getVersion());
+
+            // A single UPDATE, conditional on the version : the computer is not read first
+            Computer edit = new ComputerBuilder("Versioned Update Test 2").id(created.getId())
+                    .introduced(LocalDate.of(1990, 1, 2)).version(0).build();
+            List<String> statements = SqlStatements
+                    .record(() -> assertEquals(UpdateResult.UPDATED, computerService.update(edit)));
+            assertEquals(statements.toString(), 1, statements.size());
+            assertTrue(statements.get(0).startsWith("UPDATE computer"));
+            assertEquals(1, edit.getVersion());
+            Computer read = computerService.getComputerById(created.getId());
+            assertEquals("Versioned Update Test 2", read.getName());
+            assertEquals(LocalDate.of(1990, 1, 2), EpochDays.toLocalDate(read.getIntroduced()));
+            assertEquals(1, read.getVersion());
+
+            // An edit of the version 0, concurrent with the first one : a conflict, the computer is left as is
+            Computer stale = new ComputerBuilder("Versioned Update Test 3").id(created.getId()).version(0).build();
+            assertEquals(UpdateResult.CONFLICT, computerService.update(stale));
+            assertEquals(0, stale.getVersion());
+            assertEquals("Versioned Update Test 2", computerService.getComputerById(created.getId()).getName());
+
+            // Retried from the current version
+            stale.setVersion(computerService.getComputerById(created.getId()).getVersion());
+            assertEquals(UpdateResult.UPDATED, computerService.update(stale));
+            assertEquals("Versioned Update Test 3", computerService.getComputerById(created.getId()).getName());
+
+            // Without a version : overwritten whatever its version, by a single UPDATE returning the new version
+            Computer blind = new ComputerBuilder("Versioned Update Test 4").id(created.getId()).build();
+            statements = SqlStatements.record(() -> computerService.overwrite(blind));
+            assertEquals(statements.toString(), 1, statements.size());
+            assertTrue(statements.get(0).startsWith("UPDATE computer"));
+            assertEquals(3, blind.getVersion());
+            read = computerService.getComputerById(created.getId());
+            assertEquals("Versioned Update Test 4", read.getName());
+            assertEquals(3, read.getVersion());
+
+            try {
+                computerService.update(new ComputerBuilder("No Such Computer").id(Long.MAX_VALUE).build());
+                fail("No computer to update");
+            } catch (DAOException e) {
+                // Ok
+            }
+            try {
+                computerService.overwrite(new ComputerBuilder("No Such Computer").id(Long.MAX_VALUE).build());
+                fail("No computer to overwrite");
+            } catch (DAOException e) {
+                // Ok
+            }
+        } finally {
+            computerService.delete(created.getId());
+        }
+    }
+
+    private List<ComputerDTO> batchComputers() {
+        // Written in bulk : the search index is built again in the background
+        computerSearchIndex.awaitBuilt();
+        return computerService.listComputersDTO(null, Direction.ASC, "batch test", 0, 10).getList();
+    }
+
+    @Test
+    public void testDataVersions() {
+        String computers = dataVersions.etag(DataVersions.COMPUTERS);
+        String companies = dataVersions.etag(DataVersions.COMPANIES);
+        assertEquals(computers, dataVersions.etag(DataVersions.COMPUTERS));
+
+        // Each committed write changes the tag of its table only
+        Computer created = computerService.createComputer(new ComputerBuilder("Data Versions Test").build());
+        String written = dataVersions.etag(DataVersions.COMPUTERS);
+        assertFalse(computers.equals(written));
+        computerService.delete(created.getId());
+        assertFalse(written.equals(dataVersions.etag(DataVersions.COMPUTERS)));
+        assertEquals(companies, dataVersions.etag(DataVersions.COMPANIES));
+    }
+
+    private static void assertSameRows(List<Computer> computers, List<ComputerDTO> dtos) {
+        assertEquals(computers.size(), dtos.size());
+        for (int i = 0; i < dtos.size(); i++) {
+            ComputerDTO expected = new ComputerDTO(computers.get(i)), actual = dtos.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getIntroduced(), actual.getIntroduced());
+            assertEquals(expected.getDiscontinued(), actual.getDiscontinued());
+            assertEquals(expected.getCompanyId(), actual.getCompanyId());
+            assertEquals(expected.getCompanyName(), actual.getCompanyName());
+        }
+    }
+
+    private List<ComputerDTO> importedComputers() {
+        // Written in bulk : the search index is built again in the background
+        computerSearchIndex.awaitBuilt();
+        return computerService.listComputersDTO(null, Direction.ASC, "import test", 0, 10).getList();
+    }
+
+    private static boolean contains(String text, String part) {
+        return text != null && text.toLowerCase().contains(part);
+    }
+
+    private static String ids(List<Computer> computers) {
+        StringBuilder sb = new StringBuilder();
+        for (Computer c : computers) {
+            sb.append(c.getId()).append(',');
+        }
+        return sb.toString();
+    }
 }
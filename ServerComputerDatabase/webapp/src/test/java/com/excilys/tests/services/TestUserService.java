@@ -0,0 +1,195 @@
+package com.excilys.tests.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import com.codahale.metrics.MetricRegistry;
+import com.excilys.computer_database.persistence.statistics.StatementCounter;
+import com.excilys.computer_database.service.UserService;
+import com.excilys.computer_database.service.cache.UserDetailsCache;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"file:src/main/webapp/WEB-INF/applicationContext.xml"})
+@WebAppConfiguration
+public class TestUserService {
+    private static final long TTL = 1000, NEGATIVE_TTL = 100;
+
+    @Autowired
+    ApplicationContext applicationContext;
+    @Autowired
+    UserDetailsCache userDetailsCache;
+
+    /** Declared in spring-security.xml, out of the context of the tests. */
+    UserService userService;
+
+    @Before
+    public void beforeTest() {
+        userService = new UserService();
+        applicationContext.getAutowireCapableBeanFactory().autowireBean(userService);
+        userDetailsCache.clear();
+    }
+
+    @Test
+    public void testLoad() {
+        UserDetails admin = userService.loadUserByUsername("admin");
+        assertEquals("admin", admin.getUsername());
+        assertTrue(admin.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        try {
+            userService.loadUserByUsername("nobody");
+            fail("Unknown user loaded");
+        } catch (UsernameNotFoundException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testCachedLoad() {
+        try (StatementCounter.Snapshot snapshot = StatementCounter.start(true)) {
+            userService.loadUserByUsername("admin");
+            UserDetails admin = userService.loadUserByUsername("admin");
+            for (int i = 0; i < 2; i++) {
+                try {
+                    userService.loadUserByUsername("nobody");
+                    fail("Unknown user loaded");
+                } catch (UsernameNotFoundException e) {
+                    // Cached too
+                }
+            }
+            assertEquals(snapshot.getSql().toString(), 2, snapshot.getStatements());
+            // The authentication erases the password of the copy it is given, not of the cached user
+            ((User) admin).eraseCredentials();
+            assertTrue(userService.loadUserByUsername("admin").getPassword() != null);
+        }
+    }
+
+    @Test
+    public void testChangeEvicts() {
+        userService.loadUserByUsername("user");
+        try (StatementCounter.Snapshot snapshot = StatementCounter.start()) {
+            userService.changeRole("user", "ROLE_USER");
+            long writes = snapshot.getStatements();
+            assertEquals("ROLE_USER", userService.loadUserByUsername("user").getAuthorities().iterator().next()
+                    .getAuthority());
+            assertTrue("The changed user is read again", snapshot.getStatements() > writes);
+        }
+    }
+
+    @Test
+    public void testConcurrentLoads() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        MetricRegistry metrics = new MetricRegistry();
+        UserDetailsCache cache = new UserDetailsCache(100, TTL, NEGATIVE_TTL, clock::get, metrics);
+        Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+        Function<String, UserDetails> loader = username -> {
+            loads.computeIfAbsent(username, u -> new AtomicInteger()).incrementAndGet();
+            try {
+                // Slow enough for the other threads to ask meanwhile
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return username.startsWith("user") ? new User(username, "password", new ArrayList<>()) : null;
+        };
+
+        String[] usernames = {"user1", "user2", "user3", "nobody"};
+        hammer(cache, loader, usernames, 40);
+        for (String username : usernames) {
+            assertEquals(username, 1, loads.get(username).get());
+        }
+        assertEquals(4L, gauge(metrics, "users.cache.misses"));
+
+        // The unknown username expires first
+        clock.addAndGet(NEGATIVE_TTL);
+        hammer(cache, loader, usernames, 40);
+        assertEquals(1, loads.get("user1").get());
+        assertEquals(2, loads.get("nobody").get());
+
+        // Then the users, loaded once again
+        clock.addAndGet(TTL);
+        hammer(cache, loader, usernames, 40);
+        for (String username : usernames) {
+            assertEquals(username, username.equals("nobody") ? 3 : 2, loads.get(username).get());
+        }
+        assertTrue(gauge(metrics, "users.cache.hits") > 0);
+    }
+
+    @Test
+    public void testEvictAndBound() {
+        AtomicLong clock = new AtomicLong();
+        AtomicInteger loads = new AtomicInteger();
+        UserDetailsCache cache = new UserDetailsCache(8, TTL, NEGATIVE_TTL, clock::get, new MetricRegistry());
+        Function<String, UserDetails> loader = username -> {
+            loads.incrementAndGet();
+            return new User(username, "password", new ArrayList<>());
+        };
+
+        UserDetails first = cache.get("user", loader);
+        assertNotSame(first, cache.get("user", loader));
+        assertEquals(1, loads.get());
+        cache.evict("user");
+        cache.get("user", loader);
+        assertEquals(2, loads.get());
+
+        for (int i = 0; i < 20; i++) {
+            clock.incrementAndGet();
+            cache.get("user" + i, loader);
+            assertTrue(cache.size() <= 8);
+        }
+        assertNull(cache.get("nobody", username -> null));
+    }
+
+    /**
+     * Ask the usernames from many threads at once.
+     */
+    private static void hammer(UserDetailsCache cache, Function<String, UserDetails> loader, String[] usernames,
+            int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> calls = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String username = usernames[i % usernames.length];
+            calls.add(executor.submit(() -> {
+                start.await();
+                return cache.get(username, loader);
+            }));
+        }
+        start.countDown();
+        for (Future<?> call : calls) {
+            call.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private static long gauge(MetricRegistry metrics, String name) {
+        return ((Number) metrics.getGauges().get(name).getValue()).longValue();
+    }
+}
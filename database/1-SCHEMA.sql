@@ -1,3 +1,5 @@
+  # The version 1 of the schema : the application migrates it to the last version when it starts, with the scripts of
+  # persistence/src/main/resources/db/migration.
 drop schema if exists `computer-database-db`;
   create schema if not exists `computer-database-db`;
   use `computer-database-db`;
@@ -4,6 +4,8 @@
   CREATE USER 'admincdb'@'localhost' IDENTIFIED BY 'qwerty1234';
 
   GRANT ALL PRIVILEGES ON `computer-database-db`.* TO 'admincdb'@'localhost' WITH GRANT OPTION;
+  #Read the lag of the replicas (SHOW SLAVE STATUS), a global privilege
+  GRANT REPLICATION CLIENT ON *.* TO 'admincdb'@'localhost';
 
 
   FLUSH PRIVILEGES;